@@ -229,6 +229,14 @@ export async function fullRefreshSyncState(){
   await db.table('settings').put({ key:'lastSyncTs', value: 0 })
 }
 
+// Drop synced decks/notes/cards before applying a full copy (the server purged deletions we never saw)
+export async function clearSyncedContent(){
+  await db.open()
+  await db.transaction('rw', db.decks, db.notes, db.cards, async () => {
+    await db.decks.clear(); await db.notes.clear(); await db.cards.clear()
+  })
+}
+
 export async function getLocalCounts(){
   await db.open()
   const decks = await db.decks.count()
@@ -1,4 +1,4 @@
-import { getPairingConfig, getLastSyncTs, setLastSyncTs, upsertDecks, upsertNotes, upsertCards, getPendingReviews, markReviewsSynced } from './db'
+import { getPairingConfig, getLastSyncTs, setLastSyncTs, upsertDecks, upsertNotes, upsertCards, clearSyncedContent, getPendingReviews, markReviewsSynced } from './db'
 import { fetchDecks, fetchNotes, fetchCards, postReviews, postSync } from './api'
 
 export async function syncNow(){
@@ -18,6 +18,7 @@ export async function syncNow(){
     }
     const resp = await postSync(serverUrl, token, req)
     if (resp && resp.data){
+      if (resp.fullResync) await clearSyncedContent()
       counts.decks = await upsertDecks(resp.data.decks || [])
       counts.notes = await upsertNotes(resp.data.notes || [])
       counts.cards = await upsertCards(resp.data.cards || [])
@@ -30,11 +31,20 @@ export async function syncNow(){
   }
 
   // Legacy fallback
-  const [decks, notes, cards] = await Promise.all([
+  const fetchAll = (ts) => Promise.all([
     fetchDecks(serverUrl, token),
-    fetchNotes(serverUrl, token, since),
-    fetchCards(serverUrl, token, since)
+    fetchNotes(serverUrl, token, ts),
+    fetchCards(serverUrl, token, ts)
   ])
+  let decks, notes, cards
+  try {
+    [decks, notes, cards] = await fetchAll(since)
+  } catch (e) {
+    // 410: deletions since our last sync were purged on the server, so start over from a full copy
+    if (!since || !/ 410$/.test(String(e && e.message))) throw e
+    ;[decks, notes, cards] = await fetchAll(0)
+    await clearSyncedContent()
+  }
   counts.decks = await upsertDecks(decks)
   counts.notes = await upsertNotes(notes)
   counts.cards = await upsertCards(cards)
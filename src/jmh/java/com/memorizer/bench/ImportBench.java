@@ -0,0 +1,38 @@
+package com.memorizer.bench;
+
+import com.memorizer.importer.ExcelImportService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/** Excel import (one sheet per deck) into an empty database; each measured iteration gets a fresh database. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImportBench {
+
+    @Param({"4"})
+    public int decks;
+    @Param({"1000"})
+    public int rowsPerDeck;
+
+    private File workbook;
+
+    @Setup(Level.Trial)
+    public void writeWorkbook() throws Exception {
+        workbook = File.createTempFile("memo-bench-", ".xlsx");
+        workbook.deleteOnExit();
+        SyntheticCollection.writeWorkbook(workbook, decks, rowsPerDeck);
+    }
+
+    @Setup(Level.Iteration)
+    public void freshDatabase() throws Exception {
+        SyntheticCollection.freshDatabase();
+    }
+
+    @Benchmark
+    public ExcelImportService.Report importFile() {
+        return new ExcelImportService().importFile(workbook);
+    }
+}
@@ -0,0 +1,43 @@
+package com.memorizer.bench;
+
+import com.memorizer.db.Database;
+import com.memorizer.service.PlanService;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+
+/** Building today's plan from scratch on a synthetic collection. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PlanBench {
+
+    @Param({"4"})
+    public int decks;
+    @Param({"5000"})
+    public int notesPerDeck;
+    @Param({"5"})
+    public int reviewsPerCard;
+
+    private PlanService plan;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        SyntheticCollection.create(decks, notesPerDeck, reviewsPerCard, 42L);
+        plan = new PlanService();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearPlan() throws Exception {
+        try (PreparedStatement ps = Database.get().prepareStatement("DELETE FROM study_plan")) {
+            ps.executeUpdate();
+        }
+    }
+
+    @Benchmark
+    public int buildToday() {
+        plan.buildToday();
+        return plan.todayCounts().total;
+    }
+}
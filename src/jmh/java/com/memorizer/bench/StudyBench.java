@@ -0,0 +1,49 @@
+package com.memorizer.bench;
+
+import com.memorizer.db.CardRepository;
+import com.memorizer.model.Card;
+import com.memorizer.model.Rating;
+import com.memorizer.service.StudyService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/** Card selection and rating on a synthetic collection. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StudyBench {
+
+    @Param({"4"})
+    public int decks;
+    @Param({"5000"})
+    public int notesPerDeck;
+    @Param({"5"})
+    public int reviewsPerCard;
+
+    private CardRepository cards;
+    private StudyService study;
+    private final Rating[] ratings = {Rating.GOOD, Rating.GOOD, Rating.HARD, Rating.EASY, Rating.AGAIN};
+    private int turn;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        SyntheticCollection.create(decks, notesPerDeck, reviewsPerCard, 42L);
+        cards = new CardRepository();
+        study = new StudyService();
+    }
+
+    @Benchmark
+    public Optional<Card> findNextDueOrNew() {
+        return cards.findNextDueOrNew();
+    }
+
+    /** Show the next card and rate it, as one banner interaction does. */
+    @Benchmark
+    public boolean nextAndRate() {
+        boolean shown = study.nextCard().isPresent();
+        study.rate(ratings[turn++ % ratings.length]);
+        return shown;
+    }
+}
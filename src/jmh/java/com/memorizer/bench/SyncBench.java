@@ -0,0 +1,41 @@
+package com.memorizer.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.memorizer.app.WebServerManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** The pull half of /api/sync: querying the collection and serializing it with Jackson. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SyncBench {
+
+    @Param({"4"})
+    public int decks;
+    @Param({"5000"})
+    public int notesPerDeck;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Map<String, Object> payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        SyntheticCollection.create(decks, notesPerDeck, 0, 42L);
+        payload = WebServerManager.buildSyncResponse(0L);
+    }
+
+    /** Full sync response: queries plus serialization. */
+    @Benchmark
+    public byte[] fullSync() throws Exception {
+        return mapper.writeValueAsBytes(WebServerManager.buildSyncResponse(0L));
+    }
+
+    /** Serialization only, over a prebuilt payload. */
+    @Benchmark
+    public byte[] serializeOnly() throws Exception {
+        return mapper.writeValueAsBytes(payload);
+    }
+}
@@ -0,0 +1,162 @@
+package com.memorizer.bench;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.Database;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic collection generator for benchmarks.
+ * Creates a fresh H2 database in a temp directory and fills it with decks, notes, one card per
+ * note (a mix of new, learning, review and suspended, with due dates spread around today) and
+ * review history, using batched inserts.
+ */
+public final class SyntheticCollection {
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final int BATCH = 1000;
+
+    private SyntheticCollection() {}
+
+    /** Point the app at a new empty database and run migrations. */
+    public static Path freshDatabase() throws Exception {
+        Path dir = Files.createTempDirectory("memo-bench-");
+        Database.stop();
+        Config.set("app.db.path", dir.resolve("memo").toString());
+        Database.start();
+        return dir;
+    }
+
+    /**
+     * Create a fresh database and populate it.
+     * @param decks number of decks
+     * @param notesPerDeck notes (and cards) per deck
+     * @param reviewsPerCard review_log rows per non-new card
+     * @param seed random seed, so runs are comparable
+     */
+    public static Path create(int decks, int notesPerDeck, int reviewsPerCard, long seed) throws Exception {
+        Path dir = freshDatabase();
+        Connection c = Database.get();
+        SplittableRandom rnd = new SplittableRandom(seed);
+        long now = System.currentTimeMillis();
+        c.setAutoCommit(false);
+        try (PreparedStatement deck = c.prepareStatement("INSERT INTO deck(id, name) VALUES (?,?)");
+             PreparedStatement note = c.prepareStatement(
+                     "INSERT INTO note(id, deck_id, front, back, reading, examples, tags) VALUES (?,?,?,?,?,?,?)");
+             PreparedStatement card = c.prepareStatement(
+                     "INSERT INTO card(id, note_id, due_at, interval_days, ease, reps, lapses, status, last_review_at) VALUES (?,?,?,?,?,?,?,?,?)");
+             PreparedStatement log = c.prepareStatement(
+                     "INSERT INTO review_log(card_id, reviewed_at, rating, prev_interval, next_interval, ease, latency_ms) VALUES (?,?,?,?,?,?,?)")) {
+            for (int d = 1; d <= decks; d++) {
+                deck.setLong(1, d);
+                deck.setString(2, "Deck " + d);
+                deck.addBatch();
+            }
+            deck.executeBatch();
+
+            long id = 0;
+            int pending = 0;
+            for (int d = 1; d <= decks; d++) {
+                for (int i = 0; i < notesPerDeck; i++) {
+                    id++;
+                    note.setLong(1, id);
+                    note.setLong(2, d);
+                    note.setString(3, "word-" + id);
+                    note.setString(4, "meaning of word " + id);
+                    note.setString(5, "reading-" + id);
+                    note.setString(6, "Example sentence one for " + id + ".\nExample sentence two for " + id + ".");
+                    note.setString(7, "tag" + (id % 7));
+                    note.addBatch();
+
+                    // ~30% new, ~10% learning, ~55% review, ~5% suspended
+                    double u = rnd.nextDouble();
+                    int status = u < 0.30 ? 0 : u < 0.40 ? 1 : u < 0.95 ? 2 : 3;
+                    double ivl = status == 0 ? 0 : status == 1 ? 0.01 : 1 + rnd.nextInt(120);
+                    double ease = 1.3 + rnd.nextDouble() * 1.7;
+                    int lapses = rnd.nextInt(10) == 0 ? rnd.nextInt(12) : 0;
+                    card.setLong(1, id);
+                    card.setLong(2, id);
+                    if (status == 0) card.setNull(3, Types.TIMESTAMP);
+                    else card.setTimestamp(3, new Timestamp(now + (long) ((rnd.nextDouble() * 1.5 - 0.5) * ivl * DAY_MS)));
+                    if (status == 0) card.setNull(4, Types.DOUBLE); else card.setDouble(4, ivl);
+                    card.setDouble(5, ease);
+                    card.setInt(6, status == 0 ? 0 : 1 + rnd.nextInt(20));
+                    card.setInt(7, lapses);
+                    card.setInt(8, status);
+                    if (status == 0) card.setNull(9, Types.TIMESTAMP);
+                    else card.setTimestamp(9, new Timestamp(now - (long) (rnd.nextDouble() * ivl * DAY_MS)));
+                    card.addBatch();
+
+                    if (status != 0) {
+                        for (int r = 0; r < reviewsPerCard; r++) {
+                            log.setLong(1, id);
+                            log.setTimestamp(2, new Timestamp(now - (long) rnd.nextInt(365) * DAY_MS));
+                            log.setInt(3, 1 + rnd.nextInt(4));
+                            log.setDouble(4, ivl / 2);
+                            log.setDouble(5, ivl);
+                            log.setDouble(6, ease);
+                            log.setInt(7, 2000 + rnd.nextInt(15000));
+                            log.addBatch();
+                        }
+                    }
+                    if (++pending == BATCH) {
+                        note.executeBatch(); card.executeBatch(); log.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            note.executeBatch(); card.executeBatch(); log.executeBatch();
+            c.commit();
+        } catch (Exception e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(true);
+        }
+        // Identity columns were bypassed with explicit ids; move them past the generated rows
+        try (Statement st = c.createStatement()) {
+            st.execute("ALTER TABLE deck ALTER COLUMN id RESTART WITH " + (decks + 1));
+            st.execute("ALTER TABLE note ALTER COLUMN id RESTART WITH " + ((long) decks * notesPerDeck + 1));
+            st.execute("ALTER TABLE card ALTER COLUMN id RESTART WITH " + ((long) decks * notesPerDeck + 1));
+            st.execute("ANALYZE");
+        }
+        return dir;
+    }
+
+    /** Write an import workbook in the template layout (deck, front, back, reading, pos, examples, tags), one sheet per deck. */
+    public static File writeWorkbook(File out, int decks, int rowsPerDeck) throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook(); FileOutputStream fos = new FileOutputStream(out)) {
+            String[] header = {"deck", "front", "back", "reading", "pos", "examples", "tags"};
+            int n = 0;
+            for (int d = 1; d <= decks; d++) {
+                Sheet sh = wb.createSheet("Import " + d);
+                Row h = sh.createRow(0);
+                for (int i = 0; i < header.length; i++) h.createCell(i).setCellValue(header[i]);
+                for (int r = 1; r <= rowsPerDeck; r++) {
+                    n++;
+                    Row row = sh.createRow(r);
+                    row.createCell(0).setCellValue("Import " + d);
+                    row.createCell(1).setCellValue("term-" + n);
+                    row.createCell(2).setCellValue("definition of term " + n);
+                    row.createCell(3).setCellValue("reading-" + n);
+                    row.createCell(4).setCellValue("n.");
+                    row.createCell(5).setCellValue("Example for term " + n + ".");
+                    row.createCell(6).setCellValue("bench");
+                }
+            }
+            wb.write(fos);
+        }
+        return out;
+    }
+}
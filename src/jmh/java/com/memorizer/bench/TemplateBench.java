@@ -0,0 +1,39 @@
+package com.memorizer.bench;
+
+import com.memorizer.web.TemplateRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Rendering the SSR layout with a typical page body. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TemplateBench {
+
+    @Param({"50"})
+    public int rows;
+
+    private final Map<String, Object> model = new HashMap<String, Object>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder sb = new StringBuilder("<table>");
+        for (int i = 0; i < rows; i++) {
+            sb.append("<tr><td>").append(i).append("</td><td>word-").append(i)
+              .append("</td><td>meaning of word ").append(i).append("</td></tr>");
+        }
+        sb.append("</table>");
+        model.put("title", "Browse");
+        model.put("content", sb.toString());
+        model.put("flash", "");
+        model.put("serverMode", "https");
+    }
+
+    @Benchmark
+    public String renderLayout() {
+        return TemplateRenderer.render("layout", model);
+    }
+}
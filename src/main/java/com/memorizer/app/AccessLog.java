@@ -0,0 +1,43 @@
+package com.memorizer.app;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Structured, sampled HTTP access log on the {@code memorizer.access} logger (own async appender, see logback.xml).
+ * Every error (status >= 400) and slow request is written; other requests are kept with probability
+ * {@code app.web.access-log.sample-rate}. Lines are {@code key=value} pairs so they can be grepped or parsed.
+ */
+public final class AccessLog {
+    private static final Logger log = LoggerFactory.getLogger("memorizer.access");
+
+    private AccessLog() {}
+
+    /** Record one finished request; {@code bytes} is -1 when unknown (streamed body). */
+    public static void record(String method, String route, String path, int status, long elapsedNanos, long bytes, String ip) {
+        if (!log.isInfoEnabled()) return;
+        long ms = elapsedNanos / 1_000_000L;
+        boolean always = status >= 400 || ms >= Config.getInt("app.web.access-log.slow-ms", 500);
+        if (!always && !sampled()) return;
+        StringBuilder sb = new StringBuilder(160);
+        sb.append("method=").append(method)
+          .append(" route=").append(route)
+          .append(" path=").append(path)
+          .append(" status=").append(status)
+          .append(" ms=").append(ms);
+        if (bytes >= 0) sb.append(" bytes=").append(bytes);
+        if (ip != null) sb.append(" ip=").append(ip);
+        if (always && status < 400) sb.append(" slow=true");
+        log.info(sb.toString());
+    }
+
+    private static boolean sampled() {
+        String v = Config.get("app.web.access-log.sample-rate", "0.1");
+        double rate;
+        try { rate = Double.parseDouble(v); } catch (NumberFormatException e) { rate = 0.1; }
+        if (rate >= 1.0) return true;
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+}
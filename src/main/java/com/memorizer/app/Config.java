@@ -1,15 +1,38 @@
 package com.memorizer.app;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Simple config loader. For Stage A we load only from classpath.
- * Later we can support external properties path override.
+ * Config loader: classpath application.properties overlaid with data/prefs.properties.
+ * Reads go through an immutable {@link ConfigSnapshot} that is replaced (copy-on-write) on every
+ * {@link #set}; listeners are notified after the swap and the prefs file is written off-thread, debounced.
  */
 public final class Config {
+    /** Receives the previous and the new snapshot plus the keys whose value changed. */
+    public interface Listener {
+        void onChange(ConfigSnapshot before, ConfigSnapshot after, Set<String> changedKeys);
+    }
+
     private static final Properties PROPS = new Properties();
     private static final File PREFS_FILE = new File("data/prefs.properties");
+    private static final long SAVE_DEBOUNCE_MS = 400;
+
+    private static final CopyOnWriteArrayList<Listener> LISTENERS = new CopyOnWriteArrayList<Listener>();
+    private static volatile ConfigSnapshot current;
+
+    private static final Object SAVE_LOCK = new Object();
+    private static ScheduledExecutorService writer;
+    private static ScheduledFuture<?> pendingSave;
 
     static {
         try (InputStream in = Config.class.getClassLoader().getResourceAsStream("application.properties")) {
@@ -30,57 +53,85 @@ public final class Config {
         } catch (IOException e) {
             // ignore overlay errors; proceed with defaults
         }
+        current = new ConfigSnapshot(PROPS);
     }
 
-    public static String get(String key, String def) {
-        String v = PROPS.getProperty(key);
-        if (v == null) return def;
-        return sanitize(v);
-    }
+    /** Current immutable configuration; read it once per operation when several keys must agree. */
+    public static ConfigSnapshot snapshot() { return current; }
 
-    public static int getInt(String key, int def) {
-        try {
-            String raw = PROPS.getProperty(key);
-            if (raw == null) return def;
-            String s = sanitize(raw);
-            return Integer.parseInt(s);
-        }
-        catch (Exception e) { return def; }
-    }
+    public static String get(String key, String def) { return current.get(key, def); }
+
+    public static int getInt(String key, int def) { return current.getInt(key, def); }
+
+    public static boolean getBool(String key, boolean def) { return current.getBool(key, def); }
+
+    public static void addListener(Listener l) { if (l != null) LISTENERS.add(l); }
 
-    public static boolean getBool(String key, boolean def) {
-        String v = PROPS.getProperty(key);
-        return v == null ? def : Boolean.parseBoolean(sanitize(v));
+    public static void removeListener(Listener l) { LISTENERS.remove(l); }
+
+    /** Update a property value at runtime, publish a new snapshot and schedule a prefs write. */
+    public static void set(String key, String value) {
+        if (key == null) return;
+        ConfigSnapshot before, after;
+        synchronized (PROPS) {
+            String old = PROPS.getProperty(key);
+            if (value == null ? old == null : value.equals(old)) return;
+            if (value == null) PROPS.remove(key); else PROPS.setProperty(key, value);
+            before = current;
+            after = new ConfigSnapshot(PROPS);
+            current = after;
+        }
+        Set<String> changed = new HashSet<String>();
+        changed.add(key);
+        for (Listener l : LISTENERS) {
+            try { l.onChange(before, after, changed); } catch (Exception ignored) {}
+        }
+        scheduleSave();
     }
 
-    /** Strip inline comments ("#" or ";") and trim. */
-    private static String sanitize(String v) {
-        if (v == null) return null;
-        String s = v;
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            if (c == '#' || c == ';') { s = s.substring(0, i); break; }
+    private static void scheduleSave() {
+        synchronized (SAVE_LOCK) {
+            if (writer == null) {
+                writer = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "config-writer");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            if (pendingSave != null) pendingSave.cancel(false);
+            pendingSave = writer.schedule(Config::savePrefs, SAVE_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
         }
-        return s.trim();
     }
 
-    /** Update a property value at runtime and persist to prefs file. */
-    public static void set(String key, String value) {
-        if (key == null) return;
-        if (value == null) PROPS.remove(key); else PROPS.setProperty(key, value);
-        savePrefs();
+    /** Write any pending prefs change now (call on shutdown). */
+    public static void flush() {
+        boolean pending;
+        synchronized (SAVE_LOCK) {
+            pending = pendingSave != null && pendingSave.cancel(false);
+            pendingSave = null;
+        }
+        if (pending) savePrefs();
     }
 
     /** Persist current properties override to data/prefs.properties (creates file if missing). */
     public static synchronized void savePrefs() {
+        Properties p = new Properties();
+        synchronized (PROPS) {
+            // To keep file small, only write keys differing from classpath defaults is complex; write all for simplicity
+            p.putAll(PROPS);
+        }
         try {
-            if (PREFS_FILE.getParentFile() != null) PREFS_FILE.getParentFile().mkdirs();
-            try (OutputStream out = new FileOutputStream(PREFS_FILE)) {
-                Properties p = new Properties();
-                // To keep file small, only write keys differing from classpath defaults is complex; write all for simplicity
-                p.putAll(PROPS);
+            File dir = PREFS_FILE.getAbsoluteFile().getParentFile();
+            if (dir != null) dir.mkdirs();
+            File tmp = new File(dir, PREFS_FILE.getName() + ".tmp");
+            try (OutputStream out = new FileOutputStream(tmp)) {
                 p.store(out, "Memorizer preferences");
             }
+            try {
+                Files.move(tmp.toPath(), PREFS_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(tmp.toPath(), PREFS_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException ignored) {}
     }
 
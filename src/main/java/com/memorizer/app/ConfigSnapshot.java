@@ -0,0 +1,105 @@
+package com.memorizer.app;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable view of the configuration at one point in time.
+ * Values are sanitized once when the snapshot is built; settings read on hot paths
+ * (scheduler tick, plan queries, deck filter) are additionally parsed into typed fields.
+ * Obtain the current one with {@link Config#snapshot()}; a new instance is published on every change.
+ */
+public final class ConfigSnapshot {
+    private final Map<String, String> values;
+    /** Memoized parses for the generic accessors; safe because the values never change. */
+    private final Map<String, Object> parsed = new ConcurrentHashMap<String, Object>();
+
+    /** Deck filter id, or null when "all decks" is selected. */
+    public final Long deckFilterId;
+    public final String schedulerMode;
+    public final String studyMode;
+    public final int batchSize;
+    public final int challengeBatchSize;
+    public final int dailyNewLimit;
+    public final int dailyTarget;
+    public final int leechLapsesThreshold;
+    public final int examLeechWrongStreak;
+    public final int snoozeMinutes;
+    public final int deferBusyMinutes;
+    public final int minIntervalMinutes;
+    public final int maxIntervalMinutes;
+    public final boolean forceShowWhenEmpty;
+
+    ConfigSnapshot(Properties props) {
+        Map<String, String> m = new HashMap<String, String>();
+        for (String k : props.stringPropertyNames()) m.put(k, sanitize(props.getProperty(k)));
+        this.values = Collections.unmodifiableMap(m);
+
+        this.deckFilterId = parseDeckFilter(values.get("app.deck.filter"));
+        this.schedulerMode = get("app.study.scheduler.mode", "due");
+        this.studyMode = get("app.study.mode", "fixed");
+        this.batchSize = getInt("app.study.batch-size", 3);
+        this.challengeBatchSize = getInt("app.study.challenge-batch-size", 10);
+        this.dailyNewLimit = getInt("app.study.daily-new-limit", 20);
+        this.dailyTarget = getInt("app.study.daily-target", 50);
+        this.leechLapsesThreshold = getInt("app.study.leech-lapses-threshold", 8);
+        this.examLeechWrongStreak = getInt("app.exam.leech-wrong-streak", 3);
+        this.snoozeMinutes = getInt("app.study.snooze-minutes", 10);
+        this.deferBusyMinutes = getInt("app.study.defer-when-busy-minutes", 3);
+        this.minIntervalMinutes = getInt("app.study.min-interval-minutes", 20);
+        this.maxIntervalMinutes = getInt("app.study.max-interval-minutes", 60);
+        this.forceShowWhenEmpty = getBool("app.study.force-show-when-empty", true);
+    }
+
+    public String get(String key, String def) {
+        String v = values.get(key);
+        return v == null ? def : v;
+    }
+
+    public int getInt(String key, int def) {
+        Object p = parsed.get(key);
+        if (p instanceof Integer) return (Integer) p;
+        String v = values.get(key);
+        if (v == null) return def;
+        try {
+            int i = Integer.parseInt(v);
+            parsed.put(key, i);
+            return i;
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    public boolean getBool(String key, boolean def) {
+        String v = values.get(key);
+        return v == null ? def : Boolean.parseBoolean(v);
+    }
+
+    /** True when {@code key} has a different value than in {@code other}. */
+    public boolean changed(ConfigSnapshot other, String key) {
+        return other == null || !Objects.equals(values.get(key), other.values.get(key));
+    }
+
+    /** True if the deck filter is "all decks". */
+    public boolean isDeckFilterAll() { return deckFilterId == null; }
+
+    private static Long parseDeckFilter(String sel) {
+        if (sel == null || sel.isEmpty() || "all".equalsIgnoreCase(sel)) return null;
+        try { return Long.parseLong(sel); } catch (NumberFormatException e) { return null; }
+    }
+
+    /** Strip inline comments ("#" or ";") and trim. */
+    static String sanitize(String v) {
+        if (v == null) return null;
+        String s = v;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '#' || c == ';') { s = s.substring(0, i); break; }
+        }
+        return s.trim();
+    }
+}
@@ -16,6 +16,7 @@ import java.io.*;
 import java.math.BigInteger;
 import java.net.InetAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -26,14 +27,15 @@ import java.util.*;
 
 /**
  * Local CA generator and leaf certificate issuer for HTTPS (dev/local use).
- * Generates/stores a CA under data/ca/, and issues a PKCS12 leaf for Jetty with proper SAN/EKU/KU.
+ * Generates/stores a CA under data/ca/, and issues PKCS12 leaves for Jetty with proper SAN/EKU/KU.
  */
 public final class LocalCAService {
     private static final String BC = BouncyCastleProvider.PROVIDER_NAME;
     private static final Path CA_DIR = Paths.get("data", "ca");
     private static final Path CA_CERT_PEM = CA_DIR.resolve("ca.crt");
     private static final Path CA_STORE_P12 = CA_DIR.resolve("ca.p12");
-    private static final Path LEAF_STORE_P12 = CA_DIR.resolve("server.p12");
+    private static final Path LEAF_DIR = CA_DIR.resolve("leaf");
+    private static final Path LEGACY_LEAF_P12 = CA_DIR.resolve("server.p12");
 
     static {
         if (Security.getProvider(BC) == null) Security.addProvider(new BouncyCastleProvider());
@@ -61,39 +63,55 @@ public final class LocalCAService {
         }
     }
 
+    /**
+     * Leaf keystore whose SANs cover localhost, {@code host} and {@code ip}. Leaves are cached per SAN set and key
+     * type under data/ca/leaf/, so switching between known networks is a file lookup. A new SAN set reuses the
+     * existing leaf key pair and only needs a CA signature; key generation happens once per key type.
+     */
     public static synchronized Path ensureLeafKeystore(String host, String ip) {
         ensureCA();
         try {
-            // If existing leaf covers host/ip, reuse
-            if (Files.exists(LEAF_STORE_P12)) {
-                try {
-                    if (leafCovers(host, ip)) return LEAF_STORE_P12;
-                } catch (Exception ignored) {}
-            }
-            // Issue new leaf
-            KeyPair leafKp = genRSA();
-            X500Name subj = new X500Name("CN=Memorizer Local Server");
-            // Load CA keypair and cert
+            String keyType = leafKeyType();
+            List<String> sans = sanSet(host, ip);
+            Path cached = LEAF_DIR.resolve(keyType.toLowerCase(Locale.ROOT) + "-" + sanKey(keyType, sans) + ".p12");
+
             char[] caPass = getCAStorePass();
             KeyStore caKs = KeyStore.getInstance("PKCS12");
             try (InputStream in = Files.newInputStream(CA_STORE_P12)) { caKs.load(in, caPass); }
-            PrivateKey caKey = (PrivateKey) caKs.getKey("ca", caPass);
             X509Certificate caCert = (X509Certificate) caKs.getCertificate("ca");
+            if (Files.exists(cached) && usableLeaf(cached, caCert)) {
+                try { Files.setLastModifiedTime(cached, java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis())); } catch (IOException ignored) {}
+                return cached;
+            }
+
+            KeyPair leafKp = reusableLeafKey(keyType);
+            if (leafKp == null) leafKp = "EC".equals(keyType) ? genEC() : genRSA();
+            PrivateKey caKey = (PrivateKey) caKs.getKey("ca", caPass);
+            X500Name subj = new X500Name("CN=Memorizer Local Server");
             X509Certificate leaf = signLeaf(leafKp.getPublic(), subj, caKey, caCert, host, ip, days(365));
 
-            // Write server PKCS12 with chain
+            // Write server PKCS12 with chain (tmp + move so a concurrent reader never sees a partial file)
             char[] leafPass = getLeafStorePass();
             KeyStore leafKs = KeyStore.getInstance("PKCS12");
             leafKs.load(null, leafPass);
             leafKs.setKeyEntry("server", leafKp.getPrivate(), leafPass, new Certificate[]{leaf, caCert});
-            Files.createDirectories(LEAF_STORE_P12.getParent());
-            try (OutputStream out = Files.newOutputStream(LEAF_STORE_P12)) { leafKs.store(out, leafPass); }
-            return LEAF_STORE_P12;
+            Files.createDirectories(LEAF_DIR);
+            Path tmp = cached.resolveSibling(cached.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) { leafKs.store(out, leafPass); }
+            Files.move(tmp, cached, java.nio.file.StandardCopyOption.REPLACE_EXISTING, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            pruneLeaves();
+            return cached;
         } catch (Exception e) {
             throw new RuntimeException("Failed to ensure leaf keystore", e);
         }
     }
 
+    /** Leaf key algorithm from {@code app.web.tls.key-type}: RSA (default, widest support) or EC (P-256, cheaper handshakes). */
+    public static String leafKeyType() {
+        String t = Config.get("app.web.tls.key-type", "RSA").trim().toUpperCase(Locale.ROOT);
+        return "EC".equals(t) || "ECDSA".equals(t) ? "EC" : "RSA";
+    }
+
     public static char[] getLeafStorePass() {
         return Config.get("app.web.keystore.pass", "memorizer-dev-pass").toCharArray();
     }
@@ -102,31 +120,81 @@ public final class LocalCAService {
     }
 
     public static Path caCertPath() { return CA_CERT_PEM; }
-    public static Path leafStorePath() { return LEAF_STORE_P12; }
 
-    private static boolean leafCovers(String host, String ip) throws Exception {
-        char[] pass = getLeafStorePass();
-        KeyStore ks = KeyStore.getInstance("PKCS12");
-        try (InputStream in = Files.newInputStream(LEAF_STORE_P12)) { ks.load(in, pass); }
-        X509Certificate cert = (X509Certificate) ks.getCertificate("server");
-        if (cert == null) return false;
-        Collection<List<?>> sans = cert.getSubjectAlternativeNames();
-        boolean hasHost = false, hasIp = false;
-        if (sans != null) {
-            for (List<?> alt : sans) {
-                Integer type = (Integer) alt.get(0);
-                Object val = alt.get(1);
-                if (type == 2) { // dNSName
-                    if (host != null && host.equalsIgnoreCase(String.valueOf(val))) hasHost = true;
-                    if ("localhost".equalsIgnoreCase(String.valueOf(val))) { /* ok */ }
-                } else if (type == 7) { // iPAddress
-                    if (ip != null && ip.equals(String.valueOf(val))) hasIp = true;
+    /** Sorted, de-duplicated SAN entries the leaf must carry. */
+    private static List<String> sanSet(String host, String ip) {
+        TreeSet<String> set = new TreeSet<String>();
+        set.add("dns:localhost");
+        if (host != null && !host.isEmpty()) set.add("dns:" + host.toLowerCase(Locale.ROOT));
+        if (ip != null && !ip.isEmpty()) set.add("ip:" + ip);
+        return new ArrayList<String>(set);
+    }
+
+    private static String sanKey(String keyType, List<String> sans) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(keyType.getBytes(StandardCharsets.US_ASCII));
+        for (String s : sans) { md.update((byte) 0); md.update(s.getBytes(StandardCharsets.UTF_8)); }
+        byte[] d = md.digest();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 8; i++) sb.append(String.format("%02x", d[i]));
+        return sb.toString();
+    }
+
+    /** Cached leaf is signed by the current CA and valid for at least another week. */
+    private static boolean usableLeaf(Path p, X509Certificate caCert) {
+        try {
+            X509Certificate cert = (X509Certificate) loadLeaf(p).getCertificate("server");
+            if (cert == null) return false;
+            cert.checkValidity(new Date(System.currentTimeMillis() + 7L * 24 * 60 * 60 * 1000));
+            cert.verify(caCert.getPublicKey());
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /** Key pair of the most recently used cached leaf of {@code keyType} (or the pre-cache server.p12), if any. */
+    private static KeyPair reusableLeafKey(String keyType) {
+        List<Path> candidates = new ArrayList<Path>(cachedLeaves());
+        if (Files.exists(LEGACY_LEAF_P12)) candidates.add(LEGACY_LEAF_P12);
+        for (Path p : candidates) {
+            try {
+                KeyStore ks = loadLeaf(p);
+                Key key = ks.getKey("server", getLeafStorePass());
+                Certificate cert = ks.getCertificate("server");
+                if (key instanceof PrivateKey && cert != null && keyType.equals(key.getAlgorithm())) {
+                    return new KeyPair(cert.getPublicKey(), (PrivateKey) key);
                 }
-            }
+            } catch (Exception ignored) {}
+        }
+        return null;
+    }
+
+    private static KeyStore loadLeaf(Path p) throws Exception {
+        KeyStore ks = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(p)) { ks.load(in, getLeafStorePass()); }
+        return ks;
+    }
+
+    /** Cached leaf keystores, most recently used first. */
+    private static List<Path> cachedLeaves() {
+        List<Path> out = new ArrayList<Path>();
+        if (!Files.isDirectory(LEAF_DIR)) return out;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(LEAF_DIR, "*.p12")) {
+            for (Path p : ds) out.add(p);
+        } catch (IOException e) {
+            return out;
+        }
+        out.sort((a, b) -> Long.compare(b.toFile().lastModified(), a.toFile().lastModified()));
+        return out;
+    }
+
+    private static void pruneLeaves() {
+        int keep = Math.max(1, Config.getInt("app.web.tls.leaf-cache-size", 8));
+        List<Path> leaves = cachedLeaves();
+        for (int i = keep; i < leaves.size(); i++) {
+            try { Files.deleteIfExists(leaves.get(i)); } catch (IOException ignored) {}
         }
-        // Also ensure validity not expired
-        cert.checkValidity(new Date());
-        return hasIp || hasHost; // prefer any coverage to avoid churn
     }
 
     private static KeyPair genRSA() throws Exception {
@@ -135,6 +203,12 @@ public final class LocalCAService {
         return kpg.generateKeyPair();
     }
 
+    private static KeyPair genEC() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC");
+        kpg.initialize(new java.security.spec.ECGenParameterSpec("secp256r1"));
+        return kpg.generateKeyPair();
+    }
+
     private static X509Certificate selfSignCA(KeyPair kp, X500Name issuer, int days) throws Exception {
         Date notBefore = new Date(System.currentTimeMillis() - 24 * 60 * 60 * 1000L);
         Date notAfter = new Date(System.currentTimeMillis() + days * 24L * 60L * 60L * 1000L);
@@ -161,13 +235,14 @@ public final class LocalCAService {
         BigInteger serial = new BigInteger(64, new SecureRandom());
         SubjectPublicKeyInfo spki = SubjectPublicKeyInfo.getInstance(pub.getEncoded());
         X509v3CertificateBuilder builder = new X509v3CertificateBuilder(
-                new X500Name(caCert.getSubjectX500Principal().getName()), serial, notBefore, notAfter, subj, spki);
+                X500Name.getInstance(caCert.getSubjectX500Principal().getEncoded()), serial, notBefore, notAfter, subj, spki);
         JcaX509ExtensionUtils ext = new JcaX509ExtensionUtils();
         builder.addExtension(Extension.subjectKeyIdentifier, false, ext.createSubjectKeyIdentifier(pub));
         builder.addExtension(Extension.authorityKeyIdentifier, false, ext.createAuthorityKeyIdentifier(caCert));
         builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
-        // KU: digitalSignature + keyEncipherment
-        builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature | KeyUsage.keyEncipherment));
+        // KU: digitalSignature (+ keyEncipherment for RSA key exchange; not valid for EC keys)
+        int ku = "EC".equals(pub.getAlgorithm()) ? KeyUsage.digitalSignature : KeyUsage.digitalSignature | KeyUsage.keyEncipherment;
+        builder.addExtension(Extension.keyUsage, true, new KeyUsage(ku));
         // EKU: serverAuth
         builder.addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(KeyPurposeId.id_kp_serverAuth));
         // SANs
@@ -0,0 +1,53 @@
+package com.memorizer.app;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runtime view and control of logback logger levels (backs {@code /api/admin/log-levels}).
+ * Changes are in-memory only and reset on restart.
+ */
+public final class LogLevels {
+    private LogLevels() {}
+
+    /** Loggers with an explicitly set level, name to level; the root logger is listed as "ROOT". */
+    public static Map<String, String> configured() {
+        Map<String, String> out = new LinkedHashMap<String, String>();
+        LoggerContext ctx = context();
+        if (ctx == null) return out;
+        for (Logger l : ctx.getLoggerList()) {
+            if (l.getLevel() != null) out.put(l.getName(), l.getLevel().toString());
+        }
+        return out;
+    }
+
+    /**
+     * Set {@code logger}'s level; an empty or "INHERIT" level clears it so the parent's applies.
+     * @return the effective level afterwards
+     */
+    public static String set(String logger, String level) {
+        LoggerContext ctx = context();
+        if (ctx == null) throw new IllegalStateException("logback is not the active logging backend");
+        if (logger == null || logger.trim().isEmpty()) throw new IllegalArgumentException("logger is required");
+        Logger l = ctx.getLogger(logger.trim());
+        if (level == null || level.trim().isEmpty() || "INHERIT".equalsIgnoreCase(level.trim())) {
+            if (l.getName().equals(org.slf4j.Logger.ROOT_LOGGER_NAME)) throw new IllegalArgumentException("root level cannot be cleared");
+            l.setLevel(null);
+        } else {
+            Level parsed = Level.toLevel(level.trim(), null);
+            if (parsed == null) throw new IllegalArgumentException("unknown level: " + level);
+            l.setLevel(parsed);
+        }
+        return l.getEffectiveLevel().toString();
+    }
+
+    private static LoggerContext context() {
+        Object f = LoggerFactory.getILoggerFactory();
+        return f instanceof LoggerContext ? (LoggerContext) f : null;
+    }
+}
@@ -5,6 +5,7 @@ import org.slf4j.LoggerFactory;
 
 import com.memorizer.db.Database;
 import com.memorizer.service.StudyService;
+import com.memorizer.ui.AppIcons;
 import com.memorizer.ui.MainStage;
 import com.memorizer.ui.StealthStage;
 
@@ -13,6 +14,8 @@ import javafx.application.Platform;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 
+import java.util.concurrent.CompletableFuture;
+
 
 /**
  * JavaFX application entrypoint.
@@ -28,82 +31,132 @@ public class MainApp extends Application {
     
     private Stage toolOwner;
 
+    /**
+     * Staged startup. The store opens (Flyway validate/migrate) on a background thread while the
+     * FX thread builds the stages and shows the tray; the tray and main window do not query the
+     * database while they are being constructed. Once the store is up, the scheduler and maintenance
+     * services start and caches are prewarmed in the background. Every phase is timed.
+     */
     @Override
     public void start(Stage primaryStage) {
+        long t0 = System.nanoTime();
         Platform.setImplicitExit(false);
-
-        Database.start();
-        H2ConsoleServer.startIfEnabled();
-
-        // 设置应用图标
-        try {
-            java.net.URL iconUrl = getClass().getResource("/icon.png");
-            if (iconUrl != null) {
-                javafx.scene.image.Image icon = new javafx.scene.image.Image(iconUrl.toString());
-                primaryStage.getIcons().add(icon);
-            }
-        } catch (Exception e) {
-            log.warn("Failed to load application icon", e);
-        }
-
-        // Invisible owner to keep child windows off the taskbar
-        toolOwner = new Stage(StageStyle.UTILITY);
-        toolOwner.setOpacity(0);
-        toolOwner.setWidth(1); toolOwner.setHeight(1);
-        toolOwner.setX(-10000); toolOwner.setY(-10000);
-        toolOwner.setIconified(true);
-        // 为工具窗口也设置图标
-        try {
-            java.net.URL iconUrl = getClass().getResource("/icon.png");
-            if (iconUrl != null) {
-                javafx.scene.image.Image icon = new javafx.scene.image.Image(iconUrl.toString());
-                toolOwner.getIcons().add(icon);
+        // Debounced preference writes still land when the JVM goes down without stop() (startup failure, SIGTERM)
+        Runtime.getRuntime().addShutdownHook(new Thread(Config::flush, "prefs-flush"));
+
+        CompletableFuture<Void> db = CompletableFuture.runAsync(() -> phase("db-open", () -> {
+            Database.start();
+            H2ConsoleServer.startIfEnabled();
+        }), STARTUP);
+
+        phase("stages", () -> {
+            AppIcons.apply(primaryStage);
+
+            // Invisible owner to keep child windows off the taskbar
+            toolOwner = new Stage(StageStyle.UTILITY);
+            toolOwner.setOpacity(0);
+            toolOwner.setWidth(1); toolOwner.setHeight(1);
+            toolOwner.setX(-10000); toolOwner.setY(-10000);
+            toolOwner.setIconified(true);
+            AppIcons.apply(toolOwner);
+            toolOwner.show();
+            AppContext.setOwner(toolOwner);
+
+            stealthStage = new StealthStage();                  // it will use owner if enabled
+            AppIcons.apply(stealthStage);
+            studyService = new StudyService();
+            com.memorizer.service.PlanService planService = new com.memorizer.service.PlanService();
+            studyService.bindPlan(planService);
+            stealthStage.bindStudy(studyService);
+            AppContext.setStudy(studyService);
+            AppContext.setPlan(planService);
+            AppContext.setStealth(stealthStage);
+            Config.addListener((before, after, keys) -> {
+                if (keys.contains("app.deck.filter")) {
+                    com.memorizer.event.EventBus.publish(new com.memorizer.event.DomainEvents.DeckFilterChanged(after.deckFilterId));
+                }
+            });
+            scheduler = new Scheduler(studyService, stealthStage);
+        });
+
+        phase("tray", () -> {
+            trayManager = new TrayManager(stealthStage, null, studyService, scheduler);
+            AppContext.setTray(trayManager);
+        });
+        log.info("Tray ready after {} ms", (System.nanoTime() - t0) / 1_000_000L);
+
+        // Window shell only; panels are built on first view
+        phase("main-stage", () -> {
+            mainStage = new MainStage(studyService, scheduler);
+            AppContext.setMain(mainStage);
+            trayManager.attachMain(mainStage);
+        });
+        if (Config.getBool("app.metrics.enabled", true)) com.memorizer.ui.FxStallMonitor.start();
+
+        db.whenCompleteAsync((v, err) -> {
+            if (err != null) {
+                log.error("Database startup failed", err);
+                Platform.runLater(() -> {
+                    javafx.scene.control.Alert alert = new javafx.scene.control.Alert(javafx.scene.control.Alert.AlertType.ERROR,
+                            "Failed to open the database: " + err.getMessage(), javafx.scene.control.ButtonType.OK);
+                    alert.showAndWait();
+                    System.exit(1);
+                });
+                return;
             }
-        } catch (Exception e) {
-            log.warn("Failed to load tool owner icon", e);
-        }
-        toolOwner.show();
-        AppContext.setOwner(toolOwner);
-
-        stealthStage = new StealthStage();                  // it will use owner if enabled
-        // 为 stealth 窗口设置图标
-        try {
-            java.net.URL iconUrl = getClass().getResource("/icon.png");
-            if (iconUrl != null) {
-                javafx.scene.image.Image icon = new javafx.scene.image.Image(iconUrl.toString());
-                stealthStage.getIcons().add(icon);
-            }
-        } catch (Exception e) {
-            log.warn("Failed to load stealth stage icon", e);
-        }
-        studyService = new StudyService();
-        com.memorizer.service.PlanService planService = new com.memorizer.service.PlanService();
-        studyService.bindPlan(planService);
-        stealthStage.bindStudy(studyService);
-        AppContext.setStudy(studyService);
-        AppContext.setPlan(planService);
-
-        scheduler = new Scheduler(studyService, stealthStage);
-        scheduler.start();
-
-        mainStage = new MainStage(studyService, scheduler);
-        // 为主窗口设置图标
-        try {
-            java.net.URL iconUrl = getClass().getResource("/icon.png");
-            if (iconUrl != null) {
-                javafx.scene.image.Image icon = new javafx.scene.image.Image(iconUrl.toString());
-                mainStage.getIcons().add(icon);
-            }
-        } catch (Exception e) {
-            log.warn("Failed to load main stage icon", e);
-        }
+            phase("services", () -> {
+                scheduler.start();
+                com.memorizer.db.BackupService.get().start();
+                com.memorizer.db.StorageMaintenance.get().start(scheduler::isPaused);
+                com.memorizer.service.PlanSummaryCache.get().start();
+                registerStoreParticipants();
+            });
+            log.info("Memorizer started in {} ms.", (System.nanoTime() - t0) / 1_000_000L);
+            phase("prewarm", () -> {
+                com.memorizer.service.PlanSummaryCache.get().current();
+                if ("Weighted".equalsIgnoreCase(Config.get("app.ui.exam.source", "Plan"))) {
+                    com.memorizer.service.ExamSampler.get().prefetch();
+                }
+                java.awt.EventQueue.invokeLater(trayManager::updatePlanTooltip);
+                try { WebServerManager.prewarmTls(); } catch (Exception e) { log.warn("TLS prewarm failed: {}", e.toString()); }
+            });
+        }, STARTUP);
+    }
 
-        AppContext.setStealth(stealthStage);
-        AppContext.setMain(mainStage);
+    /**
+     * Services that reach the store on their own and must be quiet while it is restored or defragmented:
+     * reminders, the web server (in-flight requests may finish) and queued exam answers.
+     */
+    private void registerStoreParticipants() {
+        com.memorizer.db.StoreGate.register(new com.memorizer.db.StoreGate.Participant() {
+            @Override public void pause() { scheduler.hold(); }
+            @Override public void resume() { scheduler.release(); }
+        });
+        com.memorizer.db.StoreGate.register(new com.memorizer.db.StoreGate.Participant() {
+            private boolean wasRunning;
+            @Override public void pause() { wasRunning = WebServerManager.get().drainAndStop(10_000L); }
+            @Override public void resume() { if (wasRunning) WebServerManager.get().start(); }
+        });
+        com.memorizer.db.StoreGate.register(new com.memorizer.db.StoreGate.Participant() {
+            // Later batches take a side-connection lease and wait for the gate
+            @Override public void pause() { com.memorizer.service.ExamRecorder.get().flush(); }
+            @Override public void resume() {}
+        });
+    }
 
-        trayManager = new TrayManager(stealthStage, mainStage, studyService, scheduler);
-        AppContext.setTray(trayManager);
-        log.info("Memorizer started.");
+    /** Single low-priority daemon thread for the off-FX startup phases. */
+    private static final java.util.concurrent.Executor STARTUP = java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "startup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Run and time one startup phase (log + {@code memorizer_startup_phase_seconds}). */
+    private static void phase(String name, Runnable r) {
+        long t0 = System.nanoTime();
+        r.run();
+        com.memorizer.metrics.Metrics.timer("memorizer_startup_phase_seconds", "phase", name).recordSince(t0);
+        log.info("Startup phase {} took {} ms", name, (System.nanoTime() - t0) / 1_000_000L);
     }
 
     @Override
@@ -112,10 +165,19 @@ public class MainApp extends Application {
             if (trayManager != null) trayManager.shutdown();
             try { com.memorizer.app.WebServerManager.get().stop(); } catch (Exception ignored) {}
             if (scheduler != null) scheduler.stop();
+            com.memorizer.ui.FxStallMonitor.stop();
             H2ConsoleServer.stop();
+            com.memorizer.db.BackupService.get().stop();
+            com.memorizer.db.StorageMaintenance.get().stop();
+            com.memorizer.service.PlanSummaryCache.get().stop();
+            com.memorizer.service.ExamRecorder.get().stop();
             Database.stop();
-        } catch (Exception ignored) {}
-        Platform.exit();
+        } catch (Exception ignored) {
+        } finally {
+            Config.flush();
+        }
+        // The tray's AWT thread would otherwise keep the JVM alive
+        System.exit(0);
     }
 
     public static void main(String[] args) {
@@ -1,11 +1,56 @@
 package com.memorizer.app;
 
+import com.memorizer.db.DeviceTokenRepository;
+import com.memorizer.model.Device;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-/** Simple in-memory pairing token manager (dev/local use). */
+/**
+ * Pairing and per-device credentials.
+ * <p>
+ * The QR/pairing page shows a one-time pairing code valid for 15 minutes. The first successful
+ * {@link #claim} turns it into that device's long-lived token: only its SHA-256 is stored
+ * (device_token table) and a fresh code is issued for the next device. {@link #verify} runs on every
+ * API request without locking: one lookup in a concurrent map keyed by token hash, then a
+ * constant-time comparison. Revoked devices are dropped from the map immediately.
+ */
 public final class PairingManager {
     private static final PairingManager INSTANCE = new PairingManager();
+    private static final long PAIRING_TTL_MS = 15 * 60_000L;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** In-memory view of an active device. */
+    private static final class Entry {
+        final long id;
+        final String name;
+        final byte[] hash;
+        final long createdAt;
+        volatile long lastSeen;
+        volatile long persistedSeen;
+
+        Entry(long id, String name, byte[] hash, long createdAt, long lastSeen) {
+            this.id = id;
+            this.name = name;
+            this.hash = hash;
+            this.createdAt = createdAt;
+            this.lastSeen = lastSeen;
+            this.persistedSeen = lastSeen;
+        }
+    }
+
+    private final DeviceTokenRepository repo = new DeviceTokenRepository();
+    private final Map<String, Entry> devices = new ConcurrentHashMap<String, Entry>();
+    private volatile boolean loaded;
+
     private volatile String token;
     private volatile long issuedAt;
     private volatile long expiresAt;
@@ -14,29 +59,147 @@ public final class PairingManager {
 
     private PairingManager() {}
 
+    /** Current pairing code, issuing a new one if none is pending or it expired. */
     public synchronized String getOrCreateToken() {
         long now = System.currentTimeMillis();
         if (token == null || now >= expiresAt) {
             token = generate();
             issuedAt = now;
-            expiresAt = now + 15 * 60_000L; // 15 minutes
+            expiresAt = now + PAIRING_TTL_MS;
         }
         return token;
     }
 
-    public synchronized boolean verify(String t) {
-        if (t == null) return false;
-        long now = System.currentTimeMillis();
-        return token != null && now < expiresAt && token.equals(t);
+    /** True for an active device token or the still-valid pairing code. Lock-free. */
+    public boolean verify(String t) {
+        if (t == null || t.isEmpty()) return false;
+        byte[] h = sha256(t);
+        Entry e = devices().get(hex(h));
+        if (e != null && MessageDigest.isEqual(e.hash, h)) {
+            e.lastSeen = System.currentTimeMillis();
+            return true;
+        }
+        return matchesPairingCode(t);
+    }
+
+    /**
+     * Verify {@code t}; if it is the pending pairing code, enroll it as a device token named {@code deviceName}
+     * and rotate the code. Used by the pairing verify endpoints that clients call once after scanning.
+     */
+    public boolean claim(String t, String deviceName) {
+        if (t == null || t.isEmpty()) return false;
+        byte[] h = sha256(t);
+        String key = hex(h);
+        Entry existing = devices().get(key);
+        if (existing != null && MessageDigest.isEqual(existing.hash, h)) return true;
+        synchronized (this) {
+            if (!matchesPairingCode(t)) return false;
+            String name = deviceName == null || deviceName.trim().isEmpty() ? "Device" : deviceName.trim();
+            if (name.length() > 128) name = name.substring(0, 128);
+            long id = repo.insert(name, key);
+            long now = System.currentTimeMillis();
+            devices.put(key, new Entry(id, name, h, now, now));
+            token = null; // next device gets a new code
+            return true;
+        }
+    }
+
+    /** Active devices, oldest first; also persists pending last-seen times. */
+    public List<Device> listDevices() {
+        flushLastSeen();
+        List<Device> out = new ArrayList<Device>();
+        for (Entry e : devices().values()) {
+            Device d = new Device();
+            d.id = e.id;
+            d.name = e.name;
+            d.tokenHash = hex(e.hash);
+            d.createdAt = e.createdAt;
+            d.lastSeenAt = e.lastSeen;
+            out.add(d);
+        }
+        out.sort((a, b) -> Long.compare(a.id, b.id));
+        return out;
+    }
+
+    /** Revoke a device; its token stops working immediately. */
+    public boolean revoke(long deviceId) {
+        boolean changed = repo.revoke(deviceId);
+        devices().values().removeIf(e -> e.id == deviceId);
+        return changed;
+    }
+
+    /** Write last-seen times that changed since the last flush (kept off the verify path). */
+    public void flushLastSeen() {
+        if (!loaded) return;
+        Map<Long, Long> seen = new HashMap<Long, Long>();
+        for (Entry e : devices.values()) {
+            long s = e.lastSeen;
+            if (s != e.persistedSeen) {
+                seen.put(e.id, s);
+                e.persistedSeen = s;
+            }
+        }
+        repo.updateLastSeen(seen);
+    }
+
+    /** Drop the cached device map (e.g. after a database restore); reloaded on next use. */
+    public synchronized void reload() {
+        devices.clear();
+        loaded = false;
     }
 
     public long getIssuedAt() { return issuedAt; }
     public long getExpiresAt() { return expiresAt; }
 
+    private boolean matchesPairingCode(String t) {
+        String code = token;
+        if (code == null || System.currentTimeMillis() >= expiresAt) return false;
+        return MessageDigest.isEqual(code.getBytes(StandardCharsets.UTF_8), t.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Map<String, Entry> devices() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    for (Device d : repo.listActive()) {
+                        devices.put(d.tokenHash, new Entry(d.id, d.name, unhex(d.tokenHash), d.createdAt, d.lastSeenAt));
+                    }
+                    loaded = true;
+                }
+            }
+        }
+        return devices;
+    }
+
     private static String generate() {
         byte[] buf = new byte[24];
-        new SecureRandom().nextBytes(buf);
+        RANDOM.nextBytes(buf);
         return Base64.getUrlEncoder().withoutPadding().encodeToString(buf);
     }
-}
 
+    private static byte[] sha256(String s) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] b) {
+        char[] out = new char[b.length * 2];
+        final char[] digits = "0123456789abcdef".toCharArray();
+        for (int i = 0; i < b.length; i++) {
+            out[i * 2] = digits[(b[i] >> 4) & 0xF];
+            out[i * 2 + 1] = digits[b[i] & 0xF];
+        }
+        return new String(out);
+    }
+
+    private static byte[] unhex(String s) {
+        byte[] out = new byte[s.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) Integer.parseInt(s.substring(i * 2, i * 2 + 2), 16);
+        }
+        return out;
+    }
+}
@@ -27,6 +27,7 @@ public class Scheduler {
     private final StealthStage stealth;
 
     private volatile boolean paused = false;
+    private volatile boolean held = false;
     private volatile ScheduledFuture<?> future;
 
     public Scheduler(StudyService study, StealthStage stealth) {
@@ -36,7 +37,7 @@ public class Scheduler {
 
     /** Start periodic ticks if not already running. */
     public synchronized void start() {
-        if (future != null && !future.isCancelled()) return;
+        if (held || (future != null && !future.isDone())) return;
         long initialDelayMs = TimeUnit.SECONDS.toMillis(5);
         future = ses.schedule(this::tick, initialDelayMs, TimeUnit.MILLISECONDS);
         log.info("Scheduler started.");
@@ -60,6 +61,22 @@ public class Scheduler {
         log.info("Scheduler resumed.");
     }
 
+    /** Stop ticking until {@link #release()}, e.g. while the store is restored; waits for a running tick. */
+    public void hold() {
+        synchronized (this) {
+            held = true;
+            if (future != null) future.cancel(false);
+        }
+        // Queued behind a tick in progress, so this returns once it is done
+        try { ses.submit(() -> {}).get(30, TimeUnit.SECONDS); } catch (Exception ignored) {}
+    }
+
+    /** Undo {@link #hold()}; the next tick comes after the usual start delay. */
+    public synchronized void release() {
+        held = false;
+        start();
+    }
+
     /** Whether the scheduler is currently paused. */
     public boolean isPaused() { return paused; }
 
@@ -93,8 +110,7 @@ public class Scheduler {
         if (v.isPresent()) {
             StudyService.CardView cv = v.get();
             Platform.runLater(() -> {
-                int batch = com.memorizer.app.Config.getInt("app.study.batch-size", 3);
-                stealth.startBatch(batch);
+                stealth.startBatch(Config.snapshot().batchSize);
                 stealth.showCardView(cv);   // 注意：现在传的是 CardView
                 stealth.showAndFocus();
             });
@@ -103,12 +119,12 @@ public class Scheduler {
         }
     }
 
-    private int deferBusyMinutes() {
-        return com.memorizer.app.Config.getInt("app.study.defer-when-busy-minutes", 3);
-    }
-    
     private void tick() {
-        long nextDelayMin = nextDelayMinutes();
+        if (held) return;
+        long t0 = System.nanoTime();
+        // One snapshot per tick so all settings read below are consistent
+        ConfigSnapshot cfg = Config.snapshot();
+        long nextDelayMin = nextDelayMinutes(cfg);
         try {
             if (paused) {
                 log.debug("tick skipped (paused).");
@@ -116,22 +132,19 @@ public class Scheduler {
             }
 
             if (stealth.isSessionActive() || stealth.isShowing()) {
-                int d = deferBusyMinutes();
-                log.info("Busy (session active). Defer next tick by {} min.", d);
+                int d = cfg.deferBusyMinutes;
+                log.debug("Busy (session active). Defer next tick by {} min.", d);
                 nextDelayMin = d;
                 return;
             }
 
             // Prefer plan-driven next; fallback based on config
-            boolean forceWhenEmpty = Boolean.parseBoolean(
-                    com.memorizer.app.Config.get("app.study.force-show-when-empty", "true"));
+            boolean forceWhenEmpty = cfg.forceShowWhenEmpty;
             java.util.Optional<com.memorizer.service.StudyService.CardView> v =
                     study.nextFromPlanPreferred(forceWhenEmpty);
             if (!v.isPresent()) {
-                String mode = com.memorizer.app.Config.get("app.study.mode", "fixed");
-                if ("challenge".equalsIgnoreCase(mode)) {
-                    int sz = com.memorizer.app.Config.getInt("app.study.challenge-batch-size", 10);
-                    try { study.appendChallengeBatch(sz); } catch (Exception ignored) {}
+                if ("challenge".equalsIgnoreCase(cfg.studyMode)) {
+                    try { study.appendChallengeBatch(cfg.challengeBatchSize); } catch (Exception ignored) {}
                     v = study.nextFromPlanPreferred(false);
                 }
             }
@@ -139,27 +152,27 @@ public class Scheduler {
 
             if (v.isPresent()) {
                 final com.memorizer.service.StudyService.CardView cv = v.get();
-                final int batch = com.memorizer.app.Config.getInt("app.study.batch-size", 3);
+                final int batch = cfg.batchSize;
                 javafx.application.Platform.runLater(() -> {
                     stealth.startBatch(batch);
                     stealth.showCardView(cv);
                     stealth.showAndFocus();
                 });
             } else {
-                log.info("No cards to show (due/new empty{}).", forceWhenEmpty ? "" : ", fallback disabled");
+                log.debug("No cards to show (due/new empty{}).", forceWhenEmpty ? "" : ", fallback disabled");
             }
         } catch (Exception e) {
             log.warn("tick error: {}", e.toString());
         } finally {
+            com.memorizer.metrics.Metrics.timer("memorizer_scheduler_tick_seconds").recordSince(t0);
             synchronized (this) {
-                future = ses.schedule(this::tick, nextDelayMin, java.util.concurrent.TimeUnit.MINUTES);
+                if (!held) future = ses.schedule(this::tick, nextDelayMin, java.util.concurrent.TimeUnit.MINUTES);
             }
         }
     }
 
-    private long nextDelayMinutes() {
-        String mode = Config.get("app.study.scheduler.mode", "due");
-        boolean useDue = "due".equalsIgnoreCase(mode);
+    private long nextDelayMinutes(ConfigSnapshot cfg) {
+        boolean useDue = "due".equalsIgnoreCase(cfg.schedulerMode);
 
         if (useDue) {
             try {
@@ -177,8 +190,8 @@ public class Scheduler {
         }
 
         // Periodic random interval
-        int min = Config.getInt("app.study.min-interval-minutes", 20);
-        int max = Config.getInt("app.study.max-interval-minutes", 60);
+        int min = cfg.minIntervalMinutes;
+        int max = cfg.maxIntervalMinutes;
         if (max < min) max = min;
         return min + rnd.nextInt(Math.max(1, (max - min) + 1));
     }
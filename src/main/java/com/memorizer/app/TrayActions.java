@@ -1,24 +1,20 @@
 package com.memorizer.app;
 
-import com.memorizer.importer.ExcelImportService;
 import com.memorizer.importer.ExcelTemplateService;
+import com.memorizer.importer.ImportJob;
 import com.memorizer.service.StudyService;
 import com.memorizer.ui.StealthStage;
 import javafx.application.Platform;
 
 import java.awt.*;
 import java.io.File;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Menu item actions triggered from the system tray.
  * Bridges tray UI to study/session behavior, import/export helpers, and dev tools.
  */
 public final class TrayActions {
-    private static final ExcelImportService importer = new ExcelImportService();
     private static final ExcelTemplateService templater = new ExcelTemplateService();
-    private static final ExecutorService bg = Executors.newSingleThreadExecutor();
 
     private static TrayIcon trayIconRef;
 
@@ -64,16 +60,15 @@ public final class TrayActions {
         }
     }
 
-    /** Prompt for an Excel file and import rows on a background thread. */
+    /** Prompt for an Excel, CSV/TSV or Anki package file and import it on the background import thread. */
     public static void openImportDialog() {
-        FileDialog fd = new FileDialog((Frame) null, "Import Excel (.xlsx/.xls)", FileDialog.LOAD);
-        fd.setFile("*.xlsx;*.xls");
+        FileDialog fd = new FileDialog((Frame) null, "Import (.xlsx/.xls/.csv/.tsv/.apkg)", FileDialog.LOAD);
+        fd.setFile(String.join(";", ImportJob.EXTENSIONS));
         fd.setVisible(true);
         if (fd.getFile() == null || fd.getDirectory() == null) return;
         File f = new File(fd.getDirectory(), fd.getFile());
         if (trayIconRef != null) trayIconRef.displayMessage("Memorizer", "Importing " + f.getName() + "...", TrayIcon.MessageType.INFO);
-        bg.submit(() -> {
-            ExcelImportService.Report rpt = importer.importFile(f);
+        ImportJob.start(f).result().thenAccept(rpt -> {
             if (trayIconRef != null) trayIconRef.displayMessage("Import Result",
                     rpt.message + "\n" + rpt.toString(),
                     "OK".equals(rpt.message) ? TrayIcon.MessageType.INFO : TrayIcon.MessageType.WARNING);
@@ -19,22 +19,20 @@ import java.io.InputStream;
 public final class TrayManager {
     private final TrayIcon trayIcon;
     private final StealthStage stealthStage;
-    private final MainStage mainStage;
+    private volatile MainStage mainStage;
     private final StudyService study;
     private final Scheduler scheduler;
-    private final java.util.concurrent.ScheduledExecutorService planTicker = java.util.concurrent.Executors
-            .newSingleThreadScheduledExecutor(r -> {
-                Thread t = new Thread(r, "plan-indicator-ticker");
-                t.setDaemon(true);
-                return t;
-            });
+    private com.memorizer.event.EventBus.Subscription planSubscription;
     private MenuItem planSummaryItem;
     private MenuItem planNextItem;
 
     private final MenuItem miPause = new MenuItem("Pause Reminders");
     private final MenuItem miResume = new MenuItem("Resume Reminders");
 
-    /** Create and attach the tray icon with menus and listeners. */
+    /**
+     * Create and attach the tray icon with menus and listeners. Does not touch the database, so it can run
+     * before the store is open; {@code mainStage} may be null and attached later via {@link #attachMain}.
+     */
     public TrayManager(StealthStage stealthStage, MainStage mainStage, StudyService study, Scheduler scheduler) {
         this.stealthStage = stealthStage;
         this.mainStage = mainStage;
@@ -97,7 +95,7 @@ public final class TrayManager {
         mScheduler.add(miPeriodic);
 
         // Utilities
-        MenuItem miImport = new MenuItem("Import Excel...");
+        MenuItem miImport = new MenuItem("Import...");
         MenuItem miTemplate = new MenuItem("Save Import Template...");
         MenuItem miH2 = new MenuItem("Open H2 Console");
         MenuItem miExit = new MenuItem("Exit");
@@ -218,24 +216,26 @@ public final class TrayManager {
             if (mainStage != null) mainStage.showAndFocus();
         }));
 
-        miOpenMain.addActionListener(e -> Platform.runLater(mainStage::showAndFocus));
+        miOpenMain.addActionListener(e -> Platform.runLater(() -> {
+            if (mainStage != null) mainStage.showAndFocus();
+        }));
         miShow.addActionListener(e -> Platform.runLater(() -> TrayActions.showStealthNow(study)));
 
         miPause.addActionListener(e -> { scheduler.pause(); updatePauseMenu(); });
         miResume.addActionListener(e -> { scheduler.resume(); updatePauseMenu(); });
         miSkip.addActionListener(e -> Platform.runLater(() -> {
             stealthStage.skipCurrent();
-            updatePlanMenu(planSummaryItem, planNextItem);
         }));
         miSnooze.addActionListener(e -> scheduler.snooze(Config.getInt("app.study.snooze-minutes", 10)));
 
-        miRebuild.addActionListener(e -> { study.rebuildTodayPlan(); updatePlanTooltip(); updatePlanMenu(planSummaryItem, planNextItem); });
-        miAppendChallenge.addActionListener(e -> { study.appendChallengeBatch(Config.getInt("app.study.challenge-batch-size", 10)); updatePlanTooltip(); updatePlanMenu(planSummaryItem, planNextItem); });
-        miRoll.addActionListener(e -> { study.rollRemainingToday(); updatePlanTooltip(); updatePlanMenu(planSummaryItem, planNextItem); });
-        miClearChal.addActionListener(e -> { study.clearChallengeToday(); updatePlanTooltip(); updatePlanMenu(planSummaryItem, planNextItem); });
+        // Plan labels follow PlanSummaryCache updates published by the service layer
+        miRebuild.addActionListener(e -> study.rebuildTodayPlan());
+        miAppendChallenge.addActionListener(e -> study.appendChallengeBatch(Config.getInt("app.study.challenge-batch-size", 10)));
+        miRoll.addActionListener(e -> study.rollRemainingToday());
+        miClearChal.addActionListener(e -> study.clearChallengeToday());
         miPlanStatus.addActionListener(e -> {
             try {
-                com.memorizer.service.PlanService.Counts pc = study.planCounts();
+                com.memorizer.service.PlanSummaryCache.Summary pc = com.memorizer.service.PlanSummaryCache.get().current();
                 trayIcon.displayMessage("Plan Status", "Pending: " + pc.pending + "\nDone: " + pc.done + "\nTotal: " + pc.total, TrayIcon.MessageType.INFO);
             } catch (Exception ex) {
                 trayIcon.displayMessage("Plan Status", "Unavailable", TrayIcon.MessageType.INFO);
@@ -245,43 +245,46 @@ public final class TrayManager {
         miImport.addActionListener(e -> TrayActions.openImportDialog());
         miTemplate.addActionListener(e -> TrayActions.saveTemplateDialog());
         miH2.addActionListener(openH2());
-        miExit.addActionListener(e -> {
-            H2ConsoleServer.stop();
-            Platform.runLater(() -> {
-                stealthStage.close();
-                if (mainStage != null) mainStage.close();
-            });
-            tray.remove(trayIcon);
-            shutdown();
-            scheduler.stop();
-            System.exit(0);
-        });
+        // MainApp.stop() shuts the services down and flushes preferences before the JVM exits
+        miExit.addActionListener(e -> Platform.exit());
 
         updatePauseMenu();
-        updatePlanTooltip();
-        updatePlanMenu(planSummaryItem, planNextItem);
-        planTicker.scheduleAtFixedRate(() -> {
-            try { updatePlanTooltip(); updatePlanMenu(planSummaryItem, planNextItem); } catch (Exception ignored) {}
-        }, 60, 60, java.util.concurrent.TimeUnit.SECONDS);
+        // Plan labels stay at "-/-" until the first summary arrives (startup prewarm or a plan event)
+        planSubscription = com.memorizer.event.EventBus.subscribe(com.memorizer.service.PlanSummaryCache.Updated.class,
+                u -> EventQueue.invokeLater(() -> applyPlanSummary(u.summary)));
 
         try { tray.add(trayIcon); } catch (AWTException ex) { throw new RuntimeException("Failed to add tray icon", ex); }
     }
 
-    /** Stop background executors held by the tray to avoid resource leaks. */
+    /** Attach the main window once it has been constructed. */
+    public void attachMain(MainStage mainStage) { this.mainStage = mainStage; }
+
+    /** Detach from plan updates. */
     public void shutdown() {
-        try { planTicker.shutdownNow(); } catch (Exception ignored) { }
+        if (planSubscription != null) planSubscription.cancel();
+        SystemTray.getSystemTray().remove(trayIcon);
     }
 
-    /** Update tray tooltip with today's plan summary. */
+    /** Refresh tooltip and plan menu labels from the cached plan summary. */
     public void updatePlanTooltip() {
         try {
-            com.memorizer.service.PlanService.Counts pc = study.planCounts();
-            trayIcon.setToolTip("Memorizer  EPlan " + pc.pending + "/" + pc.total);
+            applyPlanSummary(com.memorizer.service.PlanSummaryCache.get().current());
         } catch (Exception ignored) {
             trayIcon.setToolTip("Memorizer");
+            planSummaryItem.setLabel("Plan: -/-");
+            planNextItem.setLabel("Next: -");
         }
     }
 
+    /** Render tooltip, total/pending and next front preview. */
+    private void applyPlanSummary(com.memorizer.service.PlanSummaryCache.Summary s) {
+        trayIcon.setToolTip("Memorizer  EPlan " + s.pending + "/" + s.total);
+        planSummaryItem.setLabel("Plan: " + s.pending + "/" + s.total);
+        String next = s.next == null ? "-" : s.next;
+        if (next.length() > 30) next = next.substring(0, 30) + "…";
+        planNextItem.setLabel("Next: " + next);
+    }
+
     /** Enable/disable Pause/Resume based on current scheduler state. */
     private void updatePauseMenu() {
         boolean paused = scheduler.isPaused();
@@ -297,20 +300,6 @@ public final class TrayManager {
         };
     }
 
-    /** Refresh live plan menu labels: total/pending and next front preview. */
-    private void updatePlanMenu(MenuItem miPlanSummary, MenuItem miPlanNext) {
-        try {
-            com.memorizer.service.PlanService.Counts pc = study.planCounts();
-            miPlanSummary.setLabel("Plan: " + pc.pending + "/" + pc.total);
-            String next = study.previewNextFromPlanFront().orElse("-");
-            if (next.length() > 30) next = next.substring(0, 30) + "…";
-            miPlanNext.setLabel("Next: " + next);
-        } catch (Exception ignored) {
-            miPlanSummary.setLabel("Plan: -/-");
-            miPlanNext.setLabel("Next: -");
-        }
-    }
-
     private Image loadIcon() {
         try (InputStream in = TrayManager.class.getResourceAsStream("/icon-16.png")) {
             if (in != null) return ImageIO.read(in);
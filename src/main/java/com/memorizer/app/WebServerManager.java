@@ -30,6 +30,19 @@ public final class WebServerManager {
     private volatile String boundHost;
     private volatile boolean httpsActive;
     private static String SERVER_ID;
+    private volatile com.memorizer.service.ForecastService forecast;
+    private final java.util.concurrent.CopyOnWriteArrayList<io.javalin.http.sse.SseClient> eventClients = new java.util.concurrent.CopyOnWriteArrayList<>();
+    private volatile com.memorizer.event.EventBus.Subscription eventSubscription;
+    /** Latest summary not yet sent to the SSE clients; older ones are superseded, not queued. */
+    private final java.util.concurrent.atomic.AtomicReference<com.memorizer.service.PlanSummaryCache.Summary> pendingPlanEvent =
+            new java.util.concurrent.atomic.AtomicReference<>();
+    private final java.util.concurrent.ExecutorService eventSender = java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sse-events");
+        t.setDaemon(true);
+        return t;
+    });
+    private final java.util.concurrent.atomic.AtomicInteger inFlight = new java.util.concurrent.atomic.AtomicInteger();
+    private volatile boolean draining;
 
     public static WebServerManager get() { return INSTANCE; }
 
@@ -96,6 +109,9 @@ public final class WebServerManager {
         }
 
         this.app = candidate;
+        registerGate(app);
+        registerMetrics(app);
+        registerEvents(app);
 
         // Register template renderer (server-side web)
         try { com.memorizer.web.TemplateRenderer.register(); } catch (Throwable ignored) {}
@@ -217,7 +233,7 @@ public final class WebServerManager {
                 content.append("<h2>Study</h2><p class='muted'>No cards available.</p>");
             } else {
                 boolean reveal = "1".equals(ctx.queryParam("a"));
-                java.util.Optional<com.memorizer.service.StudyService.CardView> v = study.currentOrNextOrFallback();
+                java.util.Optional<com.memorizer.service.StudyService.CardView> v = study.currentOrNextOrFallback(studySession(ctx, study));
                 if (!v.isPresent()) {
                     content.append("<h2>Study</h2><p class='muted'>No cards available.</p>");
                 } else {
@@ -237,6 +253,7 @@ public final class WebServerManager {
                         }
                         content.append("</div>");
                         content.append("<form method='post' action='/web/study/rate' class='row rate'>")
+                               .append("<input type='hidden' name='card' value='").append(cv.getCardId()).append("'>")
                                .append("<button name='rating' value='1' class='btn red'>Again</button>")
                                .append("<button name='rating' value='2' class='btn amber'>Hard</button>")
                                .append("<button name='rating' value='3' class='btn green'>Good</button>")
@@ -263,7 +280,8 @@ public final class WebServerManager {
                 int val; try { val = Integer.parseInt(r.trim()); } catch (Exception e) { val = 0; }
                 com.memorizer.model.Rating rating;
                 if (val == 1) rating = com.memorizer.model.Rating.AGAIN; else if (val == 2) rating = com.memorizer.model.Rating.HARD; else if (val == 3) rating = com.memorizer.model.Rating.GOOD; else rating = com.memorizer.model.Rating.EASY;
-                study.rate(rating);
+                long card; try { card = Long.parseLong(ctx.formParam("card")); } catch (Exception e) { card = -1; }
+                study.rate(studySession(ctx, study), rating, card);
             }
             ctx.redirect("/web/study");
         });
@@ -293,13 +311,13 @@ public final class WebServerManager {
         });
         app.get("/api/pair/verify", ctx -> {
             String t = ctx.queryParam("token");
-            boolean ok = PairingManager.get().verify(t);
+            boolean ok = PairingManager.get().claim(t, deviceName(ctx));
             ctx.json(java.util.Collections.singletonMap("ok", ok));
         });
         // Alias without /api prefix for legacy clients
         app.get("/pair/verify", ctx -> {
             String t = ctx.queryParam("token");
-            boolean ok = PairingManager.get().verify(t);
+            boolean ok = PairingManager.get().claim(t, deviceName(ctx));
             ctx.json(java.util.Collections.singletonMap("ok", ok));
         });
         app.get("/pair", ctx -> {
@@ -387,6 +405,8 @@ public final class WebServerManager {
             long since = toLong(body == null ? null : body.get("lastSyncTimestamp")) == null ? 0L : toLong(body.get("lastSyncTimestamp"));
             List<?> logs = (List<?>) (body == null ? null : body.get("reviewLogs"));
             if (logs != null && !logs.isEmpty()) {
+                int stored = 0;
+                java.util.Set<Long> ratedCards = new java.util.LinkedHashSet<>();
                 try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(
                         "INSERT INTO review_log(card_id, reviewed_at, rating, latency_ms, client_uuid) VALUES (?,?,?,?,?)")) {
                     for (Object o : logs) {
@@ -407,7 +427,7 @@ public final class WebServerManager {
                             }
                         }
                         Timestamp rvAt = new Timestamp(tsMs == null ? System.currentTimeMillis() : tsMs);
-                        if (!exists) try (PreparedStatement chk = com.memorizer.db.Database.get().prepareStatement("SELECT COUNT(*) FROM review_log WHERE card_id=? AND reviewed_at=? AND rating=?")){
+                        if (!exists) try (PreparedStatement chk = com.memorizer.db.Database.get().prepareStatement(com.memorizer.db.CardRepository.REVIEW_EXISTS_SQL)){
                             chk.setLong(1, cardId);
                             chk.setTimestamp(2, rvAt);
                             chk.setInt(3, rating);
@@ -420,87 +440,15 @@ public final class WebServerManager {
                         if (latMs == null) ps.setNull(4, java.sql.Types.INTEGER); else ps.setInt(4, latMs);
                         if (uuid == null) ps.setNull(5, java.sql.Types.VARCHAR); else ps.setString(5, String.valueOf(uuid));
                         ps.addBatch();
+                        stored++;
+                        ratedCards.add(cardId);
                     }
                     ps.executeBatch();
                 }
+                publishReviewsImported(stored, ratedCards);
             }
 
-            List<Map<String,Object>> decks = new ArrayList<>();
-            try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(
-                    "SELECT id, name FROM deck ORDER BY id ASC")) {
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        Map<String,Object> o = new HashMap<>();
-                        o.put("id", rs.getLong(1));
-                        o.put("name", rs.getString(2));
-                        decks.add(o);
-                    }
-                }
-            }
-            List<Map<String,Object>> notes = new ArrayList<>();
-            String sqlN = "SELECT id, deck_id, front, back, reading, pos, examples, tags, created_at, updated_at FROM note" +
-                    (since > 0 ? " WHERE (COALESCE(updated_at, created_at) >= ?)" : "") + " ORDER BY id ASC";
-            try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(sqlN)) {
-                if (since > 0) ps.setTimestamp(1, new Timestamp(since));
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        Map<String,Object> o = new HashMap<>();
-                        o.put("id", rs.getLong(1));
-                        Object deckObj = rs.getObject(2);
-                        o.put("deckId", deckObj == null ? null : ((Number)deckObj).longValue());
-                        o.put("front", rs.getString(3));
-                        o.put("back", rs.getString(4));
-                        o.put("reading", rs.getString(5));
-                        o.put("pos", rs.getString(6));
-                        o.put("examples", rs.getString(7));
-                        o.put("tags", rs.getString(8));
-                        Timestamp cAt = rs.getTimestamp(9);
-                        Timestamp uAt = rs.getTimestamp(10);
-                        o.put("updatedAt", (uAt != null ? uAt.getTime() : (cAt!=null?cAt.getTime():null)));
-                        o.put("deleted", false);
-                        notes.add(o);
-                    }
-                }
-            }
-
-            List<Map<String,Object>> cards = new ArrayList<>();
-            String sqlC = "SELECT id, note_id, due_at, interval_days, ease, reps, lapses, status, last_review_at FROM card" +
-                    (since > 0 ? " WHERE (COALESCE(last_review_at, due_at) >= ?)" : "") + " ORDER BY id ASC";
-            try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(sqlC)) {
-                if (since > 0) ps.setTimestamp(1, new Timestamp(since));
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        Map<String,Object> o = new HashMap<>();
-                        o.put("id", rs.getLong(1));
-                        o.put("noteId", rs.getLong(2));
-                        Timestamp dueTs = rs.getTimestamp(3);
-                        Long dueMs = (dueTs == null ? null : Long.valueOf(dueTs.getTime()));
-                        Object ivl = rs.getObject(4);
-                        Double intervalDays = null;
-                        try { intervalDays = (ivl == null ? null : ((Number)ivl).doubleValue()); } catch (Exception ignored) {}
-                        o.put("dueAt", dueMs);
-                        o.put("intervalDays", intervalDays);
-                        o.put("ease", rs.getDouble(5));
-                        o.put("reps", rs.getInt(6));
-                        o.put("lapses", rs.getInt(7));
-                        o.put("status", rs.getInt(8));
-                        Timestamp lrTs = rs.getTimestamp(9);
-                        Long updMs = (lrTs != null ? Long.valueOf(lrTs.getTime()) : dueMs);
-                        o.put("updatedAt", updMs);
-                        o.put("deleted", false);
-                        cards.add(o);
-                    }
-                }
-            }
-
-            Map<String,Object> data = new HashMap<>();
-            data.put("decks", decks);
-            data.put("notes", notes);
-            data.put("cards", cards);
-            Map<String,Object> out = new HashMap<>();
-            out.put("syncTimestamp", System.currentTimeMillis());
-            out.put("data", data);
-            ctx.json(out);
+            ctx.json(buildSyncResponse(since));
         });
 
         // (removed duplicate guarded registrations for notes/decks; single definitions kept below)
@@ -511,19 +459,11 @@ public final class WebServerManager {
             Long noteId = toLong(body == null ? null : body.get("id"));
             if (noteId == null) { ctx.status(400).json(err("invalid_id")); return; }
             try {
-                com.memorizer.db.Database.get().setAutoCommit(false);
-                try (PreparedStatement delCards = com.memorizer.db.Database.get().prepareStatement("DELETE FROM card WHERE note_id=?")){
-                    delCards.setLong(1, noteId); delCards.executeUpdate();
-                }
-                try (PreparedStatement delNote = com.memorizer.db.Database.get().prepareStatement("DELETE FROM note WHERE id=?")){
-                    delNote.setLong(1, noteId); delNote.executeUpdate();
-                }
-                com.memorizer.db.Database.get().commit();
+                new com.memorizer.db.DeletionRepository().deleteNote(noteId);
                 ctx.json(ok(1));
             } catch (Exception e) {
-                try { com.memorizer.db.Database.get().rollback(); } catch (Exception ignored) {}
                 ctx.status(500).json(err("delete_failed"));
-            } finally { try { com.memorizer.db.Database.get().setAutoCommit(true); } catch (Exception ignored) {} }
+            }
         });
 
         // Update deck name
@@ -543,29 +483,9 @@ public final class WebServerManager {
             Long id = toLong(body == null ? null : body.get("id"));
             if (id == null){ ctx.status(400).json(err("invalid_id")); return; }
             try {
-                com.memorizer.db.Database.get().setAutoCommit(false);
-                // find notes
-                java.util.List<Long> noteIds = new java.util.ArrayList<>();
-                try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement("SELECT id FROM note WHERE deck_id=?")){
-                    ps.setLong(1, id); try (ResultSet rs = ps.executeQuery()){ while (rs.next()) noteIds.add(rs.getLong(1)); }
-                }
-                if (!noteIds.isEmpty()){
-                    try (PreparedStatement delCards = com.memorizer.db.Database.get().prepareStatement("DELETE FROM card WHERE note_id=?")){
-                        for (Long nid : noteIds){ delCards.setLong(1, nid); delCards.addBatch(); }
-                        delCards.executeBatch();
-                    }
-                    try (PreparedStatement delNotes = com.memorizer.db.Database.get().prepareStatement("DELETE FROM note WHERE id=?")){
-                        for (Long nid : noteIds){ delNotes.setLong(1, nid); delNotes.addBatch(); }
-                        delNotes.executeBatch();
-                    }
-                }
-                try (PreparedStatement delDeck = com.memorizer.db.Database.get().prepareStatement("DELETE FROM deck WHERE id=?")){
-                    delDeck.setLong(1, id); delDeck.executeUpdate();
-                }
-                com.memorizer.db.Database.get().commit();
+                new com.memorizer.db.DeletionRepository().deleteDeck(id);
                 ctx.json(ok(1));
-            } catch (Exception e){ try { com.memorizer.db.Database.get().rollback(); } catch (Exception ignored) {} ctx.status(500).json(err("delete_failed")); }
-            finally { try { com.memorizer.db.Database.get().setAutoCommit(true); } catch (Exception ignored) {} }
+            } catch (Exception e){ ctx.status(500).json(err("delete_failed")); }
         });
 
         // --- CORS preflight + Auth-protected sync endpoints ---
@@ -582,13 +502,18 @@ public final class WebServerManager {
             if ("/api/pair/verify".equals(ctx.path())) return; // allow verify without token
             if ("/api/pair/decode".equals(ctx.path())) return; // allow decode without token
             String tok = ctx.header("X-Token");
+            // EventSource and <img>/<audio> cannot send headers, so the push stream and media also accept ?token=
+            if (tok == null && ("/api/events".equals(ctx.path()) || ctx.path().startsWith("/api/media/"))) tok = ctx.queryParam("token");
             if (tok == null || !PairingManager.get().verify(tok)) {
                 log.warn("401 unauthorized path={} token={}", ctx.path(), mask(tok));
-                ctx.status(401).json(java.util.Collections.singletonMap("error", "unauthorized"));
+                // Halt here; a before-handler that only sets the status would still run the route
+                throw new io.javalin.http.UnauthorizedResponse("unauthorized");
             }
         });
 
         app.get("/api/decks", ctx -> {
+            long since = parseSince(ctx.queryParam("since"));
+            if (fullResyncRequired(ctx, since)) return;
             List<Map<String,Object>> out = new ArrayList<>();
             try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(
                     "SELECT id, name FROM deck ORDER BY id ASC")) {
@@ -602,13 +527,15 @@ public final class WebServerManager {
                     }
                 }
             }
-            log.info("GET /api/decks -> {}", out.size());
+            addTombstones(out, com.memorizer.db.DeletionRepository.DECK, since);
+            log.debug("GET /api/decks -> {}", out.size());
             ctx.json(out);
         });
 
         app.get("/api/notes", ctx -> {
             long since = parseSince(ctx.queryParam("since"));
-            log.info("GET /api/notes since={}", since);
+            if (fullResyncRequired(ctx, since)) return;
+            log.debug("GET /api/notes since={}", since);
             List<Map<String,Object>> out = new ArrayList<>();
             String sql = "SELECT id, deck_id, front, back, reading, pos, examples, tags, created_at, updated_at FROM note" +
                     (since > 0 ? " WHERE (COALESCE(updated_at, created_at) >= ?)" : "") +
@@ -635,13 +562,15 @@ public final class WebServerManager {
                     }
                 }
             }
-            log.info("GET /api/notes -> {}", out.size());
+            addTombstones(out, com.memorizer.db.DeletionRepository.NOTE, since);
+            log.debug("GET /api/notes -> {}", out.size());
             ctx.json(out);
         });
 
         app.get("/api/cards", ctx -> {
             long since = parseSince(ctx.queryParam("since"));
-            log.info("GET /api/cards since={}", since);
+            if (fullResyncRequired(ctx, since)) return;
+            log.debug("GET /api/cards since={}", since);
             List<Map<String,Object>> out = new ArrayList<>();
             String sql = "SELECT id, note_id, due_at, interval_days, ease, reps, lapses, status, last_review_at FROM card" +
                     (since > 0 ? " WHERE (COALESCE(last_review_at, due_at) >= ?)" : "") +
@@ -672,7 +601,8 @@ public final class WebServerManager {
                     }
                 }
             }
-            log.info("GET /api/cards -> {}", out.size());
+            addTombstones(out, com.memorizer.db.DeletionRepository.CARD, since);
+            log.debug("GET /api/cards -> {}", out.size());
             ctx.json(out);
         });
 
@@ -732,22 +662,11 @@ public final class WebServerManager {
             Long cardId = toLong(body == null ? null : body.get("cardId"));
             if (cardId == null) { ctx.status(400).json(err("invalid_card_id")); return; }
             try {
-                com.memorizer.db.Database.get().setAutoCommit(false);
-                try (PreparedStatement ps1 = com.memorizer.db.Database.get().prepareStatement("DELETE FROM review_log WHERE card_id=?");
-                     PreparedStatement ps2 = com.memorizer.db.Database.get().prepareStatement("DELETE FROM study_plan WHERE card_id=?");
-                     PreparedStatement ps3 = com.memorizer.db.Database.get().prepareStatement("DELETE FROM card WHERE id=?")) {
-                    ps1.setLong(1, cardId); ps1.executeUpdate();
-                    ps2.setLong(1, cardId); ps2.executeUpdate();
-                    ps3.setLong(1, cardId); int rows = ps3.executeUpdate();
-                    com.memorizer.db.Database.get().commit();
-                    if (rows == 0) ctx.status(404).json(err("not_found"));
-                    else ctx.json(ok(rows));
-                }
+                int rows = new com.memorizer.db.DeletionRepository().deleteCard(cardId).cards;
+                if (rows == 0) ctx.status(404).json(err("not_found"));
+                else ctx.json(ok(rows));
             } catch (Exception e) {
-                try { com.memorizer.db.Database.get().rollback(); } catch (Exception ignored) {}
                 ctx.status(500).json(err("delete_failed"));
-            } finally {
-                try { com.memorizer.db.Database.get().setAutoCommit(true); } catch (Exception ignored) {}
             }
         });
 
@@ -812,8 +731,9 @@ public final class WebServerManager {
             // Expect JSON array [{cardId,rating,ts,latencyMs}] rating may be string or number
             List<?> arr = ctx.bodyAsClass(List.class);
             if (arr == null) { ctx.status(400).json(err("invalid_body")); return; }
-            log.info("POST /api/reviews size={}", (arr==null?0:arr.size()));
+            log.debug("POST /api/reviews size={}", (arr==null?0:arr.size()));
             int processed = 0;
+            java.util.Set<Long> ratedCards = new java.util.LinkedHashSet<>();
             try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(
                     "INSERT INTO review_log(card_id, reviewed_at, rating, latency_ms, client_uuid) VALUES (?,?,?,?,?)")) {
                 for (Object o : arr) {
@@ -833,7 +753,7 @@ public final class WebServerManager {
                             try (ResultSet crs = chk.executeQuery()){ if (crs.next() && crs.getLong(1) > 0) { exists = true; } }
                         }
                     }
-                    if (!exists) try (PreparedStatement chk = com.memorizer.db.Database.get().prepareStatement("SELECT COUNT(*) FROM review_log WHERE card_id=? AND reviewed_at=? AND rating=?")){
+                    if (!exists) try (PreparedStatement chk = com.memorizer.db.Database.get().prepareStatement(com.memorizer.db.CardRepository.REVIEW_EXISTS_SQL)){
                         chk.setLong(1, cardId);
                         chk.setTimestamp(2, rvAt);
                         chk.setInt(3, rating);
@@ -847,11 +767,13 @@ public final class WebServerManager {
                     if (latMs == null) ps.setNull(4, java.sql.Types.INTEGER); else ps.setInt(4, latMs);
                     if (uuid == null) ps.setNull(5, java.sql.Types.VARCHAR); else ps.setString(5, String.valueOf(uuid));
                     ps.addBatch();
+                    ratedCards.add(cardId);
                     processed++;
                 }
                 ps.executeBatch();
             }
-            log.info("POST /api/reviews processed={}", processed);
+            publishReviewsImported(processed, ratedCards);
+            log.debug("POST /api/reviews processed={}", processed);
             ctx.json(ok(processed));
         });
 
@@ -875,6 +797,86 @@ public final class WebServerManager {
 
         // (removed duplicate fallback definition of /api/cards/create; single definition kept above)
 
+        // Note media (content-addressed audio/images)
+        com.memorizer.web.MediaController.register(app);
+
+        // Workload forecast: Monte Carlo projection of daily reviews/minutes/retention
+        app.get("/api/forecast", ctx -> {
+            com.memorizer.service.ForecastService.Params p = new com.memorizer.service.ForecastService.Params();
+            Integer days = toInt(ctx.queryParam("days"));
+            Integer newPerDay = toInt(ctx.queryParam("newPerDay"));
+            Integer trials = toInt(ctx.queryParam("trials"));
+            if (days != null) p.days = Math.max(1, Math.min(365, days));
+            if (newPerDay != null) p.dailyNewLimit = Math.max(0, newPerDay);
+            if (trials != null) p.trials = Math.max(1, Math.min(200, trials));
+            com.memorizer.service.ForecastService.Forecast f = forecastService().forecast(p);
+            List<Map<String,Object>> rows = new ArrayList<>();
+            for (com.memorizer.service.ForecastService.DayForecast d : f.days) {
+                Map<String,Object> o = new HashMap<>();
+                o.put("date", d.date.toString());
+                o.put("reviews", d.reviews);
+                o.put("newCards", d.newCards);
+                o.put("minutes", d.minutes);
+                o.put("retention", d.retention);
+                rows.add(o);
+            }
+            Map<String,Object> out = new HashMap<>();
+            out.put("cards", f.cards);
+            out.put("trials", f.trials);
+            out.put("dailyNewLimit", f.dailyNewLimit);
+            out.put("avgLatencyMs", f.avgLatencyMs);
+            out.put("historicRetention", f.historicRetention);
+            out.put("totalMinutes", f.totalMinutes);
+            out.put("elapsedMs", f.elapsedMs);
+            out.put("days", rows);
+            ctx.json(out);
+        });
+
+        // Prometheus text exposition of the in-process metrics registry
+        app.get("/api/metrics", ctx -> {
+            ctx.contentType("text/plain; version=0.0.4; charset=utf-8").result(com.memorizer.metrics.Metrics.prometheus());
+        });
+
+        // Paired devices: list and revoke (revoked tokens fail verification immediately)
+        app.get("/api/devices", ctx -> {
+            List<Map<String, Object>> out = new ArrayList<>();
+            for (com.memorizer.model.Device d : PairingManager.get().listDevices()) {
+                Map<String, Object> o = new HashMap<>();
+                o.put("id", d.id);
+                o.put("name", d.name);
+                o.put("createdAt", d.createdAt);
+                o.put("lastSeenAt", d.lastSeenAt);
+                out.add(o);
+            }
+            ctx.json(out);
+        });
+        app.post("/api/devices/revoke", ctx -> {
+            Map<?,?> body = ctx.bodyAsClass(Map.class);
+            Object id = body == null ? null : body.get("id");
+            if (!(id instanceof Number)) { ctx.status(400).json(err("missing_id")); return; }
+            boolean ok = PairingManager.get().revoke(((Number) id).longValue());
+            ctx.json(java.util.Collections.singletonMap("ok", ok));
+        });
+
+        // Runtime log levels: GET lists explicitly set levels, POST ?logger=..&level=.. changes one (empty level = inherit)
+        app.get("/api/admin/log-levels", ctx -> {
+            ctx.json(LogLevels.configured());
+        });
+        app.post("/api/admin/log-levels", ctx -> {
+            String logger = ctx.queryParam("logger");
+            String level = ctx.queryParam("level");
+            try {
+                String effective = LogLevels.set(logger, level);
+                log.warn("Log level of {} set to {} via API", logger, effective);
+                Map<String, Object> out = new HashMap<>();
+                out.put("logger", logger);
+                out.put("level", effective);
+                ctx.json(out);
+            } catch (IllegalArgumentException e) {
+                ctx.status(400).json(java.util.Collections.singletonMap("error", e.getMessage()));
+            }
+        });
+
         int attempts = 0; boolean started = false; int tryPort = port;
         while (attempts < 10 && !started) {
             try {
@@ -905,6 +907,7 @@ public final class WebServerManager {
                     // Switch to HTTP fallback after first failure
                     try {
                         this.app = Javalin.create(cfg -> { cfg.server(() -> buildHttpServer(host, 0)); cfg.enableCorsForAllOrigins(); });
+                        registerGate(this.app);
                         httpsActive = false;
                         // register minimal routes for new instance
                         this.app.get("/api/health", ctx -> {
@@ -945,14 +948,67 @@ public final class WebServerManager {
     public synchronized void stop() {
         if (!running) return;
         try { if (app != null) app.stop(); } catch (Exception ignored) {}
+        if (eventSubscription != null) { eventSubscription.cancel(); eventSubscription = null; }
+        eventClients.clear();
+        try { PairingManager.get().flushLastSeen(); } catch (Exception ignored) {}
         app = null; running = false; boundPort = 0; boundHost = null;
         log.info("Web server stopped.");
     }
 
+    /**
+     * Refuse new requests, give those in flight up to {@code timeoutMs} to finish, then stop. Returns whether the
+     * server was running, i.e. whether the caller should start it again.
+     */
+    public boolean drainAndStop(long timeoutMs) {
+        if (!running) return false;
+        draining = true;
+        try {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+                try { Thread.sleep(20); } catch (InterruptedException e) { Thread.currentThread().interrupt(); break; }
+            }
+            stop();
+        } finally {
+            draining = false;
+        }
+        return true;
+    }
+
     public boolean isRunning() { return running; }
+
+    /** Name recorded for a newly paired device: {@code ?device=} if given, else the User-Agent. */
+    public static String deviceName(io.javalin.http.Context ctx) {
+        String n = ctx.queryParam("device");
+        if (n == null || n.trim().isEmpty()) n = ctx.userAgent();
+        return n;
+    }
+
+    /** Study session of this browser, keyed by the {@code msid} cookie (issued on first visit). */
+    private static com.memorizer.service.StudySession studySession(io.javalin.http.Context ctx, com.memorizer.service.StudyService study) {
+        String id = ctx.cookie("msid");
+        com.memorizer.service.StudySession s = study.sessions().getOrCreate(id);
+        if (!s.getId().equals(id)) {
+            ctx.res.addHeader("Set-Cookie", "msid=" + s.getId() + "; Path=/web; HttpOnly; SameSite=Lax" + (ctx.req.isSecure() ? "; Secure" : ""));
+        }
+        return s;
+    }
+
+    /**
+     * Look up (or issue) the cached leaf keystore for the current LAN address ahead of time (background startup
+     * phase) so starting HTTPS later is a file lookup. Only runs once a local CA exists, i.e. for users who have
+     * used HTTPS before.
+     */
+    public static void prewarmTls() {
+        if (!Boolean.parseBoolean(Config.get("app.web.https.enabled", "true"))) return;
+        if (!Config.getBool("app.web.tls.ca.enabled", true)) return;
+        if (!java.nio.file.Files.exists(LocalCAService.caCertPath())) return;
+        String host = Config.get("app.web.host", "0.0.0.0");
+        LocalCAService.ensureLeafKeystore(host, pickLanAddress(host));
+    }
     public int getPort() { return boundPort; }
     public String getHost() { return boundHost; }
     public boolean isHttpsActive() { return httpsActive; }
+
     /** Return current base URL (http/https + host + port) if running, otherwise null. */
     public String getBaseUrl() {
         if (!running) return null;
@@ -962,20 +1018,287 @@ public final class WebServerManager {
         return scheme + "://" + h + ":" + p;
     }
 
+    private com.memorizer.service.ForecastService forecastService() {
+        com.memorizer.service.ForecastService f = forecast;
+        if (f == null) {
+            com.memorizer.service.StudyService study = AppContext.getStudy();
+            f = new com.memorizer.service.ForecastService(study == null ? null : study.getSrsEngine());
+            forecast = f;
+        }
+        return f;
+    }
+
+    /** Tell caches about reviews a device logged in bulk; they are not rescheduled, so no per-card event is sent. */
+    private static void publishReviewsImported(int stored, java.util.Set<Long> cardIds) {
+        if (stored == 0) return;
+        long[] ids = new long[cardIds.size()];
+        int k = 0;
+        for (Long id : cardIds) ids[k++] = id;
+        com.memorizer.event.EventBus.publish(new com.memorizer.event.DomainEvents.ReviewsImported(stored, ids));
+    }
+
+    /** Count requests in flight for {@link #drainAndStop}, and turn new ones away while it drains. */
+    private void registerGate(Javalin app) {
+        app.before(ctx -> {
+            if ("/api/events".equals(ctx.path())) return; // long-lived push stream; dropped on stop
+            if (draining) throw new io.javalin.http.ServiceUnavailableResponse("maintenance in progress, retry shortly");
+            inFlight.incrementAndGet();
+            ctx.attribute("gate.counted", Boolean.TRUE);
+            // Sync and edits from devices publish no events; keep idle-time maintenance away from them
+            if (ctx.path().startsWith("/api/")) com.memorizer.db.StorageMaintenance.get().touch();
+        });
+        app.after(ctx -> {
+            if (ctx.attribute("gate.counted") != null) inFlight.decrementAndGet();
+        });
+    }
+
+    /** Time every request into per-route latency and response-size histograms, and feed the sampled access log. */
+    private static void registerMetrics(Javalin app) {
+        com.memorizer.metrics.Metrics.describe("memorizer_http_request_seconds", "HTTP handling time by route");
+        com.memorizer.metrics.Metrics.describe("memorizer_http_response_bytes", "HTTP response body size by route");
+        app.before(ctx -> ctx.attribute("metrics.t0", System.nanoTime()));
+        app.after(ctx -> {
+            Long t0 = ctx.attribute("metrics.t0");
+            if (t0 == null) return;
+            String path = ctx.endpointHandlerPath();
+            String route = ctx.method() + " " + (path == null || path.isEmpty() ? "unmatched" : path);
+            com.memorizer.metrics.Metrics.timer("memorizer_http_request_seconds", "route", route).recordSince(t0);
+            java.io.InputStream body = ctx.resultStream();
+            long bytes = -1;
+            if (body instanceof java.io.ByteArrayInputStream) {
+                bytes = body.available();
+                com.memorizer.metrics.Metrics.sizes("memorizer_http_response_bytes", "route", route).record(bytes);
+            }
+            com.memorizer.metrics.Metrics.counter("memorizer_http_responses_total", "status", String.valueOf(ctx.status())).inc();
+            AccessLog.record(ctx.method(), route, ctx.path(), ctx.status(), System.nanoTime() - t0, bytes, ctx.ip());
+        });
+    }
+
+    /**
+     * Server-sent {@code plan} events carrying the cached plan summary, pushed whenever it changes. Writes go out
+     * on the "sse-events" thread, so a slow client delays only later events, never the publisher.
+     */
+    private void registerEvents(Javalin app) {
+        app.sse("/api/events", client -> {
+            String tok = client.ctx.header("X-Token");
+            if (tok == null) tok = client.ctx.queryParam("token");
+            if (tok == null || !PairingManager.get().verify(tok)) {
+                client.ctx.req.getAsyncContext().complete();
+                return;
+            }
+            eventClients.add(client);
+            client.onClose(() -> eventClients.remove(client));
+            try { client.sendEvent("plan", planSummaryJson(com.memorizer.service.PlanSummaryCache.get().current())); }
+            catch (Exception ignored) {}
+        });
+        if (eventSubscription == null) {
+            eventSubscription = com.memorizer.event.EventBus.subscribe(com.memorizer.service.PlanSummaryCache.Updated.class, u -> {
+                if (eventClients.isEmpty()) return;
+                if (pendingPlanEvent.getAndSet(u.summary) == null) eventSender.execute(this::sendPlanEvent);
+            });
+        }
+    }
+
+    private void sendPlanEvent() {
+        com.memorizer.service.PlanSummaryCache.Summary s = pendingPlanEvent.getAndSet(null);
+        if (s == null) return;
+        String json = planSummaryJson(s);
+        for (io.javalin.http.sse.SseClient c : eventClients) {
+            try { c.sendEvent("plan", json); } catch (Exception e) { eventClients.remove(c); }
+        }
+    }
+
+    private static String planSummaryJson(com.memorizer.service.PlanSummaryCache.Summary s) {
+        Map<String,Object> m = new HashMap<>();
+        m.put("pending", s.pending);
+        m.put("done", s.done);
+        m.put("rolled", s.rolled);
+        m.put("skipped", s.skipped);
+        m.put("total", s.total);
+        m.put("reviewsToday", s.reviewsToday);
+        m.put("next", s.next);
+        return io.javalin.plugin.json.JavalinJson.toJson(m);
+    }
+
+    /**
+     * Answer 410 {@code full_resync_required} (with {@code purgedBefore}) when tombstones after {@code since} have
+     * been purged: a delta would silently keep rows deleted in the meantime.
+     */
+    private static boolean fullResyncRequired(io.javalin.http.Context ctx, long since) {
+        if (since <= 0) return false;
+        long horizon = new com.memorizer.db.DeletionRepository().purgeHorizon();
+        if (since >= horizon) return false;
+        Map<String,Object> m = err("full_resync_required");
+        m.put("purgedBefore", horizon);
+        ctx.status(410).json(m);
+        return true;
+    }
+
+    /** Append {@code {id, deleted:true, updatedAt}} entries for rows deleted since {@code since} (incremental sync only). */
+    private static void addTombstones(List<Map<String,Object>> out, String entity, long since) {
+        if (since <= 0) return;
+        for (com.memorizer.db.DeletionRepository.Tombstone t : new com.memorizer.db.DeletionRepository().tombstonesSince(entity, since)) {
+            Map<String,Object> o = new HashMap<>();
+            o.put("id", t.id);
+            o.put("deleted", true);
+            o.put("updatedAt", t.deletedAt);
+            out.add(o);
+        }
+    }
+
+    /**
+     * Give each synced note a {@code media} list of {hash, role} and return the manifest of the blobs they
+     * reference ({hash, mime, size, url}). Clients fetch blobs lazily by hash and keep them across syncs.
+     */
+    private static List<Map<String,Object>> addMedia(List<Map<String,Object>> notes, long since) {
+        Map<Long, List<com.memorizer.db.MediaStore.Ref>> byNote = com.memorizer.db.MediaStore.get().forNotesChangedSince(since);
+        Map<String, Map<String,Object>> manifest = new java.util.LinkedHashMap<>();
+        for (Map<String,Object> n : notes) {
+            if (Boolean.TRUE.equals(n.get("deleted"))) continue;
+            List<com.memorizer.db.MediaStore.Ref> refs = byNote.get((Long) n.get("id"));
+            List<Map<String,Object>> list = new ArrayList<>();
+            if (refs != null) for (com.memorizer.db.MediaStore.Ref r : refs) {
+                Map<String,Object> o = new HashMap<>();
+                o.put("hash", r.hash);
+                o.put("role", r.role);
+                list.add(o);
+                if (!manifest.containsKey(r.hash)) {
+                    Map<String,Object> m = new HashMap<>();
+                    m.put("hash", r.hash);
+                    m.put("mime", r.mime);
+                    m.put("size", r.size);
+                    m.put("url", "/api/media/" + r.hash);
+                    manifest.put(r.hash, m);
+                }
+            }
+            n.put("media", list);
+        }
+        return new ArrayList<>(manifest.values());
+    }
+
+    /**
+     * Build the pull half of {@code /api/sync}: decks plus notes/cards changed since {@code since} (0 = all).
+     * When tombstones after {@code since} have been purged the full data set is sent with {@code fullResync=true},
+     * telling the client to replace its copy rather than merge.
+     */
+    public static Map<String,Object> buildSyncResponse(long since) throws java.sql.SQLException {
+        boolean fullResync = since > 0 && since < new com.memorizer.db.DeletionRepository().purgeHorizon();
+        if (fullResync) since = 0;
+        List<Map<String,Object>> decks = new ArrayList<>();
+        try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(
+                "SELECT id, name FROM deck ORDER BY id ASC")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Map<String,Object> o = new HashMap<>();
+                    o.put("id", rs.getLong(1));
+                    o.put("name", rs.getString(2));
+                    decks.add(o);
+                }
+            }
+        }
+        List<Map<String,Object>> notes = new ArrayList<>();
+        String sqlN = "SELECT id, deck_id, front, back, reading, pos, examples, tags, created_at, updated_at FROM note" +
+                (since > 0 ? " WHERE (COALESCE(updated_at, created_at) >= ?)" : "") + " ORDER BY id ASC";
+        try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(sqlN)) {
+            if (since > 0) ps.setTimestamp(1, new Timestamp(since));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Map<String,Object> o = new HashMap<>();
+                    o.put("id", rs.getLong(1));
+                    Object deckObj = rs.getObject(2);
+                    o.put("deckId", deckObj == null ? null : ((Number)deckObj).longValue());
+                    o.put("front", rs.getString(3));
+                    o.put("back", rs.getString(4));
+                    o.put("reading", rs.getString(5));
+                    o.put("pos", rs.getString(6));
+                    o.put("examples", rs.getString(7));
+                    o.put("tags", rs.getString(8));
+                    Timestamp cAt = rs.getTimestamp(9);
+                    Timestamp uAt = rs.getTimestamp(10);
+                    o.put("updatedAt", (uAt != null ? uAt.getTime() : (cAt!=null?cAt.getTime():null)));
+                    o.put("deleted", false);
+                    notes.add(o);
+                }
+            }
+        }
+
+        List<Map<String,Object>> cards = new ArrayList<>();
+        String sqlC = "SELECT id, note_id, due_at, interval_days, ease, reps, lapses, status, last_review_at FROM card" +
+                (since > 0 ? " WHERE (COALESCE(last_review_at, due_at) >= ?)" : "") + " ORDER BY id ASC";
+        try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(sqlC)) {
+            if (since > 0) ps.setTimestamp(1, new Timestamp(since));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Map<String,Object> o = new HashMap<>();
+                    o.put("id", rs.getLong(1));
+                    o.put("noteId", rs.getLong(2));
+                    Timestamp dueTs = rs.getTimestamp(3);
+                    Long dueMs = (dueTs == null ? null : Long.valueOf(dueTs.getTime()));
+                    Object ivl = rs.getObject(4);
+                    Double intervalDays = null;
+                    try { intervalDays = (ivl == null ? null : ((Number)ivl).doubleValue()); } catch (Exception ignored) {}
+                    o.put("dueAt", dueMs);
+                    o.put("intervalDays", intervalDays);
+                    o.put("ease", rs.getDouble(5));
+                    o.put("reps", rs.getInt(6));
+                    o.put("lapses", rs.getInt(7));
+                    o.put("status", rs.getInt(8));
+                    Timestamp lrTs = rs.getTimestamp(9);
+                    Long updMs = (lrTs != null ? Long.valueOf(lrTs.getTime()) : dueMs);
+                    o.put("updatedAt", updMs);
+                    o.put("deleted", false);
+                    cards.add(o);
+                }
+            }
+        }
+
+        addTombstones(decks, com.memorizer.db.DeletionRepository.DECK, since);
+        addTombstones(notes, com.memorizer.db.DeletionRepository.NOTE, since);
+        addTombstones(cards, com.memorizer.db.DeletionRepository.CARD, since);
+        Map<String,Object> data = new HashMap<>();
+        data.put("decks", decks);
+        data.put("notes", notes);
+        data.put("cards", cards);
+        data.put("media", addMedia(notes, since));
+        Map<String,Object> out = new HashMap<>();
+        out.put("syncTimestamp", System.currentTimeMillis());
+        out.put("fullResync", fullResync);
+        out.put("data", data);
+        return out;
+    }
+
+    /**
+     * HTTPS connector. TLS sessions are cached (and stateless tickets enabled) so phones resuming after sleep skip
+     * the full handshake. When the Jetty http2-server and jetty-alpn-java-server modules are on the classpath
+     * (build with {@code -Phttp2}) h2 is negotiated over ALPN, falling back to HTTP/1.1.
+     */
     private static Server buildHttpsServer(String host, int port, String keystorePath, String password) {
+        if (Config.getBool("app.web.tls.session-tickets", true)
+                && System.getProperty("jdk.tls.server.enableSessionTicketExtension") == null) {
+            System.setProperty("jdk.tls.server.enableSessionTicketExtension", "true");
+        }
         // SSL context
         SslContextFactory.Server ssl = new SslContextFactory.Server();
         ssl.setKeyStorePath(keystorePath);
         ssl.setKeyStorePassword(password);
         ssl.setKeyManagerPassword(password);
+        ssl.setSslSessionCacheSize(Config.getInt("app.web.tls.session-cache-size", 1024));
+        ssl.setSslSessionTimeout(Config.getInt("app.web.tls.session-timeout-s", 86400));
+        ssl.setRenegotiationAllowed(false);
 
         HttpConfiguration https = new HttpConfiguration();
+        https.setSecureScheme("https");
+        https.setSecurePort(port);
+        https.setSendServerVersion(false);
         https.addCustomizer(new SecureRequestCustomizer());
 
         Server server = new Server();
-        ServerConnector sslConnector = new ServerConnector(server,
-                new SslConnectionFactory(ssl, "http/1.1"),
-                new HttpConnectionFactory(https));
+        HttpConnectionFactory http1 = new HttpConnectionFactory(https);
+        ConnectionFactory[] factories = Config.getBool("app.web.http2.enabled", true) ? http2Factories(ssl, https, http1) : null;
+        if (factories == null) {
+            factories = new ConnectionFactory[]{new SslConnectionFactory(ssl, http1.getProtocol()), http1};
+        }
+        ServerConnector sslConnector = new ServerConnector(server, factories);
         sslConnector.setPort(port);
         sslConnector.setHost(host);
         server.setConnectors(new Connector[]{sslConnector});
@@ -983,6 +1306,31 @@ public final class WebServerManager {
         return server;
     }
 
+    /** SSL -> ALPN -> {h2, http/1.1} factory chain, or null when the HTTP/2 modules are not on the classpath. */
+    @SuppressWarnings("unchecked")
+    private static ConnectionFactory[] http2Factories(SslContextFactory.Server ssl, HttpConfiguration https, HttpConnectionFactory http1) {
+        try {
+            ConnectionFactory h2 = (ConnectionFactory) Class.forName("org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory")
+                    .getConstructor(HttpConfiguration.class).newInstance(https);
+            Class<?> alpnType = Class.forName("org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory");
+            ConnectionFactory alpn = (ConnectionFactory) alpnType.getConstructor(String[].class)
+                    .newInstance((Object) new String[]{h2.getProtocol(), http1.getProtocol()});
+            alpnType.getMethod("setDefaultProtocol", String.class).invoke(alpn, http1.getProtocol());
+            // h2 blacklists many CBC suites; prefer the ones it accepts
+            Object comparator = Class.forName("org.eclipse.jetty.http2.HTTP2Cipher").getField("COMPARATOR").get(null);
+            ssl.setCipherComparator((java.util.Comparator<String>) comparator);
+            ssl.setUseCipherSuitesOrder(true);
+            log.info("HTTP/2 enabled (ALPN h2, http/1.1)");
+            return new ConnectionFactory[]{new SslConnectionFactory(ssl, alpn.getProtocol()), alpn, h2, http1};
+        } catch (ClassNotFoundException e) {
+            log.debug("HTTP/2 modules not on classpath; serving HTTP/1.1");
+            return null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("HTTP/2 setup failed, serving HTTP/1.1: {}", e.toString());
+            return null;
+        }
+    }
+
     private static Server buildHttpServer(String host, int port) {
         HttpConfiguration http = new HttpConfiguration();
         Server server = new Server();
@@ -1311,6 +1659,7 @@ public final class WebServerManager {
                 ps.setLong(8, id);
                 ps.executeUpdate();
             }
+            com.memorizer.event.EventBus.publish(new com.memorizer.event.DomainEvents.NoteEdited(id));
             String msg = java.net.URLEncoder.encode("Note updated", "UTF-8");
             String suffix = ((prevDeckId!=null && !prevDeckId.trim().isEmpty())? ("deckId="+prevDeckId+"&"):"") + ((prevQ!=null && !prevQ.trim().isEmpty())? ("q="+java.net.URLEncoder.encode(prevQ, "UTF-8")+"&"):"") + ((prevSort!=null && !prevSort.trim().isEmpty())? ("sort="+prevSort+"&"):"") + "msg="+msg;
             ctx.redirect("/web/notes" + (suffix.isEmpty()?"":"?"+suffix));
@@ -1325,13 +1674,8 @@ public final class WebServerManager {
             Long id = null; try { id = Long.valueOf(ctx.formParam("id")); } catch (Exception ignored) {}
             String prevDeckId = ctx.formParam("prevDeckId"); String prevQ = ctx.formParam("prevQ"); String prevSort = ctx.formParam("prevSort");
             if (id != null) {
-                try {
-                    com.memorizer.db.Database.get().setAutoCommit(false);
-                    try (PreparedStatement dc = com.memorizer.db.Database.get().prepareStatement("DELETE FROM card WHERE note_id=?")) { dc.setLong(1, id); dc.executeUpdate(); }
-                    try (PreparedStatement dn = com.memorizer.db.Database.get().prepareStatement("DELETE FROM note WHERE id=?")) { dn.setLong(1, id); dn.executeUpdate(); }
-                    com.memorizer.db.Database.get().commit();
-                } catch (Exception e){ try { com.memorizer.db.Database.get().rollback(); } catch (Exception ignored) {} }
-                finally { try { com.memorizer.db.Database.get().setAutoCommit(true); } catch (Exception ignored) {} }
+                try { new com.memorizer.db.DeletionRepository().deleteNote(id); }
+                catch (Exception e) { log.warn("delete note {} failed: {}", id, e.toString()); }
             }
             String msg = java.net.URLEncoder.encode("Note deleted", "UTF-8");
             String suffix = ((prevDeckId!=null && !prevDeckId.trim().isEmpty())? ("deckId="+prevDeckId+"&"):"") + ((prevQ!=null && !prevQ.trim().isEmpty())? ("q="+java.net.URLEncoder.encode(prevQ, "UTF-8")+"&"):"") + ((prevSort!=null && !prevSort.trim().isEmpty())? ("sort="+prevSort+"&"):"") + "msg="+msg;
@@ -1368,27 +1712,8 @@ public final class WebServerManager {
         aj.post("/web/decks/delete", ctx -> {
             Long id = null; try { id = Long.valueOf(ctx.formParam("id")); } catch (Exception ignored) {}
             if (id != null) {
-                try {
-                    com.memorizer.db.Database.get().setAutoCommit(false);
-                    // delete cards and notes under deck
-                    java.util.List<Long> noteIds = new java.util.ArrayList<>();
-                    try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement("SELECT id FROM note WHERE deck_id=?")){
-                        ps.setLong(1, id); try (ResultSet rs = ps.executeQuery()){ while (rs.next()) noteIds.add(rs.getLong(1)); }
-                    }
-                    if (!noteIds.isEmpty()){
-                        try (PreparedStatement dc = com.memorizer.db.Database.get().prepareStatement("DELETE FROM card WHERE note_id=?")){
-                            for (Long nid : noteIds){ dc.setLong(1, nid); dc.addBatch(); } dc.executeBatch();
-                        }
-                        try (PreparedStatement dn = com.memorizer.db.Database.get().prepareStatement("DELETE FROM note WHERE id=?")){
-                            for (Long nid : noteIds){ dn.setLong(1, nid); dn.addBatch(); } dn.executeBatch();
-                        }
-                    }
-                    try (PreparedStatement dd = com.memorizer.db.Database.get().prepareStatement("DELETE FROM deck WHERE id=?")){
-                        dd.setLong(1, id); dd.executeUpdate();
-                    }
-                    com.memorizer.db.Database.get().commit();
-                } catch (Exception e){ try { com.memorizer.db.Database.get().rollback(); } catch (Exception ignored) {} }
-                finally { try { com.memorizer.db.Database.get().setAutoCommit(true); } catch (Exception ignored) {} }
+                try { new com.memorizer.db.DeletionRepository().deleteDeck(id); }
+                catch (Exception e) { log.warn("delete deck {} failed: {}", id, e.toString()); }
             }
             String msg = java.net.URLEncoder.encode("Deck deleted", "UTF-8");
             ctx.redirect("/web/decks?msg="+msg);
@@ -1402,7 +1727,7 @@ public final class WebServerManager {
                 content.append("<nav class='crumbs'><a href='/web'>Home</a> / Study</nav><h2>Study</h2><p class='muted'>No cards available.</p>");
             } else {
                 boolean reveal = "1".equals(ctx.queryParam("a"));
-                java.util.Optional<com.memorizer.service.StudyService.CardView> v = study.currentOrNextOrFallback();
+                java.util.Optional<com.memorizer.service.StudyService.CardView> v = study.currentOrNextOrFallback(studySession(ctx, study));
                 if (!v.isPresent()) {
                     content.append("<nav class='crumbs'><a href='/web'>Home</a> / Study</nav><h2>Study</h2><p class='muted'>No cards available.</p>");
                 } else {
@@ -1421,6 +1746,7 @@ public final class WebServerManager {
                             content.append("</ul>");
                         }
                         content.append("<form method='post' action='/web/study/rate' class='row rate'>")
+                                .append("<input type='hidden' name='card' value='").append(cv.getCardId()).append("'>")
                                 .append("<button name='rating' value='1' class='btn red'>Again</button>")
                                 .append("<button name='rating' value='2' class='btn amber'>Hard</button>")
                                 .append("<button name='rating' value='3' class='btn green'>Good</button>")
@@ -1445,7 +1771,8 @@ public final class WebServerManager {
                 int val; try { val = Integer.parseInt(r.trim()); } catch (Exception e) { val = 0; }
                 com.memorizer.model.Rating rating;
                 if (val == 1) rating = com.memorizer.model.Rating.AGAIN; else if (val == 2) rating = com.memorizer.model.Rating.HARD; else if (val == 3) rating = com.memorizer.model.Rating.GOOD; else rating = com.memorizer.model.Rating.EASY;
-                study.rate(rating);
+                long card; try { card = Long.parseLong(ctx.formParam("card")); } catch (Exception e) { card = -1; }
+                study.rate(studySession(ctx, study), rating, card);
             }
             ctx.redirect("/web/study");
         });
@@ -1464,13 +1791,13 @@ public final class WebServerManager {
         });
         app.get("/api/pair/verify", ctx -> {
             String t = ctx.queryParam("token");
-            boolean ok = PairingManager.get().verify(t);
+            boolean ok = PairingManager.get().claim(t, deviceName(ctx));
             ctx.json(java.util.Collections.singletonMap("ok", ok));
         });
         // Also expose /pair/verify for clients using the non-API path
         app.get("/pair/verify", ctx -> {
             String t = ctx.queryParam("token");
-            boolean ok = PairingManager.get().verify(t);
+            boolean ok = PairingManager.get().claim(t, deviceName(ctx));
             ctx.json(java.util.Collections.singletonMap("ok", ok));
         });
         app.get("/pair", ctx -> {
@@ -1544,13 +1871,19 @@ public final class WebServerManager {
             if ("/api/pair/verify".equals(ctx.path())) return;
             if ("/api/pair/decode".equals(ctx.path())) return;
             String tok = ctx.header("X-Token");
+            if (tok == null && ctx.path().startsWith("/api/media/")) tok = ctx.queryParam("token");
             if (tok == null || !PairingManager.get().verify(tok)) {
                 log.warn("401 unauthorized (fallback) path={} token={}", ctx.path(), mask(tok));
-                ctx.status(401).json(java.util.Collections.singletonMap("error", "unauthorized"));
+                // Halt here; a before-handler that only sets the status would still run the route
+                throw new io.javalin.http.UnauthorizedResponse("unauthorized");
             }
         });
 
+        com.memorizer.web.MediaController.register(app);
+
         app.get("/api/decks", ctx -> {
+            long since = parseSince(ctx.queryParam("since"));
+            if (fullResyncRequired(ctx, since)) return;
             List<Map<String,Object>> out = new ArrayList<>();
             try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(
                     "SELECT id, name FROM deck ORDER BY id ASC")) {
@@ -1564,13 +1897,15 @@ public final class WebServerManager {
                     }
                 }
             }
-            log.info("[fb] GET /api/decks -> {}", out.size());
+            addTombstones(out, com.memorizer.db.DeletionRepository.DECK, since);
+            log.debug("[fb] GET /api/decks -> {}", out.size());
             ctx.json(out);
         });
 
         app.get("/api/notes", ctx -> {
             long since = parseSince(ctx.queryParam("since"));
-            log.info("[fb] GET /api/notes since={}", since);
+            if (fullResyncRequired(ctx, since)) return;
+            log.debug("[fb] GET /api/notes since={}", since);
             List<Map<String,Object>> out = new ArrayList<>();
             String sql = "SELECT id, deck_id, front, back, reading, pos, examples, tags, created_at, updated_at FROM note" +
                     (since > 0 ? " WHERE (COALESCE(updated_at, created_at) >= ?)" : "") +
@@ -1597,13 +1932,15 @@ public final class WebServerManager {
                     }
                 }
             }
-            log.info("[fb] GET /api/notes -> {}", out.size());
+            addTombstones(out, com.memorizer.db.DeletionRepository.NOTE, since);
+            log.debug("[fb] GET /api/notes -> {}", out.size());
             ctx.json(out);
         });
 
         app.get("/api/cards", ctx -> {
             long since = parseSince(ctx.queryParam("since"));
-            log.info("[fb] GET /api/cards since={}", since);
+            if (fullResyncRequired(ctx, since)) return;
+            log.debug("[fb] GET /api/cards since={}", since);
             List<Map<String,Object>> out = new ArrayList<>();
             String sql = "SELECT id, note_id, due_at, interval_days, ease, reps, lapses, status, last_review_at FROM card" +
                     (since > 0 ? " WHERE (COALESCE(last_review_at, due_at) >= ?)" : "") +
@@ -1634,7 +1971,8 @@ public final class WebServerManager {
                     }
                 }
             }
-            log.info("[fb] GET /api/cards -> {}", out.size());
+            addTombstones(out, com.memorizer.db.DeletionRepository.CARD, since);
+            log.debug("[fb] GET /api/cards -> {}", out.size());
             ctx.json(out);
         });
 
@@ -1694,19 +2032,11 @@ public final class WebServerManager {
             Long noteId = toLong(body == null ? null : body.get("id"));
             if (noteId == null) { ctx.status(400).json(err("invalid_id")); return; }
             try {
-                com.memorizer.db.Database.get().setAutoCommit(false);
-                try (PreparedStatement delCards = com.memorizer.db.Database.get().prepareStatement("DELETE FROM card WHERE note_id=?")){
-                    delCards.setLong(1, noteId); delCards.executeUpdate();
-                }
-                try (PreparedStatement delNote = com.memorizer.db.Database.get().prepareStatement("DELETE FROM note WHERE id=?")){
-                    delNote.setLong(1, noteId); delNote.executeUpdate();
-                }
-                com.memorizer.db.Database.get().commit();
+                new com.memorizer.db.DeletionRepository().deleteNote(noteId);
                 ctx.json(ok(1));
             } catch (Exception e) {
-                try { com.memorizer.db.Database.get().rollback(); } catch (Exception ignored) {}
                 ctx.status(500).json(err("delete_failed"));
-            } finally { try { com.memorizer.db.Database.get().setAutoCommit(true); } catch (Exception ignored) {} }
+            }
         });
 
         // Update deck name (fallback HTTP app)
@@ -1726,28 +2056,9 @@ public final class WebServerManager {
             Long id = toLong(body == null ? null : body.get("id"));
             if (id == null){ ctx.status(400).json(err("invalid_id")); return; }
             try {
-                com.memorizer.db.Database.get().setAutoCommit(false);
-                java.util.List<Long> noteIds = new java.util.ArrayList<>();
-                try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement("SELECT id FROM note WHERE deck_id=?")){
-                    ps.setLong(1, id); try (ResultSet rs = ps.executeQuery()){ while (rs.next()) noteIds.add(rs.getLong(1)); }
-                }
-                if (!noteIds.isEmpty()){
-                    try (PreparedStatement delCards = com.memorizer.db.Database.get().prepareStatement("DELETE FROM card WHERE note_id=?")){
-                        for (Long nid : noteIds){ delCards.setLong(1, nid); delCards.addBatch(); }
-                        delCards.executeBatch();
-                    }
-                    try (PreparedStatement delNotes = com.memorizer.db.Database.get().prepareStatement("DELETE FROM note WHERE id=?")){
-                        for (Long nid : noteIds){ delNotes.setLong(1, nid); delNotes.addBatch(); }
-                        delNotes.executeBatch();
-                    }
-                }
-                try (PreparedStatement delDeck = com.memorizer.db.Database.get().prepareStatement("DELETE FROM deck WHERE id=?")){
-                    delDeck.setLong(1, id); delDeck.executeUpdate();
-                }
-                com.memorizer.db.Database.get().commit();
+                new com.memorizer.db.DeletionRepository().deleteDeck(id);
                 ctx.json(ok(1));
-            } catch (Exception e){ try { com.memorizer.db.Database.get().rollback(); } catch (Exception ignored) {} ctx.status(500).json(err("delete_failed")); }
-            finally { try { com.memorizer.db.Database.get().setAutoCommit(true); } catch (Exception ignored) {} }
+            } catch (Exception e){ ctx.status(500).json(err("delete_failed")); }
         });
 
         // Create deck (fallback HTTP app)
@@ -1771,8 +2082,9 @@ public final class WebServerManager {
         app.post("/api/reviews", ctx -> {
             List<?> arr = ctx.bodyAsClass(List.class);
             if (arr == null) { ctx.status(400).json(err("invalid_body")); return; }
-            log.info("[fb] POST /api/reviews size={}", (arr==null?0:arr.size()));
+            log.debug("[fb] POST /api/reviews size={}", (arr==null?0:arr.size()));
             int processed = 0;
+            java.util.Set<Long> ratedCards = new java.util.LinkedHashSet<>();
             try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(
                     "INSERT INTO review_log(card_id, reviewed_at, rating, latency_ms) VALUES (?,?,?,?)")) {
                 for (Object o : arr) {
@@ -1788,11 +2100,13 @@ public final class WebServerManager {
                     ps.setInt(3, rating);
                     if (latMs == null) ps.setNull(4, java.sql.Types.INTEGER); else ps.setInt(4, latMs);
                     ps.addBatch();
+                    ratedCards.add(cardId);
                     processed++;
                 }
                 ps.executeBatch();
             }
-            log.info("[fb] POST /api/reviews processed={}", processed);
+            publishReviewsImported(processed, ratedCards);
+            log.debug("[fb] POST /api/reviews processed={}", processed);
             ctx.json(ok(processed));
         });
 
@@ -1869,6 +2183,8 @@ public final class WebServerManager {
             long since = toLong(body == null ? null : body.get("lastSyncTimestamp")) == null ? 0L : toLong(body.get("lastSyncTimestamp"));
             List<?> logs = (List<?>) (body == null ? null : body.get("reviewLogs"));
             if (logs != null && !logs.isEmpty()) {
+                int stored = 0;
+                java.util.Set<Long> ratedCards = new java.util.LinkedHashSet<>();
                 try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(
                         "INSERT INTO review_log(card_id, reviewed_at, rating, latency_ms, client_uuid) VALUES (?,?,?,?,?)")) {
                     for (Object o : logs) {
@@ -1888,7 +2204,7 @@ public final class WebServerManager {
                             }
                         }
                         Timestamp rvAt = new Timestamp(tsMs == null ? System.currentTimeMillis() : tsMs);
-                        if (!exists) try (PreparedStatement chk = com.memorizer.db.Database.get().prepareStatement("SELECT COUNT(*) FROM review_log WHERE card_id=? AND reviewed_at=? AND rating=?")){
+                        if (!exists) try (PreparedStatement chk = com.memorizer.db.Database.get().prepareStatement(com.memorizer.db.CardRepository.REVIEW_EXISTS_SQL)){
                             chk.setLong(1, cardId);
                             chk.setTimestamp(2, rvAt);
                             chk.setInt(3, rating);
@@ -1901,87 +2217,15 @@ public final class WebServerManager {
                         if (latMs == null) ps.setNull(4, java.sql.Types.INTEGER); else ps.setInt(4, latMs);
                         if (uuid == null) ps.setNull(5, java.sql.Types.VARCHAR); else ps.setString(5, String.valueOf(uuid));
                         ps.addBatch();
+                        stored++;
+                        ratedCards.add(cardId);
                     }
                     ps.executeBatch();
                 }
+                publishReviewsImported(stored, ratedCards);
             }
 
-            List<Map<String,Object>> decks = new ArrayList<>();
-            try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(
-                    "SELECT id, name FROM deck ORDER BY id ASC")) {
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        Map<String,Object> o = new HashMap<>();
-                        o.put("id", rs.getLong(1));
-                        o.put("name", rs.getString(2));
-                        decks.add(o);
-                    }
-                }
-            }
-            List<Map<String,Object>> notes = new ArrayList<>();
-            String sqlN = "SELECT id, deck_id, front, back, reading, pos, examples, tags, created_at, updated_at FROM note" +
-                    (since > 0 ? " WHERE (COALESCE(updated_at, created_at) >= ?)" : "") + " ORDER BY id ASC";
-            try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(sqlN)) {
-                if (since > 0) ps.setTimestamp(1, new Timestamp(since));
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        Map<String,Object> o = new HashMap<>();
-                        o.put("id", rs.getLong(1));
-                        Object deckObj = rs.getObject(2);
-                        o.put("deckId", deckObj == null ? null : ((Number)deckObj).longValue());
-                        o.put("front", rs.getString(3));
-                        o.put("back", rs.getString(4));
-                        o.put("reading", rs.getString(5));
-                        o.put("pos", rs.getString(6));
-                        o.put("examples", rs.getString(7));
-                        o.put("tags", rs.getString(8));
-                        Timestamp cAt = rs.getTimestamp(9);
-                        Timestamp uAt = rs.getTimestamp(10);
-                        o.put("updatedAt", (uAt != null ? uAt.getTime() : (cAt!=null?cAt.getTime():null)));
-                        o.put("deleted", false);
-                        notes.add(o);
-                    }
-                }
-            }
-
-            List<Map<String,Object>> cards = new ArrayList<>();
-            String sqlC = "SELECT id, note_id, due_at, interval_days, ease, reps, lapses, status, last_review_at FROM card" +
-                    (since > 0 ? " WHERE (COALESCE(last_review_at, due_at) >= ?)" : "") + " ORDER BY id ASC";
-            try (PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(sqlC)) {
-                if (since > 0) ps.setTimestamp(1, new Timestamp(since));
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        Map<String,Object> o = new HashMap<>();
-                        o.put("id", rs.getLong(1));
-                        o.put("noteId", rs.getLong(2));
-                        Timestamp dueTs = rs.getTimestamp(3);
-                        Long dueMs = (dueTs == null ? null : Long.valueOf(dueTs.getTime()));
-                        Object ivl = rs.getObject(4);
-                        Double intervalDays = null;
-                        try { intervalDays = (ivl == null ? null : ((Number)ivl).doubleValue()); } catch (Exception ignored) {}
-                        o.put("dueAt", dueMs);
-                        o.put("intervalDays", intervalDays);
-                        o.put("ease", rs.getDouble(5));
-                        o.put("reps", rs.getInt(6));
-                        o.put("lapses", rs.getInt(7));
-                        o.put("status", rs.getInt(8));
-                        Timestamp lrTs = rs.getTimestamp(9);
-                        Long updMs = (lrTs != null ? Long.valueOf(lrTs.getTime()) : dueMs);
-                        o.put("updatedAt", updMs);
-                        o.put("deleted", false);
-                        cards.add(o);
-                    }
-                }
-            }
-
-            Map<String,Object> data = new HashMap<>();
-            data.put("decks", decks);
-            data.put("notes", notes);
-            data.put("cards", cards);
-            Map<String,Object> out = new HashMap<>();
-            out.put("syncTimestamp", System.currentTimeMillis());
-            out.put("data", data);
-            ctx.json(out);
+            ctx.json(buildSyncResponse(since));
         });
 
         // quick counts debug endpoint
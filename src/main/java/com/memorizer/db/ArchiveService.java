@@ -0,0 +1,391 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Cold tier for history tables. Plan rows older than {@code app.archive.plan-days} and review rows
+ * older than {@code app.archive.review-months} are moved, a block at a time, into append-only
+ * {@link ArchiveStore} files next to the database, keeping {@code study_plan} and {@code review_log} small.
+ * A block is synced to disk before its rows are deleted; if the app dies in between, the next run
+ * deletes the rows of the last block first, so nothing is archived twice. Rows whose id the archive
+ * already holds (e.g. brought back by restoring an older database snapshot) are dropped, not appended again.
+ * Per-card rating counts of the archived reviews are kept in {@code review_archive_stats}, written with the
+ * delete, so aggregates never need to decode the archive.
+ */
+public final class ArchiveService {
+    private static final Logger log = LoggerFactory.getLogger(ArchiveService.class);
+    private static final ArchiveService INSTANCE = new ArchiveService();
+    private static final int BLOCK_ROWS = 5000;
+
+    /** One archived review_log row; nullable columns are boxed. */
+    public static final class ReviewRow {
+        public long id;
+        public long cardId;
+        public long reviewedAt;
+        public int rating;
+        public Double prevInterval;
+        public Double nextInterval;
+        public Double ease;
+        public Integer latencyMs;
+        public String clientUuid;
+    }
+
+    /** One archived study_plan row. */
+    public static final class PlanRow {
+        public LocalDate planDate;
+        public long cardId;
+        public Long deckId;
+        public int kind;
+        public int status;
+        public int orderNo;
+        public Long createdAt;
+        public Long updatedAt;
+    }
+
+    /** Rows moved by one run. */
+    public static final class Result {
+        public int reviews;
+        public int plans;
+    }
+
+    public static ArchiveService get() { return INSTANCE; }
+
+    private ArchiveService() {}
+
+    /** Move everything past the retention windows into the archive. */
+    public synchronized Result archiveNow() {
+        Result r = new Result();
+        try {
+            ArchiveStore reviews = reviewStore();
+            ArchiveStore plans = planStore();
+            boolean backfilled = backfillStats(reviews);
+            repair(reviews, plans, !backfilled);
+            Timestamp reviewCutoff = Timestamp.valueOf(LocalDateTime.now().minusMonths(Math.max(1, Config.getInt("app.archive.review-months", 12))));
+            Date planCutoff = Date.valueOf(LocalDate.now().minusDays(Math.max(1, Config.getInt("app.archive.plan-days", 30))));
+            int n;
+            while ((n = archiveReviews(reviews, reviewCutoff)) > 0) r.reviews += n;
+            while ((n = archivePlans(plans, planCutoff)) > 0) r.plans += n;
+        } catch (Exception e) {
+            throw new RuntimeException("archive failed", e);
+        }
+        if (r.reviews > 0 || r.plans > 0) log.info("Archived {} review rows and {} plan rows", r.reviews, r.plans);
+        return r;
+    }
+
+    /** Stream archived reviews with {@code from <= reviewed_at < to} (either bound may be null). */
+    public void forEachArchivedReview(Timestamp from, Timestamp to, Consumer<ReviewRow> sink) {
+        long lo = from == null ? Long.MIN_VALUE : from.getTime();
+        long hi = to == null ? Long.MAX_VALUE : to.getTime() - 1;
+        try {
+            reviewStore().scan(lo, hi, row -> {
+                ReviewRow v = toReview(row);
+                if (v.reviewedAt >= lo && v.reviewedAt <= hi) sink.accept(v);
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("read review archive failed", e);
+        }
+    }
+
+    /**
+     * Stream the full review history in the range: archived rows first, then the live table ordered by time.
+     * Live rows the archive already holds are skipped. This is the entry point for analytics that need more
+     * than the hot window.
+     */
+    public void forEachReview(Timestamp from, Timestamp to, Consumer<ReviewRow> sink) {
+        Timestamp lo = from == null ? new Timestamp(0) : from;
+        Timestamp hi = to == null ? Timestamp.valueOf("9999-12-31 00:00:00") : to;
+        try {
+            // Only archived rows at or after the oldest live row can be duplicates; normally there are none
+            long liveFrom = Long.MAX_VALUE;
+            try (PreparedStatement ps = Database.get().prepareStatement(
+                    "SELECT MIN(reviewed_at) FROM review_log WHERE reviewed_at >= ? AND reviewed_at < ?")) {
+                ps.setTimestamp(1, lo);
+                ps.setTimestamp(2, hi);
+                try (ResultSet rs = ps.executeQuery()) {
+                    Timestamp t = rs.next() ? rs.getTimestamp(1) : null;
+                    if (t != null) liveFrom = t.getTime();
+                }
+            }
+            Set<Long> archived = new HashSet<Long>();
+            long overlapFrom = liveFrom;
+            forEachArchivedReview(from, to, v -> {
+                if (v.reviewedAt >= overlapFrom) archived.add(v.id);
+                sink.accept(v);
+            });
+            String sql = "SELECT id, card_id, reviewed_at, rating, prev_interval, next_interval, ease, latency_ms, client_uuid " +
+                    "FROM review_log WHERE reviewed_at >= ? AND reviewed_at < ? ORDER BY reviewed_at, id";
+            try (PreparedStatement ps = Database.get().prepareStatement(sql)) {
+                ps.setTimestamp(1, lo);
+                ps.setTimestamp(2, hi);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (!archived.isEmpty() && archived.contains(rs.getLong(1))) continue;
+                        sink.accept(toReview(reviewRow(rs)));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("read review history failed", e);
+        }
+    }
+
+    /** Stream archived plan rows for days in [from, to] (either bound may be null). */
+    public void forEachArchivedPlan(LocalDate from, LocalDate to, Consumer<PlanRow> sink) {
+        long lo = from == null ? Long.MIN_VALUE : from.toEpochDay();
+        long hi = to == null ? Long.MAX_VALUE : to.toEpochDay();
+        try {
+            planStore().scan(lo, hi, row -> {
+                long day = (Long) row[0];
+                if (day < lo || day > hi) return;
+                PlanRow p = new PlanRow();
+                p.planDate = LocalDate.ofEpochDay(day);
+                p.cardId = (Long) row[1];
+                p.deckId = (Long) row[2];
+                p.kind = (Integer) row[3];
+                p.status = (Integer) row[4];
+                p.orderNo = (Integer) row[5];
+                p.createdAt = (Long) row[6];
+                p.updatedAt = (Long) row[7];
+                sink.accept(p);
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("read plan archive failed", e);
+        }
+    }
+
+    // ---- moving rows ----
+
+    private int archiveReviews(ArchiveStore store, Timestamp cutoff) throws SQLException, IOException {
+        Connection c = Database.get();
+        List<Object[]> rows = new ArrayList<Object[]>();
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE, maxId = 0;
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT id, card_id, reviewed_at, rating, prev_interval, next_interval, ease, latency_ms, client_uuid " +
+                "FROM review_log WHERE reviewed_at < ? ORDER BY id LIMIT " + BLOCK_ROWS)) {
+            ps.setTimestamp(1, cutoff);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Object[] row = reviewRow(rs);
+                    rows.add(row);
+                    min = Math.min(min, (Long) row[2]);
+                    max = Math.max(max, (Long) row[2]);
+                    maxId = (Long) row[0];
+                }
+            }
+        }
+        if (rows.isEmpty()) return 0;
+        Set<Long> archived = new HashSet<Long>();
+        store.scan(min, max, row -> archived.add((Long) row[0]));
+        List<Object[]> fresh = rows;
+        if (!archived.isEmpty()) {
+            fresh = new ArrayList<Object[]>(rows.size());
+            for (Object[] row : rows) if (!archived.contains((Long) row[0])) fresh.add(row);
+        }
+        store.append(fresh, min, max);
+        c.setAutoCommit(false);
+        try {
+            // Exactly the selected rows: ids are ordered and the cutoff is unchanged
+            try (PreparedStatement ps = c.prepareStatement("DELETE FROM review_log WHERE reviewed_at < ? AND id <= ?")) {
+                ps.setTimestamp(1, cutoff);
+                ps.setLong(2, maxId);
+                ps.executeUpdate();
+            }
+            addStats(c, fresh);
+            c.commit();
+        } catch (SQLException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(true);
+        }
+        return rows.size();
+    }
+
+    /** Add the rating counts of newly archived review rows. */
+    private static void addStats(Connection c, List<Object[]> rows) throws SQLException {
+        Map<Long, long[]> byCard = new HashMap<Long, long[]>();
+        for (Object[] row : rows) tally(byCard, row);
+        insertStats(c, byCard);
+    }
+
+    private static void tally(Map<Long, long[]> byCard, Object[] row) {
+        int rating = (Integer) row[3];
+        if (rating >= 0 && rating <= 4) byCard.computeIfAbsent((Long) row[1], k -> new long[5])[rating]++;
+    }
+
+    private static void insertStats(Connection c, Map<Long, long[]> byCard) throws SQLException {
+        if (byCard.isEmpty()) return;
+        try (PreparedStatement ps = c.prepareStatement("INSERT INTO review_archive_stats(card_id, rating, cnt) VALUES (?,?,?)")) {
+            for (Map.Entry<Long, long[]> e : byCard.entrySet()) {
+                for (int rating = 0; rating < 5; rating++) {
+                    if (e.getValue()[rating] == 0) continue;
+                    ps.setLong(1, e.getKey());
+                    ps.setInt(2, rating);
+                    ps.setLong(3, e.getValue()[rating]);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /** Count an archive written before the stats table existed, once; true if it did. */
+    private static boolean backfillStats(ArchiveStore reviews) throws SQLException, IOException {
+        if (!java.nio.file.Files.exists(reviews.file())) return false;
+        Connection c = Database.get();
+        try (PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM review_archive_stats");
+             ResultSet rs = ps.executeQuery()) {
+            if (rs.next() && rs.getLong(1) > 0) return false;
+        }
+        Map<Long, long[]> byCard = new HashMap<Long, long[]>();
+        reviews.scan(Long.MIN_VALUE, Long.MAX_VALUE, row -> tally(byCard, row));
+        insertStats(c, byCard);
+        return !byCard.isEmpty();
+    }
+
+    private int archivePlans(ArchiveStore store, Date cutoff) throws SQLException, IOException {
+        Connection c = Database.get();
+        List<Object[]> rows = new ArrayList<Object[]>();
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT plan_date, card_id, deck_id, kind, status, order_no, created_at, updated_at " +
+                "FROM study_plan WHERE plan_date < ? ORDER BY plan_date, order_no LIMIT " + BLOCK_ROWS)) {
+            ps.setDate(1, cutoff);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long deck = rs.getLong(3);
+                    Long deckId = rs.wasNull() ? null : deck;
+                    Timestamp created = rs.getTimestamp(7);
+                    Timestamp updated = rs.getTimestamp(8);
+                    rows.add(new Object[]{rs.getDate(1).toLocalDate().toEpochDay(), rs.getLong(2), deckId,
+                            rs.getInt(4), rs.getInt(5), rs.getInt(6),
+                            created == null ? null : created.getTime(), updated == null ? null : updated.getTime()});
+                }
+            }
+        }
+        if (rows.isEmpty()) return 0;
+        store.append(rows, (Long) rows.get(0)[0], (Long) rows.get(rows.size() - 1)[0]);
+        deletePlans(c, rows);
+        return rows.size();
+    }
+
+    /**
+     * Delete rows of the last block that are still in the hot tables (crash between append and delete), counting
+     * the reviews among them unless {@code count} is false (a backfill just counted the whole archive).
+     */
+    private static void repair(ArchiveStore reviews, ArchiveStore plans, boolean count) throws SQLException, IOException {
+        Connection c = Database.get();
+        List<Object[]> last = reviews.lastBlock();
+        if (!last.isEmpty()) {
+            c.setAutoCommit(false);
+            try {
+                int[] deleted;
+                try (PreparedStatement ps = c.prepareStatement("DELETE FROM review_log WHERE id=?")) {
+                    for (Object[] row : last) {
+                        ps.setLong(1, (Long) row[0]);
+                        ps.addBatch();
+                    }
+                    deleted = ps.executeBatch();
+                }
+                List<Object[]> uncounted = new ArrayList<Object[]>();
+                for (int i = 0; i < last.size(); i++) if (deleted[i] > 0) uncounted.add(last.get(i));
+                if (count) addStats(c, uncounted);
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+        last = plans.lastBlock();
+        if (!last.isEmpty()) deletePlans(c, last);
+    }
+
+    private static void deletePlans(Connection c, List<Object[]> rows) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("DELETE FROM study_plan WHERE plan_date=? AND card_id=?")) {
+            for (Object[] row : rows) {
+                ps.setDate(1, Date.valueOf(LocalDate.ofEpochDay((Long) row[0])));
+                ps.setLong(2, (Long) row[1]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static Object[] reviewRow(ResultSet rs) throws SQLException {
+        Timestamp at = rs.getTimestamp(3);
+        return new Object[]{rs.getLong(1), rs.getLong(2), at == null ? 0L : at.getTime(), rs.getInt(4),
+                nullableDouble(rs, 5), nullableDouble(rs, 6), nullableDouble(rs, 7), nullableInt(rs, 8), rs.getString(9)};
+    }
+
+    private static ReviewRow toReview(Object[] row) {
+        ReviewRow v = new ReviewRow();
+        v.id = (Long) row[0];
+        v.cardId = (Long) row[1];
+        v.reviewedAt = (Long) row[2];
+        v.rating = (Integer) row[3];
+        v.prevInterval = (Double) row[4];
+        v.nextInterval = (Double) row[5];
+        v.ease = (Double) row[6];
+        v.latencyMs = (Integer) row[7];
+        v.clientUuid = (String) row[8];
+        return v;
+    }
+
+    private static Double nullableDouble(ResultSet rs, int i) throws SQLException {
+        double d = rs.getDouble(i);
+        return rs.wasNull() ? null : d;
+    }
+
+    private static Integer nullableInt(ResultSet rs, int i) throws SQLException {
+        int v = rs.getInt(i);
+        return rs.wasNull() ? null : v;
+    }
+
+    private static Path dir() {
+        String configured = Config.get("app.archive.dir", "");
+        if (!configured.isEmpty()) return Paths.get(configured).toAbsolutePath();
+        // Default: next to the database file
+        Path db = Paths.get(Config.get("app.db.path", "./data/memo")).toAbsolutePath();
+        return db.getParent().resolve("archive");
+    }
+
+    /** The archive files, for backups; they are append-only, so an earlier state is a prefix of the current one. */
+    static List<Path> files() {
+        return java.util.Arrays.asList(dir().resolve("review_log.arc"), dir().resolve("study_plan.arc"));
+    }
+
+    private static ArchiveStore reviewStore() {
+        return new ArchiveStore(files().get(0),
+                ArchiveStore.Type.LONG, ArchiveStore.Type.LONG, ArchiveStore.Type.LONG, ArchiveStore.Type.INT,
+                ArchiveStore.Type.DOUBLE, ArchiveStore.Type.DOUBLE, ArchiveStore.Type.DOUBLE, ArchiveStore.Type.INT,
+                ArchiveStore.Type.STRING);
+    }
+
+    private static ArchiveStore planStore() {
+        return new ArchiveStore(files().get(1),
+                ArchiveStore.Type.LONG, ArchiveStore.Type.LONG, ArchiveStore.Type.LONG, ArchiveStore.Type.INT,
+                ArchiveStore.Type.INT, ArchiveStore.Type.INT, ArchiveStore.Type.LONG, ArchiveStore.Type.LONG);
+    }
+}
@@ -0,0 +1,322 @@
+package com.memorizer.db;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only columnar archive file.
+ * <p>
+ * Layout: a header (magic, version, column types) followed by blocks. Each block has a fixed
+ * 32-byte header (raw length, compressed length, row count, min/max key, CRC32) and a deflated
+ * body holding the columns one after another: integers as zigzag-delta varints, doubles raw,
+ * strings as length-prefixed UTF-8, each column preceded by an optional null bitmap.
+ * Scans skip blocks whose key range does not overlap the request without inflating them.
+ * A torn block at the tail (crash during append) is ignored by readers and cut off by the next append.
+ */
+public final class ArchiveStore {
+    public enum Type { LONG, INT, DOUBLE, STRING }
+
+    private static final int MAGIC = 0x4D415243; // "MARC"
+    private static final int VERSION = 1;
+    private static final int BLOCK_HEADER = 32;
+
+    private final Path file;
+    private final Type[] types;
+
+    public ArchiveStore(Path file, Type... types) {
+        this.file = file;
+        this.types = types.clone();
+    }
+
+    public Path file() { return file; }
+
+    /** Append one block of rows (each an Object[] matching the column types) and sync it to disk. */
+    public synchronized void append(List<Object[]> rows, long minKey, long maxKey) throws IOException {
+        if (rows.isEmpty()) return;
+        byte[] raw = encode(rows);
+        Deflater def = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] comp;
+        try {
+            def.setInput(raw);
+            def.finish();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(raw.length / 3 + 64);
+            byte[] buf = new byte[8192];
+            while (!def.finished()) {
+                int n = def.deflate(buf);
+                bos.write(buf, 0, n);
+            }
+            comp = bos.toByteArray();
+        } finally {
+            def.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(comp, 0, comp.length);
+
+        ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_HEADER + comp.length);
+        DataOutputStream out = new DataOutputStream(block);
+        out.writeInt(raw.length);
+        out.writeInt(comp.length);
+        out.writeInt(rows.size());
+        out.writeLong(minKey);
+        out.writeLong(maxKey);
+        out.writeInt((int) crc.getValue());
+        out.write(comp);
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = ch.size() == 0 ? writeHeader(ch) : validLength(ch);
+            ch.truncate(end);
+            ch.position(end);
+            ch.write(java.nio.ByteBuffer.wrap(block.toByteArray()));
+            ch.force(false);
+        }
+    }
+
+    /** Stream rows of every block whose key range overlaps [fromKey, toKey], in append order. */
+    public void scan(long fromKey, long toKey, Consumer<Object[]> sink) throws IOException {
+        if (!Files.exists(file)) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            readHeader(in);
+            while (true) {
+                int rawLen, compLen, rows, crc;
+                long minKey, maxKey;
+                try {
+                    rawLen = in.readInt();
+                    compLen = in.readInt();
+                    rows = in.readInt();
+                    minKey = in.readLong();
+                    maxKey = in.readLong();
+                    crc = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (maxKey < fromKey || minKey > toKey) {
+                    if (!skipFully(in, compLen)) return;
+                    continue;
+                }
+                byte[] comp = new byte[compLen];
+                try { in.readFully(comp); } catch (EOFException e) { return; }
+                CRC32 c = new CRC32();
+                c.update(comp, 0, comp.length);
+                if ((int) c.getValue() != crc) return; // torn tail
+                for (Object[] row : decode(inflate(comp, rawLen), rows)) sink.accept(row);
+            }
+        }
+    }
+
+    /** Rows of the last complete block, or an empty list. */
+    public List<Object[]> lastBlock() throws IOException {
+        List<Object[]> last = new ArrayList<Object[]>();
+        if (!Files.exists(file)) return last;
+        long pos = -1;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long end = validLength(ch);
+            long p = headerLength();
+            while (p < end) {
+                pos = p;
+                p += BLOCK_HEADER + readBlockHeader(ch, p).getInt(4);
+            }
+            if (pos < 0) return last;
+            java.nio.ByteBuffer h = readBlockHeader(ch, pos);
+            byte[] comp = new byte[h.getInt(4)];
+            java.nio.ByteBuffer body = java.nio.ByteBuffer.wrap(comp);
+            ch.position(pos + BLOCK_HEADER);
+            while (body.hasRemaining() && ch.read(body) >= 0) { }
+            last.addAll(decode(inflate(comp, h.getInt(0)), h.getInt(8)));
+        }
+        return last;
+    }
+
+    private long writeHeader(FileChannel ch) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(types.length);
+        for (Type t : types) out.writeByte(t.ordinal());
+        ch.write(java.nio.ByteBuffer.wrap(bos.toByteArray()), 0);
+        return headerLength();
+    }
+
+    private long headerLength() { return 6 + types.length; }
+
+    private void readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("not an archive file: " + file);
+        if (in.readUnsignedByte() != VERSION) throw new IOException("unsupported archive version: " + file);
+        int n = in.readUnsignedByte();
+        if (n != types.length) throw new IOException("archive column mismatch: " + file);
+        for (Type t : types) {
+            if (in.readUnsignedByte() != t.ordinal()) throw new IOException("archive column mismatch: " + file);
+        }
+    }
+
+    /** End offset of the last intact block (header fields plausible, body present, CRC matches). */
+    private long validLength(FileChannel ch) throws IOException {
+        long size = ch.size();
+        long p = headerLength();
+        while (p + BLOCK_HEADER <= size) {
+            java.nio.ByteBuffer h = readBlockHeader(ch, p);
+            int compLen = h.getInt(4);
+            if (compLen < 0 || p + BLOCK_HEADER + compLen > size) break;
+            java.nio.ByteBuffer body = java.nio.ByteBuffer.allocate(compLen);
+            ch.position(p + BLOCK_HEADER);
+            while (body.hasRemaining() && ch.read(body) >= 0) { }
+            CRC32 c = new CRC32();
+            c.update(body.array(), 0, compLen);
+            if ((int) c.getValue() != h.getInt(28)) break;
+            p += BLOCK_HEADER + compLen;
+        }
+        return p;
+    }
+
+    private static java.nio.ByteBuffer readBlockHeader(FileChannel ch, long pos) throws IOException {
+        java.nio.ByteBuffer h = java.nio.ByteBuffer.allocate(BLOCK_HEADER);
+        ch.position(pos);
+        while (h.hasRemaining() && ch.read(h) >= 0) { }
+        return h;
+    }
+
+    private static boolean skipFully(DataInputStream in, int n) throws IOException {
+        int left = n;
+        while (left > 0) {
+            int s = in.skipBytes(left);
+            if (s <= 0) return false;
+            left -= s;
+        }
+        return true;
+    }
+
+    private static byte[] inflate(byte[] comp, int rawLen) throws IOException {
+        Inflater inf = new Inflater();
+        try {
+            inf.setInput(comp);
+            byte[] raw = new byte[rawLen];
+            int off = 0;
+            while (off < rawLen && !inf.finished()) {
+                int n = inf.inflate(raw, off, rawLen - off);
+                if (n == 0 && inf.needsInput()) break;
+                off += n;
+            }
+            if (off != rawLen) throw new IOException("corrupt archive block");
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt archive block", e);
+        } finally {
+            inf.end();
+        }
+    }
+
+    // ---- column codec ----
+
+    private byte[] encode(List<Object[]> rows) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(rows.size() * types.length * 4);
+        DataOutputStream out = new DataOutputStream(bos);
+        int n = rows.size();
+        for (int c = 0; c < types.length; c++) {
+            byte[] nulls = null;
+            for (int r = 0; r < n; r++) {
+                if (rows.get(r)[c] == null) {
+                    if (nulls == null) nulls = new byte[(n + 7) / 8];
+                    nulls[r >> 3] |= (byte) (1 << (r & 7));
+                }
+            }
+            out.writeBoolean(nulls != null);
+            if (nulls != null) out.write(nulls);
+            long prev = 0;
+            for (int r = 0; r < n; r++) {
+                Object v = rows.get(r)[c];
+                if (v == null) continue;
+                switch (types[c]) {
+                    case LONG:
+                    case INT: {
+                        long x = ((Number) v).longValue();
+                        writeVarLong(out, zigzag(x - prev));
+                        prev = x;
+                        break;
+                    }
+                    case DOUBLE:
+                        out.writeDouble(((Number) v).doubleValue());
+                        break;
+                    default: {
+                        byte[] b = v.toString().getBytes(StandardCharsets.UTF_8);
+                        writeVarLong(out, b.length);
+                        out.write(b);
+                    }
+                }
+            }
+        }
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    private List<Object[]> decode(byte[] raw, int n) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        List<Object[]> rows = new ArrayList<Object[]>(n);
+        for (int r = 0; r < n; r++) rows.add(new Object[types.length]);
+        for (int c = 0; c < types.length; c++) {
+            byte[] nulls = null;
+            if (in.readBoolean()) {
+                nulls = new byte[(n + 7) / 8];
+                in.readFully(nulls);
+            }
+            long prev = 0;
+            for (int r = 0; r < n; r++) {
+                if (nulls != null && (nulls[r >> 3] & (1 << (r & 7))) != 0) continue;
+                Object v;
+                switch (types[c]) {
+                    case LONG:
+                        prev += unzigzag(readVarLong(in));
+                        v = prev;
+                        break;
+                    case INT:
+                        prev += unzigzag(readVarLong(in));
+                        v = (int) prev;
+                        break;
+                    case DOUBLE:
+                        v = in.readDouble();
+                        break;
+                    default: {
+                        byte[] b = new byte[(int) readVarLong(in)];
+                        in.readFully(b);
+                        v = new String(b, StandardCharsets.UTF_8);
+                    }
+                }
+                rows.get(r)[c] = v;
+            }
+        }
+        return rows;
+    }
+
+    private static long zigzag(long v) { return (v << 1) ^ (v >> 63); }
+
+    private static long unzigzag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    private static void writeVarLong(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("malformed varint");
+    }
+}
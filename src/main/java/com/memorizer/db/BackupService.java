@@ -0,0 +1,617 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Online snapshots of the H2 store while the app (or another AUTO_SERVER process) is using it.
+ * The default "script" format streams {@code SCRIPT} from a REPEATABLE READ side connection into a
+ * gzip file at a capped write rate; "backup" uses H2's page-level {@code BACKUP TO} zip instead.
+ * Each snapshot gets a {@code .properties} sidecar with its SHA-256 and a content fingerprint;
+ * a scheduled run is skipped when the fingerprint has not changed since the newest snapshot.
+ * Media blobs referenced by a snapshot are copied once into a shared {@code media/} pool in the backup
+ * directory and listed in a {@code .media} file next to it, so a restore can bring back blobs collected since.
+ * The append-only history archive is mirrored into {@code archive/} and each sidecar records how long every
+ * archive file was, so a restore puts back exactly the archive that matches the database it restores.
+ */
+public final class BackupService {
+    private static final Logger log = LoggerFactory.getLogger(BackupService.class);
+    private static final BackupService INSTANCE = new BackupService();
+    private static final String PREFIX = "memo-";
+
+    /** Snapshot file plus what its sidecar recorded. */
+    public static final class Snapshot {
+        public Path file;
+        public String format;
+        public long createdAt;
+        public long bytes;
+        public String sha256;
+        public String fingerprint;
+    }
+
+    /** Row counts read back from a snapshot during verification. */
+    public static final class Verification {
+        public int decks;
+        public int notes;
+        public int cards;
+        public int reviews;
+    }
+
+    private ScheduledExecutorService ses;
+
+    public static BackupService get() { return INSTANCE; }
+
+    private BackupService() {}
+
+    /** Schedule periodic snapshots if {@code app.backup.enabled}. */
+    public synchronized void start() {
+        if (ses != null || !Config.getBool("app.backup.enabled", true)) return;
+        long hours = Math.max(1, Config.getInt("app.backup.interval-hours", 24));
+        ses = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-backup");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        ses.scheduleWithFixedDelay(() -> {
+            try { backupNow(false); } catch (Exception e) { log.warn("scheduled backup failed: {}", e.toString()); }
+        }, Config.getInt("app.backup.initial-delay-minutes", 10) * 60L, hours * 3600L, TimeUnit.SECONDS);
+        log.info("Backup scheduled every {} h into {}", hours, dir());
+    }
+
+    public synchronized void stop() {
+        if (ses != null) { ses.shutdownNow(); ses = null; }
+    }
+
+    /**
+     * Take a snapshot now. Unless {@code force}, returns null without writing when nothing changed
+     * since the newest snapshot. Applies retention afterwards.
+     */
+    public synchronized Snapshot backupNow(boolean force) {
+        String format = Config.get("app.backup.format", "script");
+        try {
+            Files.createDirectories(dir());
+            try (Connection c = DriverManager.getConnection(Database.url(), "sa", "")) {
+                // Read before the snapshot transaction (H2 1.4.200 trips over multi-table reads under
+                // REPEATABLE READ); a write in between only makes the next run take one more snapshot.
+                String fp = fingerprint(c);
+                List<Snapshot> existing = list();
+                if (!force && !existing.isEmpty() && fp.equals(existing.get(0).fingerprint)) {
+                    log.info("Backup skipped: no changes since {}", existing.get(0).file.getFileName());
+                    return null;
+                }
+                String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+                boolean zip = "backup".equalsIgnoreCase(format);
+                Path target = dir().resolve(PREFIX + stamp + (zip ? ".zip" : ".sql.gz"));
+                Path tmp = target.resolveSibling(target.getFileName() + ".part");
+                long t0 = System.nanoTime();
+                List<String> media;
+                Properties archive;
+                // No archive run between the database snapshot and the archive mirror
+                synchronized (ArchiveService.get()) {
+                    c.setAutoCommit(false);
+                    c.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                    if (zip) {
+                        try (Statement st = c.createStatement()) { st.execute("BACKUP TO '" + sqlPath(tmp) + "'"); }
+                    } else {
+                        writeScript(c, tmp);
+                    }
+                    media = mediaHashes(c);
+                    c.commit();
+                    archive = saveArchive();
+                }
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                Snapshot s = new Snapshot();
+                s.file = target;
+                s.format = zip ? "backup" : "script";
+                s.createdAt = System.currentTimeMillis();
+                s.bytes = Files.size(target);
+                s.sha256 = sha256(target);
+                s.fingerprint = fp;
+                writeMeta(s, archive);
+                saveMedia(target, media);
+                com.memorizer.metrics.Metrics.timer("memorizer_backup_seconds").recordSince(t0);
+                log.info("Backup written: {} ({} bytes)", target.getFileName(), s.bytes);
+                prune();
+                return s;
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("backup failed", e);
+        }
+    }
+
+    /** Snapshots in the backup directory, newest first. */
+    public List<Snapshot> list() {
+        List<Snapshot> out = new ArrayList<Snapshot>();
+        Path dir = dir();
+        if (!Files.isDirectory(dir)) return out;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, PREFIX + "*.{sql.gz,zip}")) {
+            for (Path p : ds) out.add(readMeta(p));
+        } catch (IOException e) {
+            throw new RuntimeException("list backups failed", e);
+        }
+        out.sort((a, b) -> b.file.getFileName().toString().compareTo(a.file.getFileName().toString()));
+        return out;
+    }
+
+    /**
+     * Check a snapshot: checksum against its sidecar, then load it into a scratch database and count rows.
+     * Throws if any step fails.
+     */
+    public Verification verify(Path file) {
+        Snapshot s = readMeta(file);
+        try {
+            if (s.sha256 != null && !s.sha256.equals(sha256(file))) {
+                throw new IllegalStateException("checksum mismatch for " + file.getFileName());
+            }
+            if (isZip(file)) {
+                Path scratch = Files.createTempDirectory("memo-verify-");
+                try {
+                    Path db = extractStore(file, scratch);
+                    String base = db.toString().substring(0, db.toString().length() - ".mv.db".length());
+                    try (Connection c = DriverManager.getConnection("jdbc:h2:file:" + base + ";MODE=PostgreSQL", "sa", "")) {
+                        return count(c);
+                    }
+                } finally {
+                    deleteTree(scratch);
+                }
+            }
+            try (Connection c = DriverManager.getConnection("jdbc:h2:mem:verify-" + System.nanoTime() + ";MODE=PostgreSQL", "sa", "");
+                 Statement st = c.createStatement()) {
+                st.execute("RUNSCRIPT FROM '" + sqlPath(file) + "' COMPRESSION GZIP");
+                return count(c);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("verify backup failed", e);
+        }
+    }
+
+    /**
+     * Replace the live store with a verified snapshot, together with the archive and media it references.
+     * The current files are kept next to them as {@code .before-restore-<time>}. The swap runs through
+     * {@link StoreGate#exclusive}, so in-app users of the store are paused or finished first; other processes
+     * connected through AUTO_SERVER must be closed by the user. May take a while; do not call on the FX thread.
+     */
+    public Verification restore(Path file) {
+        Verification v = verify(file);
+        return StoreGate.exclusive("restore", () -> swap(file, v));
+    }
+
+    private Verification swap(Path file, Verification v) {
+        Path store = Database.storeFile();
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        Path aside = store.resolveSibling(store.getFileName() + ".before-restore-" + stamp);
+        try {
+            Database.shutdown();
+            if (Files.exists(store)) Files.move(store, aside);
+            try {
+                if (isZip(file)) {
+                    Path scratch = Files.createTempDirectory("memo-restore-");
+                    try {
+                        Files.move(extractStore(file, scratch), store);
+                    } finally {
+                        deleteTree(scratch);
+                    }
+                } else {
+                    try (Connection c = DriverManager.getConnection(Database.url(), "sa", "");
+                         Statement st = c.createStatement()) {
+                        st.execute("RUNSCRIPT FROM '" + sqlPath(file) + "' COMPRESSION GZIP");
+                        st.execute("SHUTDOWN");
+                    }
+                }
+            } catch (Exception e) {
+                // Put the previous store back so the app keeps working
+                Files.deleteIfExists(store);
+                if (Files.exists(aside)) Files.move(aside, store);
+                throw e;
+            }
+            synchronized (ArchiveService.get()) {
+                restoreArchive(file, stamp);
+            }
+            Database.start();
+            int blobs = restoreMedia(file);
+            if (blobs > 0) log.info("Restored {} media files from the backup pool", blobs);
+            log.info("Restored {} (previous store kept as {})", file.getFileName(), aside.getFileName());
+            return v;
+        } catch (Exception e) {
+            throw new RuntimeException("restore failed", e);
+        }
+    }
+
+    // ---- helpers ----
+
+    private static Path dir() {
+        return Paths.get(Config.get("app.backup.dir", "./data/backups")).toAbsolutePath();
+    }
+
+    /** Cheap change detector: row counts plus sums over the columns that every write path touches. */
+    private static String fingerprint(Connection c) throws SQLException {
+        String sql = "SELECT (SELECT COUNT(*) FROM deck), (SELECT COUNT(*) FROM note), " +
+                "(SELECT MAX(COALESCE(updated_at, created_at)) FROM note), " +
+                "(SELECT COUNT(*) FROM card), (SELECT SUM(reps + lapses) FROM card), " +
+                "(SELECT SUM(DATEDIFF('SECOND', TIMESTAMP '2000-01-01 00:00:00', due_at)) FROM card), " +
+                "(SELECT COUNT(*) FROM review_log), (SELECT COUNT(*) FROM study_plan), (SELECT MAX(updated_at) FROM study_plan)";
+        StringBuilder sb = new StringBuilder();
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            if (rs.next()) {
+                for (int i = 1; i <= 9; i++) sb.append(rs.getString(i)).append('|');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void writeScript(Connection c, Path out) throws IOException, SQLException {
+        long bytesPerSec = Math.max(64, Config.getInt("app.backup.max-kb-per-sec", 4096)) * 1024L;
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new ThrottledOutputStream(Files.newOutputStream(out), bytesPerSec), 64 * 1024),
+                StandardCharsets.UTF_8));
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SCRIPT")) {
+            while (rs.next()) {
+                w.write(rs.getString(1));
+                w.write('\n');
+            }
+        }
+    }
+
+    /** Keep the newest {@code app.backup.keep} snapshots, then drop pool blobs none of them lists. */
+    private void prune() {
+        int keep = Math.max(1, Config.getInt("app.backup.keep", 7));
+        List<Snapshot> all = list();
+        for (int i = keep; i < all.size(); i++) {
+            try {
+                Files.deleteIfExists(all.get(i).file);
+                Files.deleteIfExists(metaPath(all.get(i).file));
+                Files.deleteIfExists(mediaListPath(all.get(i).file));
+            } catch (IOException e) {
+                log.warn("prune backup failed: {}", e.toString());
+            }
+        }
+        try {
+            pruneMediaPool(all.subList(0, Math.min(keep, all.size())));
+            pruneArchiveMirrors(all.subList(0, Math.min(keep, all.size())));
+        } catch (IOException e) {
+            log.warn("prune backup media or archive failed: {}", e.toString());
+        }
+    }
+
+    // ---- archive ----
+
+    /**
+     * Bring the mirror of each archive file up to date and return what this snapshot covers: file name to
+     * {@code <mirror>:<length>}, or "" when the file does not exist yet. A mirror is extended by the bytes
+     * appended since; when the live file no longer starts with it (a restore truncated it), a new generation
+     * is started so older snapshots keep theirs.
+     */
+    private static Properties saveArchive() throws IOException {
+        Properties refs = new Properties();
+        for (Path live : ArchiveService.files()) {
+            String name = live.getFileName().toString();
+            if (!Files.exists(live)) {
+                refs.setProperty(name, "");
+                continue;
+            }
+            long len = Files.size(live);
+            Path mirror = latestMirror(name);
+            long have = mirror == null ? -1 : Files.size(mirror);
+            if (mirror == null || have > len || !samePrefix(live, mirror, have)) {
+                mirror = archiveDir().resolve(name + "." + (generation(mirror) + 1));
+                Files.createDirectories(archiveDir());
+                Files.deleteIfExists(mirror);
+                have = 0;
+            }
+            copyRange(live, mirror, have, len);
+            refs.setProperty(name, mirror.getFileName() + ":" + len);
+        }
+        return refs;
+    }
+
+    /** Put back each archive file as the snapshot recorded it; snapshots from before archive backups leave it alone. */
+    private static void restoreArchive(Path snapshot, String stamp) throws IOException {
+        Properties refs = readArchiveRefs(snapshot);
+        if (refs.isEmpty()) return;
+        for (Path live : ArchiveService.files()) {
+            String ref = refs.getProperty(live.getFileName().toString());
+            if (ref == null) continue;
+            if (Files.exists(live)) Files.move(live, live.resolveSibling(live.getFileName() + ".before-restore-" + stamp));
+            if (ref.isEmpty()) continue;
+            int colon = ref.lastIndexOf(':');
+            Files.createDirectories(live.getParent());
+            copyRange(archiveDir().resolve(ref.substring(0, colon)), live, 0, Long.parseLong(ref.substring(colon + 1)));
+        }
+    }
+
+    private static void pruneArchiveMirrors(List<Snapshot> retained) throws IOException {
+        if (!Files.isDirectory(archiveDir())) return;
+        java.util.Set<String> live = new java.util.HashSet<String>();
+        for (Snapshot s : retained) {
+            for (Object ref : readArchiveRefs(s.file).values()) {
+                String v = (String) ref;
+                if (!v.isEmpty()) live.add(v.substring(0, v.lastIndexOf(':')));
+            }
+        }
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(archiveDir())) {
+            for (Path p : ds) if (!live.contains(p.getFileName().toString())) Files.deleteIfExists(p);
+        }
+    }
+
+    private static Path archiveDir() { return dir().resolve("archive"); }
+
+    private static Path latestMirror(String name) throws IOException {
+        Path latest = null;
+        if (!Files.isDirectory(archiveDir())) return null;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(archiveDir(), name + ".*")) {
+            for (Path p : ds) if (generation(p) > generation(latest)) latest = p;
+        }
+        return latest;
+    }
+
+    private static int generation(Path mirror) {
+        if (mirror == null) return 0;
+        String n = mirror.getFileName().toString();
+        try {
+            return Integer.parseInt(n.substring(n.lastIndexOf('.') + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean samePrefix(Path a, Path b, long n) throws IOException {
+        byte[] bx = new byte[64 * 1024], by = new byte[64 * 1024];
+        try (DataInputStream x = new DataInputStream(Files.newInputStream(a));
+             DataInputStream y = new DataInputStream(Files.newInputStream(b))) {
+            for (long left = n; left > 0; ) {
+                int k = (int) Math.min(bx.length, left);
+                x.readFully(bx, 0, k);
+                y.readFully(by, 0, k);
+                // Bytes past k are equal leftovers of the previous chunk
+                if (!java.util.Arrays.equals(bx, by)) return false;
+                left -= k;
+            }
+        }
+        return true;
+    }
+
+    /** Write bytes [from, to) of {@code src} at the same offsets of {@code dst}, cutting off anything after. */
+    private static void copyRange(Path src, Path dst, long from, long to) throws IOException {
+        try (java.nio.channels.FileChannel in = java.nio.channels.FileChannel.open(src, StandardOpenOption.READ);
+             java.nio.channels.FileChannel out = java.nio.channels.FileChannel.open(dst,
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            out.truncate(from);
+            out.position(from);
+            for (long p = from; p < to; ) p += in.transferTo(p, to - p, out);
+            out.force(false);
+        }
+    }
+
+    // ---- media ----
+
+    private static List<String> mediaHashes(Connection c) throws SQLException {
+        List<String> out = new ArrayList<String>();
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("SELECT hash FROM media ORDER BY hash")) {
+            while (rs.next()) out.add(rs.getString(1));
+        }
+        return out;
+    }
+
+    /** Copy blobs the pool does not have yet and write the snapshot's list. */
+    private static void saveMedia(Path snapshot, List<String> hashes) throws IOException {
+        List<String> saved = new ArrayList<String>(hashes.size());
+        for (String h : hashes) {
+            Path pooled = poolPath(h);
+            if (!Files.exists(pooled)) {
+                Path src = MediaStore.get().path(h);
+                // Collected between the snapshot read and now: nothing left to keep
+                if (!Files.exists(src)) continue;
+                copyAtomically(src, pooled);
+            }
+            saved.add(h);
+        }
+        Files.write(mediaListPath(snapshot), saved, StandardCharsets.UTF_8);
+    }
+
+    /** Bring back blobs the snapshot references that are missing from the live media directory. */
+    private static int restoreMedia(Path snapshot) throws IOException {
+        Path list = mediaListPath(snapshot);
+        if (!Files.exists(list)) return 0;
+        int n = 0;
+        for (String h : Files.readAllLines(list, StandardCharsets.UTF_8)) {
+            if (h.isEmpty()) continue;
+            Path live = MediaStore.get().path(h);
+            Path pooled = poolPath(h);
+            if (Files.exists(live) || !Files.exists(pooled)) continue;
+            copyAtomically(pooled, live);
+            n++;
+        }
+        return n;
+    }
+
+    private static void pruneMediaPool(List<Snapshot> retained) throws IOException {
+        Path pool = dir().resolve("media");
+        if (!Files.isDirectory(pool)) return;
+        java.util.Set<String> live = new java.util.HashSet<String>();
+        for (Snapshot s : retained) {
+            // A snapshot from before media was backed up may still need anything in the pool
+            if (!Files.exists(mediaListPath(s.file))) return;
+            live.addAll(Files.readAllLines(mediaListPath(s.file), StandardCharsets.UTF_8));
+        }
+        try (java.util.stream.Stream<Path> files = Files.walk(pool)) {
+            for (Path p : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                if (!live.contains(p.getFileName().toString())) Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static Path poolPath(String hash) {
+        return dir().resolve("media").resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static Path mediaListPath(Path file) { return file.resolveSibling(file.getFileName() + ".media"); }
+
+    private static void copyAtomically(Path src, Path dst) throws IOException {
+        Files.createDirectories(dst.getParent());
+        Path part = dst.resolveSibling(dst.getFileName() + ".part");
+        Files.copy(src, part, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(part, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Verification count(Connection c) throws SQLException {
+        Verification v = new Verification();
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT (SELECT COUNT(*) FROM deck), (SELECT COUNT(*) FROM note), " +
+                     "(SELECT COUNT(*) FROM card), (SELECT COUNT(*) FROM review_log)")) {
+            rs.next();
+            v.decks = rs.getInt(1);
+            v.notes = rs.getInt(2);
+            v.cards = rs.getInt(3);
+            v.reviews = rs.getInt(4);
+        }
+        return v;
+    }
+
+    private static Path extractStore(Path zip, Path dir) throws IOException {
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+            ZipEntry e;
+            while ((e = in.getNextEntry()) != null) {
+                if (e.isDirectory() || !e.getName().endsWith(".mv.db")) continue;
+                Path out = dir.resolve("restore.mv.db");
+                Files.copy(in, out, StandardCopyOption.REPLACE_EXISTING);
+                return out;
+            }
+        }
+        throw new IllegalStateException("no .mv.db entry in " + zip.getFileName());
+    }
+
+    private static boolean isZip(Path p) { return p.getFileName().toString().endsWith(".zip"); }
+
+    private static Path metaPath(Path file) { return file.resolveSibling(file.getFileName() + ".properties"); }
+
+    private static void writeMeta(Snapshot s, Properties archive) throws IOException {
+        Properties p = new Properties();
+        for (String name : archive.stringPropertyNames()) p.setProperty("archive." + name, archive.getProperty(name));
+        p.setProperty("format", s.format);
+        p.setProperty("createdAt", String.valueOf(s.createdAt));
+        p.setProperty("bytes", String.valueOf(s.bytes));
+        p.setProperty("sha256", s.sha256);
+        p.setProperty("fingerprint", s.fingerprint);
+        try (OutputStream out = Files.newOutputStream(metaPath(s.file))) {
+            p.store(out, "Memorizer backup");
+        }
+    }
+
+    /** Archive references from a sidecar, without the {@code archive.} prefix; empty for older snapshots. */
+    private static Properties readArchiveRefs(Path file) {
+        Properties refs = new Properties();
+        Path meta = metaPath(file);
+        if (!Files.exists(meta)) return refs;
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(meta)) {
+            p.load(in);
+        } catch (IOException e) {
+            return refs;
+        }
+        for (String k : p.stringPropertyNames()) {
+            if (k.startsWith("archive.")) refs.setProperty(k.substring("archive.".length()), p.getProperty(k));
+        }
+        return refs;
+    }
+
+    private static Snapshot readMeta(Path file) {
+        Snapshot s = new Snapshot();
+        s.file = file;
+        s.format = isZip(file) ? "backup" : "script";
+        Path meta = metaPath(file);
+        if (Files.exists(meta)) {
+            Properties p = new Properties();
+            try (InputStream in = Files.newInputStream(meta)) {
+                p.load(in);
+                s.createdAt = Long.parseLong(p.getProperty("createdAt", "0"));
+                s.bytes = Long.parseLong(p.getProperty("bytes", "0"));
+                s.sha256 = p.getProperty("sha256");
+                s.fingerprint = p.getProperty("fingerprint");
+            } catch (IOException | NumberFormatException ignored) {}
+        }
+        return s;
+    }
+
+    private static String sha256(Path file) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) md.update(buf, 0, n);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+
+    private static String sqlPath(Path p) { return p.toAbsolutePath().toString().replace("'", "''"); }
+
+    private static void deleteTree(Path dir) {
+        try (java.util.stream.Stream<Path> s = Files.walk(dir)) {
+            s.sorted(java.util.Comparator.reverseOrder()).forEach(p -> { try { Files.deleteIfExists(p); } catch (IOException ignored) {} });
+        } catch (IOException ignored) {}
+    }
+
+    /** Caps sustained write throughput so a snapshot does not starve the UI of disk I/O. */
+    private static final class ThrottledOutputStream extends FilterOutputStream {
+        private final long bytesPerSec;
+        private final long start = System.nanoTime();
+        private long written;
+
+        ThrottledOutputStream(OutputStream out, long bytesPerSec) {
+            super(out);
+            this.bytesPerSec = bytesPerSec;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            pace(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            pace(len);
+        }
+
+        private void pace(int n) throws IOException {
+            written += n;
+            long aheadMs = written * 1000L / bytesPerSec - (System.nanoTime() - start) / 1_000_000L;
+            if (aheadMs > 5) {
+                try { Thread.sleep(aheadMs); } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("backup interrupted");
+                }
+            }
+        }
+    }
+}
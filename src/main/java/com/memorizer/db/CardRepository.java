@@ -15,15 +15,30 @@ import com.memorizer.model.Card;
  * Focuses on selecting next due/new cards and persisting schedule updates and review logs.
  */
 public class CardRepository {
+    // Hot statements are constants so QueryPlanTest checks the SQL that actually runs
+    static final String NEXT_DUE_SQL = "SELECT id, note_id, due_at, interval_days, ease, reps, lapses, status, last_review_at " +
+            "FROM card WHERE (due_at IS NOT NULL AND due_at <= ?) AND status <> 3 ORDER BY due_at ASC LIMIT 1";
+    static final String NEXT_NEW_SQL = "SELECT id, note_id, due_at, interval_days, ease, reps, lapses, status, last_review_at " +
+            "FROM card WHERE status = 0 ORDER BY id ASC LIMIT 1";
+    static final String DUE_IDS_SQL =
+            "SELECT id FROM card WHERE (due_at IS NOT NULL AND due_at <= ?) AND status <> 3 ORDER BY due_at ASC LIMIT ?";
+    static final String NEW_IDS_SQL =
+            "SELECT id FROM card WHERE status = 0 ORDER BY id ASC LIMIT ?";
+    /** Earliest due_at of an unsuspended card: lower bound (the epoch; a range the due index can seek, unlike IS NOT NULL). */
+    static final String EARLIEST_DUE_SQL =
+            "SELECT due_at FROM card WHERE due_at >= ? AND status <> 3 ORDER BY due_at ASC LIMIT 1";
+    /** Latest reviews of one card: card id, limit. */
+    public static final String RECENT_REVIEWS_SQL =
+            "SELECT reviewed_at, rating, latency_ms FROM review_log WHERE card_id=? ORDER BY reviewed_at DESC LIMIT ?";
+    /** Whether a review is already logged (sync dedupe without a client uuid): card id, reviewed at, rating. */
+    public static final String REVIEW_EXISTS_SQL = "SELECT COUNT(*) FROM review_log WHERE card_id=? AND reviewed_at=? AND rating=?";
 
     /** Find the next due card; if none, return the oldest new card. */
     public Optional<Card> findNextDueOrNew() {
         Timestamp now = new Timestamp(System.currentTimeMillis());
 
         // 1) due cards first
-        try (PreparedStatement ps = Database.get().prepareStatement(
-                "SELECT id, note_id, due_at, interval_days, ease, reps, lapses, status, last_review_at " +
-                "FROM card WHERE (due_at IS NOT NULL AND due_at <= ?) AND status <> 3 ORDER BY due_at ASC LIMIT 1")) {
+        try (PreparedStatement ps = Database.get().prepareStatement(NEXT_DUE_SQL)) {
             ps.setTimestamp(1, now);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) return Optional.of(map(rs));
@@ -33,9 +48,7 @@ public class CardRepository {
         }
 
         // 2) otherwise a new card
-        try (PreparedStatement ps = Database.get().prepareStatement(
-                "SELECT id, note_id, due_at, interval_days, ease, reps, lapses, status, last_review_at " +
-                "FROM card WHERE (due_at IS NULL OR status = 0) AND status <> 3 ORDER BY id ASC LIMIT 1")) {
+        try (PreparedStatement ps = Database.get().prepareStatement(NEXT_NEW_SQL)) {
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) return Optional.of(map(rs));
             }
@@ -46,6 +59,33 @@ public class CardRepository {
         return Optional.empty();
     }
 
+    /** Ids of up to {@code limit} study candidates in the same order as {@link #findNextDueOrNew()}: due first, then new. */
+    public java.util.List<Long> findNextDueOrNewIds(int limit) {
+        java.util.List<Long> out = new java.util.ArrayList<Long>();
+        try (PreparedStatement ps = Database.get().prepareStatement(DUE_IDS_SQL)) {
+            ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("findNextDueIds query failed", e);
+        }
+        if (out.size() >= limit) return out;
+        try (PreparedStatement ps = Database.get().prepareStatement(NEW_IDS_SQL)) {
+            ps.setInt(1, limit - out.size());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    if (!out.contains(id)) out.add(id);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("findNewIds query failed", e);
+        }
+        return out;
+    }
+
     /** Persist schedule fields after SRS computation for a single card. */
     public void updateSchedule(Card c) {
         try (PreparedStatement ps = Database.get().prepareStatement(
@@ -130,7 +170,7 @@ public class CardRepository {
         // else new
         try (PreparedStatement ps = Database.get().prepareStatement(
                 "SELECT id, note_id, due_at, interval_days, ease, reps, lapses, status, last_review_at " +
-                "FROM card WHERE id<>? AND (due_at IS NULL OR status = 0) AND status <> 3 " +
+                "FROM card WHERE id<>? AND status = 0 " +
                 "ORDER BY id ASC LIMIT 1")) {
             ps.setLong(1, excludeId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -159,8 +199,8 @@ public class CardRepository {
 
     /** Find the earliest future due_at (including now); empty if no card has a due_at. */
     public Optional<java.sql.Timestamp> findEarliestDueAt() {
-        try (PreparedStatement ps = Database.get().prepareStatement(
-                "SELECT MIN(due_at) FROM card WHERE due_at IS NOT NULL AND status <> 3")) {
+        try (PreparedStatement ps = Database.get().prepareStatement(EARLIEST_DUE_SQL)) {
+            ps.setTimestamp(1, new java.sql.Timestamp(0L));
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
                     java.sql.Timestamp ts = rs.getTimestamp(1);
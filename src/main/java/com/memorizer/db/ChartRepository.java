@@ -13,6 +13,13 @@ import java.util.*;
  * Provides data for dashboard charts and visualizations.
  */
 public class ChartRepository {
+    // CAST rather than DATE_TRUNC for H2 compatibility
+    static final String DAILY_REVIEWS_SQL = "SELECT CAST(reviewed_at AS DATE) as review_date, COUNT(*) as review_count " +
+            "FROM review_log WHERE reviewed_at >= ? GROUP BY CAST(reviewed_at AS DATE) ORDER BY review_date";
+    static final String RATING_DISTRIBUTION_SQL = "SELECT rating, SUM(n) FROM (" +
+            "SELECT rating, COUNT(*) n FROM review_log GROUP BY rating " +
+            "UNION ALL SELECT s.rating, SUM(s.cnt) n FROM review_archive_stats s JOIN card c ON c.id=s.card_id GROUP BY s.rating" +
+            ") x GROUP BY rating ORDER BY rating";
     
     /**
      * Data class for daily review counts.
@@ -65,14 +72,7 @@ public class ChartRepository {
         LocalDate startDate = LocalDate.now().minusDays(days - 1);
         Timestamp startTs = new Timestamp(startDate.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
         
-        // Use DATE_TRUNC or CAST for H2 compatibility
-        String sql = "SELECT CAST(reviewed_at AS DATE) as review_date, COUNT(*) as review_count " +
-                     "FROM review_log " +
-                     "WHERE reviewed_at >= ? " +
-                     "GROUP BY CAST(reviewed_at AS DATE) " +
-                     "ORDER BY review_date";
-        
-        try (PreparedStatement ps = Database.get().prepareStatement(sql)) {
+        try (PreparedStatement ps = Database.get().prepareStatement(DAILY_REVIEWS_SQL)) {
             ps.setTimestamp(1, startTs);
             
             try (ResultSet rs = ps.executeQuery()) {
@@ -90,29 +90,18 @@ public class ChartRepository {
     }
     
     /**
-     * Get rating distribution for all reviews.
+     * Get rating distribution for all reviews of existing cards, archived history included (from the counts
+     * kept with the archive, see {@link ArchiveService}).
      * @return list of rating distributions
      */
     public List<RatingDistribution> getRatingDistribution() {
         List<RatingDistribution> result = new ArrayList<>();
-        
-        String sql = "SELECT rating, COUNT(*) as count " +
-                     "FROM review_log " +
-                     "GROUP BY rating " +
-                     "ORDER BY rating";
-        
-        try (PreparedStatement ps = Database.get().prepareStatement(sql);
+        try (PreparedStatement ps = Database.get().prepareStatement(RATING_DISTRIBUTION_SQL);
              ResultSet rs = ps.executeQuery()) {
-            
-            while (rs.next()) {
-                int rating = rs.getInt("rating");
-                int count = rs.getInt("count");
-                result.add(new RatingDistribution(rating, count));
-            }
+            while (rs.next()) result.add(new RatingDistribution(rs.getInt(1), rs.getInt(2)));
         } catch (SQLException e) {
             throw new RuntimeException("Failed to load rating distribution", e);
         }
-        
         return result;
     }
     
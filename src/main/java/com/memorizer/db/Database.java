@@ -34,16 +34,12 @@ public final class Database {
             Path dir = base.getParent() != null ? base.getParent() : base;
             Files.createDirectories(dir);
 
-            // H2 1.4.200 URL (MVStore). DO NOT use MULTI_THREADED here.
-            String url = "jdbc:h2:file:" + base.toString() +
-                    ";MODE=PostgreSQL" +
-                    ";AUTO_SERVER=TRUE" +
-                    ";DB_CLOSE_ON_EXIT=FALSE" +
-                    ";DB_CLOSE_DELAY=-1";
+            String url = url();
 
             log.info("Opening H2 at url={}", url);
 
             conn = DriverManager.getConnection(url, "sa", "");
+            if (Config.getBool("app.metrics.enabled", true)) conn = TimedConnection.wrap(conn);
 
             // Run Flyway migrations (classpath:db/migration)
             Flyway.configure()
@@ -60,11 +56,55 @@ public final class Database {
         }
     }
 
+    /** JDBC URL of the configured store, for side connections (backup) that must see the same database. */
+    static String url() {
+        Path base = Paths.get(Config.get("app.db.path", "./data/memo")).toAbsolutePath();
+        // H2 1.4.200 URL (MVStore). DO NOT use MULTI_THREADED here.
+        return "jdbc:h2:file:" + base.toString() +
+                ";MODE=PostgreSQL" +
+                ";AUTO_SERVER=TRUE" +
+                ";DB_CLOSE_ON_EXIT=FALSE" +
+                ";DB_CLOSE_DELAY=-1" +
+                ";CACHE_SIZE=" + Math.max(1024, Config.getInt("app.db.cache-size-kb", 16384)) +
+                ";WRITE_DELAY=" + Math.max(0, Config.getInt("app.db.write-delay-ms", 500));
+    }
+
+    /** The store file ({@code <app.db.path>.mv.db}). */
+    static Path storeFile() {
+        return Paths.get(Config.get("app.db.path", "./data/memo") + ".mv.db").toAbsolutePath();
+    }
+
     public static synchronized Connection get() {
         if (conn == null) start();
         return conn;
     }
 
+    /**
+     * A separate connection to the (migrated) store, for long-running background work such as imports that must
+     * not hold a transaction open on the shared connection. Caller closes it. It holds a {@link StoreGate} lease
+     * until then, so a restore or defrag waits for it instead of pulling the store from under it.
+     */
+    public static Connection openSide() throws SQLException {
+        StoreGate.Lease lease = StoreGate.enter();
+        try {
+            get();
+            Connection c = DriverManager.getConnection(url(), "sa", "");
+            return (Connection) java.lang.reflect.Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, m, args) -> {
+                        try {
+                            return m.invoke(c, args);
+                        } catch (java.lang.reflect.InvocationTargetException e) {
+                            throw e.getCause();
+                        } finally {
+                            if ("close".equals(m.getName())) lease.close();
+                        }
+                    });
+        } catch (SQLException | RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
     public static synchronized void stop() {
         if (conn != null) {
             try { conn.close(); } catch (Exception ignored) {}
@@ -72,5 +112,35 @@ public final class Database {
         }
     }
 
+    /** Close the database itself (DB_CLOSE_DELAY=-1 keeps it open past the last connection) so its file can be replaced. */
+    static synchronized void shutdown() {
+        shutdown("SHUTDOWN");
+    }
+
+    /**
+     * Offline defragmentation: {@code SHUTDOWN DEFRAG} rewrites the store compactly, then the
+     * database is reopened. Runs under the class lock so no caller sees a closed connection; other
+     * sessions are closed by the shutdown, so call it through {@link StoreGate#exclusive}.
+     * @throws RuntimeException if the shutdown failed (the store is reopened either way)
+     */
+    static synchronized void defragment() {
+        try {
+            shutdown("SHUTDOWN DEFRAG");
+        } finally {
+            start();
+        }
+    }
+
+    private static void shutdown(String command) {
+        try {
+            if (conn == null) conn = DriverManager.getConnection(url(), "sa", "");
+            try (java.sql.Statement st = conn.createStatement()) { st.execute(command); }
+        } catch (SQLException e) {
+            throw new RuntimeException(command + " failed", e);
+        } finally {
+            stop();
+        }
+    }
+
     private Database() {}
 }
@@ -0,0 +1,174 @@
+package com.memorizer.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cascading deletes of decks, notes and cards as a handful of set-based statements in one transaction:
+ * review_log, study_plan and exam answer/feature rows go with their cards, deleted notes release their media
+ * references, and every deleted deck/note/card leaves a tombstone for incremental sync. Publishes
+ * {@link com.memorizer.event.DomainEvents.ContentDeleted} on success.
+ */
+public class DeletionRepository {
+    public static final String DECK = "deck";
+    public static final String NOTE = "note";
+    public static final String CARD = "card";
+
+    /** Rows removed by one delete. */
+    public static final class Result {
+        public int decks;
+        public int notes;
+        public int cards;
+        public int reviews;
+        public int planRows;
+    }
+
+    /** A deleted entity as seen by sync clients. */
+    public static final class Tombstone {
+        public long id;
+        public long deletedAt;
+    }
+
+    /** Delete a deck with all its notes, cards, reviews and plan rows. */
+    public Result deleteDeck(long deckId) {
+        return cascade(
+                "SELECT c.id FROM card c JOIN note n ON n.id=c.note_id WHERE n.deck_id=?",
+                "SELECT id FROM note WHERE deck_id=?",
+                "SELECT id FROM deck WHERE id=?",
+                deckId);
+    }
+
+    /** Delete a note with its cards, reviews and plan rows. */
+    public Result deleteNote(long noteId) {
+        return cascade("SELECT id FROM card WHERE note_id=?", "SELECT id FROM note WHERE id=?", null, noteId);
+    }
+
+    /** Delete a single card with its reviews and plan rows (the note stays). */
+    public Result deleteCard(long cardId) {
+        return cascade("SELECT id FROM card WHERE id=?", null, null, cardId);
+    }
+
+    /** Tombstones of {@code entity} recorded at or after {@code sinceMs}. */
+    public List<Tombstone> tombstonesSince(String entity, long sinceMs) {
+        List<Tombstone> out = new ArrayList<Tombstone>();
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "SELECT entity_id, MAX(deleted_at) FROM tombstone WHERE entity=? AND deleted_at >= ? GROUP BY entity_id ORDER BY entity_id")) {
+            ps.setString(1, entity);
+            ps.setTimestamp(2, new Timestamp(sinceMs));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Tombstone t = new Tombstone();
+                    t.id = rs.getLong(1);
+                    t.deletedAt = rs.getTimestamp(2).getTime();
+                    out.add(t);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("tombstone query failed", e);
+        }
+        return out;
+    }
+
+    /**
+     * Drop tombstones older than {@code cutoffMs} and raise the purge horizon to it; clients that last synced
+     * before the horizon need a full sync.
+     */
+    public int purgeTombstones(Connection c, long cutoffMs) throws SQLException {
+        boolean auto = c.getAutoCommit();
+        try {
+            c.setAutoCommit(false);
+            // Horizon first, so a delta served while this runs never misses a purged tombstone
+            if (cutoffMs > purgeHorizon(c)) {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "MERGE INTO tombstone_horizon(id, purged_before) KEY(id) VALUES (1, ?)")) {
+                    ps.setTimestamp(1, new Timestamp(cutoffMs));
+                    ps.executeUpdate();
+                }
+            }
+            int n;
+            try (PreparedStatement ps = c.prepareStatement("DELETE FROM tombstone WHERE deleted_at < ?")) {
+                ps.setTimestamp(1, new Timestamp(cutoffMs));
+                n = ps.executeUpdate();
+            }
+            c.commit();
+            return n;
+        } catch (SQLException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(auto);
+        }
+    }
+
+    /** Instant before which tombstones may have been purged (0 if never); deltas from before it are incomplete. */
+    public long purgeHorizon() {
+        try {
+            return purgeHorizon(Database.get());
+        } catch (SQLException e) {
+            throw new RuntimeException("tombstone horizon query failed", e);
+        }
+    }
+
+    private static long purgeHorizon(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT purged_before FROM tombstone_horizon WHERE id=1");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getTimestamp(1).getTime() : 0L;
+        }
+    }
+
+    /**
+     * Delete the cards selected by {@code cardsSql}, then the notes and deck selected by {@code notesSql} /
+     * {@code deckSql} (null to keep them). Each select takes the single {@code id} parameter.
+     */
+    private Result cascade(String cardsSql, String notesSql, String deckSql, long id) {
+        Connection c = Database.get();
+        Result r = new Result();
+        try {
+            c.setAutoCommit(false);
+            // Tombstones first, while the rows still exist
+            tombstone(c, CARD, cardsSql, id);
+            if (notesSql != null) tombstone(c, NOTE, notesSql, id);
+            if (deckSql != null) tombstone(c, DECK, deckSql, id);
+
+            r.reviews = update(c, "DELETE FROM review_log WHERE card_id IN (" + cardsSql + ")", id);
+            r.planRows = update(c, "DELETE FROM study_plan WHERE card_id IN (" + cardsSql + ")", id);
+            update(c, "DELETE FROM exam_answer WHERE card_id IN (" + cardsSql + ")", id);
+            update(c, "DELETE FROM exam_card_stats WHERE card_id IN (" + cardsSql + ")", id);
+            r.cards = update(c, "DELETE FROM card WHERE id IN (" + cardsSql + ")", id);
+            if (notesSql != null) MediaStore.releaseNotes(c, notesSql, id);
+            if (notesSql != null) r.notes = update(c, "DELETE FROM note WHERE id IN (" + notesSql + ")", id);
+            if (deckSql != null) r.decks = update(c, "DELETE FROM deck WHERE id IN (" + deckSql + ")", id);
+            c.commit();
+        } catch (SQLException e) {
+            try { c.rollback(); } catch (SQLException ignored) {}
+            throw new RuntimeException("cascade delete failed", e);
+        } finally {
+            try { c.setAutoCommit(true); } catch (SQLException ignored) {}
+        }
+        if (r.decks + r.notes + r.cards > 0) {
+            com.memorizer.event.EventBus.publish(new com.memorizer.event.DomainEvents.ContentDeleted(r.decks, r.notes, r.cards));
+        }
+        return r;
+    }
+
+    private static void tombstone(Connection c, String entity, String selectSql, long id) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO tombstone(entity, entity_id, deleted_at) SELECT ?, id, CURRENT_TIMESTAMP FROM (" + selectSql + ") t")) {
+            ps.setString(1, entity);
+            ps.setLong(2, id);
+            ps.executeUpdate();
+        }
+    }
+
+    private static int update(Connection c, String sql, long id) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setLong(1, id);
+            return ps.executeUpdate();
+        }
+    }
+}
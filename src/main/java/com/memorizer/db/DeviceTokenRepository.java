@@ -0,0 +1,77 @@
+package com.memorizer.db;
+
+import com.memorizer.model.Device;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** device_token table: paired sync clients and their hashed tokens. */
+public class DeviceTokenRepository {
+
+    /** Insert a device and return its id. */
+    public long insert(String name, String tokenHash) {
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "INSERT INTO device_token(name, token_hash) VALUES (?,?)", Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, name);
+            ps.setString(2, tokenHash);
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) return rs.getLong(1);
+                throw new RuntimeException("insert device: no generated key");
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("insert device failed", e);
+        }
+    }
+
+    /** Devices that have not been revoked, oldest first. */
+    public List<Device> listActive() {
+        List<Device> out = new ArrayList<Device>();
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "SELECT id, name, token_hash, created_at, last_seen_at FROM device_token WHERE revoked_at IS NULL ORDER BY id");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Device d = new Device();
+                d.id = rs.getLong(1);
+                d.name = rs.getString(2);
+                d.tokenHash = rs.getString(3);
+                Timestamp c = rs.getTimestamp(4);
+                Timestamp s = rs.getTimestamp(5);
+                d.createdAt = c == null ? 0 : c.getTime();
+                d.lastSeenAt = s == null ? 0 : s.getTime();
+                out.add(d);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("list devices failed", e);
+        }
+        return out;
+    }
+
+    /** Mark a device revoked; returns false if it did not exist or was already revoked. */
+    public boolean revoke(long id) {
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "UPDATE device_token SET revoked_at=CURRENT_TIMESTAMP WHERE id=? AND revoked_at IS NULL")) {
+            ps.setLong(1, id);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("revoke device failed", e);
+        }
+    }
+
+    /** Persist last-seen times (device id to epoch millis) in one batch. */
+    public void updateLastSeen(Map<Long, Long> seen) {
+        if (seen.isEmpty()) return;
+        try (PreparedStatement ps = Database.get().prepareStatement("UPDATE device_token SET last_seen_at=? WHERE id=?")) {
+            for (Map.Entry<Long, Long> e : seen.entrySet()) {
+                ps.setTimestamp(1, new Timestamp(e.getValue()));
+                ps.setLong(2, e.getKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException("update device last seen failed", e);
+        }
+    }
+}
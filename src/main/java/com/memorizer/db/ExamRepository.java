@@ -0,0 +1,354 @@
+package com.memorizer.db;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exam sessions, answers and their aggregates. {@link #writeAnswers} stores a batch of answers and folds it into
+ * {@code exam_session} counters, the per-card accuracy features in {@code exam_card_stats} and the per-day totals
+ * in {@code exam_daily} within one transaction; all reads here are served from those aggregates.
+ */
+public class ExamRepository {
+    static final String FEATURES_SQL =
+            "SELECT attempts, correct, wrong_streak, last_answered_at FROM exam_card_stats WHERE card_id=?";
+    static final String RECENT_SESSIONS_SQL =
+            "SELECT s.id, s.started_at, s.finished_at, s.source, d.name, s.tags, s.planned, s.answered, s.correct " +
+                    "FROM exam_session s LEFT JOIN deck d ON d.id=s.deck_id WHERE s.started_at >= ? " +
+                    "ORDER BY s.started_at DESC, s.id DESC LIMIT ?";
+    static final String DAILY_SQL = "SELECT day, sessions, answered, correct FROM exam_daily WHERE day >= ? ORDER BY day DESC";
+
+    /** One answer as recorded by the exam panel. */
+    public static final class Answer {
+        public long sessionId;
+        public long cardId;
+        public long answeredAt;
+        public boolean correct;
+        public int latencyMs;
+    }
+
+    /** Per-card exam accuracy features. */
+    public static final class Features {
+        public int attempts;
+        public int correct;
+        /** Wrong answers since the last correct one. */
+        public int wrongStreak;
+        public long lastAnsweredAt;
+
+        /** Share of correct answers, or NaN without attempts. */
+        public double accuracy() { return attempts == 0 ? Double.NaN : (double) correct / attempts; }
+    }
+
+    /** A session row for the results view. */
+    public static final class SessionRow {
+        public long id;
+        public long startedAt;
+        public long finishedAt;
+        public String source;
+        public String deck;
+        public String tags;
+        public int planned;
+        public int answered;
+        public int correct;
+    }
+
+    /** Totals of one day. */
+    public static final class DayRow {
+        public LocalDate day;
+        public int sessions;
+        public int answered;
+        public int correct;
+    }
+
+    /** A card with its exam features, for the weakest-cards list. */
+    public static final class CardRow {
+        public long cardId;
+        public String front;
+        public String deck;
+        public Features features = new Features();
+    }
+
+    /** Create a session and count it in today's totals; returns its id. */
+    public long startSession(String source, Long deckId, String tags, int planned) {
+        Connection c = Database.get();
+        try {
+            c.setAutoCommit(false);
+            long id;
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO exam_session(started_at, source, deck_id, tags, planned) VALUES (?,?,?,?,?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+                ps.setString(2, source);
+                if (deckId == null) ps.setNull(3, java.sql.Types.BIGINT); else ps.setLong(3, deckId);
+                ps.setString(4, tags == null || tags.isEmpty() ? null : tags);
+                ps.setInt(5, planned);
+                ps.executeUpdate();
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    rs.next();
+                    id = rs.getLong(1);
+                }
+            }
+            Date day = Date.valueOf(LocalDate.now());
+            if (update(c, "UPDATE exam_daily SET sessions=sessions+1 WHERE day=?", day) == 0) {
+                try (PreparedStatement ps = c.prepareStatement("INSERT INTO exam_daily(day, sessions) VALUES (?,1)")) {
+                    ps.setDate(1, day);
+                    ps.executeUpdate();
+                }
+            }
+            c.commit();
+            return id;
+        } catch (SQLException e) {
+            try { c.rollback(); } catch (SQLException ignored) {}
+            throw new RuntimeException("start exam session failed", e);
+        } finally {
+            try { c.setAutoCommit(true); } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * Store {@code answers} (in answer order) and update the aggregates, all in one transaction on {@code c}
+     * (a side connection when called from a background writer). Sessions in {@code finished} are stamped as
+     * finished afterwards.
+     */
+    public void writeAnswers(Connection c, List<Answer> answers, List<Long> finished) {
+        try {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO exam_answer(session_id, card_id, answered_at, correct, latency_ms) VALUES (?,?,?,?,?)")) {
+                for (Answer a : answers) {
+                    ps.setLong(1, a.sessionId);
+                    ps.setLong(2, a.cardId);
+                    ps.setTimestamp(3, new Timestamp(a.answeredAt));
+                    ps.setBoolean(4, a.correct);
+                    ps.setInt(5, a.latencyMs);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            writeSessionCounts(c, answers);
+            writeCardStats(c, answers);
+            writeDaily(c, answers);
+            if (!finished.isEmpty()) {
+                try (PreparedStatement ps = c.prepareStatement("UPDATE exam_session SET finished_at=? WHERE id=?")) {
+                    for (Long id : finished) {
+                        ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+                        ps.setLong(2, id);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+            c.commit();
+        } catch (SQLException e) {
+            try { c.rollback(); } catch (SQLException ignored) {}
+            throw new RuntimeException("write exam answers failed", e);
+        } finally {
+            try { c.setAutoCommit(true); } catch (SQLException ignored) {}
+        }
+    }
+
+    /** Exam features of one card, or null when it was never examined. */
+    public Features features(long cardId) {
+        try (PreparedStatement ps = Database.get().prepareStatement(FEATURES_SQL)) {
+            ps.setLong(1, cardId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                Features f = new Features();
+                read(rs, 1, f);
+                return f;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("exam features query failed", e);
+        }
+    }
+
+    /** Sessions started in the last {@code days} days, most recent first (the range keeps the read on the index). */
+    public List<SessionRow> recentSessions(int days, int limit) {
+        List<SessionRow> out = new ArrayList<SessionRow>();
+        try (PreparedStatement ps = Database.get().prepareStatement(RECENT_SESSIONS_SQL)) {
+            ps.setTimestamp(1, Timestamp.valueOf(LocalDate.now().minusDays(Math.max(0, days - 1)).atStartOfDay()));
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    SessionRow r = new SessionRow();
+                    r.id = rs.getLong(1);
+                    r.startedAt = rs.getTimestamp(2).getTime();
+                    Timestamp f = rs.getTimestamp(3);
+                    r.finishedAt = f == null ? 0 : f.getTime();
+                    r.source = rs.getString(4);
+                    r.deck = rs.getString(5);
+                    r.tags = rs.getString(6);
+                    r.planned = rs.getInt(7);
+                    r.answered = rs.getInt(8);
+                    r.correct = rs.getInt(9);
+                    out.add(r);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("exam sessions query failed", e);
+        }
+        return out;
+    }
+
+    /** Daily totals of the last {@code days} days, newest first (days without exams are omitted). */
+    public List<DayRow> daily(int days) {
+        List<DayRow> out = new ArrayList<DayRow>();
+        try (PreparedStatement ps = Database.get().prepareStatement(DAILY_SQL)) {
+            ps.setDate(1, Date.valueOf(LocalDate.now().minusDays(Math.max(0, days - 1))));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    DayRow r = new DayRow();
+                    r.day = rs.getDate(1).toLocalDate();
+                    r.sessions = rs.getInt(2);
+                    r.answered = rs.getInt(3);
+                    r.correct = rs.getInt(4);
+                    out.add(r);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("exam daily query failed", e);
+        }
+        return out;
+    }
+
+    /** Cards with the longest current wrong streaks (at least one), then the most attempts. */
+    public List<CardRow> weakest(int limit) {
+        List<CardRow> out = new ArrayList<CardRow>();
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "SELECT x.card_id, x.attempts, x.correct, x.wrong_streak, x.last_answered_at, n.front, d.name " +
+                        "FROM exam_card_stats x JOIN card c ON c.id=x.card_id JOIN note n ON n.id=c.note_id " +
+                        "LEFT JOIN deck d ON d.id=n.deck_id WHERE x.wrong_streak >= 1 " +
+                        "ORDER BY x.wrong_streak DESC, x.attempts DESC LIMIT ?")) {
+            ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    CardRow r = new CardRow();
+                    r.cardId = rs.getLong(1);
+                    read(rs, 2, r.features);
+                    r.front = rs.getString(6);
+                    r.deck = rs.getString(7);
+                    out.add(r);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("weakest exam cards query failed", e);
+        }
+        return out;
+    }
+
+    private static void writeSessionCounts(Connection c, List<Answer> answers) throws SQLException {
+        Map<Long, int[]> bySession = new LinkedHashMap<Long, int[]>();
+        for (Answer a : answers) {
+            int[] n = bySession.get(a.sessionId);
+            if (n == null) bySession.put(a.sessionId, n = new int[2]);
+            n[0]++;
+            if (a.correct) n[1]++;
+        }
+        try (PreparedStatement ps = c.prepareStatement("UPDATE exam_session SET answered=answered+?, correct=correct+? WHERE id=?")) {
+            for (Map.Entry<Long, int[]> e : bySession.entrySet()) {
+                ps.setInt(1, e.getValue()[0]);
+                ps.setInt(2, e.getValue()[1]);
+                ps.setLong(3, e.getKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /** Folds the batch into exam_card_stats: one update per card, inserts for cards seen for the first time. */
+    private static void writeCardStats(Connection c, List<Answer> answers) throws SQLException {
+        // Per card: attempts, correct, wrongs after the last correct in this batch, any correct, last time
+        Map<Long, long[]> byCard = new LinkedHashMap<Long, long[]>();
+        for (Answer a : answers) {
+            long[] s = byCard.get(a.cardId);
+            if (s == null) byCard.put(a.cardId, s = new long[5]);
+            s[0]++;
+            if (a.correct) { s[1]++; s[2] = 0; s[3] = 1; } else s[2]++;
+            s[4] = Math.max(s[4], a.answeredAt);
+        }
+        List<Long> missing = new ArrayList<Long>();
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE exam_card_stats SET attempts=attempts+?, correct=correct+?, " +
+                        "wrong_streak=CASE WHEN ? THEN ? ELSE wrong_streak+? END, last_answered_at=? WHERE card_id=?")) {
+            for (Map.Entry<Long, long[]> e : byCard.entrySet()) {
+                long[] s = e.getValue();
+                ps.setLong(1, s[0]);
+                ps.setLong(2, s[1]);
+                ps.setBoolean(3, s[3] == 1);
+                ps.setLong(4, s[2]);
+                ps.setLong(5, s[2]);
+                ps.setTimestamp(6, new Timestamp(s[4]));
+                ps.setLong(7, e.getKey());
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            int i = 0;
+            for (Long id : byCard.keySet()) if (counts[i++] == 0) missing.add(id);
+        }
+        if (missing.isEmpty()) return;
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO exam_card_stats(card_id, attempts, correct, wrong_streak, last_answered_at) VALUES (?,?,?,?,?)")) {
+            for (Long id : missing) {
+                long[] s = byCard.get(id);
+                ps.setLong(1, id);
+                ps.setLong(2, s[0]);
+                ps.setLong(3, s[1]);
+                ps.setLong(4, s[2]);
+                ps.setTimestamp(5, new Timestamp(s[4]));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void writeDaily(Connection c, List<Answer> answers) throws SQLException {
+        Map<LocalDate, int[]> byDay = new LinkedHashMap<LocalDate, int[]>();
+        for (Answer a : answers) {
+            LocalDate d = new Timestamp(a.answeredAt).toLocalDateTime().toLocalDate();
+            int[] n = byDay.get(d);
+            if (n == null) byDay.put(d, n = new int[2]);
+            n[0]++;
+            if (a.correct) n[1]++;
+        }
+        for (Map.Entry<LocalDate, int[]> e : byDay.entrySet()) {
+            Date day = Date.valueOf(e.getKey());
+            int[] n = e.getValue();
+            try (PreparedStatement ps = c.prepareStatement("UPDATE exam_daily SET answered=answered+?, correct=correct+? WHERE day=?")) {
+                ps.setInt(1, n[0]);
+                ps.setInt(2, n[1]);
+                ps.setDate(3, day);
+                if (ps.executeUpdate() > 0) continue;
+            }
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO exam_daily(day, answered, correct) VALUES (?,?,?)")) {
+                ps.setDate(1, day);
+                ps.setInt(2, n[0]);
+                ps.setInt(3, n[1]);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static void read(ResultSet rs, int col, Features f) throws SQLException {
+        f.attempts = rs.getInt(col);
+        f.correct = rs.getInt(col + 1);
+        f.wrongStreak = rs.getInt(col + 2);
+        Timestamp t = rs.getTimestamp(col + 3);
+        f.lastAnsweredAt = t == null ? 0 : t.getTime();
+    }
+
+    private static int update(Connection c, String sql, Date day) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setDate(1, day);
+            return ps.executeUpdate();
+        }
+    }
+}
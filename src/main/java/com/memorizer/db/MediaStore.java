@@ -0,0 +1,384 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for note media (pronunciation audio, images). Blobs are written once under
+ * {@code <media dir>/<first two hex digits>/<sha-256>} and deduplicated by hash; the {@code media} table keeps
+ * their type, size and a reference count maintained by {@link #attach}/{@link #detach} and by note deletion.
+ * Blobs nobody references are removed by {@link #collectGarbage} after {@code app.media.gc-grace-hours}, so an
+ * upload has time to be attached.
+ */
+public final class MediaStore {
+    private static final MediaStore INSTANCE = new MediaStore();
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    public static final String AUDIO = "audio";
+    public static final String IMAGE = "image";
+
+    /** A stored blob. */
+    public static final class Media {
+        public String hash;
+        public String mime;
+        public long size;
+    }
+
+    /** A blob attached to a note. */
+    public static final class Ref {
+        public long noteId;
+        public String hash;
+        public String role;
+        public String mime;
+        public long size;
+    }
+
+    public static MediaStore get() { return INSTANCE; }
+
+    private MediaStore() {}
+
+    /** Store {@code file}, typed by its extension. */
+    public Media put(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return put(in, mimeFor(file.getFileName().toString()));
+        }
+    }
+
+    /**
+     * Store the bytes of {@code in} (at most {@code app.media.max-mb}) and return the blob; an existing blob with
+     * the same hash is reused and only the temp copy is discarded.
+     */
+    public Media put(InputStream in, String mime) throws IOException {
+        long max = Math.max(1, Config.getInt("app.media.max-mb", 20)) * 1024L * 1024L;
+        Path dir = dir();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "upload", ".part");
+        try {
+            MessageDigest md = sha256();
+            long size = 0;
+            byte[] buf = new byte[64 * 1024];
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    size += n;
+                    if (size > max) throw new IOException("media larger than " + (max >> 20) + " MB");
+                    md.update(buf, 0, n);
+                    out.write(buf, 0, n);
+                }
+            }
+            Media m = new Media();
+            m.hash = hex(md.digest());
+            m.mime = safeMime(mime);
+            m.size = size;
+            synchronized (this) {
+                Path target = path(m.hash);
+                if (!Files.exists(target)) {
+                    Files.createDirectories(target.getParent());
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+                register(m);
+            }
+            return m;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Attach blob {@code hash} to a note; no-op when already attached. Marks the note changed for sync.
+     * @throws IllegalArgumentException if the note or the blob does not exist
+     */
+    public void attach(long noteId, String hash, String role) {
+        checkHash(hash);
+        Connection c = Database.get();
+        try {
+            c.setAutoCommit(false);
+            if (touchNote(c, noteId) == 0 || find(hash) == null) {
+                c.rollback();
+                throw new IllegalArgumentException("no note " + noteId + " or media " + hash);
+            }
+            int added;
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO note_media(note_id, hash, role) SELECT ?, ?, ? FROM DUAL " +
+                            "WHERE NOT EXISTS (SELECT 1 FROM note_media WHERE note_id=? AND hash=?)")) {
+                ps.setLong(1, noteId);
+                ps.setString(2, hash);
+                ps.setString(3, AUDIO.equals(role) ? AUDIO : IMAGE);
+                ps.setLong(4, noteId);
+                ps.setString(5, hash);
+                added = ps.executeUpdate();
+            }
+            if (added > 0) update(c, "UPDATE media SET ref_count=ref_count+1 WHERE hash=?", hash);
+            c.commit();
+        } catch (SQLException e) {
+            try { c.rollback(); } catch (SQLException ignored) {}
+            throw new RuntimeException("attach media failed", e);
+        } finally {
+            try { c.setAutoCommit(true); } catch (SQLException ignored) {}
+        }
+    }
+
+    /** Detach blob {@code hash} from a note; the blob itself goes once nothing references it. */
+    public void detach(long noteId, String hash) {
+        checkHash(hash);
+        Connection c = Database.get();
+        try {
+            c.setAutoCommit(false);
+            int removed;
+            try (PreparedStatement ps = c.prepareStatement("DELETE FROM note_media WHERE note_id=? AND hash=?")) {
+                ps.setLong(1, noteId);
+                ps.setString(2, hash);
+                removed = ps.executeUpdate();
+            }
+            if (removed > 0) {
+                // Restart the grace period so a detach-then-reattach does not race the collector
+                update(c, "UPDATE media SET ref_count=ref_count-1, created_at=CURRENT_TIMESTAMP WHERE hash=?", hash);
+                touchNote(c, noteId);
+            }
+            c.commit();
+        } catch (SQLException e) {
+            try { c.rollback(); } catch (SQLException ignored) {}
+            throw new RuntimeException("detach media failed", e);
+        } finally {
+            try { c.setAutoCommit(true); } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * Drop the media references of the notes selected by {@code notesSql} (one {@code id} parameter) inside the
+     * caller's transaction; used by cascading deletes.
+     */
+    static void releaseNotes(Connection c, String notesSql, long id) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE media m SET ref_count = ref_count - (SELECT COUNT(*) FROM note_media nm WHERE nm.hash=m.hash AND nm.note_id IN (" + notesSql + ")), " +
+                        "created_at=CURRENT_TIMESTAMP WHERE hash IN (SELECT hash FROM note_media WHERE note_id IN (" + notesSql + "))")) {
+            ps.setLong(1, id);
+            ps.setLong(2, id);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = c.prepareStatement("DELETE FROM note_media WHERE note_id IN (" + notesSql + ")")) {
+            ps.setLong(1, id);
+            ps.executeUpdate();
+        }
+    }
+
+    /** Media of one note, images first. */
+    public List<Ref> forNote(long noteId) {
+        List<Ref> out = new ArrayList<Ref>();
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "SELECT nm.note_id, nm.hash, nm.role, m.mime, m.size FROM note_media nm JOIN media m ON m.hash=nm.hash " +
+                        "WHERE nm.note_id=? ORDER BY nm.role DESC, nm.hash")) {
+            ps.setLong(1, noteId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(ref(rs));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("media query failed", e);
+        }
+        return out;
+    }
+
+    /** Media of notes created or changed at or after {@code sinceMs} (0 = all), grouped by note id. */
+    public Map<Long, List<Ref>> forNotesChangedSince(long sinceMs) {
+        Map<Long, List<Ref>> out = new HashMap<Long, List<Ref>>();
+        String sql = "SELECT nm.note_id, nm.hash, nm.role, m.mime, m.size FROM note_media nm JOIN media m ON m.hash=nm.hash" +
+                (sinceMs > 0 ? " JOIN note n ON n.id=nm.note_id WHERE COALESCE(n.updated_at, n.created_at) >= ?" : "") +
+                " ORDER BY nm.note_id, nm.role DESC, nm.hash";
+        try (PreparedStatement ps = Database.get().prepareStatement(sql)) {
+            if (sinceMs > 0) ps.setTimestamp(1, new Timestamp(sinceMs));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Ref r = ref(rs);
+                    List<Ref> l = out.get(r.noteId);
+                    if (l == null) out.put(r.noteId, l = new ArrayList<Ref>(2));
+                    l.add(r);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("media query failed", e);
+        }
+        return out;
+    }
+
+    /** The stored blob {@code hash}, or null if unknown or its file is missing. */
+    public Media find(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) return null;
+        try (PreparedStatement ps = Database.get().prepareStatement("SELECT mime, size FROM media WHERE hash=?")) {
+            ps.setString(1, hash);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || !Files.exists(path(hash))) return null;
+                Media m = new Media();
+                m.hash = hash;
+                m.mime = rs.getString(1);
+                m.size = rs.getLong(2);
+                return m;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("media query failed", e);
+        }
+    }
+
+    /** File holding blob {@code hash}. */
+    public Path path(String hash) {
+        checkHash(hash);
+        return dir().resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /** Delete blobs unreferenced for longer than the grace period; returns how many were removed. */
+    public synchronized int collectGarbage() {
+        long graceMs = Math.max(0, Config.getInt("app.media.gc-grace-hours", 24)) * 3_600_000L;
+        List<String> dead = new ArrayList<String>();
+        Connection c = Database.get();
+        try {
+            try (PreparedStatement ps = c.prepareStatement("SELECT hash FROM media WHERE ref_count <= 0 AND created_at < ?")) {
+                ps.setTimestamp(1, new Timestamp(System.currentTimeMillis() - graceMs));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) dead.add(rs.getString(1));
+                }
+            }
+            int removed = 0;
+            for (String h : dead) {
+                try (PreparedStatement ps = c.prepareStatement("DELETE FROM media WHERE hash=? AND ref_count <= 0")) {
+                    ps.setString(1, h);
+                    if (ps.executeUpdate() == 0) continue;
+                }
+                try {
+                    Files.deleteIfExists(path(h));
+                } catch (IOException ignored) {
+                    // e.g. still mapped by a response on Windows; the orphan file is harmless
+                }
+                removed++;
+            }
+            return removed;
+        } catch (SQLException e) {
+            throw new RuntimeException("media cleanup failed", e);
+        }
+    }
+
+    /** MIME type guessed from a file name, for the formats browsers and the popup can show or play. */
+    public static String mimeFor(String name) {
+        String n = name.toLowerCase(Locale.ROOT);
+        int dot = n.lastIndexOf('.');
+        switch (dot < 0 ? "" : n.substring(dot + 1)) {
+            case "mp3": return "audio/mpeg";
+            case "ogg": case "oga": return "audio/ogg";
+            case "opus": return "audio/opus";
+            case "wav": return "audio/wav";
+            case "m4a": case "aac": return "audio/mp4";
+            case "png": return "image/png";
+            case "jpg": case "jpeg": return "image/jpeg";
+            case "gif": return "image/gif";
+            case "webp": return "image/webp";
+            default: return "application/octet-stream";
+        }
+    }
+
+    private static final java.util.Set<String> RASTER_IMAGES = new java.util.HashSet<String>(java.util.Arrays.asList(
+            "image/png", "image/jpeg", "image/gif", "image/webp", "image/bmp", "image/avif"));
+
+    /**
+     * The stored/served type for a client-supplied {@code mime}: {@code audio/*} and raster images pass (parameters
+     * dropped, lower-cased); anything else, including HTML and SVG which could run script on the pairing origin,
+     * becomes {@code application/octet-stream}.
+     */
+    public static String safeMime(String mime) {
+        if (mime == null) return "application/octet-stream";
+        String m = mime;
+        int semi = m.indexOf(';');
+        if (semi >= 0) m = m.substring(0, semi);
+        m = m.trim().toLowerCase(Locale.ROOT);
+        if (RASTER_IMAGES.contains(m)) return m;
+        if (m.matches("audio/[a-z0-9][a-z0-9.+-]*")) return m;
+        return "application/octet-stream";
+    }
+
+    /** True for types the popup and browsers play or show inline (audio and raster images). */
+    public static boolean isInlineMedia(String mime) {
+        return !"application/octet-stream".equals(safeMime(mime));
+    }
+
+    private void register(Media m) throws IOException {
+        Connection c = Database.get();
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO media(hash, mime, size) SELECT ?, ?, ? FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM media WHERE hash=?)")) {
+            ps.setString(1, m.hash);
+            ps.setString(2, m.mime);
+            ps.setLong(3, m.size);
+            ps.setString(4, m.hash);
+            if (ps.executeUpdate() == 0) {
+                // Known blob: keep an unreferenced one alive for another grace period
+                update(c, "UPDATE media SET created_at=CURRENT_TIMESTAMP WHERE hash=? AND ref_count <= 0", m.hash);
+            }
+        } catch (SQLException e) {
+            throw new IOException("register media failed", e);
+        }
+    }
+
+    private static int touchNote(Connection c, long noteId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("UPDATE note SET updated_at=CURRENT_TIMESTAMP WHERE id=?")) {
+            ps.setLong(1, noteId);
+            return ps.executeUpdate();
+        }
+    }
+
+    private static void update(Connection c, String sql, String hash) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, hash);
+            ps.executeUpdate();
+        }
+    }
+
+    private static Ref ref(ResultSet rs) throws SQLException {
+        Ref r = new Ref();
+        r.noteId = rs.getLong(1);
+        r.hash = rs.getString(2);
+        r.role = rs.getString(3);
+        r.mime = rs.getString(4);
+        r.size = rs.getLong(5);
+        return r;
+    }
+
+    private static void checkHash(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) throw new IllegalArgumentException("bad media hash: " + hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] b) {
+        StringBuilder sb = new StringBuilder(b.length * 2);
+        for (byte x : b) sb.append(Character.forDigit((x >> 4) & 0xF, 16)).append(Character.forDigit(x & 0xF, 16));
+        return sb.toString();
+    }
+
+    private static Path dir() {
+        String configured = Config.get("app.media.dir", "");
+        if (!configured.isEmpty()) return Paths.get(configured).toAbsolutePath();
+        // Default: next to the database file
+        Path db = Paths.get(Config.get("app.db.path", "./data/memo")).toAbsolutePath();
+        return db.getParent().resolve("media");
+    }
+}
@@ -71,7 +71,7 @@ public class NoteRepository {
             ps.setString(5, n.examples);
             ps.setString(6, n.tags);
             ps.setLong(7, n.id);
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0) com.memorizer.event.EventBus.publish(new com.memorizer.event.DomainEvents.NoteEdited(n.id));
         } catch (SQLException e) {
             throw new RuntimeException("update note failed", e);
         }
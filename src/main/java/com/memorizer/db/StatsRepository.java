@@ -7,6 +7,8 @@ import java.time.ZoneId;
 
 /** Simple counters for dashboard. */
 public class StatsRepository {
+    static final String DUE_COUNT_SQL = "SELECT COUNT(*) FROM card WHERE due_at IS NOT NULL AND due_at <= ? AND status <> 3";
+    static final String REVIEWS_SINCE_SQL = "SELECT COUNT(*) FROM review_log WHERE reviewed_at >= ?";
 
     public static class Stats {
         public int dueCount;
@@ -21,14 +23,13 @@ public class StatsRepository {
         Stats s = new Stats();
         Timestamp now = new Timestamp(System.currentTimeMillis());
 
-        try (PreparedStatement ps = Database.get().prepareStatement(
-                "SELECT COUNT(*) FROM card WHERE due_at IS NOT NULL AND due_at <= ? AND status <> 3")) {
+        try (PreparedStatement ps = Database.get().prepareStatement(DUE_COUNT_SQL)) {
             ps.setTimestamp(1, now);
             try (ResultSet rs = ps.executeQuery()) { if (rs.next()) s.dueCount = rs.getInt(1); }
         } catch (SQLException e) { throw new RuntimeException("load dueCount failed", e); }
 
         try (Statement st = Database.get().createStatement();
-             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM card WHERE (due_at IS NULL OR status=0) AND status <> 3")) {
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM card WHERE status = 0")) {
             if (rs.next()) s.newCount = rs.getInt(1);
         } catch (SQLException e) { throw new RuntimeException("load newCount failed", e); }
 
@@ -42,15 +43,18 @@ public class StatsRepository {
             if (rs.next()) s.totalNotes = rs.getInt(1);
         } catch (SQLException e) { throw new RuntimeException("load totalNotes failed", e); }
 
-        // today reviews since 00:00 local time
+        s.todayReviews = countReviewsToday();
+
+        return s;
+    }
+
+    /** Reviews logged since 00:00 local time. */
+    public int countReviewsToday() {
         LocalDateTime start = LocalDate.now().atStartOfDay();
         Timestamp startTs = new Timestamp(start.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
-        try (PreparedStatement ps = Database.get().prepareStatement(
-                "SELECT COUNT(*) FROM review_log WHERE reviewed_at >= ?")) {
+        try (PreparedStatement ps = Database.get().prepareStatement(REVIEWS_SINCE_SQL)) {
             ps.setTimestamp(1, startTs);
-            try (ResultSet rs = ps.executeQuery()) { if (rs.next()) s.todayReviews = rs.getInt(1); }
+            try (ResultSet rs = ps.executeQuery()) { return rs.next() ? rs.getInt(1) : 0; }
         } catch (SQLException e) { throw new RuntimeException("load todayReviews failed", e); }
-
-        return s;
     }
 }
@@ -0,0 +1,191 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+import com.memorizer.event.DomainEvents;
+import com.memorizer.event.EventBus;
+import org.h2.engine.Session;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.db.MVTableEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Idle-time storage upkeep for the MVStore file: archival of old history ({@link ArchiveService}),
+ * removal of unreferenced media ({@link MediaStore}), {@code ANALYZE}, online chunk compaction and,
+ * when the file stays sparse, an offline {@code SHUTDOWN DEFRAG} with immediate reopen.
+ * "Idle" means no study/edit activity or mobile API traffic for {@code app.db.maintenance.idle-minutes}, or
+ * reminders paused and at least a minute without activity. Defrag runs through {@link StoreGate#exclusive}. Each run logs file size and fill rate before and after.
+ */
+public final class StorageMaintenance {
+    private static final Logger log = LoggerFactory.getLogger(StorageMaintenance.class);
+    private static final StorageMaintenance INSTANCE = new StorageMaintenance();
+    private static final long CHECK_MINUTES = 5;
+
+    /** File size and fill rates at one point in time; rates are -1 when the store is owned by another process. */
+    public static final class Stats {
+        public long fileBytes;
+        public int fillRate = -1;
+        public int chunksFillRate = -1;
+
+        @Override
+        public String toString() {
+            return (fileBytes / 1024) + " KB, fill " + fillRate + "%, chunks " + chunksFillRate + "%";
+        }
+    }
+
+    /** Outcome of one maintenance run. */
+    public static final class Report {
+        public Stats before;
+        public Stats after;
+        public boolean compacted;
+        public boolean defragmented;
+        public int archivedReviews;
+        public int archivedPlans;
+        public int purgedTombstones;
+        public int purgedMedia;
+        public long millis;
+    }
+
+    private volatile long lastActivity = System.currentTimeMillis();
+    private volatile long lastRun;
+    private ScheduledExecutorService ses;
+    private BooleanSupplier paused = () -> false;
+    private final List<EventBus.Subscription> subs = new ArrayList<EventBus.Subscription>();
+
+    public static StorageMaintenance get() { return INSTANCE; }
+
+    private StorageMaintenance() {}
+
+    /** Start idle checks; {@code paused} reports whether reminders are paused (e.g. {@code scheduler::isPaused}). */
+    public synchronized void start(BooleanSupplier paused) {
+        if (ses != null || !Config.getBool("app.db.maintenance.enabled", true)) return;
+        if (paused != null) this.paused = paused;
+        subs.add(EventBus.subscribe(DomainEvents.CardRated.class, e -> touch()));
+        subs.add(EventBus.subscribe(DomainEvents.ReviewsImported.class, e -> touch()));
+        subs.add(EventBus.subscribe(DomainEvents.NoteEdited.class, e -> touch()));
+        subs.add(EventBus.subscribe(DomainEvents.PlanChanged.class, e -> touch()));
+        subs.add(EventBus.subscribe(DomainEvents.ContentDeleted.class, e -> touch()));
+        subs.add(EventBus.subscribe(DomainEvents.ContentImported.class, e -> touch()));
+        lastRun = System.currentTimeMillis();
+        ses = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-maintenance");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        ses.scheduleWithFixedDelay(this::check, CHECK_MINUTES, CHECK_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stop() {
+        for (EventBus.Subscription s : subs) s.cancel();
+        subs.clear();
+        if (ses != null) { ses.shutdownNow(); ses = null; }
+    }
+
+    /** Record user activity (also called for every web API request, e.g. mobile sync); postpones maintenance. */
+    public void touch() { lastActivity = System.currentTimeMillis(); }
+
+    private void check() {
+        long now = System.currentTimeMillis();
+        long interval = Math.max(1, Config.getInt("app.db.maintenance.interval-hours", 24)) * 3_600_000L;
+        if (now - lastRun < interval) return;
+        long quiet = now - lastActivity;
+        boolean idle = quiet >= Config.getInt("app.db.maintenance.idle-minutes", 15) * 60_000L
+                || (paused.getAsBoolean() && quiet >= 60_000L);
+        if (!idle) return;
+        try {
+            runNow(true);
+        } catch (Exception e) {
+            log.warn("storage maintenance failed: {}", e.toString());
+        }
+    }
+
+    /** Run ANALYZE and compaction now; defragments too when {@code allowDefrag} and the file stays below the threshold. */
+    public synchronized Report runNow(boolean allowDefrag) {
+        Report r = new Report();
+        long t0 = System.currentTimeMillis();
+        lastRun = t0;
+        try {
+            // The lease keeps a restore from swapping the store under this phase
+            try (StoreGate.Lease lease = StoreGate.enter();
+                 Connection c = DriverManager.getConnection(Database.url(), "sa", "")) {
+                r.before = stats(c);
+                if (Config.getBool("app.archive.enabled", true)) {
+                    ArchiveService.Result a = ArchiveService.get().archiveNow();
+                    r.archivedReviews = a.reviews;
+                    r.archivedPlans = a.plans;
+                }
+                long keepMs = Config.getInt("app.sync.tombstone-retention-days", 90) * 86_400_000L;
+                r.purgedTombstones = new DeletionRepository().purgeTombstones(c, System.currentTimeMillis() - keepMs);
+                r.purgedMedia = MediaStore.get().collectGarbage();
+                try (Statement st = c.createStatement()) { st.execute("ANALYZE"); }
+                MVStore mv = mvStore(c);
+                if (mv != null) {
+                    int target = Math.max(10, Math.min(100, Config.getInt("app.db.maintenance.target-fill-rate", 80)));
+                    // Rewrite sparse chunks in 16 MB steps until the target is met or 30 s have passed
+                    long deadline = System.currentTimeMillis() + 30_000L;
+                    while (mv.compact(target, 16 * 1024 * 1024) && System.currentTimeMillis() < deadline) {
+                        r.compacted = true;
+                    }
+                    mv.sync();
+                }
+                r.after = stats(c);
+            }
+            int defragBelow = Config.getInt("app.db.maintenance.defrag-below-fill-rate", 50);
+            if (allowDefrag && r.after.fillRate >= 0 && r.after.fillRate < defragBelow) {
+                // SHUTDOWN DEFRAG closes every session: web, imports, exports and the exam writer must be quiet
+                try {
+                    StoreGate.exclusive("defrag", () -> {
+                        Database.defragment();
+                        return null;
+                    });
+                    r.defragmented = true;
+                } catch (StoreGate.BusyException busy) {
+                    log.info("Defrag skipped: {}", busy.getMessage());
+                }
+                try (StoreGate.Lease lease = StoreGate.enter();
+                     Connection c = DriverManager.getConnection(Database.url(), "sa", "")) {
+                    r.after = stats(c);
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("storage maintenance failed", e);
+        }
+        r.millis = System.currentTimeMillis() - t0;
+        com.memorizer.metrics.Metrics.sizes("memorizer_db_file_bytes", null, null).record(r.after.fileBytes);
+        log.info("Storage maintenance in {} ms: before [{}], after [{}]{}{}", r.millis, r.before, r.after,
+                r.compacted ? ", compacted" : "", r.defragmented ? ", defragmented" : "");
+        return r;
+    }
+
+    private static Stats stats(Connection c) throws Exception {
+        Stats s = new Stats();
+        s.fileBytes = Files.exists(Database.storeFile()) ? Files.size(Database.storeFile()) : 0;
+        MVStore mv = mvStore(c);
+        if (mv != null) {
+            s.fillRate = mv.getFillRate();
+            s.chunksFillRate = mv.getChunksFillRate();
+        }
+        return s;
+    }
+
+    /** The MVStore behind an in-process connection, or null when the database is served by another process. */
+    private static MVStore mvStore(Connection c) throws Exception {
+        JdbcConnection jc = c.unwrap(JdbcConnection.class);
+        if (!(jc.getSession() instanceof Session)) return null;
+        MVTableEngine.Store store = ((Session) jc.getSession()).getDatabase().getStore();
+        return store == null ? null : store.getMvStore();
+    }
+}
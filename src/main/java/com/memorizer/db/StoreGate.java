@@ -0,0 +1,140 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Coordinates work that needs the store to itself (restore, offline defrag) with everything that reaches it
+ * outside the shared connection. Long-lived services (web server, scheduler, exam writer) register a
+ * {@link Participant} and are paused first; short jobs on side connections (imports, exports, exam batches,
+ * maintenance) hold a {@link Lease} for their run, and new leases wait while the gate is closed.
+ * {@link #exclusive} then runs under the backup lock and the {@link Database} class lock, so nothing can
+ * reopen the store between its shutdown and reopen.
+ */
+public final class StoreGate {
+    private static final Logger log = LoggerFactory.getLogger(StoreGate.class);
+    private static final Object LOCK = new Object();
+    private static final List<Participant> participants = new CopyOnWriteArrayList<Participant>();
+    private static int leases;
+    private static boolean closed;
+
+    /** A service that uses the store on its own schedule; paused before exclusive work and resumed after. */
+    public interface Participant {
+        void pause();
+        void resume();
+    }
+
+    /** Thrown by {@link #exclusive} when leases were still held after the wait; nothing was run. */
+    public static final class BusyException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        BusyException(String message) { super(message); }
+    }
+
+    /** Permission to use the store from a side connection; close it when done. */
+    public static final class Lease implements AutoCloseable {
+        private boolean released;
+
+        private Lease() {}
+
+        @Override
+        public void close() {
+            synchronized (LOCK) {
+                if (released) return;
+                released = true;
+                leases--;
+                LOCK.notifyAll();
+            }
+        }
+    }
+
+    public static void register(Participant p) { participants.add(p); }
+
+    public static void unregister(Participant p) { participants.remove(p); }
+
+    /** Take a lease, waiting while exclusive work runs. */
+    public static Lease enter() {
+        synchronized (LOCK) {
+            boolean interrupted = false;
+            while (closed) {
+                try { LOCK.wait(); } catch (InterruptedException e) { interrupted = true; }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            leases++;
+            return new Lease();
+        }
+    }
+
+    /**
+     * Pause the participants, wait up to {@code app.db.gate-wait-seconds} for leases to end, then run {@code work}
+     * with the store to itself. Everything is resumed afterwards, also when {@code work} fails.
+     * @throws BusyException if leases are still held when the wait runs out
+     */
+    public static <T> T exclusive(String what, Callable<T> work) {
+        List<Participant> paused = new ArrayList<Participant>();
+        try {
+            for (Participant p : participants) {
+                p.pause();
+                paused.add(p);
+            }
+            close(what);
+            try {
+                synchronized (BackupService.get()) {
+                    synchronized (Database.class) {
+                        return work.call();
+                    }
+                }
+            } finally {
+                open();
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(what + " failed", e);
+        } finally {
+            for (int i = paused.size() - 1; i >= 0; i--) {
+                try {
+                    paused.get(i).resume();
+                } catch (Exception e) {
+                    log.warn("resume after {} failed: {}", what, e.toString());
+                }
+            }
+        }
+    }
+
+    private static void close(String what) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + Math.max(1, Config.getInt("app.db.gate-wait-seconds", 60)) * 1000L;
+        synchronized (LOCK) {
+            while (closed) LOCK.wait();
+            closed = true;
+            try {
+                while (leases > 0) {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0) {
+                        throw new BusyException(what + " not started: " + leases + " import, export or background job(s) still running");
+                    }
+                    LOCK.wait(left);
+                }
+            } catch (InterruptedException | RuntimeException e) {
+                closed = false;
+                LOCK.notifyAll();
+                throw e;
+            }
+        }
+    }
+
+    private static void open() {
+        synchronized (LOCK) {
+            closed = false;
+            LOCK.notifyAll();
+        }
+    }
+
+    private StoreGate() {}
+}
@@ -0,0 +1,117 @@
+package com.memorizer.db;
+
+import com.memorizer.metrics.Metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connection wrapper that times statement execution into {@code memorizer_db_statement_seconds}.
+ * Each SQL string is attributed to the first caller outside this package's plumbing
+ * (e.g. {@code CardRepository.findNextDueOrNew}); the caller is resolved from the stack once
+ * per distinct SQL text and cached, so steady-state cost is a map lookup and two nanoTime calls.
+ */
+final class TimedConnection {
+    static final String METRIC = "memorizer_db_statement_seconds";
+    private static final int MAX_CACHED_SQL = 1024;
+    private static final Map<String, Metrics.Series> BY_SQL = new ConcurrentHashMap<String, Metrics.Series>();
+
+    static {
+        Metrics.describe(METRIC, "JDBC statement execution time by calling method");
+    }
+
+    private TimedConnection() {}
+
+    static Connection wrap(Connection target) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnHandler(target));
+    }
+
+    private static final class ConnHandler implements InvocationHandler {
+        private final Connection target;
+        ConnHandler(Connection target) { this.target = target; }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            Object res = call(target, m, args);
+            String name = m.getName();
+            if (res instanceof PreparedStatement && ("prepareStatement".equals(name) || "prepareCall".equals(name))) {
+                Metrics.Series series = seriesFor((String) args[0]);
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[]{res instanceof java.sql.CallableStatement ? java.sql.CallableStatement.class : PreparedStatement.class},
+                        new StmtHandler((Statement) res, series));
+            }
+            if (res instanceof Statement && "createStatement".equals(name)) {
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[]{Statement.class}, new StmtHandler((Statement) res, null));
+            }
+            return res;
+        }
+    }
+
+    private static final class StmtHandler implements InvocationHandler {
+        private final Statement target;
+        private final Metrics.Series series;
+        StmtHandler(Statement target, Metrics.Series series) { this.target = target; this.series = series; }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            if (!m.getName().startsWith("execute")) return call(target, m, args);
+            Metrics.Series s = series;
+            if (s == null && args != null && args.length > 0 && args[0] instanceof String) s = seriesFor((String) args[0]);
+            long t0 = System.nanoTime();
+            try {
+                return call(target, m, args);
+            } finally {
+                if (s != null) s.recordSince(t0);
+            }
+        }
+    }
+
+    private static Object call(Object target, Method m, Object[] args) throws Throwable {
+        try {
+            return m.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Metrics.Series seriesFor(String sql) {
+        Metrics.Series s = BY_SQL.get(sql);
+        if (s != null) return s;
+        s = Metrics.timer(METRIC, "method", caller());
+        if (BY_SQL.size() < MAX_CACHED_SQL) BY_SQL.put(sql, s);
+        return s;
+    }
+
+    /** First stack frame that is not JDK, proxy or this class. */
+    private static String caller() {
+        for (StackTraceElement e : new Throwable().getStackTrace()) {
+            String cls = e.getClassName();
+            if (cls.startsWith("java.") || cls.startsWith("sun.") || cls.startsWith("jdk.")
+                    || cls.startsWith("com.sun.proxy") || cls.startsWith("$Proxy")
+                    || cls.equals(TimedConnection.class.getName()) || cls.startsWith(TimedConnection.class.getName() + "$")
+                    || cls.equals(Database.class.getName())) {
+                continue;
+            }
+            String simple = cls.substring(cls.lastIndexOf('.') + 1);
+            int inner = simple.indexOf('$');
+            if (inner > 0) simple = simple.substring(0, inner);
+            String method = e.getMethodName();
+            // lambda$start$12 -> start
+            if (method.startsWith("lambda$")) {
+                int end = method.indexOf('$', 7);
+                method = end > 7 ? method.substring(7, end) : method;
+            }
+            return simple + "." + method;
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,93 @@
+package com.memorizer.event;
+
+/** Domain events published through {@link EventBus}. All are immutable. */
+public final class DomainEvents {
+    private DomainEvents() {}
+
+    /** A card was rated and its new schedule persisted. */
+    public static final class CardRated {
+        public final long cardId;
+        public final int rating;
+        public final java.sql.Timestamp dueAt;
+
+        public CardRated(long cardId, int rating, java.sql.Timestamp dueAt) {
+            this.cardId = cardId; this.rating = rating; this.dueAt = dueAt;
+        }
+    }
+
+    /** Today's plan changed: one item moved between statuses, or the plan was reshaped as a whole. */
+    public static final class PlanChanged {
+        public enum Kind { ITEM, REBUILT, APPENDED, ROLLED, CLEARED }
+
+        public final Kind kind;
+        /** For {@link Kind#ITEM}: the card and its status transition (see PlanService.Status); otherwise -1. */
+        public final long cardId;
+        public final int fromStatus;
+        public final int toStatus;
+
+        private PlanChanged(Kind kind, long cardId, int fromStatus, int toStatus) {
+            this.kind = kind; this.cardId = cardId; this.fromStatus = fromStatus; this.toStatus = toStatus;
+        }
+
+        public static PlanChanged item(long cardId, int fromStatus, int toStatus) {
+            return new PlanChanged(Kind.ITEM, cardId, fromStatus, toStatus);
+        }
+
+        public static PlanChanged of(Kind kind) {
+            return new PlanChanged(kind, -1, -1, -1);
+        }
+    }
+
+    /** A note's content was edited. */
+    public static final class NoteEdited {
+        public final long noteId;
+
+        public NoteEdited(long noteId) { this.noteId = noteId; }
+    }
+
+    /** Decks, notes and/or cards were deleted (with their reviews and plan rows). */
+    public static final class ContentDeleted {
+        public final int decks;
+        public final int notes;
+        public final int cards;
+
+        public ContentDeleted(int decks, int notes, int cards) {
+            this.decks = decks; this.notes = notes; this.cards = cards;
+        }
+    }
+
+    /**
+     * An import committed new or updated notes, cards and decks in bulk (no per-note {@link NoteEdited} is sent).
+     * Published once when the import's writer closes.
+     */
+    public static final class ContentImported {
+        public final int insertedNotes;
+        public final int updatedNotes;
+        public final int decksCreated;
+
+        public ContentImported(int insertedNotes, int updatedNotes, int decksCreated) {
+            this.insertedNotes = insertedNotes; this.updatedNotes = updatedNotes; this.decksCreated = decksCreated;
+        }
+    }
+
+    /**
+     * Reviews were logged in bulk from a device (sync or upload) without rescheduling their cards here, so no
+     * per-card {@link CardRated} is sent. Published once per request that stored at least one review.
+     */
+    public static final class ReviewsImported {
+        public final int count;
+        /** Distinct cards the stored reviews belong to. */
+        public final long[] cardIds;
+
+        public ReviewsImported(int count, long[] cardIds) {
+            this.count = count; this.cardIds = cardIds;
+        }
+    }
+
+    /** The active deck filter changed; {@code deckId} is null for "all decks". */
+    public static final class DeckFilterChanged {
+        public final Long deckId;
+
+        public DeckFilterChanged(Long deckId) { this.deckId = deckId; }
+    }
+}
@@ -0,0 +1,54 @@
+package com.memorizer.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process domain event bus. Services publish after their change is committed; subscribers
+ * are called synchronously on the publishing thread, in subscription order, and must hop to their
+ * own thread (FX, AWT) themselves. A failing subscriber is logged and does not affect the others.
+ */
+public final class EventBus {
+    private static final Logger log = LoggerFactory.getLogger(EventBus.class);
+    private static final Map<Class<?>, List<Handler<?>>> HANDLERS = new ConcurrentHashMap<Class<?>, List<Handler<?>>>();
+
+    private EventBus() {}
+
+    /** Handle returned by {@link #subscribe}; cancel it when the subscriber goes away. */
+    public interface Subscription {
+        void cancel();
+    }
+
+    private static final class Handler<T> {
+        final Consumer<? super T> consumer;
+        Handler(Consumer<? super T> consumer) { this.consumer = consumer; }
+    }
+
+    /** Subscribe to events of exactly {@code type}. */
+    public static <T> Subscription subscribe(Class<T> type, Consumer<? super T> consumer) {
+        final List<Handler<?>> list = HANDLERS.computeIfAbsent(type, k -> new CopyOnWriteArrayList<Handler<?>>());
+        final Handler<T> h = new Handler<T>(consumer);
+        list.add(h);
+        return () -> list.remove(h);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void publish(Object event) {
+        if (event == null) return;
+        List<Handler<?>> list = HANDLERS.get(event.getClass());
+        if (list == null) return;
+        for (Handler<?> h : list) {
+            try {
+                ((Handler<Object>) h).consumer.accept(event);
+            } catch (Exception e) {
+                log.warn("event handler failed for {}: {}", event.getClass().getSimpleName(), e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.memorizer.exporter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.memorizer.model.Deck;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Anki package (.apkg): a legacy-schema (11) collection.anki2 with one "Memorizer" note type
+ * (Front/Back/Reading/POS/Examples), the decks, notes, cards with their scheduling state and the review log,
+ * zipped with an empty media map. The collection is written by {@link SqliteWriter} straight to a temp file;
+ * memory holds only the id translation tables (two longs per note and per card).
+ */
+final class ApkgExporter {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String[] FIELDS = {"Front", "Back", "Reading", "POS", "Examples"};
+    private static final long DAY = 86_400L;
+    /** Anki deck ids for memorizer decks; 1 is Anki's "Default", used for notes without a deck. */
+    private static final long DECK_BASE = 1_000_000_000L;
+
+    private ApkgExporter() {}
+
+    /** Ascending memorizer id to ascending Anki id; both columns grow together. */
+    private static final class IdMap {
+        long[] from = new long[1024], to = new long[1024];
+        int n;
+
+        void put(long a, long b) {
+            if (n == from.length) {
+                from = Arrays.copyOf(from, n * 2);
+                to = Arrays.copyOf(to, n * 2);
+            }
+            from[n] = a;
+            to[n++] = b;
+        }
+
+        long get(long a) {
+            int i = Arrays.binarySearch(from, 0, n, a);
+            return i < 0 ? -1 : to[i];
+        }
+
+        long last() { return n == 0 ? 0 : to[n - 1]; }
+    }
+
+    static void write(ExportSource src, Path out, ExportReport rpt) throws Exception {
+        Path col = Files.createTempFile("memorizer-export", ".anki2");
+        try {
+            writeCollection(src, col, rpt);
+            try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(out), 1 << 16))) {
+                zip.putNextEntry(new ZipEntry("collection.anki2"));
+                Files.copy(col, zip);
+                zip.closeEntry();
+                zip.putNextEntry(new ZipEntry("media"));
+                zip.write("{}".getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        } finally {
+            Files.deleteIfExists(col);
+        }
+    }
+
+    private static void writeCollection(ExportSource src, Path file, ExportReport rpt) throws Exception {
+        long now = System.currentTimeMillis();
+        long modelId = now;
+        List<Deck> decks = src.decks();
+        IdMap notes = new IdMap();
+        IdMap cards = new IdMap();
+        long[] firstCreated = {Long.MAX_VALUE};
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+
+        try (SqliteWriter db = new SqliteWriter(file)) {
+            SqliteWriter.Table noteTable = db.table("notes", "CREATE TABLE notes (id integer primary key, guid text not null, " +
+                    "mid integer not null, mod integer not null, usn integer not null, tags text not null, " +
+                    "flds text not null, sfld integer not null, csum integer not null, flags integer not null, data text not null)");
+            src.notes(n -> {
+                long created = n.createdAt == null ? now : n.createdAt.getTime();
+                firstCreated[0] = Math.min(firstCreated[0], created);
+                long id = Math.max(notes.last() + 1, created);
+                notes.put(n.id, id);
+                String front = n.front == null ? "" : n.front;
+                String flds = html(front) + '\u001f' + html(n.back) + '\u001f' + html(n.reading) + '\u001f' +
+                        html(n.pos) + '\u001f' + html(n.examples);
+                byte[] h = sha1.digest(front.getBytes(StandardCharsets.UTF_8));
+                long csum = ((h[0] & 0xFFL) << 24) | ((h[1] & 0xFFL) << 16) | ((h[2] & 0xFFL) << 8) | (h[3] & 0xFFL);
+                long mod = (n.updatedAt != null ? n.updatedAt.getTime() : created) / 1000;
+                noteTable.insert(id, null, "mz" + Long.toString(n.id, 36), modelId, mod, 0, tags(n.tags), flds, front, csum, 0, "");
+                rpt.notes++;
+            });
+            noteTable.finish();
+
+            long crt = (firstCreated[0] == Long.MAX_VALUE ? now : firstCreated[0]) / 1000 / DAY * DAY;
+            SqliteWriter.Table cardTable = db.table("cards", "CREATE TABLE cards (id integer primary key, nid integer not null, did integer not null, " +
+                    "ord integer not null, mod integer not null, usn integer not null, type integer not null, " +
+                    "queue integer not null, due integer not null, ivl integer not null, factor integer not null, " +
+                    "reps integer not null, lapses integer not null, left integer not null, odue integer not null, " +
+                    "odid integer not null, flags integer not null, data text not null)");
+            int[] position = {0};
+            src.cards(c -> {
+                long nid = notes.get(c.noteId);
+                if (nid < 0) return;
+                long id = Math.max(cards.last() + 1, nid);
+                cards.put(c.id, id);
+                boolean scheduled = c.status == 1 || c.status == 2 || (c.status == 3 && c.intervalDays != null);
+                int type = c.status == 3 ? (scheduled ? 2 : 0) : c.status;
+                int queue = c.status == 3 ? -1 : c.status;
+                long due;
+                if (type == 0) due = ++position[0];
+                else if (type == 1) due = c.dueAt == null ? now / 1000 : c.dueAt.getTime() / 1000;
+                else due = c.dueAt == null ? (now / 1000 - crt) / DAY : Math.floorDiv(c.dueAt.getTime() / 1000 - crt, DAY);
+                long ivl = type == 2 && c.intervalDays != null ? Math.max(1, Math.round(c.intervalDays)) : 0;
+                long mod = (c.lastReviewAt != null ? c.lastReviewAt.getTime() : now) / 1000;
+                cardTable.insert(id, null, nid, deckId(c.deckId), 0, mod, 0, type, queue, due, ivl,
+                        Math.round(c.ease * 1000), c.reps, c.lapses, type == 1 ? 1 : 0, 0, 0, 0, "");
+                rpt.cards++;
+            });
+            cardTable.finish();
+
+            SqliteWriter.Table revTable = db.table("revlog", "CREATE TABLE revlog (id integer primary key, cid integer not null, usn integer not null, " +
+                    "ease integer not null, ivl integer not null, lastIvl integer not null, factor integer not null, " +
+                    "time integer not null, type integer not null)");
+            long[] lastRev = {0};
+            src.reviews(r -> {
+                long cid = cards.get(r.cardId);
+                if (cid < 0) return;
+                long id = Math.max(lastRev[0] + 1, r.reviewedAt);
+                lastRev[0] = id;
+                long lastIvl = r.prevInterval == null ? 0 : Math.round(r.prevInterval);
+                int type = lastIvl >= 1 ? 1 : 0; // review or learning
+                revTable.insert(id, null, cid, 0, Math.max(1, Math.min(4, r.rating)),
+                        r.nextInterval == null ? 0 : Math.round(r.nextInterval), lastIvl,
+                        r.ease == null ? 0 : Math.round(r.ease * 1000),
+                        r.latencyMs == null ? 0 : Math.min(60_000, Math.max(0, r.latencyMs)), type);
+                rpt.reviews++;
+            });
+            revTable.finish();
+
+            db.table("graves", "CREATE TABLE graves (usn integer not null, oid integer not null, type integer not null)").finish();
+
+            SqliteWriter.Table colTable = db.table("col", "CREATE TABLE col (id integer primary key, crt integer not null, mod integer not null, " +
+                    "scm integer not null, ver integer not null, dty integer not null, usn integer not null, " +
+                    "ls integer not null, conf text not null, models text not null, decks text not null, " +
+                    "dconf text not null, tags text not null)");
+            colTable.insert(1, null, crt, now, now, 11, 0, 0, 0, conf(position[0] + 1),
+                    models(modelId, now), decks(decks, now), dconf(), "{}");
+            colTable.finish();
+            rpt.decks = decks.size();
+        }
+    }
+
+    private static long deckId(Long deckId) {
+        return deckId == null ? 1 : DECK_BASE + deckId;
+    }
+
+    /** Field text as Anki stores it: HTML-escaped, line breaks as {@code <br>}. */
+    static String html(String s) {
+        if (s == null || s.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&': sb.append("&amp;"); break;
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '\r': break;
+                case '\n': sb.append("<br>"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Memorizer tags ("a, b; c") as Anki's space-separated list with surrounding spaces. */
+    private static String tags(String tags) {
+        if (tags == null || tags.trim().isEmpty()) return "";
+        StringBuilder sb = new StringBuilder(" ");
+        for (String t : tags.trim().split("[;,\\s]+")) if (!t.isEmpty()) sb.append(t).append(' ');
+        return sb.length() == 1 ? "" : sb.toString();
+    }
+
+    private static String conf(long nextPos) {
+        ObjectNode c = JSON.createObjectNode();
+        c.put("nextPos", nextPos);
+        c.put("estTimes", true);
+        c.putArray("activeDecks").add(1);
+        c.put("sortType", "noteFld");
+        c.put("timeLim", 0);
+        c.put("sortBackwards", false);
+        c.put("addToCur", true);
+        c.put("curDeck", 1);
+        c.put("newSpread", 0);
+        c.put("dueCounts", true);
+        c.putNull("curModel");
+        c.put("collapseTime", 1200);
+        return c.toString();
+    }
+
+    private static String models(long id, long now) {
+        ObjectNode m = JSON.createObjectNode();
+        m.put("id", id);
+        m.put("name", "Memorizer");
+        m.put("type", 0);
+        m.put("mod", now / 1000);
+        m.put("usn", 0);
+        m.put("sortf", 0);
+        m.put("did", 1);
+        m.putArray("tags");
+        m.putArray("vers");
+        ArrayNode flds = m.putArray("flds");
+        for (int i = 0; i < FIELDS.length; i++) {
+            ObjectNode f = flds.addObject();
+            f.put("name", FIELDS[i]);
+            f.put("ord", i);
+            f.put("sticky", false);
+            f.put("rtl", false);
+            f.put("font", "Arial");
+            f.put("size", 20);
+            f.putArray("media");
+        }
+        ObjectNode t = m.putArray("tmpls").addObject();
+        t.put("name", "Card 1");
+        t.put("ord", 0);
+        t.put("qfmt", "{{Front}}");
+        t.put("afmt", "{{FrontSide}}<hr id=answer>{{Back}}{{#Reading}}<br>{{Reading}}{{/Reading}}" +
+                "{{#POS}}<br><i>{{POS}}</i>{{/POS}}{{#Examples}}<br>{{Examples}}{{/Examples}}");
+        t.putNull("did");
+        t.put("bqfmt", "");
+        t.put("bafmt", "");
+        m.put("css", ".card { font-family: arial; font-size: 20px; text-align: center; }");
+        m.put("latexPre", "\\documentclass[12pt]{article}\n\\special{papersize=3in,5in}\n\\usepackage[utf8]{inputenc}\n" +
+                "\\usepackage{amssymb,amsmath}\n\\pagestyle{empty}\n\\setlength{\\parindent}{0in}\n\\begin{document}\n");
+        m.put("latexPost", "\\end{document}");
+        ArrayNode req = m.putArray("req").addArray();
+        req.add(0).add("any").addArray().add(0);
+        ObjectNode all = JSON.createObjectNode();
+        all.set(String.valueOf(id), m);
+        return all.toString();
+    }
+
+    private static String decks(List<Deck> decks, long now) {
+        ObjectNode all = JSON.createObjectNode();
+        all.set("1", deck(1, "Default", now));
+        for (Deck d : decks) all.set(String.valueOf(deckId(d.id)), deck(deckId(d.id), d.name, now));
+        return all.toString();
+    }
+
+    private static ObjectNode deck(long id, String name, long now) {
+        ObjectNode d = JSON.createObjectNode();
+        d.put("id", id);
+        d.put("name", name);
+        d.put("mod", now / 1000);
+        d.put("usn", 0);
+        d.put("desc", "");
+        d.put("dyn", 0);
+        d.put("conf", 1);
+        d.put("collapsed", false);
+        d.put("extendNew", 10);
+        d.put("extendRev", 50);
+        for (String k : new String[]{"newToday", "revToday", "lrnToday", "timeToday"}) d.putArray(k).add(0).add(0);
+        return d;
+    }
+
+    private static String dconf() {
+        ObjectNode c = JSON.createObjectNode();
+        c.put("id", 1);
+        c.put("name", "Default");
+        c.put("mod", 0);
+        c.put("usn", 0);
+        c.put("maxTaken", 60);
+        c.put("timer", 0);
+        c.put("autoplay", true);
+        c.put("replayq", true);
+        c.put("dyn", false);
+        ObjectNode n = c.putObject("new");
+        n.putArray("delays").add(1).add(10);
+        n.putArray("ints").add(1).add(4).add(7);
+        n.put("initialFactor", 2500);
+        n.put("order", 1);
+        n.put("perDay", 20);
+        n.put("bury", true);
+        n.put("separate", true);
+        ObjectNode r = c.putObject("rev");
+        r.put("perDay", 200);
+        r.put("ease4", 1.3);
+        r.put("fuzz", 0.05);
+        r.put("minSpace", 1);
+        r.put("ivlFct", 1);
+        r.put("maxIvl", 36500);
+        r.put("bury", true);
+        ObjectNode l = c.putObject("lapse");
+        l.putArray("delays").add(10);
+        l.put("mult", 0);
+        l.put("minInt", 1);
+        l.put("leechFails", 8);
+        l.put("leechAction", 0);
+        ObjectNode all = JSON.createObjectNode();
+        all.set("1", c);
+        return all.toString();
+    }
+}
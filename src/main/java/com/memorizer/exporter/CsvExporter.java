@@ -0,0 +1,56 @@
+package com.memorizer.exporter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Notes as CSV in the import layout (deck, front, back, reading, pos, examples, tags), UTF-8 with a BOM so
+ * spreadsheet apps detect the encoding. Fields with separators, quotes, line breaks or edge spaces are quoted
+ * per RFC 4180.
+ */
+final class CsvExporter {
+    private CsvExporter() {}
+
+    static void write(ExportSource src, Path out, ExportReport rpt) throws Exception {
+        rpt.decks = src.decks().size();
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(out), StandardCharsets.UTF_8), 1 << 16)) {
+            w.write('﻿');
+            w.write("deck,front,back,reading,pos,examples,tags\r\n");
+            src.notes(n -> {
+                field(w, n.deck); w.write(',');
+                field(w, n.front); w.write(',');
+                field(w, n.back); w.write(',');
+                field(w, n.reading); w.write(',');
+                field(w, n.pos); w.write(',');
+                field(w, n.examples); w.write(',');
+                field(w, n.tags); w.write("\r\n");
+                rpt.notes++;
+            });
+        }
+    }
+
+    private static void field(Writer w, String s) throws IOException {
+        if (s == null || s.isEmpty()) return;
+        boolean quote = s.charAt(0) == ' ' || s.charAt(s.length() - 1) == ' ';
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            w.write(s);
+            return;
+        }
+        w.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') w.write('"');
+            w.write(c);
+        }
+        w.write('"');
+    }
+}
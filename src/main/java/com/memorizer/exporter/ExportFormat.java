@@ -0,0 +1,31 @@
+package com.memorizer.exporter;
+
+import java.io.File;
+import java.util.Locale;
+
+/** Export file formats, picked by extension. */
+public enum ExportFormat {
+    /** Import-template workbook, one sheet per deck; round-trips through the Excel importer. */
+    XLSX("xlsx"),
+    /** deck, front, back, reading, pos, examples, tags as RFC 4180 CSV. */
+    CSV("csv"),
+    /** Everything (decks, notes, cards, review history), one JSON object per line. */
+    JSONL("jsonl"),
+    /** Anki package with notes, scheduling and review history. */
+    APKG("apkg");
+
+    public final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /** Format for {@code file}'s extension, or null if unsupported. */
+    public static ExportFormat forFile(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        for (ExportFormat f : values()) {
+            if (name.endsWith("." + f.extension)) return f;
+        }
+        return null;
+    }
+}
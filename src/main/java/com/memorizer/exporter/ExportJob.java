@@ -0,0 +1,114 @@
+package com.memorizer.exporter;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Background export of all notes (or one deck) to a file. Rows are streamed from forward-only cursors straight
+ * into the format writer, so memory does not grow with the collection. The file is written next to the target
+ * and moved into place when complete; a failed or cancelled export leaves any existing file untouched. Exports
+ * run one at a time on a daemon thread; callers poll {@link #progress()} and may {@link #cancel()}.
+ */
+public final class ExportJob {
+    private static final ExecutorService EXEC = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "export");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File file;
+    private final ExportFormat format;
+    private final Long deckId;
+    private final CompletableFuture<ExportReport> result = new CompletableFuture<ExportReport>();
+    private volatile ExportSource source;
+    private volatile long total = -1;
+    private volatile boolean cancelled;
+
+    private ExportJob(File file, ExportFormat format, Long deckId) {
+        this.file = file;
+        this.format = format;
+        this.deckId = deckId;
+    }
+
+    /** Queue an export to {@code file}; {@code deckId} null exports every deck. */
+    public static ExportJob start(File file, ExportFormat format, Long deckId) {
+        ExportJob job = new ExportJob(file, format, deckId);
+        EXEC.submit(() -> job.result.complete(job.runJob()));
+        return job;
+    }
+
+    /** Fraction done in [0,1], or -1 while unknown. */
+    public double progress() {
+        if (result.isDone()) return 1;
+        ExportSource s = source;
+        long t = total;
+        if (s == null || t <= 0) return -1;
+        return Math.min(1.0, (double) s.done.get() / t);
+    }
+
+    public void cancel() { cancelled = true; }
+
+    public CompletableFuture<ExportReport> result() { return result; }
+
+    public File file() { return file; }
+
+    /** Export on the calling thread. */
+    public static ExportReport run(Path out, ExportFormat format, Long deckId, BooleanSupplier cancelled) {
+        ExportJob job = new ExportJob(out.toFile(), format, deckId);
+        return job.runJob(cancelled);
+    }
+
+    private ExportReport runJob() {
+        return runJob(() -> cancelled);
+    }
+
+    private ExportReport runJob(BooleanSupplier cancelled) {
+        ExportReport rpt = new ExportReport();
+        long t0 = System.nanoTime();
+        Path out = file.toPath().toAbsolutePath();
+        Path tmp = null;
+        try (ExportSource src = new ExportSource(deckId, cancelled)) {
+            source = src;
+            total = src.countRows(format == ExportFormat.JSONL || format == ExportFormat.APKG,
+                    format == ExportFormat.JSONL || format == ExportFormat.APKG);
+            tmp = Files.createTempFile(out.getParent(), out.getFileName().toString(), ".part");
+            switch (format) {
+                case XLSX: XlsxExporter.write(src, tmp, rpt); break;
+                case CSV: CsvExporter.write(src, tmp, rpt); break;
+                case JSONL: JsonlExporter.write(src, tmp, rpt); break;
+                case APKG: ApkgExporter.write(src, tmp, rpt); break;
+                default: throw new IllegalArgumentException("format " + format);
+            }
+            src.check();
+            try {
+                Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (java.nio.file.AtomicMoveNotSupportedException e) {
+                Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmp = null;
+            rpt.message = "OK";
+        } catch (CancellationException e) {
+            rpt.message = "Cancelled";
+        } catch (Exception e) {
+            rpt.message = "Export error: " + e.getMessage();
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (java.io.IOException ignored) {
+                    // best effort
+                }
+            }
+            rpt.millis = (System.nanoTime() - t0) / 1_000_000L;
+            com.memorizer.metrics.Metrics.timer("memorizer_export_seconds").recordSince(t0);
+        }
+        return rpt;
+    }
+}
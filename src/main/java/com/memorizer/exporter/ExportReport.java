@@ -0,0 +1,19 @@
+package com.memorizer.exporter;
+
+/** Outcome of an export; {@code message} is "OK", "Cancelled" or an error description. */
+public class ExportReport {
+    public int decks;
+    public int notes;
+    public int cards;
+    public int reviews;
+    public long millis;
+    public String message;
+
+    @Override public String toString() {
+        return "Exported decks=" + decks +
+                ", notes=" + notes +
+                (cards > 0 ? ", cards=" + cards : "") +
+                (reviews > 0 ? ", reviews=" + reviews : "") +
+                " in " + millis + " ms";
+    }
+}
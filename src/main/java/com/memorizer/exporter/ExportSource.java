@@ -0,0 +1,240 @@
+package com.memorizer.exporter;
+
+import com.memorizer.db.ArchiveService;
+import com.memorizer.db.Database;
+import com.memorizer.model.Card;
+import com.memorizer.model.Deck;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Read side of an export: forward-only JDBC cursors over decks, notes, cards and review history on a dedicated
+ * connection with lazy query execution, so H2 streams rows instead of materializing results. Each row is
+ * delivered in one reused object. Optionally limited to one deck.
+ */
+final class ExportSource implements AutoCloseable {
+
+    /** A note with its deck name (null when the note has no deck). */
+    static final class NoteRow {
+        long id;
+        Long deckId;
+        String deck;
+        String front, back, reading, pos, examples, synonyms, antonyms, mnemo, tags;
+        Timestamp createdAt, updatedAt;
+    }
+
+    /** A card with its note's deck. */
+    static final class CardRow extends Card {
+        Long deckId;
+    }
+
+    interface RowHandler<T> {
+        void row(T row) throws Exception;
+    }
+
+    /** Carries a handler's checked exception out of the archive scan callback. */
+    private static final class Failure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Failure(Exception cause) { super(cause); }
+    }
+
+    private static final String NOTE_COLUMNS = "SELECT n.id, n.deck_id, d.name, n.front, n.back, n.reading, n.pos, n.examples, " +
+            "n.synonyms, n.antonyms, n.mnemo, n.tags, n.created_at, n.updated_at FROM note n LEFT JOIN deck d ON d.id=n.deck_id ";
+
+    private final Connection conn;
+    private final Long deckId;
+    private final BooleanSupplier cancelled;
+    /** Rows delivered so far, for progress. */
+    final AtomicLong done = new AtomicLong();
+    /** Card ids delivered by {@link #cards}, ascending, for filtering review history. */
+    private long[] cardIds = new long[1024];
+    private int cardCount;
+
+    ExportSource(Long deckId, BooleanSupplier cancelled) throws SQLException {
+        this.deckId = deckId;
+        this.cancelled = cancelled;
+        this.conn = Database.openSide();
+        try (Statement st = conn.createStatement()) {
+            st.execute("SET LAZY_QUERY_EXECUTION TRUE");
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /** Whether every deck (and the notes without one) is in scope. */
+    boolean allDecks() {
+        return deckId == null;
+    }
+
+    /** Decks in scope, by id. */
+    List<Deck> decks() throws SQLException {
+        List<Deck> out = new ArrayList<Deck>();
+        String sql = "SELECT id, name FROM deck" + (deckId != null ? " WHERE id=?" : "") + " ORDER BY id";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (deckId != null) ps.setLong(1, deckId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Deck d = new Deck();
+                    d.id = rs.getLong(1);
+                    d.name = rs.getString(2);
+                    out.add(d);
+                }
+            }
+        }
+        return out;
+    }
+
+    /** Number of notes, cards and live reviews in scope (the archive is not counted). */
+    long countRows(boolean withCards, boolean withReviews) throws SQLException {
+        String scope = deckId == null ? "" : " WHERE n.deck_id=" + deckId;
+        long n = count("SELECT COUNT(*) FROM note n" + scope);
+        if (withCards) n += count("SELECT COUNT(*) FROM card c JOIN note n ON n.id=c.note_id" + scope);
+        if (withReviews) n += count("SELECT COUNT(*) FROM review_log r JOIN card c ON c.id=r.card_id JOIN note n ON n.id=c.note_id" + scope);
+        return n;
+    }
+
+    /** Notes in scope by id. */
+    void notes(RowHandler<NoteRow> h) throws Exception {
+        if (deckId == null) query(NOTE_COLUMNS + "ORDER BY n.id", null, h);
+        else query(NOTE_COLUMNS + "WHERE n.deck_id=? ORDER BY n.id", deckId, h);
+    }
+
+    /** Notes of one deck (or, for null, notes without a deck) by id. */
+    void notesOf(Long deck, RowHandler<NoteRow> h) throws Exception {
+        if (deck == null) query(NOTE_COLUMNS + "WHERE n.deck_id IS NULL ORDER BY n.id", null, h);
+        else query(NOTE_COLUMNS + "WHERE n.deck_id=? ORDER BY n.id", deck, h);
+    }
+
+    /** Cards in scope by id; remembers their ids for {@link #reviews}. */
+    void cards(RowHandler<CardRow> h) throws Exception {
+        String sql = "SELECT c.id, c.note_id, c.due_at, c.interval_days, c.ease, c.reps, c.lapses, c.status, c.last_review_at, n.deck_id " +
+                "FROM card c JOIN note n ON n.id=c.note_id" + (deckId != null ? " WHERE n.deck_id=?" : "") + " ORDER BY c.id";
+        CardRow c = new CardRow();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (deckId != null) ps.setLong(1, deckId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    check();
+                    c.id = rs.getLong(1);
+                    c.noteId = rs.getLong(2);
+                    c.dueAt = rs.getTimestamp(3);
+                    double ivl = rs.getDouble(4);
+                    c.intervalDays = rs.wasNull() ? null : ivl;
+                    c.ease = rs.getDouble(5);
+                    c.reps = rs.getInt(6);
+                    c.lapses = rs.getInt(7);
+                    c.status = rs.getInt(8);
+                    c.lastReviewAt = rs.getTimestamp(9);
+                    long d = rs.getLong(10);
+                    c.deckId = rs.wasNull() ? null : d;
+                    if (cardCount == cardIds.length) cardIds = Arrays.copyOf(cardIds, cardCount * 2);
+                    cardIds[cardCount++] = c.id;
+                    h.row(c);
+                    done.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Review history of the cards delivered by {@link #cards}: archived reviews first, then the live table, each in
+     * time order.
+     */
+    void reviews(RowHandler<ArchiveService.ReviewRow> h) throws Exception {
+        try {
+            ArchiveService.get().forEachArchivedReview(null, null, r -> {
+                check();
+                if (!exported(r.cardId)) return;
+                try {
+                    h.row(r);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new Failure(e);
+                }
+                done.incrementAndGet();
+            });
+        } catch (Failure f) {
+            throw (Exception) f.getCause();
+        }
+        ArchiveService.ReviewRow r = new ArchiveService.ReviewRow();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, card_id, reviewed_at, rating, prev_interval, next_interval, ease, latency_ms, client_uuid " +
+                        "FROM review_log ORDER BY reviewed_at, id");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                check();
+                r.cardId = rs.getLong(2);
+                if (!exported(r.cardId)) continue;
+                r.id = rs.getLong(1);
+                Timestamp t = rs.getTimestamp(3);
+                r.reviewedAt = t == null ? 0 : t.getTime();
+                r.rating = rs.getInt(4);
+                r.prevInterval = (Double) rs.getObject(5);
+                r.nextInterval = (Double) rs.getObject(6);
+                r.ease = (Double) rs.getObject(7);
+                r.latencyMs = (Integer) rs.getObject(8);
+                r.clientUuid = rs.getString(9);
+                h.row(r);
+                done.incrementAndGet();
+            }
+        }
+    }
+
+    /** Throws CancellationException once the export was cancelled. */
+    void check() {
+        if (cancelled.getAsBoolean()) throw new CancellationException("export cancelled");
+    }
+
+    @Override
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    private boolean exported(long cardId) {
+        return Arrays.binarySearch(cardIds, 0, cardCount, cardId) >= 0;
+    }
+
+    private void query(String sql, Long param, RowHandler<NoteRow> h) throws Exception {
+        NoteRow n = new NoteRow();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (param != null) ps.setLong(1, param);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    check();
+                    n.id = rs.getLong(1);
+                    long d = rs.getLong(2);
+                    n.deckId = rs.wasNull() ? null : d;
+                    n.deck = rs.getString(3);
+                    n.front = rs.getString(4);
+                    n.back = rs.getString(5);
+                    n.reading = rs.getString(6);
+                    n.pos = rs.getString(7);
+                    n.examples = rs.getString(8);
+                    n.synonyms = rs.getString(9);
+                    n.antonyms = rs.getString(10);
+                    n.mnemo = rs.getString(11);
+                    n.tags = rs.getString(12);
+                    n.createdAt = rs.getTimestamp(13);
+                    n.updatedAt = rs.getTimestamp(14);
+                    h.row(n);
+                    done.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
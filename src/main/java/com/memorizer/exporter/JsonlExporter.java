@@ -0,0 +1,97 @@
+package com.memorizer.exporter;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.memorizer.model.Deck;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+
+/**
+ * Full dump as JSON lines: every deck, note, card and review (live and archived) as one object per line with a
+ * {@code type} field, written through Jackson's streaming generator. Times are epoch milliseconds; absent values
+ * are omitted.
+ */
+final class JsonlExporter {
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private JsonlExporter() {}
+
+    static void write(ExportSource src, Path out, ExportReport rpt) throws Exception {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(out), 1 << 16);
+             JsonGenerator g = JSON.createGenerator(os, JsonEncoding.UTF8)) {
+            g.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            for (Deck d : src.decks()) {
+                g.writeStartObject();
+                g.writeStringField("type", "deck");
+                g.writeNumberField("id", d.id);
+                g.writeStringField("name", d.name);
+                g.writeEndObject();
+                rpt.decks++;
+            }
+            src.notes(n -> {
+                g.writeStartObject();
+                g.writeStringField("type", "note");
+                g.writeNumberField("id", n.id);
+                if (n.deckId != null) g.writeNumberField("deckId", n.deckId);
+                str(g, "front", n.front);
+                str(g, "back", n.back);
+                str(g, "reading", n.reading);
+                str(g, "pos", n.pos);
+                str(g, "examples", n.examples);
+                str(g, "synonyms", n.synonyms);
+                str(g, "antonyms", n.antonyms);
+                str(g, "mnemo", n.mnemo);
+                str(g, "tags", n.tags);
+                time(g, "createdAt", n.createdAt);
+                time(g, "updatedAt", n.updatedAt);
+                g.writeEndObject();
+                rpt.notes++;
+            });
+            src.cards(c -> {
+                g.writeStartObject();
+                g.writeStringField("type", "card");
+                g.writeNumberField("id", c.id);
+                g.writeNumberField("noteId", c.noteId);
+                time(g, "dueAt", c.dueAt);
+                if (c.intervalDays != null) g.writeNumberField("intervalDays", c.intervalDays);
+                g.writeNumberField("ease", c.ease);
+                g.writeNumberField("reps", c.reps);
+                g.writeNumberField("lapses", c.lapses);
+                g.writeNumberField("status", c.status);
+                time(g, "lastReviewAt", c.lastReviewAt);
+                g.writeEndObject();
+                rpt.cards++;
+            });
+            src.reviews(r -> {
+                g.writeStartObject();
+                g.writeStringField("type", "review");
+                g.writeNumberField("id", r.id);
+                g.writeNumberField("cardId", r.cardId);
+                g.writeNumberField("reviewedAt", r.reviewedAt);
+                g.writeNumberField("rating", r.rating);
+                if (r.prevInterval != null) g.writeNumberField("prevInterval", r.prevInterval);
+                if (r.nextInterval != null) g.writeNumberField("nextInterval", r.nextInterval);
+                if (r.ease != null) g.writeNumberField("ease", r.ease);
+                if (r.latencyMs != null) g.writeNumberField("latencyMs", r.latencyMs);
+                str(g, "clientUuid", r.clientUuid);
+                g.writeEndObject();
+                rpt.reviews++;
+            });
+            g.writeRaw('\n');
+        }
+    }
+
+    private static void str(JsonGenerator g, String name, String v) throws java.io.IOException {
+        if (v != null) g.writeStringField(name, v);
+    }
+
+    private static void time(JsonGenerator g, String name, Timestamp t) throws java.io.IOException {
+        if (t != null) g.writeNumberField(name, t.getTime());
+    }
+}
@@ -0,0 +1,324 @@
+package com.memorizer.exporter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal writer for SQLite 3 database files, for producing Anki collections without a SQLite driver. Tables are
+ * written one at a time with strictly increasing rowids: leaf pages (and overflow chains) go to disk as soon as
+ * they fill, and the interior levels are built bottom-up when the table is finished, so memory stays at one page
+ * plus one small entry per leaf. No indexes, freelist or journal; the schema lives on page 1.
+ */
+final class SqliteWriter implements Closeable {
+    private static final int PAGE = 4096;
+    private static final int LEAF = 0x0D;
+    private static final int INTERIOR = 0x05;
+
+    private final FileChannel ch;
+    private final List<Object[]> schema = new ArrayList<Object[]>();
+    private int nextPage = 2; // page 1 holds sqlite_master, written on close
+    private Table open;
+
+    SqliteWriter(Path file) throws IOException {
+        this.ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    /** Start a table; the previous one must be finished. {@code sql} is its CREATE TABLE statement. */
+    Table table(String name, String sql) {
+        if (open != null) throw new IllegalStateException("table " + open.name + " not finished");
+        open = new Table(name, sql);
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (open != null) open.finish();
+            // sqlite_master: type, name, tbl_name, rootpage, sql
+            byte[] page = new byte[PAGE];
+            Leaf master = new Leaf(page, 100);
+            long rowid = 0;
+            for (Object[] row : schema) {
+                byte[] rec = record(row);
+                if (!master.add(++rowid, rec, rec.length, -1)) throw new IOException("schema does not fit on page 1");
+            }
+            master.seal();
+            header(page);
+            write(1, page);
+        } finally {
+            ch.close();
+        }
+    }
+
+    /** Rows of one table, appended in rowid order. */
+    final class Table {
+        private final String name;
+        private final String sql;
+        private final List<long[]> leaves = new ArrayList<long[]>(); // page, max rowid
+        private byte[] page = new byte[PAGE];
+        private Leaf leaf;
+        private int leafPage;
+        private long lastRowid = Long.MIN_VALUE;
+        private boolean empty = true;
+
+        private Table(String name, String sql) {
+            this.name = name;
+            this.sql = sql;
+            startLeaf();
+        }
+
+        /** Append a row; values are Long/Integer, Double, String, byte[] or null. */
+        void insert(long rowid, Object... values) throws IOException {
+            if (rowid <= lastRowid) throw new IllegalArgumentException(name + ": rowid " + rowid + " not increasing");
+            byte[] rec = record(values);
+            int local = localSize(rec.length);
+            int firstOverflow = local < rec.length ? writeOverflow(rec, local) : -1;
+            if (!leaf.add(rowid, rec, local, firstOverflow)) {
+                endLeaf();
+                startLeaf();
+                if (!leaf.add(rowid, rec, local, firstOverflow)) throw new IOException("cell does not fit an empty page");
+            }
+            lastRowid = rowid;
+            empty = false;
+        }
+
+        /** Write the remaining pages and register the table; returns its root page. */
+        int finish() throws IOException {
+            if (open != this) throw new IllegalStateException("table " + name + " already finished");
+            endLeaf();
+            List<long[]> level = leaves;
+            while (level.size() > 1) level = interiorLevel(level);
+            int root = (int) level.get(0)[0];
+            schema.add(new Object[]{"table", name, name, (long) root, sql});
+            open = null;
+            return root;
+        }
+
+        private void startLeaf() {
+            java.util.Arrays.fill(page, (byte) 0);
+            leaf = new Leaf(page, 0);
+            leafPage = nextPage++;
+        }
+
+        private void endLeaf() throws IOException {
+            leaf.seal();
+            write(leafPage, page);
+            leaves.add(new long[]{leafPage, empty ? 0 : lastRowid});
+        }
+    }
+
+    /** Build one level of interior pages over {@code children} (page, max rowid), returning the new level. */
+    private List<long[]> interiorLevel(List<long[]> children) throws IOException {
+        // Cell: 4-byte child + rowid varint (<= 9) and a 2-byte pointer; the last child goes in the header
+        int perPage = (PAGE - 12) / 15 + 1;
+        int n = children.size();
+        int groups = (n + perPage - 1) / perPage;
+        List<long[]> parents = new ArrayList<long[]>();
+        byte[] page = new byte[PAGE];
+        // Spread children evenly so no page ends up with a lone right child
+        for (int g = 0, from = 0; g < groups; g++) {
+            int to = from + n / groups + (g < n % groups ? 1 : 0);
+            java.util.Arrays.fill(page, (byte) 0);
+            int cells = to - from - 1;
+            int content = PAGE;
+            for (int i = 0; i < cells; i++) {
+                long[] c = children.get(from + i);
+                byte[] key = varint(c[1]);
+                content -= 4 + key.length;
+                putInt(page, content, (int) c[0]);
+                System.arraycopy(key, 0, page, content + 4, key.length);
+                putShort(page, 12 + 2 * i, content);
+            }
+            page[0] = INTERIOR;
+            putShort(page, 3, cells);
+            putShort(page, 5, content);
+            long[] last = children.get(to - 1);
+            putInt(page, 8, (int) last[0]);
+            int no = nextPage++;
+            write(no, page);
+            parents.add(new long[]{no, last[1]});
+            from = to;
+        }
+        return parents;
+    }
+
+    /** Write the payload past {@code local} bytes into a chain of overflow pages; returns the first page. */
+    private int writeOverflow(byte[] rec, int local) throws IOException {
+        int per = PAGE - 4;
+        int n = (rec.length - local + per - 1) / per;
+        int first = nextPage;
+        nextPage += n;
+        byte[] page = new byte[PAGE];
+        for (int i = 0; i < n; i++) {
+            java.util.Arrays.fill(page, (byte) 0);
+            int off = local + i * per;
+            int len = Math.min(per, rec.length - off);
+            putInt(page, 0, i + 1 < n ? first + i + 1 : 0);
+            System.arraycopy(rec, off, page, 4, len);
+            write(first + i, page);
+        }
+        return first;
+    }
+
+    /** Table-leaf page being filled from the end downwards; {@code hdr} is 100 on page 1. */
+    private static final class Leaf {
+        final byte[] page;
+        final int hdr;
+        int count;
+        int content = PAGE;
+
+        Leaf(byte[] page, int hdr) {
+            this.page = page;
+            this.hdr = hdr;
+        }
+
+        boolean add(long rowid, byte[] rec, int local, int overflow) {
+            byte[] len = varint(rec.length);
+            byte[] key = varint(rowid);
+            int size = len.length + key.length + local + (overflow > 0 ? 4 : 0);
+            if (content - size < hdr + 8 + 2 * (count + 1)) return false;
+            content -= size;
+            int p = content;
+            System.arraycopy(len, 0, page, p, len.length); p += len.length;
+            System.arraycopy(key, 0, page, p, key.length); p += key.length;
+            System.arraycopy(rec, 0, page, p, local); p += local;
+            if (overflow > 0) putInt(page, p, overflow);
+            putShort(page, hdr + 8 + 2 * count, content);
+            count++;
+            return true;
+        }
+
+        void seal() {
+            page[hdr] = LEAF;
+            putShort(page, hdr + 3, count);
+            putShort(page, hdr + 5, content); // 0 would mean 65536
+        }
+    }
+
+    private void header(byte[] p) {
+        byte[] magic = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(magic, 0, p, 0, magic.length);
+        putShort(p, 16, PAGE);
+        p[18] = 1; p[19] = 1;       // legacy (rollback journal) read/write versions
+        p[21] = 64; p[22] = 32; p[23] = 32;
+        putInt(p, 24, 1);           // change counter
+        putInt(p, 28, nextPage - 1); // database size in pages
+        putInt(p, 40, 1);           // schema cookie
+        putInt(p, 44, 4);           // schema format
+        putInt(p, 56, 1);           // UTF-8
+        putInt(p, 92, 1);           // version-valid-for = change counter
+        putInt(p, 96, 3_031_001);
+    }
+
+    private void write(int pageNo, byte[] page) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(page);
+        long at = (long) (pageNo - 1) * PAGE;
+        while (b.hasRemaining()) ch.write(b, at + b.position());
+    }
+
+    /** Bytes of a {@code size}-byte payload kept on the leaf page (the rest overflows). */
+    private static int localSize(int size) {
+        int u = PAGE;
+        int x = u - 35;
+        if (size <= x) return size;
+        int m = ((u - 12) * 32 / 255) - 23;
+        int k = m + ((size - m) % (u - 4));
+        return k <= x ? k : m;
+    }
+
+    /** Encode a row in the SQLite record format. */
+    static byte[] record(Object[] values) {
+        long[] types = new long[values.length];
+        byte[][] bodies = new byte[values.length][];
+        int hdr = 0;
+        int body = 0;
+        for (int i = 0; i < values.length; i++) {
+            Object v = values[i];
+            byte[] b;
+            long t;
+            if (v == null) { t = 0; b = new byte[0]; }
+            else if (v instanceof Number && !(v instanceof Double) && !(v instanceof Float)) {
+                long x = ((Number) v).longValue();
+                if (x == 0) { t = 8; b = new byte[0]; }
+                else if (x == 1) { t = 9; b = new byte[0]; }
+                else {
+                    int n = x >= -128 && x <= 127 ? 1 : x >= -32768 && x <= 32767 ? 2 : x >= -8388608 && x <= 8388607 ? 3
+                            : x >= Integer.MIN_VALUE && x <= Integer.MAX_VALUE ? 4 : x >= -(1L << 47) && x < (1L << 47) ? 6 : 8;
+                    t = n <= 4 ? n : n == 6 ? 5 : 6;
+                    b = new byte[n];
+                    for (int j = n - 1; j >= 0; j--) { b[j] = (byte) x; x >>= 8; }
+                }
+            } else if (v instanceof Number) {
+                long bits = Double.doubleToLongBits(((Number) v).doubleValue());
+                t = 7;
+                b = new byte[8];
+                for (int j = 7; j >= 0; j--) { b[j] = (byte) bits; bits >>>= 8; }
+            } else if (v instanceof byte[]) {
+                b = (byte[]) v;
+                t = 12 + 2L * b.length;
+            } else {
+                b = v.toString().getBytes(StandardCharsets.UTF_8);
+                t = 13 + 2L * b.length;
+            }
+            types[i] = t;
+            bodies[i] = b;
+            hdr += varint(t).length;
+            body += b.length;
+        }
+        // The header size varint counts itself
+        int hsize = hdr + 1;
+        if (varint(hsize).length > 1) hsize = hdr + varint(hdr + 2).length;
+        byte[] out = new byte[hsize + body];
+        byte[] hs = varint(hsize);
+        System.arraycopy(hs, 0, out, 0, hs.length);
+        int p = hs.length;
+        for (long t : types) {
+            byte[] v = varint(t);
+            System.arraycopy(v, 0, out, p, v.length);
+            p += v.length;
+        }
+        for (byte[] b : bodies) {
+            System.arraycopy(b, 0, out, p, b.length);
+            p += b.length;
+        }
+        return out;
+    }
+
+    /** SQLite big-endian varint (1-9 bytes). */
+    static byte[] varint(long v) {
+        if ((v & ~0x7FL) == 0) return new byte[]{(byte) v};
+        if ((v & 0xFF00000000000000L) != 0) {
+            byte[] out = new byte[9];
+            out[8] = (byte) v;
+            v >>>= 8;
+            for (int i = 7; i >= 0; i--) { out[i] = (byte) ((v & 0x7F) | 0x80); v >>>= 7; }
+            return out;
+        }
+        byte[] tmp = new byte[9];
+        int n = 0;
+        while (v != 0) { tmp[n++] = (byte) (v & 0x7F); v >>>= 7; }
+        byte[] out = new byte[n];
+        for (int i = 0; i < n; i++) out[i] = (byte) (tmp[n - 1 - i] | (i < n - 1 ? 0x80 : 0));
+        return out;
+    }
+
+    private static void putShort(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 8);
+        b[off + 1] = (byte) v;
+    }
+
+    private static void putInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+}
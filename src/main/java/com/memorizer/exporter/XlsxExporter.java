@@ -0,0 +1,97 @@
+package com.memorizer.exporter;
+
+import com.memorizer.importer.ExcelImportService;
+import com.memorizer.model.Deck;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Notes as an import-template workbook, one sheet per deck, each with the deck column filled so the file
+ * round-trips through the Excel importer. A full export adds the notes without a deck on a
+ * {@link ExcelImportService#NO_DECK_SHEET} sheet with the column empty, which the importer reads back as no deck. Uses SXSSF: only a small window of
+ * rows is kept in memory, the rest is flushed to compressed temp files.
+ */
+final class XlsxExporter {
+    private static final String[] HEADER = {"deck", "front", "back", "reading", "pos", "examples", "tags"};
+    private static final int WINDOW = 200;
+    /** Excel allows 1,048,576 rows; a deck beyond this continues on another sheet. */
+    private static final int MAX_ROWS = 1_000_000;
+
+    private XlsxExporter() {}
+
+    static void write(ExportSource src, Path out, ExportReport rpt) throws Exception {
+        SXSSFWorkbook wb = new SXSSFWorkbook(WINDOW);
+        wb.setCompressTempFiles(true);
+        try {
+            Set<String> used = new HashSet<String>();
+            String noDeck = ExcelImportService.NO_DECK_SHEET.toLowerCase(Locale.ROOT);
+            // Kept free while the decks are written, so a deck of that name gets a suffixed sheet instead
+            used.add(noDeck);
+            for (Deck d : src.decks()) {
+                writeDeck(wb, used, d.name, d.id, src, rpt);
+                rpt.decks++;
+            }
+            used.remove(noDeck);
+            if (src.allDecks()) writeDeck(wb, used, ExcelImportService.NO_DECK_SHEET, null, src, rpt);
+            if (wb.getNumberOfSheets() == 0) newSheet(wb, used, "Notes");
+            try (OutputStream os = Files.newOutputStream(out)) {
+                wb.write(os);
+            }
+        } finally {
+            wb.dispose();
+            wb.close();
+        }
+    }
+
+    private static void writeDeck(SXSSFWorkbook wb, Set<String> used, String name, Long deckId, ExportSource src,
+                                  ExportReport rpt) throws Exception {
+        SXSSFSheet[] sheet = {null};
+        int[] r = {0};
+        src.notesOf(deckId, n -> {
+            if (sheet[0] == null || r[0] > MAX_ROWS) {
+                sheet[0] = newSheet(wb, used, name);
+                r[0] = 1;
+            }
+            Row row = sheet[0].createRow(r[0]++);
+            set(row, 0, n.deck);
+            set(row, 1, n.front);
+            set(row, 2, n.back);
+            set(row, 3, n.reading);
+            set(row, 4, n.pos);
+            set(row, 5, n.examples);
+            set(row, 6, n.tags);
+            rpt.notes++;
+        });
+    }
+
+    private static SXSSFSheet newSheet(SXSSFWorkbook wb, Set<String> used, String deck) {
+        // Sheet names: at most 31 chars, no []:*?/\, unique ignoring case
+        String base = WorkbookUtil.createSafeSheetName(deck == null || deck.trim().isEmpty() ? "Default" : deck);
+        String name = base;
+        for (int i = 2; used.contains(name.toLowerCase(Locale.ROOT)); i++) {
+            String suffix = " (" + i + ")";
+            name = (base.length() + suffix.length() > 31 ? base.substring(0, 31 - suffix.length()) : base) + suffix;
+        }
+        used.add(name.toLowerCase(Locale.ROOT));
+        SXSSFSheet sh = wb.createSheet(name);
+        Row h = sh.createRow(0);
+        for (int i = 0; i < HEADER.length; i++) h.createCell(i).setCellValue(HEADER[i]);
+        return sh;
+    }
+
+    private static void set(Row row, int col, String v) {
+        if (v == null || v.isEmpty()) return;
+        Cell c = row.createCell(col);
+        c.setCellValue(v);
+    }
+}
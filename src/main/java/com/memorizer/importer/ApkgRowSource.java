@@ -0,0 +1,213 @@
+package com.memorizer.importer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Anki package (.apkg/.colpkg) reader: extracts the SQLite collection from the zip to a temp file and streams
+ * the notes table, one row per note. Fields are matched to front/back/reading/pos/examples by note-type field
+ * name, falling back to the first two fields; HTML and [sound:] references are stripped. The deck is the one
+ * holding the note's first card.
+ */
+public class ApkgRowSource implements RowSource {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Path collection;
+    private final SqliteFile db;
+    private final SqliteFile.Cursor notes;
+    /** note id -> deck id of its first card */
+    private final Map<Long, Long> noteDeck = new HashMap<Long, Long>();
+    private final Map<Long, String> deckNames = new HashMap<Long, String>();
+    /** model id -> index of front, back, reading, pos, examples within the note's fields (-1 if absent) */
+    private final Map<Long, int[]> modelFields = new HashMap<Long, int[]>();
+    private long read;
+
+    public ApkgRowSource(Path apkg) throws IOException {
+        this.collection = extract(apkg);
+        SqliteFile f = null;
+        try {
+            f = new SqliteFile(collection);
+            loadCollection(f);
+            int cardsRoot = f.rootPage("cards");
+            if (cardsRoot > 0) {
+                SqliteFile.Cursor c = f.cursor(cardsRoot);
+                while (c.next()) {
+                    Object[] v = c.values();
+                    if (v.length > 2 && v[1] instanceof Long && v[2] instanceof Long) noteDeck.putIfAbsent((Long) v[1], (Long) v[2]);
+                }
+            }
+            int notesRoot = f.rootPage("notes");
+            if (notesRoot < 0) throw new IOException("Anki collection has no notes table");
+            this.notes = f.cursor(notesRoot);
+            this.db = f;
+        } catch (IOException | RuntimeException e) {
+            if (f != null) f.close();
+            Files.deleteIfExists(collection);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean next(ImportRow row) throws IOException {
+        if (!notes.next()) return false;
+        read++;
+        Object[] v = notes.values();
+        row.clear();
+        long noteId = notes.rowid();
+        long mid = v.length > 2 && v[2] instanceof Long ? (Long) v[2] : 0L;
+        String[] flds = v.length > 6 && v[6] instanceof String ? ((String) v[6]).split("\u001f", -1) : new String[0];
+        int[] map = modelFields.get(mid);
+        if (map == null) map = new int[]{0, 1, -1, -1, -1};
+        row.front = plain(at(flds, map[0]));
+        row.back = plain(at(flds, map[1]));
+        row.reading = plain(at(flds, map[2]));
+        row.pos = plain(at(flds, map[3]));
+        row.examples = plain(at(flds, map[4]));
+        String tags = v.length > 5 && v[5] instanceof String ? ((String) v[5]).trim() : "";
+        row.tags = tags.isEmpty() ? null : tags.replaceAll("\\s+", ";");
+        Long did = noteDeck.get(noteId);
+        row.deck = did == null ? null : deckNames.get(did);
+        return true;
+    }
+
+    @Override public long position() { return read; }
+    @Override public long size() { return noteDeck.size(); }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            db.close();
+        } finally {
+            Files.deleteIfExists(collection);
+        }
+    }
+
+    /** Read note types and deck names from the col row (legacy schema) or the decks table (newer schema). */
+    private void loadCollection(SqliteFile f) throws IOException {
+        int colRoot = f.rootPage("col");
+        if (colRoot > 0) {
+            SqliteFile.Cursor c = f.cursor(colRoot);
+            if (c.next()) {
+                Object[] v = c.values();
+                if (v.length > 10) {
+                    readModels(v[9]);
+                    readDecks(v[10]);
+                }
+            }
+        }
+        int decksRoot = f.rootPage("decks");
+        if (deckNames.isEmpty() && decksRoot > 0) {
+            SqliteFile.Cursor c = f.cursor(decksRoot);
+            while (c.next()) {
+                Object[] v = c.values();
+                if (v.length > 1 && v[1] instanceof String) deckNames.put(c.rowid(), ((String) v[1]).replace("\u001f", "::"));
+            }
+        }
+    }
+
+    private void readModels(Object json) throws IOException {
+        if (!(json instanceof String) || ((String) json).isEmpty()) return;
+        JsonNode models = JSON.readTree((String) json);
+        Iterator<Map.Entry<String, JsonNode>> it = models.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> m = it.next();
+            int[] map = {-1, -1, -1, -1, -1};
+            JsonNode flds = m.getValue().path("flds");
+            for (int i = 0; i < flds.size(); i++) {
+                JsonNode fld = flds.get(i);
+                int ord = fld.path("ord").asInt(i);
+                int slot = slot(fld.path("name").asText(""));
+                if (slot >= 0 && map[slot] < 0) map[slot] = ord;
+            }
+            if (map[0] < 0) map[0] = map[1] == 0 ? 1 : 0;
+            if (map[1] < 0) map[1] = map[0] == 1 ? 0 : 1;
+            try {
+                modelFields.put(Long.parseLong(m.getKey()), map);
+            } catch (NumberFormatException ignored) {
+                // not a note type id
+            }
+        }
+    }
+
+    private void readDecks(Object json) throws IOException {
+        if (!(json instanceof String) || ((String) json).isEmpty()) return;
+        JsonNode decks = JSON.readTree((String) json);
+        Iterator<Map.Entry<String, JsonNode>> it = decks.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> d = it.next();
+            try {
+                deckNames.put(Long.parseLong(d.getKey()), d.getValue().path("name").asText(null));
+            } catch (NumberFormatException ignored) {
+                // not a deck id
+            }
+        }
+    }
+
+    /** Import slot for an Anki field name: 0 front, 1 back, 2 reading, 3 pos, 4 examples, -1 none. */
+    private static int slot(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "front": case "word": case "expression": case "term": case "question": return 0;
+            case "back": case "meaning": case "definition": case "answer": return 1;
+            case "reading": case "pronunciation": return 2;
+            case "pos": case "part of speech": return 3;
+            case "examples": case "example": case "sentence": return 4;
+            default: return -1;
+        }
+    }
+
+    private static String at(String[] a, int i) {
+        return i >= 0 && i < a.length ? a[i] : null;
+    }
+
+    /** Field HTML to plain text: line breaks for br/div/p, other tags and sound references dropped, entities decoded. */
+    static String plain(String html) {
+        if (html == null) return null;
+        String s = html.replaceAll("\\[sound:[^\\]]*\\]", "")
+                .replaceAll("(?i)<br\\s*/?>|</div>|</p>", "\n")
+                .replaceAll("<[^>]*>", "")
+                .replace("&nbsp;", " ")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&#39;", "'")
+                .replace("&amp;", "&");
+        s = s.replaceAll("[ \\t]*\\n[ \\t]*", "\n").replaceAll("\\n{2,}", "\n").trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    /**
+     * Copy the collection database out of the package (prefers the newer collection.anki21). Packages carrying
+     * collection.anki21b only ship a placeholder collection.anki2 ("please update Anki"), so they are rejected
+     * instead of importing the stub.
+     */
+    private static Path extract(Path apkg) throws IOException {
+        try (ZipFile zip = new ZipFile(apkg.toFile())) {
+            ZipEntry e = zip.getEntry("collection.anki21");
+            if (e == null && zip.getEntry("collection.anki21b") != null) {
+                throw new IOException("Package uses the compressed .anki21b format; export it with \"Support older Anki versions\" enabled");
+            }
+            if (e == null) e = zip.getEntry("collection.anki2");
+            if (e == null) throw new IOException("Not an Anki package: no collection found");
+            Path tmp = Files.createTempFile("memo-apkg-", ".anki2");
+            try (InputStream in = zip.getInputStream(e)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                Files.deleteIfExists(tmp);
+                throw ex;
+            }
+            return tmp;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.memorizer.importer;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.Database;
+import com.memorizer.event.DomainEvents;
+import com.memorizer.event.EventBus;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write stage shared by all import sources. Runs on its own connection: existing notes are deduplicated by
+ * front/back with ASCII spaces removed (preloaded into memory once), decks are resolved through a cache, and new
+ * notes, their cards and updates to existing notes go out as JDBC batches committed every
+ * {@code app.import.batch-size} rows. A row whose key was already seen updates the earlier note's non-key fields
+ * (deck, reading, pos, examples, tags), as re-importing the same file does. Counts go to the report given at
+ * construction and, optionally, to a per-part report (e.g. one per sheet) passed with each row.
+ * Closing publishes {@link DomainEvents.ContentImported} and {@code PlanChanged(REBUILT)} if anything was committed,
+ * so caches and open views drop their pre-import state.
+ */
+final class BulkUpserter implements AutoCloseable {
+    private static final String DEFAULT_DECK = "Default";
+
+    /** A note waiting to be inserted in the current batch. */
+    private static final class Pending {
+        ImportReport part;
+        long deckId;
+        String front, back, reading, pos, examples, tags;
+    }
+
+    private final ImportReport rpt;
+    private final Connection conn;
+    private final int batchSize;
+    private final Map<String, Long> decks = new HashMap<String, Long>();
+    private final Map<String, Long> existing = new HashMap<String, Long>();
+    private final Map<String, Pending> pendingByKey = new HashMap<String, Pending>();
+    private final List<Pending> inserts = new ArrayList<Pending>();
+    private final PreparedStatement insNote;
+    private final PreparedStatement insCard;
+    private final PreparedStatement updNote;
+    private int updates;
+    private int uncommitted;
+    private boolean committed;
+
+    BulkUpserter(ImportReport rpt) throws SQLException {
+        this.rpt = rpt;
+        this.batchSize = Math.max(1, Config.getInt("app.import.batch-size", 1000));
+        this.conn = Database.openSide();
+        try {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                try (ResultSet rs = st.executeQuery("SELECT id, name FROM deck")) {
+                    while (rs.next()) decks.put(rs.getString(2), rs.getLong(1));
+                }
+                try (ResultSet rs = st.executeQuery("SELECT id, front, back FROM note")) {
+                    while (rs.next()) existing.putIfAbsent(key(rs.getString(2), rs.getString(3)), rs.getLong(1));
+                }
+            }
+            insNote = conn.prepareStatement(
+                    "INSERT INTO note(deck_id, front, back, reading, pos, examples, tags, created_at) VALUES (?,?,?,?,?,?,?, CURRENT_TIMESTAMP)",
+                    Statement.RETURN_GENERATED_KEYS);
+            insCard = conn.prepareStatement("INSERT INTO card(note_id, ease, status) VALUES (?, 2.5, 0)");
+            updNote = conn.prepareStatement(
+                    "UPDATE note SET deck_id=?, reading=?, pos=?, examples=?, tags=?, updated_at=CURRENT_TIMESTAMP WHERE id=?");
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /** Stage one row; flushes and commits when the batch is full. */
+    void accept(ImportRow row) throws SQLException {
+        accept(row, null);
+    }
+
+    /** Stage one row, also counting it in {@code part} when not null. */
+    void accept(ImportRow row, ImportReport part) throws SQLException {
+        rpt.totalRows++;
+        if (part != null) part.totalRows++;
+        if (isBlank(row.front) || isBlank(row.back)) {
+            rpt.skippedRows++;
+            if (part != null) part.skippedRows++;
+            return;
+        }
+        String front = row.front.trim();
+        String back = row.back.trim();
+        long deckId = row.noDeck ? 0 : deck(row.deck, part);
+        String examples = normalizeExamples(row.examples);
+        String key = key(front, back);
+
+        Pending p = pendingByKey.get(key);
+        if (p != null) {
+            p.deckId = deckId; p.reading = row.reading; p.pos = row.pos; p.examples = examples; p.tags = row.tags;
+            rpt.updatedNotes++;
+            if (part != null) part.updatedNotes++;
+        } else {
+            Long id = existing.get(key);
+            if (id != null) {
+                if (deckId == 0) updNote.setNull(1, Types.BIGINT); else updNote.setLong(1, deckId);
+                updNote.setString(2, row.reading);
+                updNote.setString(3, row.pos);
+                updNote.setString(4, examples);
+                updNote.setString(5, row.tags);
+                updNote.setLong(6, id);
+                updNote.addBatch();
+                updates++;
+                rpt.updatedNotes++;
+                if (part != null) part.updatedNotes++;
+            } else {
+                p = new Pending();
+                p.part = part;
+                p.deckId = deckId; p.front = front; p.back = back;
+                p.reading = row.reading; p.pos = row.pos; p.examples = examples; p.tags = row.tags;
+                pendingByKey.put(key, p);
+                inserts.add(p);
+            }
+        }
+        if (++uncommitted >= batchSize) flush();
+    }
+
+    /** Write staged rows and commit. */
+    void flush() throws SQLException {
+        if (uncommitted == 0) return;
+        if (!inserts.isEmpty()) {
+            for (Pending p : inserts) {
+                if (p.deckId == 0) insNote.setNull(1, Types.BIGINT); else insNote.setLong(1, p.deckId);
+                insNote.setString(2, p.front);
+                insNote.setString(3, p.back);
+                insNote.setString(4, p.reading);
+                insNote.setString(5, p.pos);
+                insNote.setString(6, p.examples);
+                insNote.setString(7, p.tags);
+                insNote.addBatch();
+            }
+            insNote.executeBatch();
+            int i = 0;
+            try (ResultSet keys = insNote.getGeneratedKeys()) {
+                while (keys.next() && i < inserts.size()) {
+                    long noteId = keys.getLong(1);
+                    Pending p = inserts.get(i++);
+                    existing.put(key(p.front, p.back), noteId);
+                    if (p.part != null) { p.part.insertedNotes++; p.part.insertedCards++; }
+                    insCard.setLong(1, noteId);
+                    insCard.addBatch();
+                }
+            }
+            if (i != inserts.size()) throw new SQLException("import: expected " + inserts.size() + " generated keys, got " + i);
+            insCard.executeBatch();
+            rpt.insertedNotes += i;
+            rpt.insertedCards += i;
+            inserts.clear();
+            pendingByKey.clear();
+        }
+        if (updates > 0) {
+            updNote.executeBatch();
+            updates = 0;
+        }
+        conn.commit();
+        committed = true;
+        uncommitted = 0;
+    }
+
+    /** Discard everything since the last commit. */
+    void rollback() throws SQLException {
+        inserts.clear();
+        pendingByKey.clear();
+        updates = 0;
+        uncommitted = 0;
+        conn.rollback();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            insNote.close();
+            insCard.close();
+            updNote.close();
+        } finally {
+            conn.close();
+        }
+        if (committed) {
+            EventBus.publish(new DomainEvents.ContentImported(rpt.insertedNotes, rpt.updatedNotes, rpt.deckCreated));
+            EventBus.publish(DomainEvents.PlanChanged.of(DomainEvents.PlanChanged.Kind.REBUILT));
+        }
+    }
+
+    private long deck(String name, ImportReport part) throws SQLException {
+        String n = isBlank(name) ? DEFAULT_DECK : name.trim();
+        if (n.length() > 128) n = n.substring(0, 128);
+        Long id = decks.get(n);
+        if (id != null) return id;
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO deck(name, description) VALUES (?, NULL)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, n);
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (!rs.next()) throw new SQLException("insert deck: no generated key");
+                id = rs.getLong(1);
+            }
+        }
+        decks.put(n, id);
+        rpt.deckCreated++;
+        if (part != null) part.deckCreated++;
+        return id;
+    }
+
+    /** Deduplication key: front and back with ASCII spaces removed. */
+    private static String key(String front, String back) {
+        return (front == null ? "" : front.replace(" ", "")) + '\u0001' + (back == null ? "" : back.replace(" ", ""));
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    /** Normalize examples: collapse CRLF/CR to LF, trim lines, remove empties, join by LF. */
+    static String normalizeExamples(String raw) {
+        if (raw == null) return null;
+        String s = raw.replace("\r\n", "\n").replace('\r', '\n');
+        String[] parts = s.split("\n");
+        StringBuilder out = new StringBuilder();
+        for (String p : parts) {
+            if (p == null) continue;
+            String t = p.trim();
+            if (!t.isEmpty()) {
+                if (out.length() > 0) out.append('\n');
+                out.append(t);
+            }
+        }
+        return out.length() == 0 ? null : out.toString();
+    }
+}
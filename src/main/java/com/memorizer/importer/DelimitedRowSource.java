@@ -0,0 +1,290 @@
+package com.memorizer.importer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * CSV/TSV reader over a memory-mapped file. Records are scanned in place in the mapped bytes; only the columns
+ * that are imported are decoded into Strings, so no per-line buffers or readers are involved. Files larger
+ * than one window are remapped as the scan advances.
+ * <p>
+ * The first record is the header when it names a {@code front} and {@code back} column (same names as the Excel
+ * template); otherwise columns are front, back, tags (Anki "notes in plain text" layout). RFC 4180 quoting is
+ * honored for fields that start with a double quote. Leading {@code #key:value} lines are skipped, and
+ * {@code #separator:tab|comma|semicolon|pipe} overrides the delimiter.
+ */
+public class DelimitedRowSource implements RowSource {
+    private static final int WINDOW = 1 << 30;
+    private static final String[] COLUMNS = {"deck", "front", "back", "reading", "pos", "examples", "tags"};
+
+    private final FileChannel ch;
+    private final long fileSize;
+    private final int window;
+    private byte delim;
+
+    private MappedByteBuffer buf;
+    private long base;
+    private int pos;
+
+    // Current record: field byte ranges within buf, and whether each was quoted
+    private int nf;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] quoted = new boolean[16];
+    private byte[] scratch = new byte[256];
+
+    private final int[] col = new int[COLUMNS.length];
+    private boolean started;
+
+    public DelimitedRowSource(Path file) throws IOException {
+        this(file, (char) 0, WINDOW);
+    }
+
+    /** @param delimiter field separator, or 0 to pick one from the extension / first line */
+    public DelimitedRowSource(Path file, char delimiter) throws IOException {
+        this(file, delimiter, WINDOW);
+    }
+
+    DelimitedRowSource(Path file, char delimiter, int window) throws IOException {
+        this.ch = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = ch.size();
+        this.window = window;
+        map(0);
+        if (fileSize >= 3 && (buf.get(0) & 0xFF) == 0xEF && (buf.get(1) & 0xFF) == 0xBB && (buf.get(2) & 0xFF) == 0xBF) pos = 3;
+        this.delim = delimiter != 0 ? (byte) delimiter : guessDelimiter(file);
+    }
+
+    @Override
+    public boolean next(ImportRow row) throws IOException {
+        if (!started) {
+            started = true;
+            if (!readHeader()) return false;
+        }
+        while (readRecord()) {
+            if (nf == 1 && starts[0] == ends[0]) continue; // blank line
+            row.clear();
+            row.deck = field(col[0]);
+            row.front = field(col[1]);
+            row.back = field(col[2]);
+            row.reading = field(col[3]);
+            row.pos = field(col[4]);
+            row.examples = field(col[5]);
+            row.tags = field(col[6]);
+            return true;
+        }
+        return false;
+    }
+
+    @Override public long position() { return base + pos; }
+    @Override public long size() { return fileSize; }
+
+    @Override
+    public void close() throws IOException {
+        buf = null;
+        ch.close();
+    }
+
+    /** Skip the #directive preamble and map columns from the header (or the headerless default). */
+    private boolean readHeader() throws IOException {
+        while (true) {
+            long recordStart = position();
+            if (!readRecord()) return false;
+            if (nf == 1 && starts[0] == ends[0]) continue;
+            if (nf > 0 && !quoted[0] && ends[0] > starts[0] && buf.get(starts[0]) == '#') {
+                String line = decode(starts[0], ends[nf - 1], false);
+                String lower = line.toLowerCase(Locale.ROOT);
+                if (lower.startsWith("#separator:")) {
+                    byte d = separator(lower.substring("#separator:".length()).trim());
+                    if (d != 0) delim = d;
+                }
+                continue;
+            }
+            Arrays.fill(col, -1);
+            for (int i = 0; i < nf; i++) {
+                String name = field(i);
+                if (name == null) continue;
+                name = name.toLowerCase(Locale.ROOT);
+                for (int c = 0; c < COLUMNS.length; c++) {
+                    if (COLUMNS[c].equals(name) && col[c] < 0) col[c] = i;
+                }
+            }
+            if (col[1] < 0 || col[2] < 0) {
+                Arrays.fill(col, -1);
+                col[1] = 0;
+                col[2] = 1;
+                col[6] = 2;
+                rewind(recordStart); // the first record is data
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Scan one record from {@code pos} into the field arrays. Returns false at end of input. Remaps when the
+     * record crosses the end of the current window.
+     */
+    private boolean readRecord() throws IOException {
+        while (true) {
+            int r = scan();
+            if (r > 0) return true;
+            if (r == 0) return false;
+            // Record continues past the window: remap starting at the record
+            if (pos == 0) throw new IOException("record at offset " + base + " is larger than the mapping window");
+            map(base + pos);
+        }
+    }
+
+    /** 1 = record read, 0 = end of input, -1 = need more bytes than the window holds. */
+    private int scan() {
+        final int lim = buf.limit();
+        final boolean eof = base + lim >= fileSize;
+        int i = pos;
+        if (i >= lim) return eof ? 0 : -1;
+        nf = 0;
+        int fieldStart = i;
+        while (true) {
+            if (i >= lim) {
+                if (!eof) return -1;
+                addField(fieldStart, i, false);
+                pos = i;
+                return 1;
+            }
+            byte b = buf.get(i);
+            if (b == '"' && i == fieldStart) {
+                int q = i + 1;
+                int close = -1;
+                while (q < lim) {
+                    if (buf.get(q) == '"') {
+                        if (q + 1 < lim && buf.get(q + 1) == '"') { q += 2; continue; }
+                        if (q + 1 >= lim && !eof) break; // can't tell "" from " yet
+                        close = q;
+                        break;
+                    }
+                    q++;
+                }
+                if (close < 0) {
+                    if (!eof) return -1;
+                    close = lim; // unterminated quote: take the rest
+                }
+                addField(i + 1, close, true);
+                i = Math.min(lim, close + 1);
+                // Lenient: ignore stray bytes between the closing quote and the next separator
+                while (i < lim && buf.get(i) != delim && buf.get(i) != '\n' && buf.get(i) != '\r') i++;
+                if (i >= lim) {
+                    if (!eof) return -1;
+                    pos = i;
+                    return 1;
+                }
+                b = buf.get(i);
+                if (b == delim) {
+                    i++;
+                    fieldStart = i;
+                    if (i >= lim && eof) { addField(i, i, false); pos = i; return 1; }
+                    continue;
+                }
+                int next = endOfLine(i, lim, eof);
+                if (next < 0) return -1;
+                pos = next;
+                return 1;
+            }
+            if (b == delim) {
+                addField(fieldStart, i, false);
+                i++;
+                fieldStart = i;
+            } else if (b == '\n' || b == '\r') {
+                addField(fieldStart, i, false);
+                int next = endOfLine(i, lim, eof);
+                if (next < 0) return -1;
+                pos = next;
+                return 1;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /** Position after the line break at {@code i} (CR, LF or CRLF); -1 if a CR is the last byte of a non-final window. */
+    private int endOfLine(int i, int lim, boolean eof) {
+        if (buf.get(i) == '\r') {
+            if (i + 1 < lim) return buf.get(i + 1) == '\n' ? i + 2 : i + 1;
+            return eof ? i + 1 : -1;
+        }
+        return i + 1;
+    }
+
+    private void addField(int s, int e, boolean q) {
+        if (nf == starts.length) {
+            starts = Arrays.copyOf(starts, nf * 2);
+            ends = Arrays.copyOf(ends, nf * 2);
+            quoted = Arrays.copyOf(quoted, nf * 2);
+        }
+        starts[nf] = s;
+        ends[nf] = e;
+        quoted[nf] = q;
+        nf++;
+    }
+
+    /** Decoded, trimmed field {@code i}; null when absent or blank. */
+    private String field(int i) {
+        if (i < 0 || i >= nf) return null;
+        String s = decode(starts[i], ends[i], quoted[i]).trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    private String decode(int s, int e, boolean unescapeQuotes) {
+        int len = e - s;
+        if (scratch.length < len) scratch = new byte[Math.max(len, scratch.length * 2)];
+        int n = 0;
+        for (int i = s; i < e; i++) {
+            byte b = buf.get(i);
+            if (unescapeQuotes && b == '"' && i + 1 < e && buf.get(i + 1) == '"') i++;
+            scratch[n++] = b;
+        }
+        return new String(scratch, 0, n, StandardCharsets.UTF_8);
+    }
+
+    private void map(long offset) throws IOException {
+        long len = Math.min(window, fileSize - offset);
+        buf = ch.map(FileChannel.MapMode.READ_ONLY, offset, len);
+        base = offset;
+        pos = 0;
+    }
+
+    private void rewind(long offset) throws IOException {
+        if (offset >= base && offset - base <= buf.limit()) pos = (int) (offset - base);
+        else map(offset);
+    }
+
+    private byte guessDelimiter(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".tsv") || name.endsWith(".tab")) return '\t';
+        if (name.endsWith(".csv")) return ',';
+        // Count candidates on the first line
+        int tabs = 0, commas = 0, semis = 0;
+        for (int i = pos; i < buf.limit() && i < pos + 65536; i++) {
+            byte b = buf.get(i);
+            if (b == '\n') break;
+            if (b == '\t') tabs++; else if (b == ',') commas++; else if (b == ';') semis++;
+        }
+        if (tabs >= commas && tabs >= semis && tabs > 0) return '\t';
+        if (semis > commas) return ';';
+        return commas > 0 ? (byte) ',' : (byte) '\t';
+    }
+
+    private static byte separator(String v) {
+        switch (v) {
+            case "tab": case "\\t": return '\t';
+            case "comma": case ",": return ',';
+            case "semicolon": case ";": return ';';
+            case "pipe": case "|": return '|';
+            case "space": return ' ';
+            default: return v.length() == 1 ? (byte) v.charAt(0) : 0;
+        }
+    }
+}
@@ -1,186 +1,316 @@
 package com.memorizer.importer;
 
-import com.memorizer.db.CardRepository;
-import com.memorizer.db.Database;
-import com.memorizer.db.DeckRepository;
-import com.memorizer.db.NoteRepository;
-import com.memorizer.model.Note;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.util.CellUtil;
+import com.memorizer.app.Config;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.sql.Connection;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
- * Import notes/cards from an Excel file (.xlsx or .xls).
+ * Import notes/cards from an Excel file (.xlsx or .xls), every sheet.
  * Expected headers (case-insensitive):
  *   deck, front, back, reading, pos, examples, tags
  * - required: front, back
- * - deck: default "Default" if empty
+ * - deck: the sheet name when empty in a multi-sheet workbook, otherwise "Default"; empty on a
+ *   {@link #NO_DECK_SHEET} sheet, the note gets no deck
+ * <p>
+ * Sheets are parsed concurrently on a small worker pool (.xlsx sheets are SAX-streamed; legacy .xls is parsed on
+ * one worker) and handed over in chunks through a bounded queue to a single writer, the calling thread, which feeds
+ * them to the {@link BulkUpserter} and commits one chunk at a time. A sheet without a usable header is reported
+ * and skipped; the others are still imported.
  */
 public class ExcelImportService {
+    /** Sheet the exporter writes notes without a deck to (continuations add " (2)", " (3)"...). */
+    public static final String NO_DECK_SHEET = "(No deck)";
+
+    public static class Report extends ImportReport {
+        /** Per-sheet results in workbook order. */
+        public final List<SheetReport> sheets = new ArrayList<SheetReport>();
 
-    public static class Report {
-        public int totalRows;
-        public int insertedNotes;
-        public int insertedCards;
-        public int updatedNotes;
-        public int skippedRows;
-        public int deckCreated;
-        public String message;
         @Override public String toString() {
-            return "Imported rows=" + totalRows +
-                    ", notes=" + insertedNotes +
-                    ", cards=" + insertedCards +
-                    ", updated=" + updatedNotes +
-                    ", skipped=" + skippedRows +
-                    (deckCreated > 0 ? (", new decks=" + deckCreated) : "");
+            StringBuilder sb = new StringBuilder(super.toString());
+            if (sheets.size() > 1) for (SheetReport s : sheets) sb.append('\n').append(s);
+            return sb.toString();
         }
     }
 
-    private final DeckRepository deckRepo = new DeckRepository();
-    private final NoteRepository noteRepo = new NoteRepository();
-    private final CardRepository cardRepo = new CardRepository();
+    /** Counts and timings for one sheet; {@code message} is "OK" or why the sheet was skipped. */
+    public static class SheetReport extends ImportReport {
+        public String sheet;
+        /** Wall time of the parser for this sheet, including waits for the writer. */
+        public long parseMillis;
+        /** Time the writer spent on this sheet's rows. */
+        public long writeMillis;
 
-    public Report importFile(File excel) {
-        Report rpt = new Report();
-        if (excel == null || !excel.exists()) {
-            rpt.message = "File not found";
-            return rpt;
+        @Override public String toString() {
+            return sheet + ": " + ("OK".equals(message) ? "" : message + "; ") + super.toString() +
+                    " (parse " + parseMillis + " ms, write " + writeMillis + " ms)";
         }
+    }
 
-        Map<String, Integer> header = new HashMap<String, Integer>();
-        int newDecks = 0;
-
-        try (FileInputStream fis = new FileInputStream(excel);
-             Workbook wb = WorkbookFactory.create(fis)) {
+    /** One sheet's worth of parsing, run on a worker. */
+    private interface SheetTask {
+        void parse(Consumer<ImportRow> sink) throws Exception;
+    }
 
-            Sheet sheet = wb.getSheetAt(0);
-            if (sheet == null) { rpt.message = "Empty sheet"; return rpt; }
+    /** Rows handed from a parser to the writer; {@code last} marks the end of a sheet. */
+    private static final class Chunk {
+        final int sheet;
+        final List<ImportRow> rows;
+        final boolean last;
+        final long parseMillis;
+        final String error;
 
-            Row head = sheet.getRow(0);
-            if (head == null) { rpt.message = "Missing header row"; return rpt; }
+        Chunk(int sheet, List<ImportRow> rows, boolean last, long parseMillis, String error) {
+            this.sheet = sheet; this.rows = rows; this.last = last; this.parseMillis = parseMillis; this.error = error;
+        }
+    }
 
-            for (int i = 0; i < head.getLastCellNum(); i++) {
-                Cell c = head.getCell(i);
-                if (c == null) continue;
-                String name = c.getStringCellValue();
-                if (name == null) continue;
-                String key = name.trim().toLowerCase();
-                header.put(key, i);
-            }
+    private final AtomicLong done = new AtomicLong();
+    private volatile long total = -1;
 
-            // required fields
-            if (!header.containsKey("front") || !header.containsKey("back")) {
-                rpt.message = "Header must contain 'front' and 'back'";
-                return rpt;
-            }
+    public Report importFile(File excel) {
+        return importFile(excel, () -> false);
+    }
 
-            Connection conn = Database.get();
-            boolean prevAuto = conn.getAutoCommit();
-            conn.setAutoCommit(false);
-            try {
-                for (int r = 1; r <= sheet.getLastRowNum(); r++) {
-                    Row row = sheet.getRow(r);
-                    if (row == null) continue;
-                    rpt.totalRows++;
-
-                    String front = str(row, header.get("front"));
-                    String back  = str(row, header.get("back"));
-                    if (isBlank(front) || isBlank(back)) {
-                        rpt.skippedRows++;
-                        continue;
+    /** Import every sheet of {@code excel}; stops after the current chunk once {@code cancelled} turns true. */
+    public Report importFile(File excel, BooleanSupplier cancelled) {
+        Report rpt = new Report();
+        if (excel == null || !excel.exists()) {
+            rpt.message = "File not found";
+            return rpt;
+        }
+        long t0 = System.nanoTime();
+        try {
+            if (excel.getName().toLowerCase(Locale.ROOT).endsWith(".xls")) {
+                try (Workbook wb = WorkbookFactory.create(excel, null, true)) {
+                    List<String> names = new ArrayList<String>();
+                    List<SheetTask> tasks = new ArrayList<SheetTask>();
+                    long rows = 0;
+                    for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+                        Sheet sheet = wb.getSheetAt(i);
+                        boolean noDeck = isNoDeckSheet(sheet.getSheetName());
+                        String deck = wb.getNumberOfSheets() > 1 && !noDeck ? sheet.getSheetName() : null;
+                        names.add(sheet.getSheetName());
+                        rows += sheet.getLastRowNum();
+                        tasks.add(sink -> {
+                            ExcelRowSource src = new ExcelRowSource(sheet, deck);
+                            ImportRow row = new ImportRow();
+                            while (src.next(row)) {
+                                if (noDeck && row.deck == null) row.noDeck = true;
+                                sink.accept(row);
+                                done.incrementAndGet();
+                                row = new ImportRow();
+                            }
+                        });
                     }
-
-                    String deckName = str(row, header.get("deck"));
-                    if (isBlank(deckName)) deckName = "Default";
-                    Long deckId = deckRepo.findIdByName(deckName);
-                    if (deckId == null) {
-                        deckId = deckRepo.insert(deckName, null);
-                        newDecks++;
+                    total = rows;
+                    // HSSF workbooks are not safe for concurrent readers
+                    run(rpt, names, tasks, 1, cancelled);
+                }
+            } else {
+                OPCPackage pkg = OPCPackage.open(excel, PackageAccess.READ);
+                try {
+                    XSSFReader reader = new XSSFReader(pkg);
+                    ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+                    StylesTable styles = reader.getStylesTable();
+                    List<String> names = new ArrayList<String>();
+                    List<PackagePart> parts = new ArrayList<PackagePart>();
+                    XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) reader.getSheetsData();
+                    while (it.hasNext()) {
+                        it.next().close();
+                        names.add(it.getSheetName());
+                        parts.add(it.getSheetPart());
                     }
-
-                    // Normalize key for deduplication: remove ASCII spaces from front/back
-                    String keyFront = front.replace(" ", "");
-                    String keyBack  = back.replace(" ", "");
-
-                    // Normalize examples: treat Shift+Enter as separate sentences; keep one per line
-                    String examplesRaw = str(row, header.get("examples"));
-                    String examples = normalizeExamples(examplesRaw);
-
-                    String reading = str(row, header.get("reading"));
-                    String pos = str(row, header.get("pos"));
-                    String tags = str(row, header.get("tags"));
-
-                    java.util.Optional<Long> existingId = noteRepo.findIdByFrontBackNoSpaces(keyFront, keyBack);
-                    if (existingId.isPresent()) {
-                        // Update non-key fields only (don't touch front/back or card scheduling)
-                        noteRepo.updateNonKeyFields(existingId.get(), deckId, reading, pos, examples, tags);
-                        rpt.updatedNotes++;
-                    } else {
-                        // Insert new note + card
-                        com.memorizer.model.Note n = new com.memorizer.model.Note();
-                        n.deckId = deckId;
-                        n.front = front;
-                        n.back = back;
-                        n.reading = reading;
-                        n.pos = pos;
-                        n.examples = examples;
-                        n.tags = tags;
-                        long noteId = noteRepo.insert(n);
-                        cardRepo.insertForNote(noteId);
-                        rpt.insertedNotes++;
-                        rpt.insertedCards++;
+                    long bytes = 0;
+                    for (PackagePart p : parts) bytes = p.getSize() < 0 || bytes < 0 ? -1 : bytes + p.getSize();
+                    total = bytes;
+                    List<SheetTask> tasks = new ArrayList<SheetTask>();
+                    for (int i = 0; i < parts.size(); i++) {
+                        PackagePart part = parts.get(i);
+                        boolean noDeck = isNoDeckSheet(names.get(i));
+                        String deck = parts.size() > 1 && !noDeck ? names.get(i) : null;
+                        tasks.add(sink -> {
+                            try (InputStream in = new Counting(part.getInputStream(), done)) {
+                                XlsxSheetReader.read(in, styles, strings, deck, !noDeck ? sink : r -> {
+                                    if (r.deck == null || r.deck.isEmpty()) r.noDeck = true;
+                                    sink.accept(r);
+                                });
+                            }
+                        });
                     }
+                    int threads = Config.getInt("app.import.sheet-threads", 0);
+                    if (threads <= 0) threads = Runtime.getRuntime().availableProcessors();
+                    run(rpt, names, tasks, Math.max(1, Math.min(threads, tasks.size())), cancelled);
+                } finally {
+                    pkg.revert(); // read-only: close() would try to save
                 }
-                conn.commit();
-            } catch (Exception ex) {
-                conn.rollback();
-                throw ex;
-            } finally {
-                conn.setAutoCommit(prevAuto);
             }
         } catch (Exception e) {
             rpt.message = "Import error: " + e.getMessage();
-            return rpt;
+        } finally {
+            com.memorizer.metrics.Metrics.timer("memorizer_import_seconds").recordSince(t0);
         }
-        rpt.deckCreated = newDecks;
-        rpt.message = "OK";
         return rpt;
     }
 
-    private static boolean isBlank(String s) {
-        return s == null || s.trim().isEmpty();
+    /** Fraction of the workbook parsed so far in [0,1], or -1 while unknown. */
+    public double progress() {
+        long t = total;
+        return t <= 0 ? -1 : Math.min(1.0, (double) done.get() / t);
     }
 
-    private static String str(Row row, Integer idx) {
-        if (idx == null) return null;
-        Cell c = row.getCell(idx);
-        if (c == null) return null;
-        c = CellUtil.getCell(row, idx);
-        if (c.getCellType() == CellType.STRING) return c.getStringCellValue().trim();
-        if (c.getCellType() == CellType.NUMERIC) return String.valueOf(c.getNumericCellValue());
-        if (c.getCellType() == CellType.BOOLEAN) return String.valueOf(c.getBooleanCellValue());
-        return null;
-    }
+    /** Parse {@code tasks} on {@code threads} workers and write their rows from this thread. */
+    private void run(Report rpt, List<String> names, List<SheetTask> tasks, int threads, BooleanSupplier cancelled)
+            throws Exception {
+        for (String n : names) {
+            SheetReport s = new SheetReport();
+            s.sheet = n;
+            rpt.sheets.add(s);
+        }
+        if (tasks.isEmpty()) {
+            rpt.message = "Empty sheet";
+            return;
+        }
+        int chunkSize = Math.max(1, Config.getInt("app.import.batch-size", 1000));
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<Chunk>(threads * 2);
+        AtomicInteger seq = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "import-sheet-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                final int sheet = i;
+                final SheetTask task = tasks.get(i);
+                pool.execute(() -> parseSheet(sheet, task, chunkSize, queue));
+            }
+            pool.shutdown();
 
-    /** Normalize examples: collapse CRLF/CR to LF, trim lines, remove empties, join by LF. */
-    private static String normalizeExamples(String raw) {
-        if (raw == null) return null;
-        String s = raw.replace("\r\n", "\n").replace('\r', '\n');
-        String[] parts = s.split("\n");
-        StringBuilder out = new StringBuilder();
-        for (String p : parts) {
-            if (p == null) continue;
-            String t = p.trim();
-            if (!t.isEmpty()) {
-                if (out.length() > 0) out.append('\n');
-                out.append(t);
+            try (BulkUpserter out = new BulkUpserter(rpt)) {
+                try {
+                    int open = tasks.size();
+                    while (open > 0) {
+                        if (cancelled.getAsBoolean()) {
+                            out.flush();
+                            rpt.message = "Cancelled";
+                            return;
+                        }
+                        Chunk c = queue.poll(200, TimeUnit.MILLISECONDS);
+                        if (c == null) continue;
+                        SheetReport s = rpt.sheets.get(c.sheet);
+                        if (c.rows != null) {
+                            long t0 = System.nanoTime();
+                            for (ImportRow row : c.rows) out.accept(row, s);
+                            out.flush();
+                            s.writeMillis += (System.nanoTime() - t0) / 1_000_000L;
+                        }
+                        if (c.last) {
+                            open--;
+                            s.parseMillis = c.parseMillis;
+                            s.message = c.error == null ? "OK" : c.error;
+                        }
+                    }
+                    out.flush();
+                } catch (Exception e) {
+                    out.rollback();
+                    throw e;
+                }
             }
+        } finally {
+            pool.shutdownNow();
+        }
+        // All sheets unusable: report the (first) reason, as a single-sheet import always did
+        boolean anyOk = false;
+        for (SheetReport s : rpt.sheets) anyOk |= "OK".equals(s.message);
+        rpt.message = anyOk ? "OK" : rpt.sheets.get(0).message;
+    }
+
+    private static boolean isNoDeckSheet(String name) {
+        return name.equals(NO_DECK_SHEET) || name.matches(java.util.regex.Pattern.quote(NO_DECK_SHEET) + " \\(\\d+\\)");
+    }
+
+    /** Worker body: parse one sheet into chunks; the final chunk carries the timing and any error. */
+    private static void parseSheet(int sheet, SheetTask task, int chunkSize, BlockingQueue<Chunk> queue) {
+        long t0 = System.nanoTime();
+        AtomicReference<List<ImportRow>> buf = new AtomicReference<List<ImportRow>>(new ArrayList<ImportRow>(chunkSize));
+        String error = null;
+        try {
+            task.parse(row -> {
+                List<ImportRow> rows = buf.get();
+                rows.add(row);
+                if (rows.size() >= chunkSize) {
+                    put(queue, new Chunk(sheet, rows, false, 0, null));
+                    buf.set(new ArrayList<ImportRow>(chunkSize));
+                }
+            });
+        } catch (CancellationException e) {
+            return;
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+        } catch (Exception e) {
+            error = "Import error: " + e.getMessage();
+        }
+        try {
+            put(queue, new Chunk(sheet, buf.get().isEmpty() ? null : buf.get(), true, (System.nanoTime() - t0) / 1_000_000L, error));
+        } catch (CancellationException ignored) {
+            // writer gave up
+        }
+    }
+
+    private static void put(BlockingQueue<Chunk> queue, Chunk c) {
+        try {
+            queue.put(c);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("import stopped");
+        }
+    }
+
+    /** Counts bytes read from a sheet part into the shared progress counter. */
+    private static final class Counting extends FilterInputStream {
+        private final AtomicLong counter;
+
+        Counting(InputStream in, AtomicLong counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) counter.incrementAndGet();
+            return b;
+        }
+
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) counter.addAndGet(n);
+            return n;
         }
-        return out.length() == 0 ? null : out.toString();
     }
 }
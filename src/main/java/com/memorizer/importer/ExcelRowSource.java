@@ -0,0 +1,72 @@
+package com.memorizer.importer;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rows of one sheet of a workbook loaded with the POI user model (used for legacy .xls files; .xlsx sheets are
+ * streamed by {@link XlsxSheetReader}).
+ * Expected headers (case-insensitive): deck, front, back, reading, pos, examples, tags; front and back are required.
+ */
+final class ExcelRowSource implements RowSource {
+    private final Sheet sheet;
+    private final String fallbackDeck;
+    private final Map<String, Integer> header = new HashMap<String, Integer>();
+    private int r = 1;
+
+    /** @param fallbackDeck deck for rows whose deck cell is empty (may be null) */
+    ExcelRowSource(Sheet sheet, String fallbackDeck) {
+        this.sheet = sheet;
+        this.fallbackDeck = fallbackDeck;
+        Row head = sheet.getRow(0);
+        if (head == null) throw new IllegalArgumentException("Missing header row");
+        for (int i = 0; i < head.getLastCellNum(); i++) {
+            Cell c = head.getCell(i);
+            if (c == null || c.getCellType() != CellType.STRING) continue;
+            header.put(c.getStringCellValue().trim().toLowerCase(), i);
+        }
+        if (!header.containsKey("front") || !header.containsKey("back")) {
+            throw new IllegalArgumentException("Header must contain 'front' and 'back'");
+        }
+    }
+
+    @Override
+    public boolean next(ImportRow row) {
+        int last = sheet.getLastRowNum();
+        while (r <= last) {
+            Row x = sheet.getRow(r++);
+            if (x == null) continue;
+            row.clear();
+            row.deck = str(x, header.get("deck"));
+            if (row.deck == null || row.deck.isEmpty()) row.deck = fallbackDeck;
+            row.front = str(x, header.get("front"));
+            row.back = str(x, header.get("back"));
+            row.reading = str(x, header.get("reading"));
+            row.pos = str(x, header.get("pos"));
+            row.examples = str(x, header.get("examples"));
+            row.tags = str(x, header.get("tags"));
+            return true;
+        }
+        return false;
+    }
+
+    @Override public long position() { return r - 1; }
+    @Override public long size() { return sheet.getLastRowNum(); }
+
+    /** The workbook is owned by the caller. */
+    @Override public void close() {}
+
+    private static String str(Row row, Integer idx) {
+        if (idx == null) return null;
+        Cell c = row.getCell(idx);
+        if (c == null) return null;
+        c = CellUtil.getCell(row, idx);
+        if (c.getCellType() == CellType.STRING) return c.getStringCellValue().trim();
+        if (c.getCellType() == CellType.NUMERIC) return String.valueOf(c.getNumericCellValue());
+        if (c.getCellType() == CellType.BOOLEAN) return String.valueOf(c.getBooleanCellValue());
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+package com.memorizer.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Background import of one file: Excel workbooks go to {@link ExcelImportService} (all sheets, parsed in
+ * parallel); other formats get a {@link RowSource} picked by extension, fed through the {@link BulkUpserter}.
+ * Imports run one at a time on a daemon thread; callers poll {@link #progress()} and may {@link #cancel()}, in
+ * which case rows staged so far are committed and the report says "Cancelled".
+ */
+public final class ImportJob {
+    private static final ExecutorService EXEC = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "import");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** File extensions {@link #start} understands, for file choosers. */
+    public static final String[] EXTENSIONS = {"*.xlsx", "*.xls", "*.csv", "*.tsv", "*.txt", "*.apkg", "*.colpkg"};
+
+    private final File file;
+    private final CompletableFuture<ImportReport> result = new CompletableFuture<ImportReport>();
+    private volatile RowSource source;
+    private volatile ExcelImportService excel;
+    private volatile boolean cancelled;
+
+    private ImportJob(File file) {
+        this.file = file;
+    }
+
+    /** Queue an import of {@code file}. */
+    public static ImportJob start(File file) {
+        ImportJob job = new ImportJob(file);
+        EXEC.submit(job::runJob);
+        return job;
+    }
+
+    /** Fraction done in [0,1], or -1 while unknown. */
+    public double progress() {
+        if (result.isDone()) return 1;
+        ExcelImportService x = excel;
+        if (x != null) return x.progress();
+        RowSource s = source;
+        if (s == null || s.size() <= 0) return -1;
+        return Math.min(1.0, (double) s.position() / s.size());
+    }
+
+    public void cancel() { cancelled = true; }
+
+    public CompletableFuture<ImportReport> result() { return result; }
+
+    public File file() { return file; }
+
+    private void runJob() {
+        ImportReport rpt = new ImportReport();
+        if (file == null || !file.exists()) {
+            rpt.message = "File not found";
+            result.complete(rpt);
+            return;
+        }
+        if (isExcel(file.getName())) {
+            ExcelImportService x = new ExcelImportService();
+            excel = x;
+            result.complete(x.importFile(file, () -> cancelled));
+            return;
+        }
+        try (RowSource s = open(file.toPath())) {
+            source = s;
+            run(s, rpt, () -> cancelled);
+        } catch (Exception e) {
+            rpt.message = "Import error: " + e.getMessage();
+        }
+        result.complete(rpt);
+    }
+
+    /** Reader for {@code file} chosen by extension; delimited text for anything unrecognized except Excel. */
+    public static RowSource open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (isExcel(name)) throw new IOException("Excel workbooks are imported with ExcelImportService");
+        if (name.endsWith(".apkg") || name.endsWith(".colpkg")) return new ApkgRowSource(file);
+        return new DelimitedRowSource(file);
+    }
+
+    private static boolean isExcel(String name) {
+        String n = name.toLowerCase(Locale.ROOT);
+        return n.endsWith(".xlsx") || n.endsWith(".xls");
+    }
+
+    /**
+     * Drain {@code source} into the database on the calling thread, filling {@code rpt}. Stops early when
+     * {@code cancelled} turns true (after committing what was staged). Errors roll back the current batch and are
+     * reported in {@code rpt.message}.
+     */
+    public static <R extends ImportReport> R run(RowSource source, R rpt, BooleanSupplier cancelled) {
+        long t0 = System.nanoTime();
+        ImportRow row = new ImportRow();
+        try (BulkUpserter out = new BulkUpserter(rpt)) {
+            try {
+                while (source.next(row)) {
+                    out.accept(row);
+                    if (cancelled.getAsBoolean()) {
+                        out.flush();
+                        rpt.message = "Cancelled";
+                        return rpt;
+                    }
+                }
+                out.flush();
+            } catch (Exception e) {
+                out.rollback();
+                throw e;
+            }
+            rpt.message = "OK";
+        } catch (Exception e) {
+            rpt.message = "Import error: " + e.getMessage();
+        } finally {
+            com.memorizer.metrics.Metrics.timer("memorizer_import_seconds").recordSince(t0);
+        }
+        return rpt;
+    }
+}
@@ -0,0 +1,21 @@
+package com.memorizer.importer;
+
+/** Outcome of an import; {@code message} is "OK", "Cancelled" or an error description. */
+public class ImportReport {
+    public int totalRows;
+    public int insertedNotes;
+    public int insertedCards;
+    public int updatedNotes;
+    public int skippedRows;
+    public int deckCreated;
+    public String message;
+
+    @Override public String toString() {
+        return "Imported rows=" + totalRows +
+                ", notes=" + insertedNotes +
+                ", cards=" + insertedCards +
+                ", updated=" + updatedNotes +
+                ", skipped=" + skippedRows +
+                (deckCreated > 0 ? (", new decks=" + deckCreated) : "");
+    }
+}
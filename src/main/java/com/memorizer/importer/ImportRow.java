@@ -0,0 +1,19 @@
+package com.memorizer.importer;
+
+/** One note to import, as produced by a {@link RowSource}. Sources reuse one instance per call to {@code next}. */
+public class ImportRow {
+    public String deck;
+    public String front;
+    public String back;
+    public String reading;
+    public String pos;
+    public String examples;
+    public String tags;
+    /** Import without a deck ({@code deck} is ignored), e.g. rows of an exported "(No deck)" sheet. */
+    public boolean noDeck;
+
+    void clear() {
+        deck = front = back = reading = pos = examples = tags = null;
+        noDeck = false;
+    }
+}
@@ -0,0 +1,20 @@
+package com.memorizer.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streaming reader of import rows (CSV/TSV, Excel, Anki package, ...). Rows are pulled one at a time into a
+ * caller-owned {@link ImportRow} so a source never holds more than its current position in memory.
+ */
+public interface RowSource extends Closeable {
+
+    /** Fill {@code row} with the next record; false at end of input. Rows with a blank front/back are still returned. */
+    boolean next(ImportRow row) throws IOException;
+
+    /** Work done so far in source units (bytes, rows, ...), for progress reporting. */
+    long position();
+
+    /** Total work in the same units as {@link #position()}, or -1 if unknown. */
+    long size();
+}
@@ -0,0 +1,226 @@
+package com.memorizer.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+/**
+ * Minimal read-only reader for SQLite 3 database files: walks table b-trees (including overflow pages) and decodes
+ * records. Enough to stream tables out of an Anki collection without a SQLite driver; indexes, WAL files and
+ * writes are not supported.
+ */
+final class SqliteFile implements Closeable {
+    private static final byte[] MAGIC = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel ch;
+    private final int pageSize;
+    private final int usable;
+    private final Charset text;
+
+    SqliteFile(Path file) throws IOException {
+        this.ch = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer h = ByteBuffer.allocate(100);
+        ch.read(h, 0);
+        byte[] hb = h.array();
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (hb[i] != MAGIC[i]) { ch.close(); throw new IOException("not a SQLite database: " + file.getFileName()); }
+        }
+        int ps = u16(hb, 16);
+        this.pageSize = ps == 1 ? 65536 : ps;
+        this.usable = pageSize - (hb[20] & 0xFF);
+        int enc = (int) u32(hb, 56);
+        this.text = enc == 2 ? StandardCharsets.UTF_16LE : enc == 3 ? StandardCharsets.UTF_16BE : StandardCharsets.UTF_8;
+    }
+
+    /** Root page of table {@code name}, or -1 if there is no such table. */
+    int rootPage(String name) throws IOException {
+        Cursor c = cursor(1);
+        while (c.next()) {
+            Object[] v = c.values();
+            if ("table".equals(v[0]) && name.equalsIgnoreCase(String.valueOf(v[1])) && v[3] instanceof Long) {
+                return ((Long) v[3]).intValue();
+            }
+        }
+        return -1;
+    }
+
+    /** Cursor over the rows of the table b-tree rooted at {@code rootPage}, in rowid order. */
+    Cursor cursor(int rootPage) throws IOException {
+        return new Cursor(rootPage);
+    }
+
+    @Override
+    public void close() throws IOException {
+        ch.close();
+    }
+
+    /** Forward-only row cursor. An INTEGER PRIMARY KEY column reads as null in {@link #values()}; use {@link #rowid()}. */
+    final class Cursor {
+        // Pending interior/leaf pages: page number and next cell index
+        private final ArrayDeque<int[]> stack = new ArrayDeque<int[]>();
+        private final ArrayDeque<byte[]> pages = new ArrayDeque<byte[]>();
+        private long rowid;
+        private byte[] payload;
+
+        private Cursor(int root) throws IOException {
+            push(root);
+        }
+
+        boolean next() throws IOException {
+            while (!stack.isEmpty()) {
+                int[] top = stack.peek();
+                byte[] p = pages.peek();
+                int hdr = top[0] == 1 ? 100 : 0;
+                int type = p[hdr] & 0xFF;
+                int cells = u16(p, hdr + 3);
+                if (type == 0x0D) { // table leaf
+                    if (top[1] < cells) {
+                        readLeafCell(p, u16(p, hdr + 8 + 2 * top[1]++));
+                        return true;
+                    }
+                    pop();
+                } else if (type == 0x05) { // table interior
+                    if (top[1] < cells) {
+                        int off = u16(p, hdr + 12 + 2 * top[1]++);
+                        push((int) u32(p, off));
+                    } else if (top[1] == cells) {
+                        top[1]++;
+                        push((int) u32(p, hdr + 8));
+                    } else {
+                        pop();
+                    }
+                } else {
+                    throw new IOException("unexpected b-tree page type " + type + " at page " + top[0]);
+                }
+            }
+            return false;
+        }
+
+        long rowid() { return rowid; }
+
+        /** Decoded columns of the current row: Long, Double, String, byte[] or null. */
+        Object[] values() {
+            return decodeRecord(payload);
+        }
+
+        private void push(int page) throws IOException {
+            stack.push(new int[]{page, 0});
+            pages.push(readPage(page));
+        }
+
+        private void pop() {
+            stack.pop();
+            pages.pop();
+        }
+
+        private void readLeafCell(byte[] p, int off) throws IOException {
+            long[] vr = new long[2];
+            off = varint(p, off, vr);
+            int len = (int) vr[0];
+            off = varint(p, off, vr);
+            rowid = vr[0];
+            int x = usable - 35;
+            int local;
+            if (len <= x) {
+                local = len;
+            } else {
+                int m = ((usable - 12) * 32 / 255) - 23;
+                int k = m + ((len - m) % (usable - 4));
+                local = k <= x ? k : m;
+            }
+            byte[] out = new byte[len];
+            System.arraycopy(p, off, out, 0, local);
+            int have = local;
+            if (have < len) {
+                long ovf = u32(p, off + local);
+                while (have < len && ovf != 0) {
+                    byte[] op = readPage((int) ovf);
+                    int n = Math.min(len - have, usable - 4);
+                    System.arraycopy(op, 4, out, have, n);
+                    have += n;
+                    ovf = u32(op, 0);
+                }
+            }
+            payload = out;
+        }
+    }
+
+    private byte[] readPage(int n) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(pageSize);
+        long at = (long) (n - 1) * pageSize;
+        while (b.hasRemaining()) {
+            int r = ch.read(b, at + b.position());
+            if (r < 0) throw new IOException("truncated SQLite file at page " + n);
+        }
+        return b.array();
+    }
+
+    private Object[] decodeRecord(byte[] rec) {
+        long[] vr = new long[2];
+        int off = varint(rec, 0, vr);
+        int hdrEnd = (int) vr[0];
+        int ncols = 0;
+        long[] types = new long[16];
+        while (off < hdrEnd) {
+            off = varint(rec, off, vr);
+            if (ncols == types.length) types = java.util.Arrays.copyOf(types, ncols * 2);
+            types[ncols++] = vr[0];
+        }
+        Object[] out = new Object[ncols];
+        int d = hdrEnd;
+        for (int i = 0; i < ncols; i++) {
+            long t = types[i];
+            if (t == 0) { out[i] = null; }
+            else if (t >= 1 && t <= 6) {
+                int n = t <= 4 ? (int) t : t == 5 ? 6 : 8;
+                long v = rec[d]; // sign-extended first byte
+                for (int j = 1; j < n; j++) v = (v << 8) | (rec[d + j] & 0xFF);
+                out[i] = v;
+                d += n;
+            } else if (t == 7) {
+                long bits = 0;
+                for (int j = 0; j < 8; j++) bits = (bits << 8) | (rec[d + j] & 0xFF);
+                out[i] = Double.longBitsToDouble(bits);
+                d += 8;
+            } else if (t == 8 || t == 9) {
+                out[i] = t == 8 ? 0L : 1L;
+            } else if (t >= 12 && (t & 1) == 0) {
+                int n = (int) ((t - 12) / 2);
+                out[i] = java.util.Arrays.copyOfRange(rec, d, d + n);
+                d += n;
+            } else if (t >= 13) {
+                int n = (int) ((t - 13) / 2);
+                out[i] = new String(rec, d, n, text);
+                d += n;
+            }
+        }
+        return out;
+    }
+
+    /** Read a SQLite varint at {@code off} into {@code out[0]}; returns the offset after it. */
+    private static int varint(byte[] b, int off, long[] out) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            int x = b[off + i] & 0xFF;
+            v = (v << 7) | (x & 0x7F);
+            if ((x & 0x80) == 0) { out[0] = v; return off + i + 1; }
+        }
+        v = (v << 8) | (b[off + 8] & 0xFF);
+        out[0] = v;
+        return off + 9;
+    }
+
+    private static int u16(byte[] b, int off) {
+        return ((b[off] & 0xFF) << 8) | (b[off + 1] & 0xFF);
+    }
+
+    private static long u32(byte[] b, int off) {
+        return ((long) (b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+}
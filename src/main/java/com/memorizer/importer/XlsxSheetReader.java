@@ -0,0 +1,109 @@
+package com.memorizer.importer;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.Styles;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * SAX reader for one .xlsx worksheet part. The sheet XML is streamed, never built into a DOM, so several sheets of
+ * one workbook can be parsed on different threads (the shared strings and styles are only read). The first row is
+ * the header, with the same column names as {@link ExcelRowSource}.
+ */
+final class XlsxSheetReader implements XSSFSheetXMLHandler.SheetContentsHandler {
+    private static final String[] COLUMNS = {"deck", "front", "back", "reading", "pos", "examples", "tags"};
+
+    private final String fallbackDeck;
+    private final Consumer<ImportRow> sink;
+    private final Map<Integer, Integer> slotByColumn = new HashMap<Integer, Integer>();
+    private final String[] cur = new String[COLUMNS.length];
+    private boolean header = true;
+    private boolean any;
+
+    private XlsxSheetReader(String fallbackDeck, Consumer<ImportRow> sink) {
+        this.fallbackDeck = fallbackDeck;
+        this.sink = sink;
+    }
+
+    /**
+     * Parse {@code sheetXml}, handing each data row to {@code sink} as a new {@link ImportRow}. Rows without a deck
+     * get {@code fallbackDeck} (may be null). Throws IllegalArgumentException if the header lacks front/back.
+     */
+    static void read(InputStream sheetXml, Styles styles, SharedStrings strings, String fallbackDeck,
+                     Consumer<ImportRow> sink) throws Exception {
+        XlsxSheetReader h = new XlsxSheetReader(fallbackDeck, sink);
+        XMLReader parser = XMLHelper.newXMLReader();
+        // DataFormatter is not thread-safe: one per sheet
+        parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, h, new DataFormatter(Locale.ROOT), false));
+        parser.parse(new InputSource(sheetXml));
+        if (h.header) throw new IllegalArgumentException("Missing header row");
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+        Arrays.fill(cur, null);
+        any = false;
+    }
+
+    @Override
+    public void endRow(int rowNum) {
+        if (header) {
+            if (!any) return;
+            header = false;
+            if (!slotByColumn.containsValue(1) || !slotByColumn.containsValue(2)) {
+                throw new IllegalArgumentException("Header must contain 'front' and 'back'");
+            }
+            return;
+        }
+        if (!any) return;
+        ImportRow r = new ImportRow();
+        r.deck = cur[0] != null ? cur[0] : fallbackDeck;
+        r.front = cur[1];
+        r.back = cur[2];
+        r.reading = cur[3];
+        r.pos = cur[4];
+        r.examples = cur[5];
+        r.tags = cur[6];
+        sink.accept(r);
+    }
+
+    @Override
+    public void cell(String ref, String value, XSSFComment comment) {
+        if (ref == null || value == null) return;
+        int col = column(ref);
+        String v = value.trim();
+        if (header) {
+            String name = v.toLowerCase(Locale.ROOT);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                if (COLUMNS[c].equals(name) && !slotByColumn.containsValue(c)) slotByColumn.put(col, c);
+            }
+            any = true;
+            return;
+        }
+        Integer slot = slotByColumn.get(col);
+        any = true;
+        if (slot != null && !v.isEmpty()) cur[slot] = v;
+    }
+
+    /** Zero-based column of an A1-style reference. */
+    private static int column(String ref) {
+        int col = 0;
+        for (int i = 0; i < ref.length(); i++) {
+            char ch = ref.charAt(i);
+            if (ch < 'A' || ch > 'Z') break;
+            col = col * 26 + (ch - 'A' + 1);
+        }
+        return col - 1;
+    }
+}
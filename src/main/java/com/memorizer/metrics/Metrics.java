@@ -0,0 +1,184 @@
+package com.memorizer.metrics;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process metrics registry: HDR latency/size histograms and monotonic counters.
+ * Series are keyed by metric name plus one optional label pair and created on first use.
+ * Recording is lock-free; {@link #prometheus()} renders everything in Prometheus text format.
+ */
+public final class Metrics {
+    /** Cap on distinct series so an unexpected label (e.g. raw path) cannot grow memory unbounded. */
+    private static final int MAX_SERIES = 2000;
+
+    private static final Map<String, Series> SERIES = new ConcurrentHashMap<String, Series>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<String, Counter>();
+    private static final Map<String, String> HELP = new ConcurrentHashMap<String, String>();
+
+    private Metrics() {}
+
+    /** Distribution of recorded values; durations are recorded in microseconds. */
+    public static final class Series {
+        public final String name;
+        public final String labels;
+        final boolean seconds;
+        final Histogram histogram;
+        final LongAdder sum = new LongAdder();
+
+        Series(String name, String labels, boolean seconds) {
+            this.name = name;
+            this.labels = labels;
+            this.seconds = seconds;
+            // 1 us .. 1 h (or 1 GiB for sizes) at 3 significant digits
+            this.histogram = new ConcurrentHistogram(seconds ? 3_600_000_000L : (1L << 30), 3);
+        }
+
+        public void record(long value) {
+            long v = Math.max(0, Math.min(value, histogram.getHighestTrackableValue()));
+            histogram.recordValue(v);
+            sum.add(v);
+        }
+
+        /** Record elapsed time since a {@link System#nanoTime()} start. */
+        public void recordSince(long startNanos) {
+            record((System.nanoTime() - startNanos) / 1000L);
+        }
+
+        public long count() { return histogram.getTotalCount(); }
+        public long percentile(double p) { return histogram.getValueAtPercentile(p); }
+        public long max() { return histogram.getMaxValue(); }
+        public double mean() { return histogram.getTotalCount() == 0 ? 0 : histogram.getMean(); }
+        public boolean isTimer() { return seconds; }
+    }
+
+    /** Monotonic counter. */
+    public static final class Counter {
+        public final String name;
+        public final String labels;
+        final LongAdder value = new LongAdder();
+
+        Counter(String name, String labels) { this.name = name; this.labels = labels; }
+
+        public void inc() { value.increment(); }
+        public void add(long n) { value.add(n); }
+        public long get() { return value.sum(); }
+    }
+
+    /** Latency histogram, e.g. {@code timer("memorizer_db_statement_seconds", "method", "CardRepository.findNextDueOrNew")}. */
+    public static Series timer(String name, String labelKey, String labelValue) {
+        return series(name, labelKey, labelValue, true);
+    }
+
+    public static Series timer(String name) { return timer(name, null, null); }
+
+    /** Size histogram (bytes, rows, ...). */
+    public static Series sizes(String name, String labelKey, String labelValue) {
+        return series(name, labelKey, labelValue, false);
+    }
+
+    public static Counter counter(String name, String labelKey, String labelValue) {
+        String labels = labels(labelKey, labelValue);
+        String key = name + labels;
+        Counter c = COUNTERS.get(key);
+        if (c != null) return c;
+        if (COUNTERS.size() >= MAX_SERIES) return COUNTERS.computeIfAbsent(name + labels("overflow", "true"), k -> new Counter(name, labels("overflow", "true")));
+        return COUNTERS.computeIfAbsent(key, k -> new Counter(name, labels));
+    }
+
+    public static Counter counter(String name) { return counter(name, null, null); }
+
+    /** Attach a HELP line to a metric family. */
+    public static void describe(String name, String help) { HELP.put(name, help); }
+
+    private static Series series(String name, String labelKey, String labelValue, boolean seconds) {
+        String labels = labels(labelKey, labelValue);
+        String key = name + labels;
+        Series s = SERIES.get(key);
+        if (s != null) return s;
+        if (SERIES.size() >= MAX_SERIES) {
+            String of = labels("overflow", "true");
+            return SERIES.computeIfAbsent(name + of, k -> new Series(name, of, seconds));
+        }
+        return SERIES.computeIfAbsent(key, k -> new Series(name, labels, seconds));
+    }
+
+    private static String labels(String key, String value) {
+        if (key == null || value == null) return "";
+        return "{" + key + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", " ") + "\"}";
+    }
+
+    /** Current series, sorted by name then labels (for the diagnostics view). */
+    public static List<Series> series() {
+        List<Series> out = new ArrayList<Series>(SERIES.values());
+        Collections.sort(out, (a, b) -> (a.name + a.labels).compareTo(b.name + b.labels));
+        return out;
+    }
+
+    public static List<Counter> counters() {
+        List<Counter> out = new ArrayList<Counter>(COUNTERS.values());
+        Collections.sort(out, (a, b) -> (a.name + a.labels).compareTo(b.name + b.labels));
+        return out;
+    }
+
+    /** Render all metrics in Prometheus text exposition format (histograms as summaries). */
+    public static String prometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        String family = null;
+        for (Series s : series()) {
+            if (!s.name.equals(family)) {
+                family = s.name;
+                header(sb, family, "summary");
+            }
+            double scale = s.seconds ? 1e-6 : 1.0;
+            for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+                sb.append(s.name).append(withLabel(s.labels, "quantile", String.valueOf(q))).append(' ')
+                  .append(fmt(s.percentile(q * 100) * scale)).append('\n');
+            }
+            sb.append(s.name).append("_sum").append(s.labels).append(' ').append(fmt(s.sum.sum() * scale)).append('\n');
+            sb.append(s.name).append("_count").append(s.labels).append(' ').append(s.count()).append('\n');
+        }
+        family = null;
+        for (Counter c : counters()) {
+            if (!c.name.equals(family)) {
+                family = c.name;
+                header(sb, family, "counter");
+            }
+            sb.append(c.name).append(c.labels).append(' ').append(c.get()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void header(StringBuilder sb, String family, String type) {
+        String help = HELP.get(family);
+        if (help != null) sb.append("# HELP ").append(family).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(family).append(' ').append(type).append('\n');
+    }
+
+    private static String withLabel(String labels, String key, String value) {
+        String pair = key + "=\"" + value + "\"";
+        if (labels.isEmpty()) return "{" + pair + "}";
+        return labels.substring(0, labels.length() - 1) + "," + pair + "}";
+    }
+
+    private static String fmt(double v) {
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) return String.valueOf((long) v);
+        return String.valueOf(v);
+    }
+
+    /** Zero all values; series stay registered so callers holding a reference keep recording. */
+    public static void reset() {
+        for (Series s : SERIES.values()) {
+            s.histogram.reset();
+            s.sum.reset();
+        }
+        for (Counter c : COUNTERS.values()) c.value.reset();
+    }
+}
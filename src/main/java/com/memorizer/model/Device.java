@@ -0,0 +1,11 @@
+package com.memorizer.model;
+
+/** Paired sync client (one per phone/browser); only the token hash is kept. */
+public class Device {
+    public long id;
+    public String name;
+    public String tokenHash;
+    public long createdAt;
+    /** Epoch millis of the last authenticated request, 0 if never seen. */
+    public long lastSeenAt;
+}
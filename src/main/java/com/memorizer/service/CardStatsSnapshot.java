@@ -0,0 +1,224 @@
+package com.memorizer.service;
+
+import com.memorizer.db.Database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compact scheduling stats of every non-suspended card, in parallel primitive arrays ordered by card id: deck,
+ * ease, lapses, recent reviews/failures, and note tags as interned ids (CSR layout: the tags of card {@code i}
+ * are {@code tagIds[tagStart[i] .. tagStart[i+1])}). Built with one pass over card⋈note and one aggregate over
+ * the recent review log; about 40 bytes per card. The card set is fixed; {@link #patch} rewrites single slots
+ * while draws may read them, which at worst weighs one card by its old stats for that draw.
+ */
+final class CardStatsSnapshot {
+    final int size;
+    final long[] cardIds;
+    /** Deck id, 0 when the note has no deck. */
+    final long[] deckIds;
+    final float[] ease;
+    final short[] lapses;
+    /** Reviews and AGAIN ratings within the recent window. */
+    final short[] recentReviews;
+    final short[] recentFails;
+    final int[] tagStart;
+    final int[] tagIds;
+    /** Lower-cased tag → id. */
+    final Map<String, Integer> tagDict;
+    /** {@link #probe} at load time, to notice inserts that publish no event (imports). */
+    final long[] probe;
+    final long loadedAtMs;
+
+    private CardStatsSnapshot(int size, long[] cardIds, long[] deckIds, float[] ease, short[] lapses,
+                              short[] recentReviews, short[] recentFails, int[] tagStart, int[] tagIds,
+                              Map<String, Integer> tagDict, long[] probe, long loadedAtMs) {
+        this.size = size;
+        this.cardIds = cardIds;
+        this.deckIds = deckIds;
+        this.ease = ease;
+        this.lapses = lapses;
+        this.recentReviews = recentReviews;
+        this.recentFails = recentFails;
+        this.tagStart = tagStart;
+        this.tagIds = tagIds;
+        this.tagDict = tagDict;
+        this.probe = probe;
+        this.loadedAtMs = loadedAtMs;
+    }
+
+    /** Load from the database; reviews at or after {@code recentSinceMs} count as recent. */
+    static CardStatsSnapshot load(long recentSinceMs) {
+        Connection c = Database.get();
+        int n = 0;
+        long[] ids = new long[1024];
+        long[] decks = new long[1024];
+        float[] ease = new float[1024];
+        short[] lapses = new short[1024];
+        int[] tagStart = new int[1025];
+        int[] tagIds = new int[1024];
+        int tagCount = 0;
+        Map<String, Integer> dict = new HashMap<String, Integer>();
+        try {
+            long[] probe = probe();
+            try (PreparedStatement ps = c.prepareStatement(
+                    "SELECT c.id, n.deck_id, c.ease, c.lapses, n.tags FROM card c JOIN note n ON n.id=c.note_id " +
+                            "WHERE c.status <> 3 ORDER BY c.id");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (n == ids.length) {
+                        int cap = n * 2;
+                        ids = Arrays.copyOf(ids, cap);
+                        decks = Arrays.copyOf(decks, cap);
+                        ease = Arrays.copyOf(ease, cap);
+                        lapses = Arrays.copyOf(lapses, cap);
+                        tagStart = Arrays.copyOf(tagStart, cap + 1);
+                    }
+                    ids[n] = rs.getLong(1);
+                    decks[n] = rs.getLong(2);
+                    double e = rs.getDouble(3);
+                    ease[n] = rs.wasNull() ? 2.5f : (float) e;
+                    lapses[n] = (short) Math.min(Short.MAX_VALUE, rs.getInt(4));
+                    tagStart[n] = tagCount;
+                    for (String t : splitTags(rs.getString(5))) {
+                        Integer id = dict.get(t);
+                        if (id == null) { id = dict.size(); dict.put(t, id); }
+                        if (tagCount == tagIds.length) tagIds = Arrays.copyOf(tagIds, tagCount * 2);
+                        tagIds[tagCount++] = id;
+                    }
+                    n++;
+                }
+            }
+            tagStart[n] = tagCount;
+
+            short[] reviews = new short[n];
+            short[] fails = new short[n];
+            try (PreparedStatement ps = c.prepareStatement(
+                    "SELECT card_id, COUNT(*), SUM(CASE WHEN rating=1 THEN 1 ELSE 0 END) FROM review_log " +
+                            "WHERE reviewed_at >= ? GROUP BY card_id")) {
+                ps.setTimestamp(1, new Timestamp(recentSinceMs));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int i = Arrays.binarySearch(ids, 0, n, rs.getLong(1));
+                        if (i < 0) continue; // suspended
+                        reviews[i] = (short) Math.min(Short.MAX_VALUE, rs.getLong(2));
+                        fails[i] = (short) Math.min(Short.MAX_VALUE, rs.getLong(3));
+                    }
+                }
+            }
+            return new CardStatsSnapshot(n, ids, decks, ease, lapses, reviews, fails, tagStart, tagIds,
+                    dict, probe, System.currentTimeMillis());
+        } catch (SQLException e) {
+            throw new RuntimeException("card stats snapshot failed", e);
+        }
+    }
+
+    /**
+     * Re-read deck, ease, lapses, tags and recent review counts of {@code ids} into their slots. Returns false
+     * when that cannot be done in place (a card was added, deleted, suspended or resumed, or its note's tags no
+     * longer fit its slot); the snapshot may then be partly patched and should be rebuilt.
+     */
+    boolean patch(long[] ids, long recentSinceMs) {
+        Connection c = Database.get();
+        try (PreparedStatement card = c.prepareStatement(
+                "SELECT n.deck_id, c.ease, c.lapses, n.tags, c.status FROM card c JOIN note n ON n.id=c.note_id WHERE c.id=?");
+             PreparedStatement recent = c.prepareStatement(
+                     "SELECT COUNT(*), SUM(CASE WHEN rating=1 THEN 1 ELSE 0 END) FROM review_log " +
+                             "WHERE card_id=? AND reviewed_at >= ?")) {
+            for (long id : ids) {
+                int i = Arrays.binarySearch(cardIds, 0, size, id);
+                card.setLong(1, id);
+                try (ResultSet rs = card.executeQuery()) {
+                    if (!rs.next()) {
+                        if (i >= 0) return false;
+                        continue;
+                    }
+                    boolean suspended = rs.getInt(5) == 3;
+                    if (i < 0 && suspended) continue;
+                    if (i < 0 || suspended) return false;
+                    int[] tags = tagIdsOf(rs.getString(4));
+                    if (tags == null || tags.length != tagStart[i + 1] - tagStart[i]) return false;
+                    deckIds[i] = rs.getLong(1);
+                    double e = rs.getDouble(2);
+                    ease[i] = rs.wasNull() ? 2.5f : (float) e;
+                    lapses[i] = (short) Math.min(Short.MAX_VALUE, rs.getInt(3));
+                    System.arraycopy(tags, 0, tagIds, tagStart[i], tags.length);
+                }
+                recent.setLong(1, id);
+                recent.setTimestamp(2, new Timestamp(recentSinceMs));
+                try (ResultSet rs = recent.executeQuery()) {
+                    rs.next();
+                    recentReviews[i] = (short) Math.min(Short.MAX_VALUE, rs.getLong(1));
+                    recentFails[i] = (short) Math.min(Short.MAX_VALUE, rs.getLong(2));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            throw new RuntimeException("card stats patch failed", e);
+        }
+    }
+
+    /** Ids of the cards of one note. */
+    static long[] cardsOfNote(long noteId) {
+        try (PreparedStatement ps = Database.get().prepareStatement("SELECT id FROM card WHERE note_id=? ORDER BY id")) {
+            ps.setLong(1, noteId);
+            long[] ids = new long[0];
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids = Arrays.copyOf(ids, ids.length + 1);
+                    ids[ids.length - 1] = rs.getLong(1);
+                }
+            }
+            return ids;
+        } catch (SQLException e) {
+            throw new RuntimeException("note cards lookup failed", e);
+        }
+    }
+
+    /** Interned ids of a note's tags, or null when one of them is not in the dictionary yet. */
+    private int[] tagIdsOf(String tags) {
+        List<String> names = splitTags(tags);
+        int[] out = new int[names.size()];
+        for (int k = 0; k < out.length; k++) {
+            Integer id = tagDict.get(names.get(k));
+            if (id == null) return null;
+            out[k] = id;
+        }
+        return out;
+    }
+
+    /** Card count and highest card id; both are answered without scanning the table. */
+    static long[] probe() throws SQLException {
+        try (PreparedStatement ps = Database.get().prepareStatement("SELECT COUNT(*), MAX(id) FROM card");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return new long[]{rs.getLong(1), rs.getLong(2)};
+        }
+    }
+
+    /** Tag id of {@code tag} (case-insensitive), or -1 when no card has it. */
+    int tagId(String tag) {
+        Integer id = tag == null ? null : tagDict.get(tag.trim().toLowerCase(Locale.ROOT));
+        return id == null ? -1 : id;
+    }
+
+    /** Note tags as stored ("a;b", "a b", "a,b", ...), lower-cased and de-duplicated. */
+    static List<String> splitTags(String tags) {
+        List<String> out = new ArrayList<String>();
+        if (tags == null) return out;
+        for (String p : tags.split("[\\s;,|]+")) {
+            String t = p.trim().toLowerCase(Locale.ROOT);
+            if (!t.isEmpty() && !out.contains(t)) out.add(t);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,134 @@
+package com.memorizer.service;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.Database;
+import com.memorizer.db.ExamRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched writer for exam answers. Answers are queued in memory and written on the {@code exam-writer} thread
+ * (own side connection, one transaction per batch) once {@code app.exam.write-batch} answers are pending,
+ * {@code app.exam.write-delay-ms} after the first pending answer, when a session finishes, or on {@link #flush}.
+ * A failed write keeps its answers queued for the next attempt.
+ */
+public final class ExamRecorder {
+    private static final Logger log = LoggerFactory.getLogger(ExamRecorder.class);
+    private static volatile ExamRecorder instance;
+
+    private final ExamRepository repo = new ExamRepository();
+    private final Object lock = new Object();
+    private List<ExamRepository.Answer> pending = new ArrayList<ExamRepository.Answer>();
+    private List<Long> finished = new ArrayList<Long>();
+    private ScheduledExecutorService writer;
+    private ScheduledFuture<?> scheduled;
+
+    ExamRecorder() {}
+
+    public static ExamRecorder get() {
+        ExamRecorder r = instance;
+        if (r == null) {
+            synchronized (ExamRecorder.class) {
+                r = instance;
+                if (r == null) instance = r = new ExamRecorder();
+            }
+        }
+        return r;
+    }
+
+    /** Start a session (written immediately); returns its id. */
+    public long start(String source, Long deckId, String tags, int planned) {
+        return repo.startSession(source, deckId, tags, planned);
+    }
+
+    /** Queue one answer of session {@code sessionId}. */
+    public void answer(long sessionId, long cardId, boolean correct, int latencyMs) {
+        ExamRepository.Answer a = new ExamRepository.Answer();
+        a.sessionId = sessionId;
+        a.cardId = cardId;
+        a.answeredAt = System.currentTimeMillis();
+        a.correct = correct;
+        a.latencyMs = Math.max(0, latencyMs);
+        int size;
+        synchronized (lock) {
+            pending.add(a);
+            size = pending.size();
+        }
+        if (size >= Math.max(1, Config.getInt("app.exam.write-batch", 32))) schedule(0);
+        else schedule(Math.max(0, Config.getInt("app.exam.write-delay-ms", 2000)));
+    }
+
+    /** Mark a session finished and write everything queued so far. */
+    public void finish(long sessionId) {
+        synchronized (lock) { finished.add(sessionId); }
+        schedule(0);
+    }
+
+    /** Write everything queued now, on the calling thread (shutdown, tests). */
+    public void flush() {
+        synchronized (lock) {
+            if (scheduled != null) { scheduled.cancel(false); scheduled = null; }
+        }
+        write();
+    }
+
+    /** Flush and stop the writer thread. */
+    public void stop() {
+        flush();
+        synchronized (lock) {
+            if (writer != null) { writer.shutdown(); writer = null; }
+        }
+    }
+
+    /** Schedule a write in {@code delayMs} unless one is due sooner. */
+    private void schedule(long delayMs) {
+        synchronized (lock) {
+            if (writer == null) {
+                writer = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "exam-writer");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            if (scheduled != null && !scheduled.isDone()) {
+                if (scheduled.getDelay(TimeUnit.MILLISECONDS) <= delayMs) return;
+                scheduled.cancel(false);
+            }
+            scheduled = writer.schedule(this::write, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void write() {
+        // Writes are serialized so a flush never overtakes a batch in flight
+        synchronized (repo) {
+            List<ExamRepository.Answer> batch;
+            List<Long> done;
+            synchronized (lock) {
+                if (pending.isEmpty() && finished.isEmpty()) return;
+                batch = pending;
+                done = finished;
+                pending = new ArrayList<ExamRepository.Answer>();
+                finished = new ArrayList<Long>();
+            }
+            try (Connection c = Database.openSide()) {
+                repo.writeAnswers(c, batch, done);
+            } catch (Exception e) {
+                log.warn("Exam answers not written yet ({} queued): {}", batch.size(), e.toString());
+                synchronized (lock) {
+                    batch.addAll(pending);
+                    done.addAll(finished);
+                    pending = batch;
+                    finished = done;
+                }
+            }
+        }
+    }
+}
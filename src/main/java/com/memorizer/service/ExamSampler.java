@@ -0,0 +1,282 @@
+package com.memorizer.service;
+
+import com.memorizer.app.Config;
+import com.memorizer.event.DomainEvents;
+import com.memorizer.event.EventBus;
+import com.memorizer.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Draws exam questions from the whole collection (optionally limited to decks and/or tags), weighted toward weak
+ * cards: low ease, many lapses and a high recent failure rate. Works on an in-memory {@link CardStatsSnapshot},
+ * so drawing N of M cards is a single O(M log N) scan without database access (weighted reservoir sampling
+ * without replacement, Efraimidis–Spirakis). The result order is the draw order, i.e. already shuffled.
+ * <p>
+ * Ratings, device reviews and note edits patch the affected cards' slots in place; deletes, imports and cards
+ * added behind its back rebuild the snapshot. Both run on the "exam-stats" thread, so a draw waits only while a
+ * rebuild is still in flight.
+ */
+public final class ExamSampler {
+    private static final Logger log = LoggerFactory.getLogger(ExamSampler.class);
+    private static volatile ExamSampler instance;
+
+    private final Metrics.Series sampleTimer = Metrics.timer("memorizer_exam_sample_seconds");
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "exam-stats");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile CardStatsSnapshot snapshot;
+    /** Latest rebuild; guarded by this. */
+    private Future<CardStatsSnapshot> rebuilding;
+    /** A rebuild is wanted that has not started reading yet; guarded by this. */
+    private boolean stale = true;
+
+    ExamSampler() {}
+
+    /** Shared instance; subscribes to domain events on first use. */
+    public static ExamSampler get() {
+        ExamSampler s = instance;
+        if (s == null) {
+            synchronized (ExamSampler.class) {
+                s = instance;
+                if (s == null) {
+                    s = new ExamSampler();
+                    s.subscribe();
+                    instance = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    void subscribe() {
+        Metrics.describe("memorizer_exam_sample_seconds", "Time to draw a weighted exam from the card stats snapshot");
+        EventBus.subscribe(DomainEvents.CardRated.class, e -> patch(new long[]{e.cardId}));
+        EventBus.subscribe(DomainEvents.ReviewsImported.class, e -> patch(e.cardIds));
+        EventBus.subscribe(DomainEvents.NoteEdited.class, e -> patchNote(e.noteId));
+        EventBus.subscribe(DomainEvents.ContentDeleted.class, e -> invalidate());
+        EventBus.subscribe(DomainEvents.ContentImported.class, e -> invalidate());
+    }
+
+    /** Build the snapshot in the background now, so the first draw does not wait for it. */
+    public void prefetch() {
+        synchronized (this) {
+            if (snapshot != null || rebuilding != null) return;
+        }
+        invalidate();
+    }
+
+    /** Rebuild the snapshot in the background; draws wait for it. */
+    public synchronized void invalidate() {
+        if (stale && rebuilding != null && !rebuilding.isDone()) return; // queued, not reading yet
+        stale = true;
+        rebuilding = worker.submit(this::rebuild);
+    }
+
+    /**
+     * Re-read the stats of {@code cardIds} into the current snapshot in the background. Falls back to a rebuild
+     * when the cards do not fit in place or are a large part of the collection.
+     */
+    void patch(long[] cardIds) {
+        if (cardIds == null || cardIds.length == 0) return;
+        worker.execute(() -> {
+            try {
+                apply(cardIds);
+            } catch (RuntimeException e) {
+                log.warn("Exam stats patch failed: {}", e.toString());
+                invalidate();
+            }
+        });
+    }
+
+    /** {@link #patch} for the cards of one note. */
+    void patchNote(long noteId) {
+        worker.execute(() -> {
+            try {
+                if (snapshot != null) apply(CardStatsSnapshot.cardsOfNote(noteId));
+            } catch (RuntimeException e) {
+                log.warn("Exam stats patch failed: {}", e.toString());
+                invalidate();
+            }
+        });
+    }
+
+    /** Worker thread only. */
+    private void apply(long[] cardIds) {
+        CardStatsSnapshot s = snapshot;
+        if (s == null || cardIds.length == 0) return; // the first build reads everything
+        if (cardIds.length > Math.max(64, s.size / 8) || !s.patch(cardIds, recentSinceMs())) invalidate();
+    }
+
+    /** Wait until queued patches and rebuilds have run (for tests). */
+    void awaitIdle() throws Exception {
+        worker.submit(() -> {}).get();
+    }
+
+    /**
+     * Draw up to {@code n} distinct card ids. {@code deckIds} and {@code tags} restrict the candidates (null or
+     * empty for no restriction; a card qualifies with any of the tags).
+     */
+    public List<Long> sample(int n, Collection<Long> deckIds, Collection<String> tags, Random rnd) {
+        CardStatsSnapshot s = snapshot();
+        long t0 = System.nanoTime();
+        try {
+            return sample(s, n, deckIds, tags, rnd);
+        } finally {
+            sampleTimer.recordSince(t0);
+        }
+    }
+
+    static List<Long> sample(CardStatsSnapshot s, int n, Collection<Long> deckIds, Collection<String> tags, Random rnd) {
+        List<Long> out = new ArrayList<Long>();
+        if (n <= 0 || s.size == 0) return out;
+
+        long[] decks = null;
+        if (deckIds != null && !deckIds.isEmpty()) {
+            decks = new long[deckIds.size()];
+            int i = 0;
+            for (Long d : deckIds) decks[i++] = d == null ? 0 : d;
+            Arrays.sort(decks);
+        }
+        boolean[] wanted = null;
+        if (tags != null && !tags.isEmpty()) {
+            wanted = new boolean[s.tagDict.size()];
+            boolean any = false;
+            for (String t : tags) {
+                int id = s.tagId(t);
+                if (id >= 0) { wanted[id] = true; any = true; }
+            }
+            if (!any) return out;
+        }
+
+        // Min-heap of the n largest keys log(u)/w; keys[0] is the current threshold
+        double[] keys = new double[n];
+        int[] idx = new int[n];
+        int filled = 0;
+        for (int i = 0; i < s.size; i++) {
+            if (decks != null && Arrays.binarySearch(decks, s.deckIds[i]) < 0) continue;
+            if (wanted != null && !hasTag(s, i, wanted)) continue;
+            double u = 1.0 - rnd.nextDouble(); // (0, 1]
+            double key = Math.log(u) / weight(s.ease[i], s.lapses[i], s.recentReviews[i], s.recentFails[i]);
+            if (filled < n) {
+                keys[filled] = key;
+                idx[filled] = i;
+                siftUp(keys, idx, filled++);
+            } else if (key > keys[0]) {
+                keys[0] = key;
+                idx[0] = i;
+                siftDown(keys, idx, filled);
+            }
+        }
+        // Pop ascending, emit descending: the highest key is the first draw
+        Long[] drawn = new Long[filled];
+        for (int k = filled - 1; k >= 0; k--) {
+            drawn[k] = s.cardIds[idx[0]];
+            keys[0] = keys[k];
+            idx[0] = idx[k];
+            siftDown(keys, idx, k);
+        }
+        out.addAll(Arrays.asList(drawn));
+        return out;
+    }
+
+    /**
+     * Sampling weight of a card: 1 for a healthy card, up to about 12 for a card at minimum ease with many lapses
+     * that failed most recent reviews.
+     */
+    static double weight(float ease, int lapses, int recentReviews, int recentFails) {
+        double w = 1.0;
+        w += 2.0 * Math.max(0.0, 2.5 - ease);
+        w += 0.5 * Math.min(lapses, 10);
+        if (recentReviews > 0) w += 4.0 * Math.min(1.0, (double) recentFails / recentReviews);
+        return w;
+    }
+
+    CardStatsSnapshot snapshot() {
+        Future<CardStatsSnapshot> f;
+        synchronized (this) {
+            if (stale || snapshot == null || changedBehindBack(snapshot)) invalidate();
+            f = rebuilding;
+        }
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("card stats snapshot interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("card stats snapshot failed", e.getCause());
+        }
+    }
+
+    private CardStatsSnapshot rebuild() {
+        synchronized (this) { stale = false; }
+        try {
+            CardStatsSnapshot s = CardStatsSnapshot.load(recentSinceMs());
+            snapshot = s;
+            return s;
+        } catch (RuntimeException e) {
+            synchronized (this) { stale = true; }
+            throw e;
+        }
+    }
+
+    private static long recentSinceMs() {
+        long days = Math.max(1, Config.getInt("app.exam.recent-days", 30));
+        return System.currentTimeMillis() - days * 86_400_000L;
+    }
+
+    /** Imports insert cards without publishing events; a count/max-id probe catches that cheaply. */
+    private static boolean changedBehindBack(CardStatsSnapshot s) {
+        try {
+            return !Arrays.equals(CardStatsSnapshot.probe(), s.probe);
+        } catch (SQLException e) {
+            throw new RuntimeException("card stats probe failed", e);
+        }
+    }
+
+    private static boolean hasTag(CardStatsSnapshot s, int i, boolean[] wanted) {
+        for (int k = s.tagStart[i]; k < s.tagStart[i + 1]; k++) {
+            if (wanted[s.tagIds[k]]) return true;
+        }
+        return false;
+    }
+
+    private static void siftUp(double[] keys, int[] idx, int k) {
+        while (k > 0) {
+            int p = (k - 1) >>> 1;
+            if (keys[p] <= keys[k]) break;
+            swap(keys, idx, p, k);
+            k = p;
+        }
+    }
+
+    private static void siftDown(double[] keys, int[] idx, int size) {
+        int k = 0;
+        while (true) {
+            int l = 2 * k + 1;
+            if (l >= size) break;
+            int m = (l + 1 < size && keys[l + 1] < keys[l]) ? l + 1 : l;
+            if (keys[k] <= keys[m]) break;
+            swap(keys, idx, k, m);
+            k = m;
+        }
+    }
+
+    private static void swap(double[] keys, int[] idx, int a, int b) {
+        double tk = keys[a]; keys[a] = keys[b]; keys[b] = tk;
+        int ti = idx[a]; idx[a] = idx[b]; idx[b] = ti;
+    }
+}
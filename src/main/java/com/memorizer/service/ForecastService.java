@@ -0,0 +1,282 @@
+package com.memorizer.service;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.Database;
+import com.memorizer.model.Card;
+import com.memorizer.model.Rating;
+import com.memorizer.srs.SrsEngine;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Workload forecaster and retention simulator.
+ * Loads a compact, array-based snapshot of the {@code card} table once, then replays
+ * the active {@link SrsEngine} over the next N days with Monte Carlo trials run in parallel.
+ * Recall probability, rating mix and per-review latency are calibrated from {@code review_log}.
+ */
+public class ForecastService {
+    private static final double DAY_MS = 24.0 * 60 * 60 * 1000;
+    private static final int CHUNK = 2048;
+    private static final long SNAPSHOT_TTL_MS = 60_000L;
+
+    private final SrsEngine srs;
+    private volatile Snapshot cached;
+
+    /** Simulation inputs; defaults follow current preferences. */
+    public static class Params {
+        public int days = 30;
+        public int trials = 16;
+        public int dailyNewLimit = Config.getInt("app.study.daily-new-limit", 20);
+        public long seed = 42L;
+    }
+
+    /** Expected values for one future day, averaged over all trials. */
+    public static class DayForecast {
+        public LocalDate date;
+        public double reviews;
+        public double newCards;
+        public double minutes;
+        public double retention;
+    }
+
+    /** Full projection plus the calibration that produced it. */
+    public static class Forecast {
+        public List<DayForecast> days = new ArrayList<DayForecast>();
+        public int cards;
+        public int trials;
+        public int dailyNewLimit;
+        public double avgLatencyMs;
+        public double historicRetention;
+        public double totalMinutes;
+        public long elapsedMs;
+    }
+
+    /** Compact per-card schedule state plus historic calibration (immutable once loaded). */
+    public static class Snapshot {
+        final int size;
+        final double[] dueDay;      // days from now; NaN for new cards
+        final double[] interval;    // NaN when null
+        final double[] ease;
+        final double[] sinceReview; // days since last review; NaN when never reviewed
+        final int[] newRank;        // introduction order for new cards, -1 otherwise
+        final double retention;     // recall rate at due time
+        final double firstPass;     // pass rate on first sight
+        final double[] passMix;     // HARD/GOOD/EASY weights among passes
+        final double avgLatencyMs;
+        final long loadedAt;
+
+        Snapshot(int size, double[] dueDay, double[] interval, double[] ease, double[] sinceReview, int[] newRank,
+                 double retention, double firstPass, double[] passMix, double avgLatencyMs) {
+            this.size = size;
+            this.dueDay = dueDay;
+            this.interval = interval;
+            this.ease = ease;
+            this.sinceReview = sinceReview;
+            this.newRank = newRank;
+            this.retention = retention;
+            this.firstPass = firstPass;
+            this.passMix = passMix;
+            this.avgLatencyMs = avgLatencyMs;
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        public int size() { return size; }
+    }
+
+    public ForecastService(SrsEngine srs) {
+        this.srs = srs == null ? new SrsEngine() : srs;
+    }
+
+    /** Run a forecast against a (briefly cached) snapshot of the current collection. */
+    public Forecast forecast(Params p) {
+        Snapshot s = cached;
+        if (s == null || System.currentTimeMillis() - s.loadedAt > SNAPSHOT_TTL_MS) {
+            s = loadSnapshot();
+            cached = s;
+        }
+        return forecast(s, p);
+    }
+
+    /** Drop the cached snapshot so the next forecast re-reads the card table. */
+    public void invalidate() { cached = null; }
+
+    /** Simulate {@code p.trials} futures of {@code p.days} days each and average them. */
+    public Forecast forecast(Snapshot s, Params p) {
+        long t0 = System.currentTimeMillis();
+        final int days = Math.max(1, p.days);
+        final int trials = Math.max(1, p.trials);
+        final int dailyNew = Math.max(0, p.dailyNewLimit);
+        int chunks = (s.size + CHUNK - 1) / CHUNK;
+
+        double[][] acc = IntStream.range(0, chunks).parallel()
+                .mapToObj(ch -> simulateChunk(s, ch * CHUNK, Math.min(s.size, (ch + 1) * CHUNK),
+                        days, trials, dailyNew, p.seed ^ (0x9E3779B97F4A7C15L * (ch + 1))))
+                .reduce(new double[3][days], ForecastService::merge);
+
+        Forecast f = new Forecast();
+        f.cards = s.size;
+        f.trials = trials;
+        f.dailyNewLimit = dailyNew;
+        f.avgLatencyMs = s.avgLatencyMs;
+        f.historicRetention = s.retention;
+        LocalDate today = LocalDate.now();
+        for (int d = 0; d < days; d++) {
+            DayForecast df = new DayForecast();
+            df.date = today.plusDays(d);
+            df.reviews = acc[0][d] / trials;
+            df.newCards = acc[1][d] / trials;
+            df.retention = acc[0][d] > 0 ? acc[2][d] / acc[0][d] : 0.0;
+            df.minutes = df.reviews * s.avgLatencyMs / 60000.0;
+            f.totalMinutes += df.minutes;
+            f.days.add(df);
+        }
+        f.elapsedMs = System.currentTimeMillis() - t0;
+        return f;
+    }
+
+    /** acc[0]=reviews, acc[1]=new introductions, acc[2]=sum of recall probability at review time. */
+    private double[][] simulateChunk(Snapshot s, int from, int to, int days, int trials, int dailyNew, long seed) {
+        double[][] acc = new double[3][days];
+        SplittableRandom rnd = new SplittableRandom(seed);
+        Card scratch = new Card();
+        for (int i = from; i < to; i++) {
+            double start;
+            boolean isNew = s.newRank[i] >= 0;
+            if (isNew) {
+                if (dailyNew == 0) continue;
+                start = s.newRank[i] / dailyNew;
+                if (start >= days) continue;
+            } else {
+                start = Math.max(0.0, s.dueDay[i]);
+                if (start >= days) continue;
+            }
+            for (int t = 0; t < trials; t++) {
+                double due = start;
+                double ivl = s.interval[i];
+                double ease = s.ease[i];
+                double lastReview = Double.isNaN(s.sinceReview[i]) ? Double.NaN : -s.sinceReview[i];
+                boolean first = isNew;
+                if (isNew) acc[1][(int) due] += 1;
+                while (due < days) {
+                    int day = (int) due;
+                    double pRecall;
+                    if (first || Double.isNaN(ivl) || ivl <= 0) {
+                        pRecall = s.firstPass;
+                    } else {
+                        double elapsed = Double.isNaN(lastReview) ? ivl : Math.max(due - lastReview, 0.0);
+                        pRecall = Math.pow(s.retention, elapsed / ivl);
+                    }
+                    acc[0][day] += 1;
+                    acc[2][day] += pRecall;
+
+                    Rating r = rnd.nextDouble() < pRecall ? samplePass(s.passMix, rnd) : Rating.AGAIN;
+                    scratch.intervalDays = (first || Double.isNaN(ivl)) ? null : ivl;
+                    scratch.ease = ease;
+                    SrsEngine.Result res = srs.schedule(scratch, r);
+                    ivl = res.nextIntervalDays;
+                    ease = res.newEase;
+                    lastReview = due;
+                    first = false;
+                    due = due + Math.max(ivl, 1.0 / 1440.0);
+                }
+            }
+        }
+        return acc;
+    }
+
+    private static Rating samplePass(double[] mix, SplittableRandom rnd) {
+        double u = rnd.nextDouble();
+        if (u < mix[0]) return Rating.HARD;
+        if (u < mix[0] + mix[1]) return Rating.GOOD;
+        return Rating.EASY;
+    }
+
+    private static double[][] merge(double[][] a, double[][] b) {
+        double[][] out = new double[a.length][a[0].length];
+        for (int k = 0; k < a.length; k++)
+            for (int d = 0; d < a[k].length; d++) out[k][d] = a[k][d] + b[k][d];
+        return out;
+    }
+
+    /** Load card schedule state and review_log calibration in a handful of set-based queries. */
+    public Snapshot loadSnapshot() {
+        long now = System.currentTimeMillis();
+        int n = (int) scalar("SELECT COUNT(*) FROM card WHERE status <> 3", 0);
+        double[] dueDay = new double[n];
+        double[] interval = new double[n];
+        double[] ease = new double[n];
+        double[] since = new double[n];
+        int[] newRank = new int[n];
+        int i = 0, rank = 0;
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "SELECT due_at, interval_days, ease, status, last_review_at FROM card WHERE status <> 3 ORDER BY id ASC")) {
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next() && i < n) {
+                    Timestamp due = rs.getTimestamp(1);
+                    Object ivlObj = rs.getObject(2);
+                    double e = rs.getDouble(3);
+                    int status = rs.getInt(4);
+                    Timestamp last = rs.getTimestamp(5);
+                    boolean isNew = due == null || status == 0;
+                    dueDay[i] = isNew ? Double.NaN : (due.getTime() - now) / DAY_MS;
+                    interval[i] = ivlObj == null ? Double.NaN : ((Number) ivlObj).doubleValue();
+                    ease[i] = e <= 0 ? 2.5 : e;
+                    since[i] = last == null ? Double.NaN : (now - last.getTime()) / DAY_MS;
+                    newRank[i] = isNew ? rank++ : -1;
+                    i++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("forecast snapshot failed", e);
+        }
+
+        // Calibration from history; sensible defaults when there is little data yet
+        long reviews = scalar("SELECT COUNT(*) FROM review_log WHERE prev_interval >= 1", 0);
+        long passes = scalar("SELECT COUNT(*) FROM review_log WHERE prev_interval >= 1 AND rating > 1", 0);
+        double retention = reviews >= 20 ? clamp(passes / (double) reviews, 0.5, 0.99) : 0.9;
+        long firsts = scalar("SELECT COUNT(*) FROM review_log WHERE COALESCE(prev_interval,0) = 0", 0);
+        long firstPasses = scalar("SELECT COUNT(*) FROM review_log WHERE COALESCE(prev_interval,0) = 0 AND rating > 1", 0);
+        double firstPass = firsts >= 20 ? clamp(firstPasses / (double) firsts, 0.3, 0.99) : 0.75;
+
+        double[] mix = new double[]{0.15, 0.70, 0.15};
+        long hard = scalar("SELECT COUNT(*) FROM review_log WHERE rating = 2", 0);
+        long good = scalar("SELECT COUNT(*) FROM review_log WHERE rating = 3", 0);
+        long easy = scalar("SELECT COUNT(*) FROM review_log WHERE rating = 4", 0);
+        long sum = hard + good + easy;
+        if (sum >= 20) mix = new double[]{hard / (double) sum, good / (double) sum, easy / (double) sum};
+
+        double latency = 8000.0;
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "SELECT AVG(CAST(latency_ms AS DOUBLE)), COUNT(*) FROM review_log WHERE latency_ms > 0 AND latency_ms < 120000")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getLong(2) >= 10) latency = rs.getDouble(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("forecast latency query failed", e);
+        }
+
+        return new Snapshot(i, dueDay, interval, ease, since, newRank, retention, firstPass, mix, latency);
+    }
+
+    private static long scalar(String sql, long def) {
+        try (PreparedStatement ps = Database.get().prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : def;
+        } catch (SQLException e) {
+            throw new RuntimeException("forecast query failed: " + sql, e);
+        }
+    }
+
+    private static double clamp(double v, double lo, double hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+}
@@ -0,0 +1,214 @@
+package com.memorizer.service;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.Database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk rescheduler that flattens the daily due load.
+ * Review cards are moved within a fuzz window derived from their interval (and narrowed for
+ * low-ease cards) so that no day exceeds a per-day cap where possible. Cards sharing a window keep
+ * their relative due order. Use {@link #preview} to get the before/after histogram, then
+ * {@link #apply} to write the moves in batches. Both scan or write many cards; call them off the FX thread.
+ */
+public class LoadBalanceService {
+    private static final int BATCH = 500;
+
+    /** Balancing inputs; defaults follow current preferences. */
+    public static class Params {
+        public int maxPerDay = Config.getInt("app.study.balance.max-per-day", 150);
+        public int horizonDays = Config.getInt("app.study.balance.horizon-days", 30);
+        public int fuzzPercent = Config.getInt("app.study.balance.fuzz-percent", 10);
+        public int maxFuzzDays = Config.getInt("app.study.balance.max-fuzz-days", 7);
+    }
+
+    /** A single due-date change. */
+    public static class Move {
+        public long cardId;
+        public Timestamp fromDue;
+        public Timestamp toDue;
+    }
+
+    /** Result of a dry run: per-day counts from today, before and after balancing. */
+    public static class Preview {
+        public LocalDate today;
+        public int[] before;
+        public int[] after;
+        public int cap;
+        public int overflowDays;
+        public int overdue;
+        public List<Move> moves = new ArrayList<Move>();
+
+        public int peakBefore() { return max(before); }
+        public int peakAfter() { return max(after); }
+
+        private static int max(int[] a) {
+            int m = 0;
+            for (int v : a) m = Math.max(m, v);
+            return m;
+        }
+    }
+
+    private static class Item {
+        long id;
+        Timestamp due;
+        int day;   // days from today, negative when overdue
+        int lo, hi;
+        int target;
+    }
+
+    /** Compute the redistribution without touching the database. */
+    public Preview preview(Params p) {
+        final int horizon = Math.max(1, p.horizonDays);
+        final int maxFuzz = Math.max(1, p.maxFuzzDays);
+        final int cap = Math.max(1, p.maxPerDay);
+        final int span = horizon + maxFuzz;
+        LocalDate today = LocalDate.now();
+        Timestamp until = Timestamp.valueOf(today.plusDays(span).atStartOfDay());
+
+        Preview pv = new Preview();
+        pv.today = today;
+        pv.cap = cap;
+        pv.before = new int[span];
+        int[] load = new int[span];
+        List<Item> movable = new ArrayList<Item>();
+
+        String sql = "SELECT id, due_at, interval_days, ease, status FROM card " +
+                "WHERE status IN (1,2) AND due_at IS NOT NULL AND due_at < ?";
+        try (PreparedStatement ps = Database.get().prepareStatement(sql)) {
+            ps.setTimestamp(1, until);
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp due = rs.getTimestamp(2);
+                    double ivl = rs.getObject(3) == null ? 0.0 : rs.getDouble(3);
+                    double ease = rs.getDouble(4);
+                    int status = rs.getInt(5);
+                    int day = (int) ChronoUnit.DAYS.between(today, due.toLocalDateTime().toLocalDate());
+                    if (day < 0) pv.overdue++;
+                    pv.before[Math.max(0, day)]++;
+
+                    // Learning steps and cards due past the horizon stay put but still count as load
+                    if (status != 2 || ivl < 1.0 || day >= horizon) {
+                        load[Math.max(0, day)]++;
+                        continue;
+                    }
+                    int fuzz = (int) Math.max(1, Math.min(maxFuzz, Math.round(ivl * p.fuzzPercent / 100.0)));
+                    Item it = new Item();
+                    it.id = rs.getLong(1);
+                    it.due = due;
+                    it.day = day;
+                    if (day < 0) {
+                        it.lo = 0;
+                        it.hi = Math.min(span - 1, fuzz);
+                    } else {
+                        // Struggling cards are not pushed as far into the future
+                        int forward = ease > 0 && ease < 2.0 ? Math.max(1, fuzz / 2) : fuzz;
+                        it.lo = Math.max(0, day - fuzz);
+                        it.hi = Math.min(span - 1, day + forward);
+                    }
+                    movable.add(it);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("load balance preview failed", e);
+        }
+
+        // Earliest-deadline first: tight windows are placed before flexible ones
+        movable.sort(Comparator.comparingInt((Item it) -> it.hi).thenComparingInt(it -> it.hi - it.lo));
+        Map<Long, List<Item>> byWindow = new HashMap<Long, List<Item>>();
+        for (Item it : movable) {
+            int anchor = Math.max(0, it.day);
+            // Only move a card when its own day is already at the cap
+            boolean keep = anchor <= it.hi && load[anchor] < cap;
+            int best = keep ? anchor : -1;
+            for (int d = it.lo; !keep && d <= it.hi; d++) {
+                if (best < 0 || load[d] < load[best]
+                        || (load[d] == load[best] && Math.abs(d - anchor) < Math.abs(best - anchor))) {
+                    best = d;
+                }
+            }
+            load[best]++;
+            it.target = best;
+            byWindow.computeIfAbsent(((long) it.lo << 32) | it.hi, k -> new ArrayList<Item>()).add(it);
+        }
+
+        // Cards with the same window can trade days freely; hand the days out in due order
+        Comparator<Item> byDue = Comparator.comparing((Item it) -> it.due).thenComparingLong(it -> it.id);
+        for (List<Item> group : byWindow.values()) {
+            int[] days = new int[group.size()];
+            for (int i = 0; i < days.length; i++) days[i] = group.get(i).target;
+            Arrays.sort(days);
+            group.sort(byDue);
+            for (int i = 0; i < days.length; i++) {
+                Item it = group.get(i);
+                if (days[i] == Math.max(0, it.day)) continue;
+                Move m = new Move();
+                m.cardId = it.id;
+                m.fromDue = it.due;
+                LocalDateTime from = it.due.toLocalDateTime();
+                m.toDue = Timestamp.valueOf(today.plusDays(days[i]).atTime(from.toLocalTime()));
+                pv.moves.add(m);
+            }
+        }
+
+        pv.after = load;
+        for (int d = 0; d < horizon; d++) if (load[d] > cap) pv.overflowDays++;
+        return pv;
+    }
+
+    /**
+     * Write the moves of a preview in batched updates inside one transaction.
+     * Cards whose due date changed since the preview (e.g. rated meanwhile) are left alone.
+     * @return number of cards actually rescheduled
+     */
+    public int apply(Preview pv) {
+        if (pv == null || pv.moves.isEmpty()) return 0;
+        Connection c = Database.get();
+        int updated = 0;
+        try {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement("UPDATE card SET due_at=? WHERE id=? AND due_at=?")) {
+                int pending = 0;
+                for (Move m : pv.moves) {
+                    ps.setTimestamp(1, m.toDue);
+                    ps.setLong(2, m.cardId);
+                    ps.setTimestamp(3, m.fromDue);
+                    ps.addBatch();
+                    if (++pending == BATCH) {
+                        updated += sum(ps.executeBatch());
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) updated += sum(ps.executeBatch());
+            }
+            c.commit();
+            return updated;
+        } catch (SQLException e) {
+            try { c.rollback(); } catch (SQLException ignored) {}
+            throw new RuntimeException("load balance apply failed", e);
+        } finally {
+            try { c.setAutoCommit(true); } catch (SQLException ignored) {}
+        }
+    }
+
+    private static int sum(int[] counts) {
+        int n = 0;
+        for (int v : counts) if (v > 0) n += v;
+        return n;
+    }
+}
@@ -0,0 +1,178 @@
+package com.memorizer.service;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory copy of today's study_plan rows, loaded once per day (and after a rebuild) by
+ * {@link PlanService}, which writes every change through to H2 and mirrors it here.
+ * Pending items are kept in plan order, globally and per deck, so the next item and the
+ * status counters for any deck filter are available without a query. Not thread-safe;
+ * PlanService guards it with its own lock.
+ */
+final class PlanModel {
+
+    static final class Item {
+        long cardId;
+        long noteId;
+        Long deckId;
+        String deckName;
+        String front;
+        int kind;
+        int status;
+        int orderNo;
+    }
+
+    final LocalDate day;
+    /** Connection the rows were read from; a different one (DB restarted or switched) means stale. */
+    final Connection source;
+
+    private final List<Item> rows = new ArrayList<Item>();
+    private final Map<Long, Item> byCard = new HashMap<Long, Item>();
+    private final LinkedHashMap<Long, Item> pending = new LinkedHashMap<Long, Item>();
+    private final Map<Long, LinkedHashMap<Long, Item>> pendingByDeck = new HashMap<Long, LinkedHashMap<Long, Item>>();
+    private final int[] counts = new int[4];
+    private final Map<Long, int[]> countsByDeck = new HashMap<Long, int[]>();
+    private int maxOrder;
+    /** Bumped when rows are added, removed or change status; invalidates {@link #ordered}. */
+    private int version;
+    private String orderedKey;
+    private List<Item> ordered;
+
+    PlanModel(LocalDate day, Connection source) {
+        this.day = day;
+        this.source = source;
+    }
+
+    /** Append a row; rows must arrive in ascending order_no. */
+    void add(Item it) {
+        Item old = byCard.get(it.cardId);
+        if (old != null) remove(old);
+        rows.add(it);
+        byCard.put(it.cardId, it);
+        version++;
+        maxOrder = Math.max(maxOrder, it.orderNo);
+        count(it, 1);
+        if (it.status == PlanService.Status.PENDING.v) addPending(it);
+    }
+
+    /** Drop a row that no longer resolves (e.g. its card was deleted). */
+    void remove(Item it) {
+        if (byCard.remove(it.cardId) == null) return;
+        rows.remove(it);
+        version++;
+        count(it, -1);
+        if (it.status == PlanService.Status.PENDING.v) removePending(it);
+    }
+
+    void setStatus(Item it, int status) {
+        if (it.status == status) return;
+        if (it.status == PlanService.Status.PENDING.v) removePending(it);
+        count(it, -1);
+        it.status = status;
+        count(it, 1);
+        version++;
+        if (status == PlanService.Status.PENDING.v) addPending(it);
+    }
+
+    Item get(long cardId) { return byCard.get(cardId); }
+
+    int maxOrder() { return maxOrder; }
+
+    /** First pending item for the filter (null = all decks). */
+    Item firstPending(Long deck) {
+        LinkedHashMap<Long, Item> m = deck == null ? pending : pendingByDeck.get(deck);
+        if (m == null || m.isEmpty()) return null;
+        Iterator<Item> it = m.values().iterator();
+        return it.next();
+    }
+
+    /** First pending item whose card is not in {@code busy} (cards shown by other study sessions). */
+    Item firstPending(Long deck, java.util.Set<Long> busy) {
+        if (busy.isEmpty()) return firstPending(deck);
+        LinkedHashMap<Long, Item> m = deck == null ? pending : pendingByDeck.get(deck);
+        if (m == null) return null;
+        for (Item it : m.values()) {
+            if (!busy.contains(it.cardId)) return it;
+        }
+        return null;
+    }
+
+    /** Pending items in plan order (live view: copy before mutating the model). */
+    List<Item> pendingItems(Long deck) {
+        LinkedHashMap<Long, Item> m = deck == null ? pending : pendingByDeck.get(deck);
+        return m == null ? new ArrayList<Item>() : new ArrayList<Item>(m.values());
+    }
+
+    /** Status counters for the filter, indexed by {@link PlanService.Status#v}. */
+    int[] counts(Long deck) {
+        int[] c = deck == null ? counts : countsByDeck.get(deck);
+        return c == null ? new int[4] : c.clone();
+    }
+
+    /** Rows in plan order for the filter. */
+    List<Item> rows(Long deck) {
+        if (deck == null) return new ArrayList<Item>(rows);
+        List<Item> out = new ArrayList<Item>();
+        for (Item it : rows) if (deck.equals(it.deckId)) out.add(it);
+        return out;
+    }
+
+    /** Number of rows for the filter. */
+    int size(Long deck) {
+        int[] c = deck == null ? counts : countsByDeck.get(deck);
+        if (c == null) return 0;
+        int n = 0;
+        for (int v : c) n += v;
+        return n;
+    }
+
+    /**
+     * Rows for the filter sorted by {@code order} (null = plan order), as a live view that must not be modified.
+     * The last ordering is kept until any row changes, so paging through an unchanged plan does not re-sort.
+     */
+    List<Item> ordered(Long deck, String key, java.util.Comparator<Item> order) {
+        if (deck == null && order == null) return java.util.Collections.unmodifiableList(rows);
+        String k = version + "|" + deck + "|" + key;
+        if (!k.equals(orderedKey)) {
+            List<Item> out = rows(deck);
+            if (order != null) out.sort(order);
+            ordered = java.util.Collections.unmodifiableList(out);
+            orderedKey = k;
+        }
+        return ordered;
+    }
+
+    private void count(Item it, int delta) {
+        if (it.status < 0 || it.status >= counts.length) return;
+        counts[it.status] += delta;
+        if (it.deckId != null) {
+            int[] c = countsByDeck.get(it.deckId);
+            if (c == null) { c = new int[4]; countsByDeck.put(it.deckId, c); }
+            c[it.status] += delta;
+        }
+    }
+
+    private void addPending(Item it) {
+        pending.put(it.cardId, it);
+        if (it.deckId != null) {
+            LinkedHashMap<Long, Item> m = pendingByDeck.get(it.deckId);
+            if (m == null) { m = new LinkedHashMap<Long, Item>(); pendingByDeck.put(it.deckId, m); }
+            m.put(it.cardId, it);
+        }
+    }
+
+    private void removePending(Item it) {
+        pending.remove(it.cardId);
+        if (it.deckId != null) {
+            LinkedHashMap<Long, Item> m = pendingByDeck.get(it.deckId);
+            if (m != null) m.remove(it.cardId);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.memorizer.service;
 
 import com.memorizer.app.Config;
 import com.memorizer.db.Database;
+import com.memorizer.event.DomainEvents.PlanChanged;
 
 import java.sql.*;
 import java.time.LocalDate;
@@ -30,11 +31,25 @@ public class PlanService {
         public int getOrderNo() { return orderNo; }
         public int getKind() { return kind; }
         public int getStatus() { return status; }
+        public void setStatus(int status) { this.status = status; }
         public long getCardId() { return cardId; }
         public String getDeckName() { return deckName; }
         public String getFront() { return front; }
     }
 
+    /** Today's plan shared by all instances; guarded by LOCK, reloaded on a new day, DB switch or rebuild. */
+    private static final Object LOCK = new Object();
+    private static PlanModel model;
+
+    static {
+        // Fronts and decks are denormalized into the model, so a note edit reloads it lazily
+        com.memorizer.event.EventBus.subscribe(com.memorizer.event.DomainEvents.NoteEdited.class, e -> invalidateToday());
+        // Deleted cards lost their study_plan rows
+        com.memorizer.event.EventBus.subscribe(com.memorizer.event.DomainEvents.ContentDeleted.class, e -> invalidateToday());
+        // Imports update notes in bulk without per-note events
+        com.memorizer.event.EventBus.subscribe(com.memorizer.event.DomainEvents.ContentImported.class, e -> invalidateToday());
+    }
+
     public static class DeckShare {
         public String deckName;
         public int count;
@@ -42,153 +57,221 @@ public class PlanService {
 
     /** Build or rebuild today's plan based on due/leech/new constraints. */
     public void buildToday() {
+        long t0 = System.nanoTime();
         LocalDate today = LocalDate.now();
         Timestamp now = new Timestamp(System.currentTimeMillis());
-        int dailyNew = Config.getInt("app.study.daily-new-limit", 20);
-        int leechThresh = Config.getInt("app.study.leech-lapses-threshold", 8);
+        com.memorizer.app.ConfigSnapshot cfg = Config.snapshot();
+        int dailyNew = cfg.dailyNewLimit;
+        int leechThresh = cfg.leechLapsesThreshold;
 
-        try {
-            Connection c = Database.get();
-            boolean prev = c.getAutoCommit();
-            c.setAutoCommit(false);
+        // Rebuild under the model lock so no write-through interleaves with the transaction
+        synchronized (LOCK) {
             try {
-                // Carry over: bring yesterday's PENDING as today's PENDING (keep relative order)
-                LocalDate yesterday = today.minusDays(1);
-                int baseOrder = maxOrder(today) + 1;
-                try (PreparedStatement ps = c.prepareStatement(
-                        "SELECT card_id, kind FROM study_plan WHERE plan_date=? AND status=0 ORDER BY order_no ASC")) {
-                    ps.setDate(1, Date.valueOf(yesterday));
-                    try (ResultSet rs = ps.executeQuery()) {
-                        int seq = baseOrder;
-                        while (rs.next()) {
-                            long cardId = rs.getLong(1);
-                            int kind = rs.getInt(2);
-                            insert(today, cardId, null, kind, seq++);
+                Connection c = Database.get();
+                boolean prev = c.getAutoCommit();
+                c.setAutoCommit(false);
+                try {
+                    // Carry over: bring yesterday's PENDING as today's PENDING (keep relative order)
+                    LocalDate yesterday = today.minusDays(1);
+                    int baseOrder = maxOrder(today) + 1;
+                    try (PreparedStatement ps = c.prepareStatement(
+                            "SELECT card_id, kind FROM study_plan WHERE plan_date=? AND status=0 ORDER BY order_no ASC")) {
+                        ps.setDate(1, Date.valueOf(yesterday));
+                        try (ResultSet rs = ps.executeQuery()) {
+                            int seq = baseOrder;
+                            while (rs.next()) {
+                                long cardId = rs.getLong(1);
+                                int kind = rs.getInt(2);
+                                insert(today, cardId, null, kind, seq++);
+                            }
                         }
                     }
-                }
-                // Mark yesterday leftovers as ROLLED
-                try (PreparedStatement ps = c.prepareStatement(
-                        "UPDATE study_plan SET status=2, updated_at=? WHERE plan_date=? AND status=0")) {
-                    ps.setTimestamp(1, now);
-                    ps.setDate(2, Date.valueOf(yesterday));
-                    ps.executeUpdate();
-                }
+                    // Mark yesterday leftovers as ROLLED
+                    try (PreparedStatement ps = c.prepareStatement(
+                            "UPDATE study_plan SET status=2, updated_at=? WHERE plan_date=? AND status=0")) {
+                        ps.setTimestamp(1, now);
+                        ps.setDate(2, Date.valueOf(yesterday));
+                        ps.executeUpdate();
+                    }
+
+                    // Add DUE
+                    List<Long> due = findDueCards(200);
+                    int seq = maxOrder(today) + 1;
+                    for (Long id : due) insert(today, id, null, Kind.DUE.v, seq++);
 
-                // Add DUE
-                List<Long> due = findDueCards(200);
-                int seq = maxOrder(today) + 1;
-                for (Long id : due) insert(today, id, null, Kind.DUE.v, seq++);
-
-                // Add LEECH
-                List<Long> leech = findLeechCards(leechThresh, 100);
-                seq = maxOrder(today) + 1;
-                for (Long id : leech) insert(today, id, null, Kind.LEECH.v, seq++);
-
-                // Add NEW up to dailyNew
-                List<Long> news = findNewCards(dailyNew);
-                seq = maxOrder(today) + 1;
-                for (Long id : news) insert(today, id, null, Kind.NEW.v, seq++);
-
-                c.commit();
-            } catch (Exception ex) {
-                c.rollback();
-                throw ex;
+                    // Add LEECH
+                    List<Long> leech = findLeechCards(leechThresh, cfg.examLeechWrongStreak, 100);
+                    seq = maxOrder(today) + 1;
+                    for (Long id : leech) insert(today, id, null, Kind.LEECH.v, seq++);
+
+                    // Add NEW up to dailyNew
+                    List<Long> news = findNewCards(dailyNew);
+                    seq = maxOrder(today) + 1;
+                    for (Long id : news) insert(today, id, null, Kind.NEW.v, seq++);
+
+                    c.commit();
+                    model = null;
+                } catch (Exception ex) {
+                    c.rollback();
+                    throw ex;
+                } finally {
+                    c.setAutoCommit(prev);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("buildToday failed", e);
             } finally {
-                c.setAutoCommit(prev);
+                com.memorizer.metrics.Metrics.timer("memorizer_plan_build_seconds").recordSince(t0);
             }
-        } catch (SQLException e) {
-            throw new RuntimeException("buildToday failed", e);
         }
+        com.memorizer.event.EventBus.publish(PlanChanged.of(PlanChanged.Kind.REBUILT));
     }
 
     /** Append N new cards to today's plan as challenge items. */
     public void appendChallengeBatch(int size) {
         LocalDate today = LocalDate.now();
         List<Long> pick = findNewCards(size);
-        int seq = maxOrder(today) + 1;
-        for (Long id : pick) insert(today, id, null, Kind.CHALLENGE.v, seq++);
+        if (pick.isEmpty()) return;
+        synchronized (LOCK) {
+            int first = maxOrder(today) + 1;
+            int seq = first;
+            for (Long id : pick) insert(today, id, null, Kind.CHALLENGE.v, seq++);
+            PlanModel m = model;
+            if (m != null && m.day.equals(today) && m.source == Database.get()) loadInto(m, first);
+        }
+        com.memorizer.event.EventBus.publish(PlanChanged.of(PlanChanged.Kind.APPENDED));
     }
 
     /** Return today's counts grouped by deck (for UI composition breakdown). */
     public java.util.List<DeckShare> deckSharesToday() {
-        java.util.List<DeckShare> out = new java.util.ArrayList<DeckShare>();
-        java.time.LocalDate today = java.time.LocalDate.now();
-        String sql = "SELECT COALESCE(d.name,'(No Deck)') AS name, COUNT(*) AS cnt " +
-                "FROM study_plan p JOIN card c ON c.id=p.card_id " +
-                "JOIN note n ON n.id=c.note_id " +
-                "LEFT JOIN deck d ON d.id=n.deck_id " +
-                "WHERE p.plan_date=? GROUP BY COALESCE(d.name,'(No Deck)') ORDER BY cnt DESC";
-        try (PreparedStatement ps = Database.get().prepareStatement(sql)) {
-            ps.setDate(1, java.sql.Date.valueOf(today));
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    DeckShare ds = new DeckShare();
-                    ds.deckName = rs.getString(1);
-                    ds.count = rs.getInt(2);
-                    out.add(ds);
-                }
+        java.util.Map<String, DeckShare> byName = new java.util.LinkedHashMap<String, DeckShare>();
+        synchronized (LOCK) {
+            for (PlanModel.Item it : model().rows(null)) {
+                String name = it.deckName == null ? "(No Deck)" : it.deckName;
+                DeckShare ds = byName.get(name);
+                if (ds == null) { ds = new DeckShare(); ds.deckName = name; byName.put(name, ds); }
+                ds.count++;
             }
-        } catch (SQLException e) { throw new RuntimeException("deckSharesToday failed", e); }
+        }
+        java.util.List<DeckShare> out = new java.util.ArrayList<DeckShare>(byName.values());
+        out.sort((a, b) -> Integer.compare(b.count, a.count));
         return out;
     }
 
     /** Return the next pending card id from today's plan (honors deck filter). */
     public Optional<Long> nextFromPlan() {
-        LocalDate today = LocalDate.now();
-        String whereFilter = deckFilterWhereClause("p", "c", "n");
-        String sql = "SELECT p.card_id FROM study_plan p JOIN card c ON c.id=p.card_id JOIN note n ON n.id=c.note_id WHERE p.plan_date=? AND p.status=0"
-                + whereFilter + " ORDER BY p.order_no ASC LIMIT 1";
-        try (PreparedStatement ps = Database.get().prepareStatement(sql)) {
-            int idx = 1;
-            ps.setDate(idx++, java.sql.Date.valueOf(today));
-            idx = bindDeckFilterIfAny(ps, idx);
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? Optional.of(rs.getLong(1)) : Optional.empty();
-            }
-        } catch (SQLException e) { throw new RuntimeException("nextFromPlan failed", e); }
+        return nextFromPlan(java.util.Collections.<Long>emptySet());
+    }
+
+    /** Like {@link #nextFromPlan()} but skipping cards in {@code busy} (shown by other study sessions). */
+    public Optional<Long> nextFromPlan(java.util.Set<Long> busy) {
+        Long deck = Config.snapshot().deckFilterId;
+        synchronized (LOCK) {
+            PlanModel.Item it = model().firstPending(deck, busy);
+            return it == null ? Optional.<Long>empty() : Optional.of(it.cardId);
+        }
+    }
+
+    /** Next pending plan item with its note and "Deck • Front" label. */
+    public static class NextPreview {
+        public long cardId;
+        public long noteId;
+        public String label;
+    }
+
+    /** Peek the next pending card of today's plan (honors deck filter) without touching study state. */
+    public Optional<NextPreview> peekNext() {
+        Long deck = Config.snapshot().deckFilterId;
+        synchronized (LOCK) {
+            PlanModel.Item it = model().firstPending(deck);
+            if (it == null) return Optional.empty();
+            NextPreview np = new NextPreview();
+            np.cardId = it.cardId;
+            np.noteId = it.noteId;
+            String front = it.front == null ? "" : it.front;
+            np.label = (it.deckName == null || it.deckName.isEmpty() ? "" : it.deckName + " • ") + front;
+            return Optional.of(np);
+        }
+    }
+
+    /** Drop a planned card from the in-memory plan when it no longer resolves (e.g. deleted elsewhere). */
+    public void forget(long cardId) {
+        synchronized (LOCK) {
+            PlanModel m = model;
+            PlanModel.Item it = m == null ? null : m.get(cardId);
+            if (it != null) m.remove(it);
+        }
+    }
+
+    /** Discard the in-memory plan; the next call reloads it from the database. */
+    public static void invalidateToday() {
+        synchronized (LOCK) { model = null; }
     }
 
     /** Mark a planned card as done. */
     public void markDone(long cardId) {
-        LocalDate today = LocalDate.now();
-        try (PreparedStatement ps = Database.get().prepareStatement(
-                "UPDATE study_plan SET status=1, updated_at=CURRENT_TIMESTAMP WHERE plan_date=? AND card_id=? AND status=0")) {
-            ps.setDate(1, java.sql.Date.valueOf(today));
-            ps.setLong(2, cardId);
-            ps.executeUpdate();
-        } catch (SQLException e) { throw new RuntimeException("markDone failed", e); }
+        if (markPending(cardId, Status.DONE, "markDone")) {
+            com.memorizer.event.EventBus.publish(PlanChanged.item(cardId, Status.PENDING.v, Status.DONE.v));
+        }
     }
 
     /** Mark a planned card as skipped. */
     public void markSkipped(long cardId) {
-        LocalDate today = LocalDate.now();
-        try (PreparedStatement ps = Database.get().prepareStatement(
-                "UPDATE study_plan SET status=3, updated_at=CURRENT_TIMESTAMP WHERE plan_date=? AND card_id=? AND status=0")) {
-            ps.setDate(1, java.sql.Date.valueOf(today));
-            ps.setLong(2, cardId);
-            ps.executeUpdate();
-        } catch (SQLException e) { throw new RuntimeException("markSkipped failed", e); }
+        if (markPending(cardId, Status.SKIPPED, "markSkipped")) {
+            com.memorizer.event.EventBus.publish(PlanChanged.item(cardId, Status.PENDING.v, Status.SKIPPED.v));
+        }
+    }
+
+    /** Write-through transition of one pending item; false if the card is not pending today. */
+    private boolean markPending(long cardId, Status to, String op) {
+        synchronized (LOCK) {
+            PlanModel m = model();
+            PlanModel.Item it = m.get(cardId);
+            if (it == null || it.status != Status.PENDING.v) return false;
+            try (PreparedStatement ps = Database.get().prepareStatement(
+                    "UPDATE study_plan SET status=?, updated_at=CURRENT_TIMESTAMP WHERE plan_date=? AND card_id=? AND status=0")) {
+                ps.setInt(1, to.v);
+                ps.setDate(2, java.sql.Date.valueOf(m.day));
+                ps.setLong(3, cardId);
+                if (ps.executeUpdate() == 0) {
+                    model = null; // changed behind our back; reload on next read
+                    return false;
+                }
+            } catch (SQLException e) { throw new RuntimeException(op + " failed", e); }
+            m.setStatus(it, to.v);
+            return true;
+        }
     }
 
     /** Mark all today's pending items as rolled. */
     public void rollRemainingToday() {
-        LocalDate today = LocalDate.now();
-        try (PreparedStatement ps = Database.get().prepareStatement(
-                "UPDATE study_plan SET status=2, updated_at=CURRENT_TIMESTAMP WHERE plan_date=? AND status=0")) {
-            ps.setDate(1, java.sql.Date.valueOf(today));
-            ps.executeUpdate();
-        } catch (SQLException e) { throw new RuntimeException("rollRemainingToday failed", e); }
+        boolean changed;
+        synchronized (LOCK) {
+            PlanModel m = model();
+            try (PreparedStatement ps = Database.get().prepareStatement(
+                    "UPDATE study_plan SET status=2, updated_at=CURRENT_TIMESTAMP WHERE plan_date=? AND status=0")) {
+                ps.setDate(1, java.sql.Date.valueOf(m.day));
+                changed = ps.executeUpdate() > 0;
+            } catch (SQLException e) { throw new RuntimeException("rollRemainingToday failed", e); }
+            for (PlanModel.Item it : m.pendingItems(null)) m.setStatus(it, Status.ROLLED.v);
+        }
+        if (changed) com.memorizer.event.EventBus.publish(PlanChanged.of(PlanChanged.Kind.ROLLED));
     }
 
     /** Skip all today's pending CHALLENGE items. */
     public void clearChallengeToday() {
-        LocalDate today = LocalDate.now();
-        try (PreparedStatement ps = Database.get().prepareStatement(
-                "UPDATE study_plan SET status=3, updated_at=CURRENT_TIMESTAMP WHERE plan_date=? AND status=0 AND kind=3")) {
-            ps.setDate(1, java.sql.Date.valueOf(today));
-            ps.executeUpdate();
-        } catch (SQLException e) { throw new RuntimeException("clearChallengeToday failed", e); }
+        boolean changed;
+        synchronized (LOCK) {
+            PlanModel m = model();
+            try (PreparedStatement ps = Database.get().prepareStatement(
+                    "UPDATE study_plan SET status=3, updated_at=CURRENT_TIMESTAMP WHERE plan_date=? AND status=0 AND kind=3")) {
+                ps.setDate(1, java.sql.Date.valueOf(m.day));
+                changed = ps.executeUpdate() > 0;
+            } catch (SQLException e) { throw new RuntimeException("clearChallengeToday failed", e); }
+            for (PlanModel.Item it : m.pendingItems(null)) {
+                if (it.kind == Kind.CHALLENGE.v) m.setStatus(it, Status.SKIPPED.v);
+            }
+        }
+        if (changed) com.memorizer.event.EventBus.publish(PlanChanged.of(PlanChanged.Kind.CLEARED));
     }
 
     public static class Counts {
@@ -201,74 +284,160 @@ public class PlanService {
 
     /** Aggregate today's plan counts. */
     public Counts todayCounts() {
+        Long deck = Config.snapshot().deckFilterId;
+        int[] n;
+        synchronized (LOCK) { n = model().counts(deck); }
         Counts c = new Counts();
-        java.time.LocalDate today = java.time.LocalDate.now();
-        String whereFilter = deckFilterWhereClause("p", "c", "n");
-        String sql = "SELECT p.status, COUNT(*) FROM study_plan p JOIN card c ON c.id=p.card_id JOIN note n ON n.id=c.note_id " +
-                "WHERE p.plan_date=? " + whereFilter + " GROUP BY p.status";
-        try (PreparedStatement ps = Database.get().prepareStatement(sql)) {
-            int idx = 1; ps.setDate(idx++, java.sql.Date.valueOf(today)); idx = bindDeckFilterIfAny(ps, idx);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    int st = rs.getInt(1);
-                    int cnt = rs.getInt(2);
-                    if (st == 0) c.pending = cnt;
-                    else if (st == 1) c.done = cnt;
-                    else if (st == 2) c.rolled = cnt;
-                    else if (st == 3) c.skipped = cnt;
-                }
-            }
-        } catch (SQLException e) { throw new RuntimeException("todayCounts failed", e); }
+        c.pending = n[Status.PENDING.v];
+        c.done = n[Status.DONE.v];
+        c.rolled = n[Status.ROLLED.v];
+        c.skipped = n[Status.SKIPPED.v];
         c.total = c.pending + c.done + c.rolled + c.skipped;
         return c;
     }
 
     /** List today's plan rows (order/kind/status/deck/front). */
     public java.util.List<PlanRow> listToday() {
+        Long deck = Config.snapshot().deckFilterId;
         java.util.List<PlanRow> out = new java.util.ArrayList<PlanRow>();
-        LocalDate today = LocalDate.now();
-        String whereFilter = deckFilterWhereClause("p", "c", "n");
-        String sql = "SELECT p.order_no, p.kind, p.status, p.card_id, d.name, n.front " +
-                "FROM study_plan p JOIN card c ON c.id=p.card_id " +
-                "JOIN note n ON n.id=c.note_id " +
-                "LEFT JOIN deck d ON d.id=n.deck_id " +
-                "WHERE p.plan_date=? " + whereFilter + " ORDER BY p.order_no ASC";
-        try (PreparedStatement ps = Database.get().prepareStatement(sql)) {
-            int idx = 1; ps.setDate(idx++, java.sql.Date.valueOf(today)); idx = bindDeckFilterIfAny(ps, idx);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    PlanRow r = new PlanRow();
-                    r.orderNo = rs.getInt(1);
-                    r.kind = rs.getInt(2);
-                    r.status = rs.getInt(3);
-                    r.cardId = rs.getLong(4);
-                    r.deckName = rs.getString(5);
-                    r.front = rs.getString(6);
-                    out.add(r);
-                }
-            }
-        } catch (SQLException e) { throw new RuntimeException("listToday failed", e); }
+        synchronized (LOCK) {
+            for (PlanModel.Item it : model().rows(deck)) out.add(row(it));
+        }
         return out;
     }
 
+    /** Plan columns a page of today's plan can be sorted by. */
+    public enum Order { PLAN, KIND, STATUS, DECK, FRONT }
+
+    /** One sort key of {@link #pageToday}. */
+    public static final class Sort {
+        public final Order order;
+        public final boolean descending;
+
+        public Sort(Order order, boolean descending) { this.order = order; this.descending = descending; }
+
+        @Override public String toString() { return order + (descending ? "-" : "+"); }
+    }
+
+    /** Number of rows in today's plan for the current deck filter. */
+    public int sizeToday() {
+        Long deck = Config.snapshot().deckFilterId;
+        synchronized (LOCK) { return model().size(deck); }
+    }
+
+    /**
+     * Rows {@code [from, from+count)} of today's plan sorted by {@code sort} (empty = plan order), for views that
+     * load windows on demand instead of copying the whole plan. Positions are stable until the plan changes; a
+     * status change re-sorts on the next read, so views keep their loaded windows and re-read on refresh.
+     */
+    public java.util.List<PlanRow> pageToday(java.util.List<Sort> sort, int from, int count) {
+        Long deck = Config.snapshot().deckFilterId;
+        java.util.Comparator<PlanModel.Item> cmp = null;
+        for (Sort s : sort) {
+            java.util.Comparator<PlanModel.Item> c = comparator(s.order);
+            if (s.descending) c = c.reversed();
+            cmp = cmp == null ? c : cmp.thenComparing(c);
+        }
+        if (cmp != null) cmp = cmp.thenComparingInt(it -> it.orderNo);
+        java.util.List<PlanRow> out = new java.util.ArrayList<PlanRow>(Math.max(0, count));
+        synchronized (LOCK) {
+            java.util.List<PlanModel.Item> rows = model().ordered(deck, sort.toString(), cmp);
+            int to = Math.min(rows.size(), from + Math.max(0, count));
+            for (int i = Math.max(0, from); i < to; i++) out.add(row(rows.get(i)));
+        }
+        return out;
+    }
+
+    /** Today's plan in plan order as parallel card id / status arrays, without any text. */
+    public static final class Strip {
+        public long[] cardIds = new long[0];
+        public byte[] statuses = new byte[0];
+    }
+
+    /** Card ids and statuses of today's plan (current deck filter), for overviews drawing one mark per item. */
+    public Strip stripToday() {
+        Long deck = Config.snapshot().deckFilterId;
+        Strip s = new Strip();
+        synchronized (LOCK) {
+            java.util.List<PlanModel.Item> rows = model().ordered(deck, "[]", null);
+            s.cardIds = new long[rows.size()];
+            s.statuses = new byte[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                s.cardIds[i] = rows.get(i).cardId;
+                s.statuses[i] = (byte) rows.get(i).status;
+            }
+        }
+        return s;
+    }
+
+    private static java.util.Comparator<PlanModel.Item> comparator(Order o) {
+        switch (o) {
+            case KIND: return java.util.Comparator.comparingInt(it -> it.kind);
+            case STATUS: return java.util.Comparator.comparingInt(it -> it.status);
+            case DECK: return java.util.Comparator.comparing(it -> it.deckName == null ? "" : it.deckName);
+            case FRONT: return java.util.Comparator.comparing(it -> it.front == null ? "" : it.front);
+            default: return java.util.Comparator.comparingInt(it -> it.orderNo);
+        }
+    }
+
+    private static PlanRow row(PlanModel.Item it) {
+        PlanRow r = new PlanRow();
+        r.orderNo = it.orderNo;
+        r.kind = it.kind;
+        r.status = it.status;
+        r.cardId = it.cardId;
+        r.deckName = it.deckName;
+        r.front = it.front;
+        return r;
+    }
+
     /** Return today's kind for the given card if present. */
     public java.util.Optional<Integer> kindForToday(long cardId) {
+        synchronized (LOCK) {
+            PlanModel.Item it = model().get(cardId);
+            return it == null ? java.util.Optional.<Integer>empty() : java.util.Optional.of(it.kind);
+        }
+    }
+
+    // ---- helpers ----
+    /** Current day's model, loading it with one query when missing or stale. Caller holds LOCK. */
+    private static PlanModel model() {
         LocalDate today = LocalDate.now();
-        try (PreparedStatement ps = Database.get().prepareStatement(
-                "SELECT kind FROM study_plan WHERE plan_date=? AND card_id=? LIMIT 1")) {
-            ps.setDate(1, java.sql.Date.valueOf(today));
-            ps.setLong(2, cardId);
+        Connection conn = Database.get();
+        PlanModel m = model;
+        if (m == null || !m.day.equals(today) || m.source != conn) {
+            m = new PlanModel(today, conn);
+            loadInto(m, Integer.MIN_VALUE);
+            model = m;
+        }
+        return m;
+    }
+
+    /** Append plan rows with order_no >= minOrder to the model, in plan order. */
+    private static void loadInto(PlanModel m, int minOrder) {
+        try (PreparedStatement ps = Database.get().prepareStatement(LOAD_PLAN_SQL)) {
+            ps.setDate(1, java.sql.Date.valueOf(m.day));
+            ps.setInt(2, minOrder);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return java.util.Optional.of(rs.getInt(1));
-                return java.util.Optional.empty();
+                while (rs.next()) {
+                    PlanModel.Item it = new PlanModel.Item();
+                    it.cardId = rs.getLong(1);
+                    it.noteId = rs.getLong(2);
+                    Object deckObj = rs.getObject(3);
+                    it.deckId = deckObj == null ? null : ((Number) deckObj).longValue();
+                    it.deckName = rs.getString(4);
+                    it.front = rs.getString(5);
+                    it.kind = rs.getInt(6);
+                    it.status = rs.getInt(7);
+                    it.orderNo = rs.getInt(8);
+                    m.add(it);
+                }
             }
-        } catch (SQLException e) { throw new RuntimeException("kindForToday failed", e); }
+        } catch (SQLException e) { throw new RuntimeException("load plan failed", e); }
     }
 
-    // ---- helpers ----
     private int maxOrder(LocalDate day) {
-        try (PreparedStatement ps = Database.get().prepareStatement(
-                "SELECT COALESCE(MAX(order_no),0) FROM study_plan WHERE plan_date=?")) {
+        try (PreparedStatement ps = Database.get().prepareStatement(MAX_ORDER_SQL)) {
             ps.setDate(1, java.sql.Date.valueOf(day));
             try (ResultSet rs = ps.executeQuery()) { return rs.next() ? rs.getInt(1) : 0; }
         } catch (SQLException e) { throw new RuntimeException("maxOrder failed", e); }
@@ -289,11 +458,9 @@ public class PlanService {
     private List<Long> findDueCards(int limit) {
         List<Long> out = new ArrayList<Long>();
         Timestamp now = new Timestamp(System.currentTimeMillis());
-        String whereFilter = deckFilterWhereClause(null, "c", "n");
-        String sql = "SELECT c.id FROM card c JOIN note n ON n.id=c.note_id WHERE (c.due_at IS NOT NULL AND c.due_at <= ?) AND c.status <> 3"
-                + whereFilter + " ORDER BY c.due_at ASC LIMIT ?";
-        try (PreparedStatement ps = Database.get().prepareStatement(sql)) {
-            int idx=1; ps.setTimestamp(idx++, now); ps.setInt(idx++, limit); idx = bindDeckFilterIfAny(ps, idx);
+        Long deck = com.memorizer.app.Config.snapshot().deckFilterId;
+        try (PreparedStatement ps = Database.get().prepareStatement(dueCardsSql(deck))) {
+            int idx=1; ps.setTimestamp(idx++, now); idx = bindDeckFilterIfAny(ps, idx, deck); ps.setInt(idx++, limit);
             try (ResultSet rs = ps.executeQuery()) { while (rs.next()) out.add(rs.getLong(1)); }
         } catch (SQLException e) { throw new RuntimeException("findDueCards failed", e); }
         return out;
@@ -301,40 +468,68 @@ public class PlanService {
 
     private List<Long> findNewCards(int limit) {
         List<Long> out = new ArrayList<Long>();
-        String whereFilter = deckFilterWhereClause(null, "c", "n");
-        String sql = "SELECT c.id FROM card c JOIN note n ON n.id=c.note_id WHERE (c.due_at IS NULL OR c.status = 0) AND c.status <> 3"
-                + whereFilter + " ORDER BY c.id ASC LIMIT ?";
-        try (PreparedStatement ps = Database.get().prepareStatement(sql)) {
-            int idx=1; ps.setInt(idx++, Math.max(0, limit)); idx = bindDeckFilterIfAny(ps, idx);
+        Long deck = com.memorizer.app.Config.snapshot().deckFilterId;
+        try (PreparedStatement ps = Database.get().prepareStatement(newCardsSql(deck))) {
+            int idx=1; idx = bindDeckFilterIfAny(ps, idx, deck); ps.setInt(idx++, Math.max(0, limit));
             try (ResultSet rs = ps.executeQuery()) { while (rs.next()) out.add(rs.getLong(1)); }
         } catch (SQLException e) { throw new RuntimeException("findNewCards failed", e); }
         return out;
     }
 
-    private List<Long> findLeechCards(int lapsesThresh, int limit) {
+    private List<Long> findLeechCards(int lapsesThresh, int examWrongStreak, int limit) {
         List<Long> out = new ArrayList<Long>();
-        String whereFilter = deckFilterWhereClause(null, "c", "n");
-        String sql = "SELECT c.id FROM card c JOIN note n ON n.id=c.note_id WHERE (c.lapses >= ? OR c.ease <= 1.3) AND c.status <> 3"
-                + whereFilter + " ORDER BY c.lapses DESC LIMIT ?";
-        try (PreparedStatement ps = Database.get().prepareStatement(sql)) {
-            int idx=1; ps.setInt(idx++, lapsesThresh); ps.setInt(idx++, limit); idx = bindDeckFilterIfAny(ps, idx);
+        Long deck = com.memorizer.app.Config.snapshot().deckFilterId;
+        try (PreparedStatement ps = Database.get().prepareStatement(leechCardsSql(deck))) {
+            int idx=1; ps.setInt(idx++, lapsesThresh); idx = bindDeckFilterIfAny(ps, idx, deck); idx = bindDeckFilterIfAny(ps, idx, deck);
+            ps.setInt(idx++, Math.max(1, examWrongStreak)); idx = bindDeckFilterIfAny(ps, idx, deck); ps.setInt(idx++, limit);
             try (ResultSet rs = ps.executeQuery()) { while (rs.next()) out.add(rs.getLong(1)); }
         } catch (SQLException e) { throw new RuntimeException("findLeechCards failed", e); }
         return out;
     }
 
+    // ---- plan statements (package-visible so PlanQueryPlanTest checks the SQL that actually runs) ----
+
+    static final String LOAD_PLAN_SQL = "SELECT p.card_id, n.id, n.deck_id, d.name, n.front, p.kind, p.status, p.order_no " +
+            "FROM study_plan p JOIN card c ON c.id=p.card_id " +
+            "JOIN note n ON n.id=c.note_id " +
+            "LEFT JOIN deck d ON d.id=n.deck_id " +
+            "WHERE p.plan_date=? AND p.order_no>=? ORDER BY p.order_no ASC";
+    static final String MAX_ORDER_SQL = "SELECT COALESCE(MAX(order_no),0) FROM study_plan WHERE plan_date=?";
+
+    /** Due cards: now, [deck,] limit. */
+    static String dueCardsSql(Long deck) {
+        return "SELECT c.id FROM card c JOIN note n ON n.id=c.note_id WHERE (c.due_at IS NOT NULL AND c.due_at <= ?) AND c.status <> 3"
+                + deckFilterWhereClause(deck, null, "c", "n") + " ORDER BY c.due_at ASC LIMIT ?";
+    }
+
+    /** New cards: [deck,] limit. */
+    static String newCardsSql(Long deck) {
+        return "SELECT c.id FROM card c JOIN note n ON n.id=c.note_id WHERE c.status = 0"
+                + deckFilterWhereClause(deck, null, "c", "n") + " ORDER BY c.id ASC LIMIT ?";
+    }
+
+    /** Leeches: lapses, [deck,] [deck,] wrong streak, [deck,] limit. */
+    static String leechCardsSql(Long deck) {
+        String whereFilter = deckFilterWhereClause(deck, null, "c", "n");
+        // Three index ranges (lapses, ease, exam wrong streak) merged by UNION instead of an OR that forces a scan
+        return "SELECT id FROM ("
+                + "SELECT c.id, c.lapses FROM card c JOIN note n ON n.id=c.note_id WHERE c.lapses >= ? AND c.status <> 3" + whereFilter
+                + " UNION SELECT c.id, c.lapses FROM card c JOIN note n ON n.id=c.note_id WHERE c.ease <= 1.3 AND c.status <> 3" + whereFilter
+                + " UNION SELECT c.id, c.lapses FROM exam_card_stats e JOIN card c ON c.id=e.card_id JOIN note n ON n.id=c.note_id"
+                + " WHERE e.wrong_streak >= ? AND c.status <> 3" + whereFilter
+                + ") x ORDER BY lapses DESC, id ASC LIMIT ?";
+    }
+
     // ---- deck filter helpers ----
-    private static String deckFilterWhereClause(String pAlias, String cAlias, String nAlias) {
-        String sel = com.memorizer.app.Config.get("app.deck.filter", "all");
-        if (sel == null || sel.trim().isEmpty() || "all".equalsIgnoreCase(sel)) return "";
+    // Callers read the filter once from the snapshot so the clause and its binding always agree
+    private static String deckFilterWhereClause(Long deck, String pAlias, String cAlias, String nAlias) {
+        if (deck == null) return "";
         String n = (nAlias == null || nAlias.isEmpty()) ? "n" : nAlias;
         return " AND " + n + ".deck_id = ?";
     }
-    private static int bindDeckFilterIfAny(PreparedStatement ps, int idx) throws SQLException {
-        String sel = com.memorizer.app.Config.get("app.deck.filter", "all");
-        if (sel == null || sel.trim().isEmpty() || "all".equalsIgnoreCase(sel)) return idx;
-        long did = Long.parseLong(sel.trim());
-        ps.setLong(idx++, did);
+    private static int bindDeckFilterIfAny(PreparedStatement ps, int idx, Long deck) throws SQLException {
+        if (deck == null) return idx;
+        ps.setLong(idx++, deck);
         return idx;
     }
 }
@@ -0,0 +1,214 @@
+package com.memorizer.service;
+
+import com.memorizer.event.DomainEvents;
+import com.memorizer.event.EventBus;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Today's plan counters, next-card preview and review count, kept in memory and maintained from
+ * domain events. Item transitions adjust the counters in place; only structural plan changes,
+ * a deck filter switch or a new day reload from the database. Every change is re-published as
+ * {@link Updated} so tray, dashboard and web clients never query for these numbers themselves.
+ * Events only mark what changed; the summary is recomputed and published on the "plan-summary" thread,
+ * with bursts collapsed into one update, so a rating on the FX thread never waits for a reload or for
+ * subscribers. A once-a-minute tick ({@link #start}) reloads and re-publishes after midnight, when no event would.
+ */
+public final class PlanSummaryCache {
+
+    /** Immutable view handed to subscribers. */
+    public static final class Summary {
+        public final int pending;
+        public final int done;
+        public final int rolled;
+        public final int skipped;
+        public final int total;
+        public final int reviewsToday;
+        /** "Deck • Front" of the next pending card, or null if none. */
+        public final String next;
+
+        Summary(int[] counts, int reviewsToday, String next) {
+            this.pending = counts[0];
+            this.done = counts[1];
+            this.rolled = counts[2];
+            this.skipped = counts[3];
+            this.total = pending + done + rolled + skipped;
+            this.reviewsToday = reviewsToday;
+            this.next = next;
+        }
+    }
+
+    /** Published after the summary changed. */
+    public static final class Updated {
+        public final Summary summary;
+        Updated(Summary summary) { this.summary = summary; }
+    }
+
+    private static volatile PlanSummaryCache instance;
+
+    private final PlanService plan;
+    private final com.memorizer.db.StatsRepository stats = new com.memorizer.db.StatsRepository();
+
+    private LocalDate day;
+    private Long deckFilter;
+    private final int[] counts = new int[4];
+    private int reviewsToday;
+    private long nextCardId = -1;
+    private long nextNoteId = -1;
+    private String nextLabel;
+    private boolean loaded;
+    private boolean nextStale;
+    private java.util.concurrent.ScheduledExecutorService dayTicker;
+    private final java.util.concurrent.ExecutorService publisher = java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "plan-summary");
+        t.setDaemon(true);
+        return t;
+    });
+    private final java.util.concurrent.atomic.AtomicBoolean publishQueued = new java.util.concurrent.atomic.AtomicBoolean();
+
+    PlanSummaryCache(PlanService plan) {
+        this.plan = plan;
+    }
+
+    /** Shared instance; subscribes to domain events on first use. */
+    public static PlanSummaryCache get() {
+        PlanSummaryCache c = instance;
+        if (c == null) {
+            synchronized (PlanSummaryCache.class) {
+                c = instance;
+                if (c == null) {
+                    c = new PlanSummaryCache(new PlanService());
+                    c.subscribe();
+                    instance = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    void subscribe() {
+        EventBus.subscribe(DomainEvents.PlanChanged.class, this::onPlanChanged);
+        EventBus.subscribe(DomainEvents.CardRated.class, e -> onCardRated());
+        EventBus.subscribe(DomainEvents.NoteEdited.class, this::onNoteEdited);
+        EventBus.subscribe(DomainEvents.DeckFilterChanged.class, e -> invalidate());
+        EventBus.subscribe(DomainEvents.ContentDeleted.class, e -> invalidate());
+        EventBus.subscribe(DomainEvents.ContentImported.class, e -> invalidate());
+        EventBus.subscribe(DomainEvents.ReviewsImported.class, e -> onReviewsImported());
+    }
+
+    /** Start the day-rollover tick. */
+    public synchronized void start() {
+        if (dayTicker != null) return;
+        dayTicker = java.util.concurrent.Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "plan-day-ticker");
+            t.setDaemon(true);
+            return t;
+        });
+        dayTicker.scheduleAtFixedRate(() -> {
+            try { rollOver(); } catch (Exception ignored) {}
+        }, 60, 60, java.util.concurrent.TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (dayTicker != null) { dayTicker.shutdownNow(); dayTicker = null; }
+    }
+
+    /** Reload and publish if the loaded counters belong to an earlier day. */
+    void rollOver() {
+        synchronized (this) {
+            if (!loaded || LocalDate.now().equals(day)) return;
+        }
+        publish();
+    }
+
+    /** Current summary, loading whatever is stale. */
+    public synchronized Summary current() {
+        LocalDate today = LocalDate.now();
+        if (!loaded || !today.equals(day)) reloadAll(today);
+        else if (nextStale) reloadNext();
+        return new Summary(counts, reviewsToday, nextLabel);
+    }
+
+    /** Drop everything; the next read reloads from the database. */
+    public void invalidate() {
+        synchronized (this) { loaded = false; }
+        publish();
+    }
+
+    void onPlanChanged(DomainEvents.PlanChanged e) {
+        synchronized (this) {
+            boolean incremental = loaded && e.kind == DomainEvents.PlanChanged.Kind.ITEM
+                    && deckFilter == null && LocalDate.now().equals(day)
+                    && inRange(e.fromStatus) && inRange(e.toStatus) && counts[e.fromStatus] > 0;
+            if (incremental) {
+                // A filtered plan may contain rows outside the filter, so only the unfiltered case is adjusted in place
+                counts[e.fromStatus]--;
+                counts[e.toStatus]++;
+                if (e.cardId == nextCardId) nextStale = true;
+            } else {
+                loaded = false;
+            }
+        }
+        publish();
+    }
+
+    void onCardRated() {
+        synchronized (this) { if (loaded) reviewsToday++; }
+        publish();
+    }
+
+    /** Device reviews may fall on any day, so today's count is re-read rather than adjusted. */
+    void onReviewsImported() {
+        synchronized (this) { if (loaded) reviewsToday = stats.countReviewsToday(); }
+        publish();
+    }
+
+    void onNoteEdited(DomainEvents.NoteEdited e) {
+        synchronized (this) {
+            if (e.noteId != nextNoteId) return;
+            nextStale = true;
+        }
+        publish();
+    }
+
+    /** Recompute and publish on the publisher thread; a publish already queued covers this one too. */
+    private void publish() {
+        if (!publishQueued.compareAndSet(false, true)) return;
+        publisher.execute(() -> {
+            // Cleared before reading, so a change during the reload queues another round
+            publishQueued.set(false);
+            Summary s;
+            try { s = current(); } catch (Exception ex) { return; }
+            EventBus.publish(new Updated(s));
+        });
+    }
+
+    /** Wait until queued publishes have run (for tests). */
+    void awaitPublished() throws Exception {
+        publisher.submit(() -> {}).get();
+    }
+
+    private void reloadAll(LocalDate today) {
+        PlanService.Counts pc = plan.todayCounts();
+        counts[0] = pc.pending;
+        counts[1] = pc.done;
+        counts[2] = pc.rolled;
+        counts[3] = pc.skipped;
+        reviewsToday = stats.countReviewsToday();
+        deckFilter = com.memorizer.app.Config.snapshot().deckFilterId;
+        day = today;
+        loaded = true;
+        reloadNext();
+    }
+
+    private void reloadNext() {
+        Optional<PlanService.NextPreview> np = plan.peekNext();
+        nextCardId = np.isPresent() ? np.get().cardId : -1;
+        nextNoteId = np.isPresent() ? np.get().noteId : -1;
+        nextLabel = np.isPresent() && !np.get().label.isEmpty() ? np.get().label : null;
+        nextStale = false;
+    }
+
+    private static boolean inRange(int status) { return status >= 0 && status < 4; }
+}
@@ -13,14 +13,19 @@ import java.util.Optional;
 /**
  * Orchestrates study flow: selects which card to show, assembles view data,
  * and applies SRS scheduling when the user submits a rating.
+ * <p>
+ * Per-client state lives in {@link StudySession}s. The no-argument methods act on the desktop session;
+ * web clients use the session overloads so browsers and the popup never rate each other's cards.
  */
 public class StudyService {
     private final CardRepository cardRepo = new CardRepository();
     private final NoteRepository noteRepo = new NoteRepository();
     private final SrsEngine srs = new SrsEngine();
+    private final com.memorizer.db.ExamRepository examRepo = new com.memorizer.db.ExamRepository();
 
-    private long showingCardId = -1;
-    private long showStartedAtMs = 0;
+    private final StudySessions sessions = new StudySessions();
+    private static final int PREFETCH = 16;
+    private static final long PREFETCH_TTL_MS = 30_000L;
 
     private com.memorizer.service.PlanService plan;
 
@@ -34,6 +39,7 @@ public class StudyService {
         private java.util.List<String> tags;
         private String deckName;
         private Integer planKind;
+        private java.util.List<com.memorizer.db.MediaStore.Ref> media = java.util.Collections.emptyList();
 
         // getters
         public long getCardId() { return cardId; }
@@ -45,10 +51,18 @@ public class StudyService {
         public java.util.List<String> getTags() { return tags; }
         public String getDeckName() { return deckName; }
         public Integer getPlanKind() { return planKind; }
+        /** Attached audio/images, images first. */
+        public java.util.List<com.memorizer.db.MediaStore.Ref> getMedia() { return media; }
 
         // 可选：builder 或全参构造器
     }
 
+    /** Registry of concurrent study sessions (desktop plus one per web client). */
+    public StudySessions sessions() { return sessions; }
+
+    /** The scheduling engine used for ratings (shared with the workload forecaster). */
+    public SrsEngine getSrsEngine() { return srs; }
+
     /** Bind a daily plan provider to prioritize planned cards. */
     public void bindPlan(com.memorizer.service.PlanService p) { this.plan = p; }
     /** Request a rebuild of today's study plan. */
@@ -77,15 +91,16 @@ public class StudyService {
     }
 
     /** Mark current card skipped in plan, without rating. */
-    public void skipCurrent() {
-        if (showingCardId <= 0) return;
-        try {
-            if (plan != null) plan.markSkipped(showingCardId);
-            com.memorizer.app.TrayManager tm = com.memorizer.app.AppContext.getTray();
-            if (tm != null) tm.updatePlanTooltip();
-        } catch (Exception ignored) {}
-        showingCardId = -1;
-        showStartedAtMs = 0;
+    public void skipCurrent() { skipCurrent(sessions.desktop()); }
+
+    public void skipCurrent(StudySession s) {
+        synchronized (s) {
+            if (s.showingCardId <= 0) return;
+            try {
+                if (plan != null) plan.markSkipped(s.showingCardId);
+            } catch (Exception ignored) {}
+            s.clearShowing();
+        }
     }
 
     /** Mark remaining pending items today as rolled. */
@@ -98,75 +113,63 @@ public class StudyService {
         try { if (plan != null) plan.clearChallengeToday(); } catch (Exception ignored) {}
     }
 
-    /** Preview the next planned card summary: Deck • Front. */
     /** Preview "Deck • Front" of the next planned card, if any. */
     public java.util.Optional<String> previewNextFromPlanFront() {
         try {
             if (plan == null) return java.util.Optional.empty();
-            java.util.Optional<Long> oc = plan.nextFromPlan();
-            if (!oc.isPresent()) return java.util.Optional.empty();
-            Card c = loadById(oc.get());
-            if (c == null) return java.util.Optional.empty();
-            java.util.Optional<com.memorizer.model.Note> on = noteRepo.findById(c.noteId);
-            if (!on.isPresent()) return java.util.Optional.empty();
-            String front = on.get().front == null ? "" : on.get().front;
-            String deck = "";
-            if (on.get().deckId != null) {
-                try {
-                    String dn = new com.memorizer.db.DeckRepository().findNameById(on.get().deckId);
-                    if (dn != null && !dn.isEmpty()) deck = dn;
-                } catch (Exception ignored) {}
-            }
-            String summary = (deck.isEmpty()?"":deck + " • ") + front;
-            if (summary.isEmpty()) return java.util.Optional.empty();
-            return java.util.Optional.of(summary);
+            return plan.peekNext().map(np -> np.label).filter(l -> !l.isEmpty());
         } catch (Exception e) {
             return java.util.Optional.empty();
         }
     }
 
 /** Build a view for the given card id (and set state as showing). */
-    public Optional<CardView> currentOrNextOrFallback() {
-        // 1) reopen current if any
-        if (showingCardId > 0) {
-            CardView v = viewOf(showingCardId);
-            if (v != null) return Optional.of(v);
+    public Optional<CardView> currentOrNextOrFallback() { return currentOrNextOrFallback(sessions.desktop()); }
+
+    public Optional<CardView> currentOrNextOrFallback(StudySession s) {
+        synchronized (s) {
+            // 1) reopen current if any (keeps its latency clock running)
+            if (s.showingCardId > 0) {
+                long started = s.showStartedAtMs;
+                CardView v = viewOf(s, s.showingCardId);
+                if (v != null) {
+                    if (started > 0) s.showStartedAtMs = started;
+                    return Optional.of(v);
+                }
+            }
+            // 2) next due/new
+            Optional<CardView> n = nextCard(s);
+            if (n.isPresent()) return n;
+            // 3) fallback any available card
+            java.util.Optional<com.memorizer.model.Card> any =
+                    new com.memorizer.db.CardRepository().findAnyAvailable();
+            if (!any.isPresent()) return Optional.empty();
+            com.memorizer.model.Card c = any.get();
+            CardView v = viewOf(s, c.id);
+            return v == null ? Optional.empty() : Optional.of(v);
         }
-        // 2) next due/new
-        Optional<CardView> n = nextCard();
-        if (n.isPresent()) return n;
-        // 3) fallback any available card
-        java.util.Optional<com.memorizer.model.Card> any =
-                new com.memorizer.db.CardRepository().findAnyAvailable();
-        if (!any.isPresent()) return Optional.empty();
-        com.memorizer.model.Card c = any.get();
-        CardView v = viewOf(c.id);
-        return v == null ? Optional.empty() : Optional.of(v);
     }
 
-    private CardView viewOf(long cardId) {
+    private CardView viewOf(StudySession s, long cardId) {
         Card c = loadById(cardId);
         if (c == null) return null;
         java.util.Optional<com.memorizer.model.Note> on = noteRepo.findById(c.noteId);
         if (!on.isPresent()) return null;
-        showingCardId = cardId;
-        showStartedAtMs = System.currentTimeMillis();
+        s.show(cardId);
         return assembleView(c, on.get());
     }
 
     /** Public: build a CardView for a specific card id and set as current. */
     /** Build a CardView for a specific card id and set as current. */
-    public Optional<CardView> viewCardById(long cardId) {
-        try {
-            Card c = loadById(cardId);
-            if (c == null) return Optional.empty();
-            Optional<Note> on = noteRepo.findById(c.noteId);
-            if (!on.isPresent()) return Optional.empty();
-            showingCardId = cardId;
-            showStartedAtMs = System.currentTimeMillis();
-            return Optional.of(assembleView(c, on.get()));
-        } catch (Exception e) {
-            return Optional.empty();
+    public Optional<CardView> viewCardById(long cardId) { return viewCardById(sessions.desktop(), cardId); }
+
+    public Optional<CardView> viewCardById(StudySession s, long cardId) {
+        synchronized (s) {
+            try {
+                return Optional.ofNullable(viewOf(s, cardId));
+            } catch (Exception e) {
+                return Optional.empty();
+            }
         }
     }
 
@@ -188,6 +191,7 @@ public class StudyService {
             } catch (Exception ignored) {}
         }
         try { if (plan != null) v.planKind = plan.kindForToday(card.id).orElse(null); } catch (Exception ignored) {}
+        try { v.media = com.memorizer.db.MediaStore.get().forNote(note.id); } catch (Exception ignored) {}
         return v;
     }
     
@@ -211,51 +215,67 @@ public class StudyService {
 
         /** Prefer pulling from today's plan; build if empty; fallback to queue if allowed. */
     public java.util.Optional<CardView> nextFromPlanPreferred(boolean allowFallback) {
-        try {
-            if (plan != null) {
-                java.util.Optional<java.lang.Long> ocid = plan.nextFromPlan();
-                if (!ocid.isPresent()) {
-                    plan.buildToday();
-                    ocid = plan.nextFromPlan();
-                }
-                if (ocid.isPresent()) {
-                    CardView v = viewOf(ocid.get());
-                    return java.util.Optional.ofNullable(v);
+        return nextFromPlanPreferred(sessions.desktop(), allowFallback);
+    }
+
+    public java.util.Optional<CardView> nextFromPlanPreferred(StudySession s, boolean allowFallback) {
+        synchronized (s) {
+            try {
+                if (plan != null) {
+                    java.util.Set<Long> busy = sessions.busyCards(s);
+                    java.util.Optional<java.lang.Long> ocid = plan.nextFromPlan(busy);
+                    if (!ocid.isPresent()) {
+                        plan.buildToday();
+                        ocid = plan.nextFromPlan(busy);
+                    }
+                    // A planned card deleted elsewhere no longer resolves: drop it from the plan and move on
+                    while (ocid.isPresent()) {
+                        CardView v = viewOf(s, ocid.get());
+                        if (v != null) return java.util.Optional.of(v);
+                        plan.forget(ocid.get());
+                        ocid = plan.nextFromPlan(busy);
+                    }
                 }
-            }
-        } catch (Exception ignored) {}
-        // Respect deck filter: if a specific deck is selected, avoid cross-deck fallback
-        boolean allDecks = isDeckFilterAll();
-        if (allowFallback && allDecks) return nextCardOrFallback();
-        return java.util.Optional.empty();
+            } catch (Exception ignored) {}
+            // Respect deck filter: if a specific deck is selected, avoid cross-deck fallback
+            boolean allDecks = isDeckFilterAll();
+            if (allowFallback && allDecks) return nextCardOrFallback(s);
+            return java.util.Optional.empty();
+        }
     }
 
     private boolean isDeckFilterAll() {
-        String sel = com.memorizer.app.Config.get("app.deck.filter", "all");
-        return sel == null || sel.trim().isEmpty() || "all".equalsIgnoreCase(sel.trim());
+        return com.memorizer.app.Config.snapshot().isDeckFilterAll();
     }
 
 /** Try next due/new; if none, fallback to any available card. */
-    public Optional<CardView> nextCardOrFallback() {
-        Optional<CardView> o = nextCard();
-        if (o.isPresent()) return o;
+    public Optional<CardView> nextCardOrFallback() { return nextCardOrFallback(sessions.desktop()); }
 
-        // No due/new -> fallback to any available card so user sees something
-        java.util.Optional<com.memorizer.model.Card> any = new com.memorizer.db.CardRepository().findAnyAvailable();
-        if (!any.isPresent()) return Optional.empty();
+    public Optional<CardView> nextCardOrFallback(StudySession s) {
+        synchronized (s) {
+            Optional<CardView> o = nextCard(s);
+            if (o.isPresent()) return o;
 
-        com.memorizer.model.Card c = any.get();
-        java.util.Optional<com.memorizer.model.Note> on = noteRepo.findById(c.noteId);
-        if (!on.isPresent()) return Optional.empty();
+            // No due/new -> fallback to any available card so user sees something
+            java.util.Optional<com.memorizer.model.Card> any = new com.memorizer.db.CardRepository().findAnyAvailable();
+            if (!any.isPresent()) return Optional.empty();
 
-        showingCardId = c.id;
-        showStartedAtMs = System.currentTimeMillis();
+            com.memorizer.model.Card c = any.get();
+            java.util.Optional<com.memorizer.model.Note> on = noteRepo.findById(c.noteId);
+            if (!on.isPresent()) return Optional.empty();
 
-        return Optional.of(assembleView(c, on.get()));
+            s.show(c.id);
+            return Optional.of(assembleView(c, on.get()));
+        }
     }
     
     /** Get next card for batch session: prefer due/new, excluding the previous card; fallback optional. */
     public Optional<CardView> nextForBatch(long excludeCardId, boolean allowFallback) {
+        StudySession s = sessions.desktop();
+        synchronized (s) { return nextForBatch(s, excludeCardId, allowFallback); }
+    }
+
+    private Optional<CardView> nextForBatch(StudySession s, long excludeCardId, boolean allowFallback) {
         com.memorizer.db.CardRepository repo = new com.memorizer.db.CardRepository();
         java.util.Optional<com.memorizer.model.Card> oc = repo.findNextDueOrNewExcluding(excludeCardId);
         boolean allDecks = isDeckFilterAll();
@@ -267,26 +287,72 @@ public class StudyService {
         java.util.Optional<com.memorizer.model.Note> on = noteRepo.findById(c.noteId);
         if (!on.isPresent()) return Optional.empty();
 
-        showingCardId = c.id;
-        showStartedAtMs = System.currentTimeMillis();
-
+        s.show(c.id);
         return Optional.of(assembleView(c, on.get()));
     }
 
 
     /** Fetch next due or new card; return empty if none. */
     /** Fetch the next due or new card and assemble its view. */
-    public Optional<CardView> nextCard() {
-        Optional<Card> oc = cardRepo.findNextDueOrNew();
-        if (!oc.isPresent()) return Optional.empty();
-        Card c = oc.get();
-        Optional<Note> on = noteRepo.findById(c.noteId);
-        if (!on.isPresent()) return Optional.empty();
+    public Optional<CardView> nextCard() { return nextCard(sessions.desktop()); }
 
-        showingCardId = c.id;
-        showStartedAtMs = System.currentTimeMillis();
+    /**
+     * Next due/new card for {@code s}, skipping cards other sessions are showing. Candidates come from the
+     * session's prefetch queue (one query per {@value #PREFETCH} cards) and are re-checked before use.
+     */
+    public Optional<CardView> nextCard(StudySession s) {
+        synchronized (s) {
+            java.util.Set<Long> busy = sessions.busyCards(s);
+            long now = System.currentTimeMillis();
+            if (now - s.prefetchedAtMs > PREFETCH_TTL_MS) s.prefetch.clear();
+            for (int round = 0; round < 2; round++) {
+                if (s.prefetch.isEmpty()) {
+                    s.prefetch.addAll(cardRepo.findNextDueOrNewIds(PREFETCH + busy.size()));
+                    s.prefetchedAtMs = now;
+                    if (s.prefetch.isEmpty()) return Optional.empty();
+                }
+                Long id;
+                while ((id = s.prefetch.poll()) != null) {
+                    if (busy.contains(id)) continue;
+                    Card c = loadById(id);
+                    if (c == null || !isStudyCandidate(c, now)) continue; // rated/suspended/deleted meanwhile
+                    Optional<Note> on = noteRepo.findById(c.noteId);
+                    if (!on.isPresent()) continue;
+                    s.show(c.id);
+                    return Optional.of(assembleView(c, on.get()));
+                }
+            }
+            return Optional.empty();
+        }
+    }
 
-        return Optional.of(assembleView(c, on.get()));
+    /**
+     * Views of the cards the desktop session is likely to show next (today's next planned card, then the due/new
+     * queue), excluding the card on screen. Read-only: no session or plan state changes, so it is safe to call from a
+     * background thread to prepare rendering ahead of time.
+     */
+    public java.util.List<CardView> upcoming(int limit) {
+        java.util.List<CardView> out = new java.util.ArrayList<>();
+        if (limit <= 0) return out;
+        java.util.Set<Long> ids = new java.util.LinkedHashSet<>();
+        try {
+            if (plan != null) plan.peekNext().ifPresent(np -> ids.add(np.cardId));
+        } catch (Exception ignored) {}
+        ids.addAll(cardRepo.findNextDueOrNewIds(limit + 1));
+        ids.remove(sessions.desktop().showingCardId);
+        for (Long id : ids) {
+            if (out.size() >= limit) break;
+            Card c = loadById(id);
+            if (c == null) continue;
+            noteRepo.findById(c.noteId).ifPresent(n -> out.add(assembleView(c, n)));
+        }
+        return out;
+    }
+
+    /** Same predicate as {@link CardRepository#findNextDueOrNew()}: due now or new, and not suspended. */
+    private static boolean isStudyCandidate(Card c, long now) {
+        if (c.status == 3) return false;
+        return c.dueAt == null || c.status == 0 || c.dueAt.getTime() <= now;
     }
 
     /** Apply rating to current card and write logs. */
@@ -294,17 +360,34 @@ public class StudyService {
      * Apply a user rating to the current card: compute next interval/ease,
      * persist schedule and review log, and advance the plan.
      */
-    public void rate(Rating rating) {
-        if (showingCardId <= 0) return;
+    public void rate(Rating rating) { rate(sessions.desktop(), rating, -1); }
+
+    /**
+     * Rate the card shown in {@code s}. When {@code expectedCardId} is positive the rating is ignored unless it
+     * matches the session's card (e.g. a stale form re-submitted after the session moved on).
+     * @return true if a rating was applied
+     */
+    public boolean rate(StudySession s, Rating rating, long expectedCardId) {
+        synchronized (s) {
+            if (s.showingCardId <= 0) return false;
+            if (expectedCardId > 0 && expectedCardId != s.showingCardId) return false;
+            rateShowing(s, rating);
+            return true;
+        }
+    }
 
-        // Load current card
-        Optional<Card> oc = cardRepo.findNextDueOrNew().filter(c -> c.id == showingCardId);
-        // We need the exact card; if findNext returned different, refetch by id
-        Card c = oc.orElseGet(() -> loadById(showingCardId));
+    private void rateShowing(StudySession s, Rating rating) {
+        long showingCardId = s.showingCardId;
+        Card c = loadById(showingCardId);
         if (c == null) return;
 
         double prevInterval = c.intervalDays == null ? 0.0 : c.intervalDays;
-        SrsEngine.Result r = srs.schedule(c, rating);
+        SrsEngine.Result r;
+        com.memorizer.db.ExamRepository.Features exam = null;
+        if (com.memorizer.app.Config.getBool("app.exam.feed-srs", true)) {
+            try { exam = examRepo.features(c.id); } catch (Exception ignored) {}
+        }
+        r = exam == null ? srs.schedule(c, rating) : srs.schedule(c, rating, exam.attempts, exam.correct);
 
         c.intervalDays = r.nextIntervalDays;
         c.ease = r.newEase;
@@ -316,37 +399,40 @@ public class StudyService {
 
         cardRepo.updateSchedule(c);
 
-        int latency = (int) Math.max(0, System.currentTimeMillis() - showStartedAtMs);
+        int latency = (int) Math.max(0, System.currentTimeMillis() - s.showStartedAtMs);
         cardRepo.insertReview(c.id, rating.value, prevInterval, r.nextIntervalDays, c.ease, latency);
 
         // mark plan done if present
-        try {
-            if (plan != null) plan.markDone(showingCardId);
-            com.memorizer.app.TrayManager tm = com.memorizer.app.AppContext.getTray();
-            if (tm != null) tm.updatePlanTooltip();
-        } catch (Exception ignored) {}
+        try { if (plan != null) plan.markDone(showingCardId); } catch (Exception ignored) {}
+        com.memorizer.event.EventBus.publish(new com.memorizer.event.DomainEvents.CardRated(c.id, rating.value, c.dueAt));
 
         // reset
-        showingCardId = -1;
-        showStartedAtMs = 0;
+        s.clearShowing();
     }
     
     /** Hide without rating: optionally snooze the current card, then clear current state. */
     public void dismissWithoutRating(boolean snoozeEnabled, int snoozeMinutes) {
-        if (showingCardId <= 0) return;
-        if (snoozeEnabled) {
-            snoozeCurrent(snoozeMinutes);
-        } else {
-            // just forget current focus
-            showingCardId = -1;
-            showStartedAtMs = 0;
+        StudySession s = sessions.desktop();
+        synchronized (s) {
+            if (s.showingCardId <= 0) return;
+            if (snoozeEnabled) {
+                snoozeCurrent(snoozeMinutes);
+            } else {
+                // just forget current focus
+                s.clearShowing();
+            }
         }
     }
 
     /** Move current card's due to now + minutes; make it 'learning' if it was new. */
     public void snoozeCurrent(int minutes) {
-        if (showingCardId <= 0) return;
-        Card c = loadById(showingCardId);
+        StudySession s = sessions.desktop();
+        synchronized (s) { snoozeShowing(s, minutes); }
+    }
+
+    private void snoozeShowing(StudySession s, int minutes) {
+        if (s.showingCardId <= 0) return;
+        Card c = loadById(s.showingCardId);
         if (c == null) return;
 
         double ivlDays = minutes / (24.0 * 60.0);
@@ -360,8 +446,7 @@ public class StudyService {
         new com.memorizer.db.CardRepository().updateSchedule(c);
 
         // clear current focus
-        showingCardId = -1;
-        showStartedAtMs = 0;
+        s.clearShowing();
     }
 
     private Card loadById(long id) {
@@ -0,0 +1,46 @@
+package com.memorizer.service;
+
+import java.util.ArrayDeque;
+
+/**
+ * Study state of one client (the desktop popup, one browser, ...): the card being shown, when it was shown
+ * (review latency clock) and a short prefetch queue of candidate card ids. Operations on a session are
+ * serialized by {@link StudyService} via the session's monitor; different sessions proceed in parallel.
+ */
+public final class StudySession {
+    private final String id;
+    private final boolean pinned;
+
+    volatile long showingCardId = -1;
+    long showStartedAtMs = 0;
+    /** Candidate due/new card ids fetched in one query; revalidated before use. */
+    final ArrayDeque<Long> prefetch = new ArrayDeque<Long>();
+    long prefetchedAtMs = 0;
+    volatile long lastAccessMs = System.currentTimeMillis();
+
+    StudySession(String id, boolean pinned) {
+        this.id = id;
+        this.pinned = pinned;
+    }
+
+    public String getId() { return id; }
+
+    /** Card currently shown in this session, or -1. */
+    public synchronized long getShowingCardId() { return showingCardId; }
+
+    /** Pinned sessions (the desktop one) are never evicted. */
+    boolean isPinned() { return pinned; }
+
+    void touch() { lastAccessMs = System.currentTimeMillis(); }
+
+    /** Forget the current card and stop the latency clock. */
+    void clearShowing() {
+        showingCardId = -1;
+        showStartedAtMs = 0;
+    }
+
+    void show(long cardId) {
+        showingCardId = cardId;
+        showStartedAtMs = System.currentTimeMillis();
+    }
+}
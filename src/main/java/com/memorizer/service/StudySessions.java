@@ -0,0 +1,96 @@
+package com.memorizer.service;
+
+import com.memorizer.app.Config;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of concurrent {@link StudySession}s keyed by opaque id (e.g. a browser cookie).
+ * Idle sessions are evicted after {@code app.study.session-idle-minutes}; at most {@code app.study.max-sessions}
+ * are kept (oldest idle first). The sweep runs opportunistically on lookup, at most once a minute.
+ */
+public final class StudySessions {
+    public static final String DESKTOP = "desktop";
+    private static final long SWEEP_INTERVAL_MS = 60_000L;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Map<String, StudySession> sessions = new ConcurrentHashMap<String, StudySession>();
+    private volatile long lastSweepMs = System.currentTimeMillis();
+
+    StudySessions() {
+        sessions.put(DESKTOP, new StudySession(DESKTOP, true));
+    }
+
+    /** The desktop (popup/tray/main window) session; always present. */
+    public StudySession desktop() { return sessions.get(DESKTOP); }
+
+    /** Existing session for {@code id}, or null if unknown or evicted. */
+    public StudySession get(String id) {
+        if (id == null) return null;
+        StudySession s = sessions.get(id);
+        if (s != null) s.touch();
+        return s;
+    }
+
+    /** Existing session for {@code id}, or a new one with a fresh id when {@code id} is null/unknown. */
+    public StudySession getOrCreate(String id) {
+        sweepIfDue();
+        StudySession s = get(id);
+        if (s != null) return s;
+        String nid = newId();
+        s = new StudySession(nid, false);
+        sessions.put(nid, s);
+        return s;
+    }
+
+    /** Close a session; the desktop session cannot be closed. */
+    public void close(String id) {
+        StudySession s = id == null ? null : sessions.get(id);
+        if (s != null && !s.isPinned()) sessions.remove(id);
+    }
+
+    public int size() { return sessions.size(); }
+
+    /** Cards currently shown by sessions other than {@code self}, so concurrent sessions don't get the same card. */
+    Set<Long> busyCards(StudySession self) {
+        Set<Long> out = new HashSet<Long>();
+        for (StudySession s : sessions.values()) {
+            if (s == self) continue;
+            long c = s.showingCardId; // racy read is fine: a stale value only skips/permits one candidate
+            if (c > 0) out.add(c);
+        }
+        return out;
+    }
+
+    /** Evict idle sessions, then the least recently used ones beyond the cap. */
+    void sweep(long now) {
+        lastSweepMs = now;
+        long idleMs = Config.getInt("app.study.session-idle-minutes", 30) * 60_000L;
+        sessions.values().removeIf(s -> !s.isPinned() && now - s.lastAccessMs > idleMs);
+        int max = Math.max(1, Config.getInt("app.study.max-sessions", 256));
+        while (sessions.size() > max) {
+            StudySession oldest = null;
+            for (StudySession s : sessions.values()) {
+                if (!s.isPinned() && (oldest == null || s.lastAccessMs < oldest.lastAccessMs)) oldest = s;
+            }
+            if (oldest == null) break;
+            sessions.remove(oldest.getId());
+        }
+    }
+
+    private void sweepIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweepMs >= SWEEP_INTERVAL_MS || sessions.size() > Config.getInt("app.study.max-sessions", 256)) sweep(now);
+    }
+
+    private static String newId() {
+        byte[] b = new byte[18];
+        RANDOM.nextBytes(b);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+    }
+}
@@ -15,6 +15,8 @@ import java.util.concurrent.TimeUnit;
  * - EASY  -> next = max(1d, prev*ease*1.3), ease +0.15
  * For brand-new cards (interval null), seed intervals:
  * - AGAIN: 10 min; HARD/GOOD: 1 day; EASY: 3 days
+ * Exam history can damp growth: a card answered wrong in most of at least 3 exam attempts
+ * only gains half of the GOOD/EASY interval increase.
  */
 public class SrsEngine {
     private static final double EASE_MIN = 1.3;
@@ -54,6 +56,17 @@ public class SrsEngine {
         return r;
     }
 
+    /** As {@link #schedule(Card, Rating)}, taking the card's exam record ({@code examAttempts} = 0 for none) into account. */
+    public Result schedule(Card c, Rating rating, int examAttempts, int examCorrect) {
+        Result r = schedule(c, rating);
+        double prev = c.intervalDays == null ? 0.0 : c.intervalDays;
+        boolean failingExams = examAttempts >= 3 && examCorrect * 2 < examAttempts;
+        if (failingExams && prev > 0 && (rating == Rating.GOOD || rating == Rating.EASY) && r.nextIntervalDays > prev) {
+            r.nextIntervalDays = Math.max(1.0, prev + (r.nextIntervalDays - prev) / 2.0);
+        }
+        return r;
+    }
+
     public static Timestamp nowPlusDays(double days) {
         long ms = System.currentTimeMillis() + (long) (days * 24 * 60 * 60 * 1000);
         return new Timestamp(ms);
@@ -0,0 +1,41 @@
+package com.memorizer.ui;
+
+import javafx.scene.image.Image;
+import javafx.stage.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Application window icon, decoded once and shared by every stage.
+ */
+public final class AppIcons {
+    private static final Logger log = LoggerFactory.getLogger(AppIcons.class);
+    private static volatile Image icon;
+    private static volatile boolean loaded;
+
+    private AppIcons() {}
+
+    /** The {@code /icon.png} image, or null if the resource is missing or unreadable. */
+    public static Image get() {
+        if (!loaded) {
+            synchronized (AppIcons.class) {
+                if (!loaded) {
+                    try {
+                        java.net.URL url = AppIcons.class.getResource("/icon.png");
+                        if (url != null) icon = new Image(url.toString());
+                    } catch (Exception e) {
+                        log.warn("Failed to load application icon: {}", e.getMessage());
+                    }
+                    loaded = true;
+                }
+            }
+        }
+        return icon;
+    }
+
+    /** Set the application icon on {@code stage} (no-op when unavailable). */
+    public static void apply(Stage stage) {
+        Image i = get();
+        if (i != null && !stage.getIcons().contains(i)) stage.getIcons().add(i);
+    }
+}
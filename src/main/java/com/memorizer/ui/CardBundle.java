@@ -0,0 +1,133 @@
+package com.memorizer.ui;
+
+import com.memorizer.service.StudyService;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable render model of one card for the stealth popup: display strings, the mini-mode line sequence and
+ * marquee widths of the example lines, prepared off the FX thread so showing a card only sets text on existing
+ * nodes.
+ */
+final class CardBundle {
+    final long cardId;
+    final String front;
+    final String back;
+    final String readingPos;
+    /** Example lines as shown in Normal mode. */
+    final List<String> examples;
+    /** Mini mode: non-blank lines across front → back → reading/pos → examples. */
+    final List<String> miniSeq;
+    /** URL of the first attached image, or null. */
+    final String imageUrl;
+    /** Font {@link #widths} were measured with, or null when nothing was measured. */
+    final Font font;
+    /** Single-line (newline-flattened) example text → rendered width in {@link #font}. */
+    final Map<String, Double> widths;
+
+    private final String reading;
+    private final String pos;
+    private final boolean miniReadingPos;
+
+    private CardBundle(long cardId, String front, String back, String reading, String pos, List<String> examples,
+                       String imageUrl, boolean miniReadingPos, Font font) {
+        this.cardId = cardId;
+        this.front = front == null ? "" : front;
+        this.back = back == null ? "" : back;
+        this.reading = reading;
+        this.pos = pos;
+        this.readingPos = readingPos(reading, pos);
+        this.examples = examples == null ? Collections.<String>emptyList()
+                : Collections.unmodifiableList(new ArrayList<String>(examples));
+        this.imageUrl = imageUrl;
+        this.miniReadingPos = miniReadingPos;
+        this.font = font;
+
+        List<String> seq = new ArrayList<String>();
+        addLines(seq, this.front);
+        addLines(seq, this.back);
+        if (miniReadingPos) addLines(seq, readingPos);
+        for (String ex : this.examples) addLines(seq, ex);
+        this.miniSeq = Collections.unmodifiableList(seq);
+
+        Map<String, Double> w = new HashMap<String, Double>();
+        if (font != null) {
+            Text meas = new Text();
+            meas.setFont(font);
+            for (String ex : this.examples) {
+                String line = singleLine(ex);
+                if (line.isEmpty() || w.containsKey(line)) continue;
+                meas.setText(line);
+                w.put(line, meas.getLayoutBounds().getWidth());
+            }
+        }
+        this.widths = Collections.unmodifiableMap(w);
+    }
+
+    /** Bundle for {@code v}; {@code font} may be null to skip measuring. Safe off the FX thread. */
+    static CardBundle of(StudyService.CardView v, Font font) {
+        return of(v.getCardId(), v.getFront(), v.getBack(), v.getReading(), v.getPos(), v.getExamples(),
+                imageUrl(v), com.memorizer.app.Config.getBool("app.ui.mini.include-reading-pos", true), font);
+    }
+
+    static CardBundle of(long cardId, String front, String back, String reading, String pos, List<String> examples,
+                         String imageUrl, boolean miniReadingPos, Font font) {
+        return new CardBundle(cardId, front, back, reading, pos, examples, imageUrl, miniReadingPos, font);
+    }
+
+    /** True when this bundle still renders {@code v} as it is now (content may have been edited since). */
+    boolean matches(StudyService.CardView v) {
+        return v.getCardId() == cardId
+                && front.equals(v.getFront() == null ? "" : v.getFront())
+                && back.equals(v.getBack() == null ? "" : v.getBack())
+                && Objects.equals(reading, v.getReading())
+                && Objects.equals(pos, v.getPos())
+                && examples.equals(v.getExamples() == null ? Collections.emptyList() : v.getExamples())
+                && Objects.equals(imageUrl, imageUrl(v))
+                && miniReadingPos == com.memorizer.app.Config.getBool("app.ui.mini.include-reading-pos", true);
+    }
+
+    /** Pre-measured width of {@code text} in {@code f}, or null when not measured. */
+    Double width(String text, Font f) {
+        if (font == null || text == null || !font.equals(f)) return null;
+        return widths.get(text);
+    }
+
+    /** Newline-free form of {@code s} as shown on one line. */
+    static String singleLine(String s) {
+        return s == null ? "" : s.replace("\n", " ").replace("\r", " ");
+    }
+
+    private static String readingPos(String reading, String pos) {
+        String rp = (reading == null ? "" : reading);
+        if (pos != null && !pos.trim().isEmpty()) rp = rp.isEmpty() ? ("[" + pos + "]") : (rp + "  [" + pos + "]");
+        return rp;
+    }
+
+    private static void addLines(List<String> out, String s) {
+        if (s == null) return;
+        for (String p : s.split("\\r?\\n")) {
+            String t = p.trim();
+            if (!t.isEmpty()) out.add(t);
+        }
+    }
+
+    private static String imageUrl(StudyService.CardView v) {
+        for (com.memorizer.db.MediaStore.Ref ref : v.getMedia()) {
+            if (!com.memorizer.db.MediaStore.IMAGE.equals(ref.role)) continue;
+            try {
+                return com.memorizer.db.MediaStore.get().path(ref.hash).toUri().toString();
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
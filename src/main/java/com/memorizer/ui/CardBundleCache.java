@@ -0,0 +1,79 @@
+package com.memorizer.ui;
+
+import com.memorizer.metrics.Metrics;
+import com.memorizer.service.StudyService;
+import javafx.scene.text.Font;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Small LRU of {@link CardBundle}s keyed by card id. {@link #prefetch} loads the upcoming cards and prepares their
+ * bundles on a background thread; at most one prefetch is queued, later requests while one is pending are dropped.
+ * Hits and misses are counted in {@code memorizer_card_bundle_total{result=...}}.
+ */
+final class CardBundleCache {
+    private static final int CAPACITY = 32;
+
+    private final Map<Long, CardBundle> bundles = new LinkedHashMap<Long, CardBundle>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CardBundle> eldest) { return size() > CAPACITY; }
+    };
+    private final ExecutorService worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(1), r -> {
+                Thread t = new Thread(r, "card-bundle-prep");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+    private final Metrics.Counter hits = Metrics.counter("memorizer_card_bundle_total", "result", "hit");
+    private final Metrics.Counter misses = Metrics.counter("memorizer_card_bundle_total", "result", "miss");
+
+    CardBundleCache() {
+        Metrics.describe("memorizer_card_bundle_total", "Stealth popup cards rendered from a prepared bundle (hit) or prepared on the FX thread (miss)");
+    }
+
+    /** Prepared bundle for {@code v}, built in place (and cached) when missing, stale or measured in another font. */
+    CardBundle bundleFor(StudyService.CardView v, Font font) {
+        CardBundle b;
+        synchronized (bundles) { b = bundles.get(v.getCardId()); }
+        if (b != null && b.matches(v) && (font == null || font.equals(b.font))) {
+            hits.inc();
+            return b;
+        }
+        misses.inc();
+        b = CardBundle.of(v, font);
+        put(b);
+        return b;
+    }
+
+    /** Prepare bundles for {@code upcoming} on the background thread. */
+    void prefetch(Supplier<List<StudyService.CardView>> upcoming, Font font) {
+        worker.execute(() -> {
+            try {
+                for (StudyService.CardView v : upcoming.get()) {
+                    CardBundle b;
+                    synchronized (bundles) { b = bundles.get(v.getCardId()); }
+                    if (b == null || !b.matches(v) || (font != null && !font.equals(b.font))) put(CardBundle.of(v, font));
+                }
+            } catch (Exception ignored) {
+                // Best effort: a miss later just prepares the bundle on the FX thread
+            }
+        });
+    }
+
+    /** Drop the bundle of {@code cardId} (e.g. after the note was edited). */
+    void invalidate(long cardId) {
+        synchronized (bundles) { bundles.remove(cardId); }
+    }
+
+    private void put(CardBundle b) {
+        synchronized (bundles) { bundles.put(b.cardId, b); }
+    }
+}
@@ -30,6 +30,7 @@ import java.util.List;
  */
 public class DashboardPanel {
     private final StudyService studyService;
+    private final PlanService planService = new PlanService();
     private final Scheduler scheduler;
     
     // Statistics labels
@@ -48,7 +49,7 @@ public class DashboardPanel {
     private BarChart<String, Number> cardStatusChart;
     
     // Task progress indicator (spheres grid)
-    private GridPane taskProgressContainer;
+    private PlanStripView taskProgressContainer;
     private HBox taskProgressRow;
     private HBox taskProgressBarRow;
     private final ProgressBar taskProgressBar = new ProgressBar(0);
@@ -61,6 +62,11 @@ public class DashboardPanel {
     private javafx.scene.control.TableView<HistoryRow> historyTable;
     private java.time.LocalDate selectedHistoryDate;
 
+    // Workload forecast
+    private BarChart<String, Number> forecastChart;
+    private final Label forecastSummary = new Label("");
+    private com.memorizer.service.ForecastService forecastService;
+
     private static class HistoryRow {
         java.time.LocalDate date;
         int done;
@@ -98,9 +104,29 @@ public class DashboardPanel {
         HBox.setHgrow(chartsSection, javafx.scene.layout.Priority.ALWAYS);
         summarySection.setMinWidth(320);
         summarySection.setPrefWidth(320);
+
+        // Plan/today counters follow the shared summary cache; charts stay on explicit refresh
+        com.memorizer.event.EventBus.subscribe(com.memorizer.service.PlanSummaryCache.Updated.class,
+                u -> javafx.application.Platform.runLater(() -> applyPlanSummary(u.summary)));
+        // Progress dots: a status change repaints one dot, anything else re-reads the statuses
+        com.memorizer.event.EventBus.subscribe(com.memorizer.event.DomainEvents.PlanChanged.class,
+                e -> javafx.application.Platform.runLater(() -> {
+                    if (e.kind == com.memorizer.event.DomainEvents.PlanChanged.Kind.ITEM) {
+                        if (taskProgressContainer != null) taskProgressContainer.updateStatus(e.cardId, e.toStatus);
+                    } else {
+                        updateTaskProgressIndicator();
+                    }
+                }));
         
         return mainContainer;
     }
+
+    private void applyPlanSummary(com.memorizer.service.PlanSummaryCache.Summary s) {
+        lblPlanPending.setText(String.valueOf(s.pending));
+        lblPlanDone.setText(String.valueOf(s.done));
+        lblPlanTotal.setText(String.valueOf(s.total));
+        lblTodayReviews.setText(String.valueOf(s.reviewsToday));
+    }
     
     /**
      * Create summary statistics section.
@@ -237,16 +263,11 @@ public class DashboardPanel {
         titleRow.getChildren().addAll(titleSpacer, taskProgressTitleCount);
         Label taskProgressLegend = new Label("Legend: Done (green) • Pending (orange) • Queued (gray). Hover or click items.");
         taskProgressLegend.setStyle("-fx-font-size: 12px; -fx-text-fill: #666;");
-        taskProgressContainer = new GridPane();
-        taskProgressContainer.setHgap(8);
-        taskProgressContainer.setVgap(8);
-        taskProgressContainer.setAlignment(Pos.CENTER_LEFT);
-        // 20 columns, evenly spaced
-        for (int i = 0; i < 20; i++) {
-            javafx.scene.layout.ColumnConstraints cc = new javafx.scene.layout.ColumnConstraints();
-            cc.setPercentWidth(5.0);
-            taskProgressContainer.getColumnConstraints().add(cc);
-        }
+        taskProgressContainer = new PlanStripView();
+        HBox.setHgrow(taskProgressContainer, javafx.scene.layout.Priority.ALWAYS);
+        taskProgressContainer.setItemText(this::planItemText);
+        taskProgressContainer.setOnHover(this::enrichTooltipAsync);
+        taskProgressContainer.setOnOpen(this::openStudyForCard);
         taskProgressText.setStyle("-fx-font-weight: bold;");
         // Mini stacked bar showing proportions (done/pending/queued)
         taskProgressStatusStack.setPrefWidth(10);
@@ -276,10 +297,90 @@ public class DashboardPanel {
         taskProgressBarRow.setManaged(false);
 
         chartsContainer.getChildren().addAll(titleRow, taskProgressLegend, taskProgressRow, taskProgressBarRow);
+
+        chartsContainer.getChildren().add(createForecastSection());
         
         return chartsContainer;
     }
     
+    /**
+     * Create the workload forecast section: new-per-day/horizon inputs, a run button,
+     * and a bar chart of projected daily reviews.
+     */
+    private VBox createForecastSection() {
+        Label title = new Label("Workload Forecast");
+        title.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
+
+        Spinner<Integer> spNew = new Spinner<>(0, 500, Config.getInt("app.study.daily-new-limit", 20), 5);
+        spNew.setEditable(true);
+        spNew.setPrefWidth(80);
+        Spinner<Integer> spDays = new Spinner<>(7, 365, 30, 7);
+        spDays.setEditable(true);
+        spDays.setPrefWidth(80);
+        Button btnRun = new Button("Run Forecast");
+        btnRun.getStyleClass().addAll("btn", "btn-default");
+        btnRun.setOnAction(e -> runForecast(btnRun, spNew.getValue(), spDays.getValue()));
+
+        HBox controls = new HBox(8, new Label("New/day:"), spNew, new Label("Days:"), spDays, btnRun);
+        controls.setAlignment(Pos.CENTER_LEFT);
+
+        CategoryAxis x = new CategoryAxis();
+        NumberAxis y = new NumberAxis();
+        forecastChart = new BarChart<>(x, y);
+        forecastChart.setPrefHeight(180);
+        forecastChart.setLegendVisible(false);
+        forecastChart.setAnimated(false);
+        forecastChart.setTitle("Projected Reviews / Day");
+        forecastSummary.setStyle("-fx-font-size: 12px; -fx-text-fill: #666;");
+
+        return new VBox(6, title, controls, forecastSummary, forecastChart);
+    }
+
+    /** Run the Monte Carlo forecast off the FX thread and render the result when done. */
+    private void runForecast(Button trigger, int newPerDay, int days) {
+        if (forecastService == null) forecastService = new com.memorizer.service.ForecastService(studyService.getSrsEngine());
+        final com.memorizer.service.ForecastService svc = forecastService;
+        trigger.setDisable(true);
+        forecastSummary.setText("Simulating...");
+        Thread t = new Thread(() -> {
+            com.memorizer.service.ForecastService.Forecast f = null;
+            String error = null;
+            try {
+                com.memorizer.service.ForecastService.Params p = new com.memorizer.service.ForecastService.Params();
+                p.dailyNewLimit = newPerDay;
+                p.days = days;
+                f = svc.forecast(p);
+            } catch (Exception ex) {
+                error = ex.getMessage();
+            }
+            final com.memorizer.service.ForecastService.Forecast res = f;
+            final String err = error;
+            javafx.application.Platform.runLater(() -> {
+                trigger.setDisable(false);
+                if (res == null) { forecastSummary.setText("Forecast failed: " + err); return; }
+                renderForecast(res);
+            });
+        }, "forecast");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void renderForecast(com.memorizer.service.ForecastService.Forecast f) {
+        forecastChart.getData().clear();
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd");
+        double peak = 0, retSum = 0; int retDays = 0;
+        for (com.memorizer.service.ForecastService.DayForecast d : f.days) {
+            series.getData().add(new XYChart.Data<>(d.date.format(formatter), Math.round(d.reviews)));
+            peak = Math.max(peak, d.reviews);
+            if (d.reviews > 0) { retSum += d.retention; retDays++; }
+        }
+        forecastChart.getData().add(series);
+        double avgMin = f.days.isEmpty() ? 0 : f.totalMinutes / f.days.size();
+        forecastSummary.setText(String.format("%d cards • avg %.0f min/day • peak %.0f reviews • expected retention %.0f%% • %d ms",
+                f.cards, avgMin, peak, retDays == 0 ? 0.0 : retSum / retDays * 100.0, f.elapsedMs));
+    }
+
     /**
      * Initialize all charts with basic configuration.
      */
@@ -427,8 +528,6 @@ public class DashboardPanel {
      */
     private void updateTaskProgressIndicator() {
         if (taskProgressContainer == null) return;
-        // Clear existing indicators
-        taskProgressContainer.getChildren().clear();
         
         // Get today's plan
         PlanService.Counts planCounts = studyService.planCounts();
@@ -442,46 +541,13 @@ public class DashboardPanel {
         taskProgressContainer.setVisible(true);
         taskProgressContainer.setManaged(true);
 
-        // Build indicators using today's plan list for richer hover info
-        java.util.List<com.memorizer.service.PlanService.PlanRow> rows = studyService.planListToday();
+        // Statuses only; deck/front of an item are fetched when its dot is hovered
         taskProgressText.setText(doneTasks + "/" + totalTasks);
         taskProgressTitleCount.setText(doneTasks + "/" + totalTasks);
         int dotRadius = com.memorizer.app.Config.getInt("app.ui.progress.dot-radius", 8);
         int perRow = Math.max(5, com.memorizer.app.Config.getInt("app.ui.progress.per-row", 20));
-
-        // Rebuild column constraints based on per-row capacity
-        taskProgressContainer.getColumnConstraints().clear();
-        for (int i = 0; i < perRow; i++) {
-            javafx.scene.layout.ColumnConstraints cc = new javafx.scene.layout.ColumnConstraints();
-            cc.setPercentWidth(100.0 / perRow);
-            taskProgressContainer.getColumnConstraints().add(cc);
-        }
-        taskProgressContainer.getChildren().clear();
-
-        for (int i = 0; i < rows.size(); i++) {
-            com.memorizer.service.PlanService.PlanRow row = rows.get(i);
-            javafx.scene.shape.Circle dot = new javafx.scene.shape.Circle();
-            double radius = Math.max(3.0, (double) dotRadius);
-            dot.setRadius(radius);
-
-            int st = row.getStatus();
-            if (st == 1) dot.setFill(javafx.scene.paint.Color.web("#4CAF50"));
-            else if (st == 0) dot.setFill(javafx.scene.paint.Color.web("#FF9800"));
-            else dot.setFill(javafx.scene.paint.Color.web("#BDBDBD"));
-
-            long cardId = row.getCardId();
-            String base = "Deck: " + safe(row.getDeckName()) + "\n" + "Front: " + summarize(row.getFront()) + "\n(click to open)";
-            Tooltip tp = new Tooltip(base);
-            // Lazy-enrich tooltip on first hover
-            dot.setOnMouseEntered(e -> enrichTooltipAsync(tp, cardId));
-            dot.setOnMouseClicked(e -> openStudyForCard(cardId));
-            Tooltip.install(dot, tp);
-            int col = i % perRow;
-            int r = i / perRow;
-            GridPane.setColumnIndex(dot, col);
-            GridPane.setRowIndex(dot, r);
-            taskProgressContainer.getChildren().add(dot);
-        }
+        int maxDots = com.memorizer.app.Config.getInt("app.ui.progress.max-dots", 400);
+        taskProgressContainer.setStrip(planService.stripToday(), perRow, dotRadius, maxDots);
         taskProgressRow.setVisible(true);
         taskProgressRow.setManaged(true);
         taskProgressBarRow.setVisible(false);
@@ -495,12 +561,25 @@ public class DashboardPanel {
     // ---- Helpers for progress hover ----
     private static String safe(String s) { return s == null ? "" : s; }
 
+    /** Base tooltip of the plan item at {@code index} (plan order), read as a one-row page. */
+    private String planItemText(int index) {
+        java.util.List<PlanService.PlanRow> rows =
+                planService.pageToday(java.util.Collections.<PlanService.Sort>emptyList(), index, 1);
+        if (rows.isEmpty()) return "";
+        PlanService.PlanRow row = rows.get(0);
+        return "Deck: " + safe(row.getDeckName()) + "\n" + "Front: " + summarize(row.getFront()) + "\n(click to open)";
+    }
+
     private void enrichTooltipAsync(Tooltip tp, long cardId) {
+        // The tooltip is shared by all dots: only apply details if the pointer is still on this card
+        tp.setUserData(cardId);
         // Avoid blocking UI: fetch details on a background thread, then apply to tooltip
         new Thread(() -> {
             String text = buildTooltipText(cardId);
             if (text == null || text.trim().isEmpty()) return;
-            javafx.application.Platform.runLater(() -> tp.setText(text));
+            javafx.application.Platform.runLater(() -> {
+                if (Long.valueOf(cardId).equals(tp.getUserData())) tp.setText(text);
+            });
         }, "tp-enrich").start();
     }
 
@@ -550,8 +629,7 @@ public class DashboardPanel {
 
     private java.util.List<String> recentReviewsOf(long cardId, int limit) {
         java.util.List<String> out = new java.util.ArrayList<>();
-        String sql = "SELECT reviewed_at, rating, latency_ms FROM review_log WHERE card_id=? ORDER BY reviewed_at DESC LIMIT ?";
-        try (java.sql.PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(sql)) {
+        try (java.sql.PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement(com.memorizer.db.CardRepository.RECENT_REVIEWS_SQL)) {
             ps.setLong(1, cardId);
             ps.setInt(2, Math.max(1, limit));
             try (java.sql.ResultSet rs = ps.executeQuery()) {
@@ -705,10 +783,10 @@ public class DashboardPanel {
         lblTodayReviews.setText(String.valueOf(stats.todayReviews));
         
         // Load plan counts
-        PlanService.Counts planCounts = studyService.planCounts();
-        lblPlanPending.setText(String.valueOf(planCounts.pending));
-        lblPlanDone.setText(String.valueOf(planCounts.done));
-        lblPlanTotal.setText(String.valueOf(planCounts.total));
+        com.memorizer.service.PlanSummaryCache.Summary plan = com.memorizer.service.PlanSummaryCache.get().current();
+        lblPlanPending.setText(String.valueOf(plan.pending));
+        lblPlanDone.setText(String.valueOf(plan.done));
+        lblPlanTotal.setText(String.valueOf(plan.total));
         
         // Update charts
         updateCharts();
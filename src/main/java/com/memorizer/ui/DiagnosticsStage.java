@@ -0,0 +1,106 @@
+package com.memorizer.ui;
+
+import com.memorizer.metrics.Metrics;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import javafx.util.Duration;
+
+import java.util.Locale;
+
+/** Diagnostics window: live view of the in-process metrics (latency percentiles and counters). */
+public class DiagnosticsStage extends Stage {
+
+    /** One table row, either a histogram series or a counter. */
+    public static class Row {
+        final String name;
+        final String labels;
+        final String count;
+        final String p50;
+        final String p99;
+        final String max;
+
+        Row(String name, String labels, String count, String p50, String p99, String max) {
+            this.name = name; this.labels = labels; this.count = count; this.p50 = p50; this.p99 = p99; this.max = max;
+        }
+    }
+
+    private final TableView<Row> table = new TableView<>();
+    private final ObservableList<Row> data = FXCollections.observableArrayList();
+    private final Timeline ticker;
+
+    public DiagnosticsStage(Stage owner) {
+        initOwner(owner);
+        initStyle(StageStyle.UTILITY);
+        setTitle("Diagnostics");
+        setWidth(820); setHeight(480);
+
+        table.getColumns().add(column("Metric", 260, r -> r.name));
+        table.getColumns().add(column("Labels", 240, r -> r.labels));
+        table.getColumns().add(column("Count", 70, r -> r.count));
+        table.getColumns().add(column("p50", 70, r -> r.p50));
+        table.getColumns().add(column("p99", 70, r -> r.p99));
+        table.getColumns().add(column("Max", 70, r -> r.max));
+        table.setItems(data);
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        CheckBox cbAuto = new CheckBox("Auto refresh");
+        cbAuto.setSelected(true);
+        Button btnRefresh = new Button("Refresh");
+        Button btnReset = new Button("Reset");
+        Button btnClose = new Button("Close");
+        btnRefresh.setOnAction(e -> reload());
+        btnReset.setOnAction(e -> { Metrics.reset(); reload(); });
+        btnClose.setOnAction(e -> close());
+
+        Region spacer = new Region(); HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox bottom = new HBox(8, btnRefresh, cbAuto, btnReset, spacer, btnClose);
+        bottom.setPadding(new Insets(8));
+
+        BorderPane root = new BorderPane();
+        root.setCenter(table);
+        root.setBottom(bottom);
+        setScene(new Scene(root));
+
+        ticker = new Timeline(new KeyFrame(Duration.seconds(2), e -> { if (cbAuto.isSelected()) reload(); }));
+        ticker.setCycleCount(Timeline.INDEFINITE);
+        setOnShown(e -> ticker.play());
+        setOnHidden(e -> ticker.stop());
+        reload();
+    }
+
+    private static TableColumn<Row, String> column(String title, double width, java.util.function.Function<Row, String> f) {
+        TableColumn<Row, String> col = new TableColumn<>(title);
+        col.setPrefWidth(width);
+        col.setCellValueFactory(c -> new javafx.beans.property.SimpleStringProperty(f.apply(c.getValue())));
+        return col;
+    }
+
+    private void reload() {
+        java.util.List<Row> rows = new java.util.ArrayList<Row>();
+        for (Metrics.Series s : Metrics.series()) {
+            rows.add(new Row(s.name, s.labels, String.valueOf(s.count()),
+                    value(s, s.percentile(50)), value(s, s.percentile(99)), value(s, s.max())));
+        }
+        for (Metrics.Counter c : Metrics.counters()) {
+            rows.add(new Row(c.name, c.labels, String.valueOf(c.get()), "", "", ""));
+        }
+        data.setAll(rows);
+    }
+
+    /** Timers are stored in microseconds and shown in ms; sizes are shown as-is. */
+    private static String value(Metrics.Series s, long v) {
+        if (!s.isTimer()) return String.valueOf(v);
+        return String.format(Locale.ROOT, "%.2f ms", v / 1000.0);
+    }
+}
@@ -236,6 +236,141 @@ public class DialogFactory {
         dialog.showAndWait();
     }
 
+    /**
+     * Show dialog for flattening the due load: preview the before/after histogram, then apply.
+     * @param owner parent window
+     * @param noticeCallback callback for displaying notification message
+     * @param onApplied invoked on the FX thread after cards were rescheduled
+     */
+    public static void showBalanceLoadDialog(Stage owner, Consumer<String> noticeCallback, Runnable onApplied) {
+        Stage dialog = new Stage();
+        dialog.setTitle("Balance Due Load");
+
+        com.memorizer.service.LoadBalanceService svc = new com.memorizer.service.LoadBalanceService();
+        com.memorizer.service.LoadBalanceService.Params defaults = new com.memorizer.service.LoadBalanceService.Params();
+
+        Spinner<Integer> spCap = new Spinner<>(1, 5000, defaults.maxPerDay);
+        Spinner<Integer> spHorizon = new Spinner<>(1, 365, defaults.horizonDays);
+        Spinner<Integer> spFuzz = new Spinner<>(1, 50, defaults.fuzzPercent);
+        Spinner<Integer> spMaxFuzz = new Spinner<>(1, 60, defaults.maxFuzzDays);
+        for (Spinner<Integer> s : java.util.Arrays.asList(spCap, spHorizon, spFuzz, spMaxFuzz)) {
+            s.setEditable(true);
+            s.setPrefWidth(90);
+        }
+
+        GridPane form = new GridPane();
+        form.setHgap(8);
+        form.setVgap(6);
+        form.addRow(0, new Label("Max cards/day"), spCap, new Label("Horizon (days)"), spHorizon);
+        form.addRow(1, new Label("Fuzz (% of interval)"), spFuzz, new Label("Max shift (days)"), spMaxFuzz);
+
+        javafx.scene.chart.CategoryAxis xAxis = new javafx.scene.chart.CategoryAxis();
+        javafx.scene.chart.NumberAxis yAxis = new javafx.scene.chart.NumberAxis();
+        javafx.scene.chart.BarChart<String, Number> chart = new javafx.scene.chart.BarChart<>(xAxis, yAxis);
+        chart.setAnimated(false);
+        chart.setLegendVisible(true);
+        chart.setBarGap(0);
+        chart.setCategoryGap(2);
+        chart.setPrefHeight(280);
+
+        Label lblSummary = new Label("Press Preview to see the redistributed load.");
+        Button btnPreview = new Button("Preview");
+        Button btnApply = new Button("Apply");
+        Button btnClose = new Button("Close");
+        btnApply.setDisable(true);
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox actions = new HBox(8, btnPreview, spacer, btnClose, btnApply);
+
+        VBox root = new VBox(10, form, chart, lblSummary, actions);
+        root.setPadding(new Insets(12));
+        dialog.setScene(new Scene(root, 720, 460));
+
+        final com.memorizer.service.LoadBalanceService.Preview[] current = new com.memorizer.service.LoadBalanceService.Preview[1];
+
+        // Preview scans every due card and apply writes in batches: both run off the FX thread
+        btnPreview.setOnAction(e -> {
+            com.memorizer.service.LoadBalanceService.Params p = new com.memorizer.service.LoadBalanceService.Params();
+            p.maxPerDay = spCap.getValue();
+            p.horizonDays = spHorizon.getValue();
+            p.fuzzPercent = spFuzz.getValue();
+            p.maxFuzzDays = spMaxFuzz.getValue();
+            btnPreview.setDisable(true);
+            btnApply.setDisable(true);
+            lblSummary.setText("Computing...");
+            Thread t = new Thread(() -> {
+                try {
+                    com.memorizer.service.LoadBalanceService.Preview pv = svc.preview(p);
+                    javafx.application.Platform.runLater(() -> {
+                        current[0] = pv;
+                        javafx.scene.chart.XYChart.Series<String, Number> before = new javafx.scene.chart.XYChart.Series<>();
+                        before.setName("Before");
+                        javafx.scene.chart.XYChart.Series<String, Number> after = new javafx.scene.chart.XYChart.Series<>();
+                        after.setName("After");
+                        java.time.format.DateTimeFormatter fmt = java.time.format.DateTimeFormatter.ofPattern("MM-dd");
+                        for (int d = 0; d < pv.after.length; d++) {
+                            String day = pv.today.plusDays(d).format(fmt);
+                            before.getData().add(new javafx.scene.chart.XYChart.Data<>(day, pv.before[d]));
+                            after.getData().add(new javafx.scene.chart.XYChart.Data<>(day, pv.after[d]));
+                        }
+                        chart.getData().setAll(java.util.Arrays.asList(before, after));
+                        lblSummary.setText(String.format("%d card(s) to move (%d overdue). Peak %d -> %d per day; %d day(s) still over the cap of %d.",
+                                pv.moves.size(), pv.overdue, pv.peakBefore(), pv.peakAfter(), pv.overflowDays, pv.cap));
+                        btnPreview.setDisable(false);
+                        btnApply.setDisable(pv.moves.isEmpty());
+                    });
+                } catch (Exception ex) {
+                    javafx.application.Platform.runLater(() -> {
+                        lblSummary.setText("Press Preview to see the redistributed load.");
+                        btnPreview.setDisable(false);
+                        btnApply.setDisable(current[0] == null || current[0].moves.isEmpty());
+                        new Alert(Alert.AlertType.ERROR, "Preview failed: " + ex.getMessage(), ButtonType.OK).showAndWait();
+                    });
+                }
+            }, "load-balance-preview");
+            t.setDaemon(true);
+            t.start();
+        });
+
+        btnApply.setOnAction(e -> {
+            com.memorizer.service.LoadBalanceService.Preview pv = current[0];
+            if (pv == null) return;
+            btnPreview.setDisable(true);
+            btnApply.setDisable(true);
+            btnClose.setDisable(true);
+            lblSummary.setText("Rescheduling " + pv.moves.size() + " card(s)...");
+            Thread t = new Thread(() -> {
+                try {
+                    int n = svc.apply(pv);
+                    javafx.application.Platform.runLater(() -> {
+                        com.memorizer.app.Config.set("app.study.balance.max-per-day", String.valueOf(spCap.getValue()));
+                        com.memorizer.app.Config.set("app.study.balance.horizon-days", String.valueOf(spHorizon.getValue()));
+                        com.memorizer.app.Config.set("app.study.balance.fuzz-percent", String.valueOf(spFuzz.getValue()));
+                        com.memorizer.app.Config.set("app.study.balance.max-fuzz-days", String.valueOf(spMaxFuzz.getValue()));
+                        noticeCallback.accept("Rescheduled " + n + " card(s)");
+                        if (onApplied != null) onApplied.run();
+                        dialog.close();
+                    });
+                } catch (Exception ex) {
+                    javafx.application.Platform.runLater(() -> {
+                        btnPreview.setDisable(false);
+                        btnApply.setDisable(false);
+                        btnClose.setDisable(false);
+                        new Alert(Alert.AlertType.ERROR, "Reschedule failed: " + ex.getMessage(), ButtonType.OK).showAndWait();
+                    });
+                }
+            }, "load-balance-apply");
+            t.setDaemon(true);
+            t.start();
+        });
+
+        btnClose.setOnAction(e -> dialog.close());
+
+        dialog.initOwner(owner);
+        dialog.initModality(Modality.APPLICATION_MODAL);
+        dialog.showAndWait();
+    }
+
     /**
      * Show user manual dialog.
      * @param owner parent window
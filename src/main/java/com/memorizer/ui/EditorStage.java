@@ -11,7 +11,10 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 
-/** Simple note editor window (modal utility) to edit front/back/reading/pos/examples/tags. */
+/**
+ * Simple note editor window (modal utility) to edit front/back/reading/pos/examples/tags. Media (audio/images)
+ * are attached and cleared immediately, independent of Save.
+ */
 public class EditorStage extends Stage {
     private final NoteRepository notes = new NoteRepository();
     private long cardId;
@@ -23,6 +26,7 @@ public class EditorStage extends Stage {
     private TextField tfPos = new TextField();
     private TextArea taExamples = new TextArea();
     private TextField tfTags = new TextField();
+    private Label lblMedia = new Label("none");
 
     public interface OnSaved { void handle(Note saved); }
     private OnSaved onSaved;
@@ -34,16 +38,7 @@ public class EditorStage extends Stage {
         setWidth(600); setHeight(480);
 
         // 设置窗口图标
-        try {
-            java.net.URL iconUrl = getClass().getResource("/icon.png");
-            if (iconUrl != null) {
-                javafx.scene.image.Image icon = new javafx.scene.image.Image(iconUrl.toString());
-                getIcons().add(icon);
-            }
-        } catch (Exception e) {
-            // 记录日志但不中断
-            System.out.println("Failed to load editor stage icon: " + e.getMessage());
-        }
+        AppIcons.apply(this);
 
         GridPane g = new GridPane();
         g.setPadding(new Insets(12));
@@ -64,6 +59,13 @@ public class EditorStage extends Stage {
         g.add(new Label("Part of Speech:"), 0, r); g.add(tfPos, 1, r++);
         g.add(new Label("Examples:"), 0, r); taExamples.setPrefRowCount(5); g.add(taExamples, 1, r++);
         g.add(new Label("Tags:"), 0, r); g.add(tfTags, 1, r++);
+        Button btnAttach = new Button("Attach...");
+        Button btnClearMedia = new Button("Clear");
+        btnAttach.setOnAction(e -> attachMedia());
+        btnClearMedia.setOnAction(e -> clearMedia());
+        HBox media = new HBox(8, lblMedia, btnAttach, btnClearMedia);
+        media.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
+        g.add(new Label("Media:"), 0, r); g.add(media, 1, r++);
 
         Button btnSave = new Button("Save");
         Button btnCancel = new Button("Cancel");
@@ -92,6 +94,43 @@ public class EditorStage extends Stage {
         tfPos.setText(note.pos == null? "" : note.pos);
         taExamples.setText(note.examples == null? "" : note.examples);
         tfTags.setText(note.tags == null? "" : note.tags);
+        refreshMedia();
+    }
+
+    private void attachMedia() {
+        if (note == null) return;
+        javafx.stage.FileChooser fc = new javafx.stage.FileChooser();
+        fc.setTitle("Attach Audio or Image");
+        fc.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter("Audio and images",
+                "*.mp3", "*.ogg", "*.opus", "*.wav", "*.m4a", "*.png", "*.jpg", "*.jpeg", "*.gif", "*.webp"));
+        java.io.File f = fc.showOpenDialog(this);
+        if (f == null) return;
+        try {
+            com.memorizer.db.MediaStore.Media m = com.memorizer.db.MediaStore.get().put(f.toPath());
+            com.memorizer.db.MediaStore.get().attach(note.id, m.hash,
+                    m.mime.startsWith("audio/") ? com.memorizer.db.MediaStore.AUDIO : com.memorizer.db.MediaStore.IMAGE);
+        } catch (Exception ex) {
+            Alert a = new Alert(Alert.AlertType.ERROR, "Attach failed: " + ex.getMessage(), ButtonType.OK);
+            a.initOwner(this);
+            a.showAndWait();
+        }
+        refreshMedia();
+    }
+
+    private void clearMedia() {
+        if (note == null) return;
+        for (com.memorizer.db.MediaStore.Ref ref : com.memorizer.db.MediaStore.get().forNote(note.id)) {
+            com.memorizer.db.MediaStore.get().detach(note.id, ref.hash);
+        }
+        refreshMedia();
+    }
+
+    private void refreshMedia() {
+        int audio = 0, images = 0;
+        for (com.memorizer.db.MediaStore.Ref ref : com.memorizer.db.MediaStore.get().forNote(note.id)) {
+            if (com.memorizer.db.MediaStore.AUDIO.equals(ref.role)) audio++; else images++;
+        }
+        lblMedia.setText(audio + images == 0 ? "none" : images + " image(s), " + audio + " audio");
     }
 
     private void save() {
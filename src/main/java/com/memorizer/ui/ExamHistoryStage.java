@@ -0,0 +1,107 @@
+package com.memorizer.ui;
+
+import com.memorizer.db.ExamRepository;
+import com.memorizer.service.ExamRecorder;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/** Exam results window: recent sessions, daily totals and the weakest cards, read from the exam aggregates. */
+public class ExamHistoryStage extends Stage {
+    private final ExamRepository repo = new ExamRepository();
+    private final TableView<ExamRepository.SessionRow> sessions = new TableView<>();
+    private final TableView<ExamRepository.DayRow> days = new TableView<>();
+    private final TableView<ExamRepository.CardRow> weakest = new TableView<>();
+
+    public ExamHistoryStage(Stage owner) {
+        if (owner != null) initOwner(owner);
+        initStyle(StageStyle.UTILITY);
+        setTitle("Exam History");
+        setWidth(860); setHeight(520);
+
+        sessions.getColumns().add(column("Started", 140, r -> time(r.startedAt)));
+        sessions.getColumns().add(column("Source", 80, r -> r.source));
+        sessions.getColumns().add(column("Deck", 140, r -> r.deck == null ? "" : r.deck));
+        sessions.getColumns().add(column("Tags", 120, r -> r.tags == null ? "" : r.tags));
+        sessions.getColumns().add(column("Answered", 80, r -> r.answered + "/" + r.planned));
+        sessions.getColumns().add(column("Score", 70, r -> pct(r.correct, r.answered)));
+        sessions.getColumns().add(column("Finished", 70, r -> r.finishedAt > 0 ? "yes" : ""));
+        sessions.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        days.getColumns().add(column("Day", 120, r -> r.day.toString()));
+        days.getColumns().add(column("Sessions", 80, r -> String.valueOf(r.sessions)));
+        days.getColumns().add(column("Answered", 80, r -> String.valueOf(r.answered)));
+        days.getColumns().add(column("Score", 70, r -> pct(r.correct, r.answered)));
+        days.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        weakest.getColumns().add(column("Front", 260, r -> r.front == null ? "" : r.front));
+        weakest.getColumns().add(column("Deck", 140, r -> r.deck == null ? "" : r.deck));
+        weakest.getColumns().add(column("Wrong in a row", 100, r -> String.valueOf(r.features.wrongStreak)));
+        weakest.getColumns().add(column("Accuracy", 90, r -> pct(r.features.correct, r.features.attempts)));
+        weakest.getColumns().add(column("Last", 140, r -> time(r.features.lastAnsweredAt)));
+        weakest.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        TabPane tabs = new TabPane(
+                new Tab("Sessions", sessions),
+                new Tab("Daily", days),
+                new Tab("Weakest cards", weakest));
+        tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
+        Button btnRefresh = new Button("Refresh");
+        Button btnClose = new Button("Close");
+        btnRefresh.setOnAction(e -> reload());
+        btnClose.setOnAction(e -> close());
+        Region spacer = new Region(); HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox bottom = new HBox(8, btnRefresh, spacer, btnClose);
+        bottom.setPadding(new Insets(8));
+
+        BorderPane root = new BorderPane();
+        root.setCenter(tabs);
+        root.setBottom(bottom);
+        setScene(new Scene(root));
+        reload();
+    }
+
+    private static <T> TableColumn<T, String> column(String title, double width, Function<T, String> f) {
+        TableColumn<T, String> col = new TableColumn<>(title);
+        col.setPrefWidth(width);
+        col.setCellValueFactory(c -> new javafx.beans.property.SimpleStringProperty(f.apply(c.getValue())));
+        return col;
+    }
+
+    private void reload() {
+        // Answers still queued in the recorder would be missing from the aggregates
+        ExamRecorder.get().flush();
+        try {
+            List<ExamRepository.SessionRow> s = repo.recentSessions(90, 200);
+            List<ExamRepository.DayRow> d = repo.daily(90);
+            List<ExamRepository.CardRow> w = repo.weakest(100);
+            sessions.setItems(FXCollections.observableArrayList(s));
+            days.setItems(FXCollections.observableArrayList(d));
+            weakest.setItems(FXCollections.observableArrayList(w));
+        } catch (Exception ex) {
+            new Alert(Alert.AlertType.ERROR, "Load exam history failed: " + ex.getMessage(), ButtonType.OK).showAndWait();
+        }
+    }
+
+    private static String pct(int correct, int total) {
+        return total == 0 ? "" : String.format(Locale.ROOT, "%.0f%%", 100.0 * correct / total);
+    }
+
+    private static String time(long ms) {
+        return ms <= 0 ? "" : new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date(ms));
+    }
+}
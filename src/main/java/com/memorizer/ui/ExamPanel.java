@@ -5,6 +5,7 @@ import com.memorizer.db.CardRepository;
 import com.memorizer.db.NoteRepository;
 import com.memorizer.model.Note;
 import com.memorizer.service.PlanService;
+import com.memorizer.service.ExamRecorder;
 import com.memorizer.service.StudyService;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -24,7 +25,9 @@ import java.util.Optional;
 
 /**
  * Exam panel for testing knowledge without affecting SRS.
- * Supports different question sources (Plan/Due/New) and shuffle mode.
+ * Supports different question sources (Plan/Due/New from today's plan, or Weighted: a draw from the whole
+ * collection, optionally one deck and/or tags, biased toward weak cards) and shuffle mode.
+ * Each queue is recorded as an exam session; answers are persisted in batches by {@link ExamRecorder}.
  */
 public class ExamPanel {
     private final StudyService studyService;
@@ -43,6 +46,8 @@ public class ExamPanel {
     private final ProgressBar examProgressBar = new ProgressBar(0);
     
     private ComboBox<String> examSourceBox;
+    private ComboBox<String> examDeckBox;
+    private TextField examTagsField;
     private CheckBox examShuffleBox;
     private Spinner<Integer> examBatchSpinner;
     private CheckBox examRepeatWrongsBox;
@@ -62,6 +67,12 @@ public class ExamPanel {
     private int examIndex = 0;
     private int examCorrect = 0;
     private int examWrong = 0;
+    // Persisted session of the current queue (0 = none) and when the current card was shown
+    private long examSessionId = 0;
+    private long shownAtMs = 0;
+    // A weighted draw in flight; one started before the latest restart is dropped when it lands
+    private boolean drawing = false;
+    private int drawGeneration = 0;
     
     // Results log for export
     private static class ExamResult { long cardId; boolean correct; }
@@ -109,6 +120,7 @@ public class ExamPanel {
         // Row 1: configuration (left) + Edit/Show Answer (right)
         HBox controlsRow1 = new HBox(10,
             new Label("Source:"), examSourceBox,
+            examDeckBox, examTagsField,
             examShuffleBox,
             new Label("Batch:"), examBatchSpinner,
             examBackFirstBox,
@@ -145,10 +157,16 @@ public class ExamPanel {
         // Export button inline on bottom row (init before adding)
         btnExport = new Button("Export Results…");
         btnExport.setOnAction(e -> exportResults());
+        Button btnHistory = new Button("History…");
+        btnHistory.setOnAction(e -> {
+            javafx.stage.Stage owner = com.memorizer.app.AppContext.getOwner();
+            if (owner == null) owner = com.memorizer.app.AppContext.getMain();
+            new ExamHistoryStage(owner).show();
+        });
         ctrlRow3.getChildren().addAll(
             new Label("Progress:"), examProgress, examProgressBar,
             spacerBottom,
-            examOkLabel, examNgLabel, examScore, btnExport
+            examOkLabel, examNgLabel, examScore, btnExport, btnHistory
         );
 
         box.getChildren().addAll(
@@ -204,7 +222,7 @@ public class ExamPanel {
     private void createConfigurationControls() {
         // Source selection
         examSourceBox = new ComboBox<>();
-        examSourceBox.getItems().setAll("Plan", "Due", "New");
+        examSourceBox.getItems().setAll("Plan", "Due", "New", "Weighted");
         String sourcePref = Config.get("app.ui.exam.source", "Plan");
         if (!examSourceBox.getItems().contains(sourcePref)) {
             sourcePref = "Plan";
@@ -212,8 +230,32 @@ public class ExamPanel {
         examSourceBox.getSelectionModel().select(sourcePref);
         examSourceBox.valueProperty().addListener((o, ov, nv) -> {
             Config.set("app.ui.exam.source", nv == null ? "Plan" : nv);
+            updateWeightedControls();
+            restart();
+        });
+
+        // Weighted source scope: one deck (or all) and any of the given tags
+        examDeckBox = new ComboBox<>();
+        examDeckBox.getItems().add(ALL_DECKS);
+        try {
+            for (com.memorizer.model.Deck d : new com.memorizer.db.DeckRepository().listAll()) examDeckBox.getItems().add(d.name);
+        } catch (Exception ignored) {}
+        String deckPref = Config.get("app.ui.exam.deck", "");
+        examDeckBox.getSelectionModel().select(examDeckBox.getItems().contains(deckPref) ? deckPref : ALL_DECKS);
+        examDeckBox.setOnShowing(e -> refreshDeckChoices());
+        examDeckBox.valueProperty().addListener((o, ov, nv) -> {
+            if (nv == null) return;
+            Config.set("app.ui.exam.deck", ALL_DECKS.equals(nv) ? "" : nv);
             restart();
         });
+        examTagsField = new TextField(Config.get("app.ui.exam.tags", ""));
+        examTagsField.setPromptText("tags");
+        examTagsField.setPrefColumnCount(8);
+        examTagsField.setOnAction(e -> {
+            Config.set("app.ui.exam.tags", examTagsField.getText().trim());
+            restart();
+        });
+        updateWeightedControls();
 
         // Shuffle checkbox
         examShuffleBox = new CheckBox("Shuffle");
@@ -253,6 +295,28 @@ public class ExamPanel {
         });
     }
 
+    private static final String ALL_DECKS = "All decks";
+
+    private void updateWeightedControls() {
+        boolean weighted = "Weighted".equalsIgnoreCase(examSourceBox.getValue());
+        examDeckBox.setVisible(weighted); examDeckBox.setManaged(weighted);
+        examTagsField.setVisible(weighted); examTagsField.setManaged(weighted);
+    }
+
+    /** Re-read deck names before the deck list opens (decks may have been added or renamed). */
+    private void refreshDeckChoices() {
+        String sel = examDeckBox.getValue();
+        List<String> names = new ArrayList<>();
+        names.add(ALL_DECKS);
+        try {
+            for (com.memorizer.model.Deck d : new com.memorizer.db.DeckRepository().listAll()) names.add(d.name);
+        } catch (Exception ignored) {}
+        if (!names.equals(examDeckBox.getItems())) {
+            examDeckBox.getItems().setAll(names);
+            examDeckBox.getSelectionModel().select(names.contains(sel) ? sel : ALL_DECKS);
+        }
+    }
+
     /**
      * Setup keyboard shortcuts for exam navigation.
      */
@@ -329,6 +393,9 @@ public class ExamPanel {
      * Prepare exam queue based on current settings.
      */
     private void prepareExamQueue() {
+        finishSession();
+        drawGeneration++;
+        drawing = false;
         examQueue.clear();
         examIndex = 0;
         examCorrect = 0;
@@ -338,10 +405,14 @@ public class ExamPanel {
         repeatingWrongs = false;
         results.clear();
 
-        List<PlanService.PlanRow> rows = studyService.planListToday();
         int limit = Math.max(1, Config.getInt("app.ui.exam.batch-size", 20));
         String source = Config.get("app.ui.exam.source", "Plan");
         boolean useShuffle = Config.getBool("app.ui.exam.shuffle", true);
+        if ("Weighted".equalsIgnoreCase(source)) {
+            drawWeightedQueue(limit, source);
+            return;
+        }
+        List<PlanService.PlanRow> rows = studyService.planListToday();
 
         // Filter cards based on source
         List<Long> pool = new ArrayList<>();
@@ -385,6 +456,78 @@ public class ExamPanel {
 
         examProgress.setText(examQueue.isEmpty() ? "0/0" : "1/" + examQueue.size());
         examProgressBar.setProgress(examQueue.isEmpty() ? 0 : 0.0);
+        startSession(source);
+    }
+
+    /**
+     * Persist a session for the freshly prepared queue; answers are then recorded in batches by {@link ExamRecorder}.
+     */
+    private void startSession(String source) {
+        if (examQueue.isEmpty()) return;
+        Long deckId = null;
+        String tags = null;
+        if ("Weighted".equalsIgnoreCase(source)) {
+            String deck = Config.get("app.ui.exam.deck", "");
+            if (!deck.isEmpty()) {
+                try { deckId = new com.memorizer.db.DeckRepository().findIdByName(deck); } catch (Exception ignored) {}
+            }
+            String t = Config.get("app.ui.exam.tags", "").trim();
+            if (!t.isEmpty()) tags = t;
+        }
+        try {
+            examSessionId = ExamRecorder.get().start(source, deckId, tags, examQueue.size());
+        } catch (Exception ex) {
+            examSessionId = 0; // the exam still runs, it just is not recorded
+        }
+    }
+
+    private void finishSession() {
+        if (examSessionId > 0) ExamRecorder.get().finish(examSessionId);
+        examSessionId = 0;
+    }
+
+    /**
+     * Draw the queue from the whole collection, weighted toward weak cards; the draw order is already random.
+     * Runs off the FX thread (the sampler may wait for its stats snapshot) and starts the exam when it lands.
+     */
+    private void drawWeightedQueue(int limit, String source) {
+        final int gen = drawGeneration;
+        final String deck = Config.get("app.ui.exam.deck", "");
+        final List<String> tags = new ArrayList<>();
+        for (String t : Config.get("app.ui.exam.tags", "").split("[\\s;,]+")) {
+            if (!t.trim().isEmpty()) tags.add(t.trim());
+        }
+        drawing = true;
+        examProgress.setText("0/0");
+        examProgressBar.setProgress(0.0);
+        Thread t = new Thread(() -> {
+            List<Long> drawn = null;
+            String error = null;
+            try {
+                List<Long> decks = null;
+                if (!deck.isEmpty()) {
+                    Long id = null;
+                    try { id = new com.memorizer.db.DeckRepository().findIdByName(deck); } catch (Exception ignored) {}
+                    decks = Collections.singletonList(id == null ? -1L : id);
+                }
+                drawn = com.memorizer.service.ExamSampler.get().sample(limit, decks, tags, new java.util.Random());
+            } catch (Exception ex) {
+                error = ex.getMessage();
+            }
+            final List<Long> res = drawn;
+            final String err = error;
+            javafx.application.Platform.runLater(() -> {
+                if (gen != drawGeneration) return;
+                drawing = false;
+                if (res == null) new Alert(Alert.AlertType.ERROR, "Exam draw failed: " + err, ButtonType.OK).showAndWait();
+                else examQueue.addAll(res);
+                examProgress.setText(examQueue.isEmpty() ? "0/0" : "1/" + examQueue.size());
+                startSession(source);
+                showCurrentCard();
+            });
+        }, "exam-draw");
+        t.setDaemon(true);
+        t.start();
     }
 
     /**
@@ -397,6 +540,7 @@ public class ExamPanel {
         }
 
         long cardId = examQueue.get(examIndex);
+        shownAtMs = System.currentTimeMillis();
         NoteRepository noteRepo = new NoteRepository();
         Optional<Note> noteOpt = noteRepo.findByCardId(cardId);
 
@@ -452,7 +596,7 @@ public class ExamPanel {
      * Show no cards available message.
      */
     private void showNoCards() {
-        examFront.setText("(No exam items)");
+        examFront.setText(drawing ? "(Drawing exam items...)" : "(No exam items)");
         examBack.setText("");
         examReadingPos.setText("");
         examDeck.setText("");
@@ -507,6 +651,7 @@ public class ExamPanel {
      * Show exam finished state.
      */
     private void showExamFinished() {
+        finishSession();
         btnExamShow.setDisable(true);
         btnExamCorrect.setDisable(true);
         btnExamWrong.setDisable(true);
@@ -563,6 +708,10 @@ public class ExamPanel {
         r.cardId = examQueue.get(examIndex);
         r.correct = correct;
         results.add(r);
+        if (examSessionId > 0) {
+            long latency = shownAtMs > 0 ? System.currentTimeMillis() - shownAtMs : 0;
+            ExamRecorder.get().answer(examSessionId, r.cardId, correct, (int) Math.min(Integer.MAX_VALUE, latency));
+        }
     }
 
     private void exportResults() {
@@ -1,5 +1,6 @@
 package com.memorizer.ui;
 
+import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.scene.control.Label;
@@ -15,6 +16,8 @@ import java.util.List;
 
 /**
  * Manages examples rendering for both Normal (scrolling list) and Mini (single-line marquee).
+ * Line labels and both timelines are created once and reused across cards; marquee widths come from the
+ * card's {@link CardBundle} when it was measured in the target's font.
  */
 final class ExamplesViewManager {
     private final VBox examplesBox;          // Normal mode container (multiple lines)
@@ -22,10 +25,15 @@ final class ExamplesViewManager {
     private final Label examplesMini;        // Mini mode single-line label
 
     private List<String> current = Collections.emptyList();
+    private CardBundle bundle;
     private int index = 0;
     private Timeline roller;
+    private long rollerMs = -1;
     private Timeline marquee;
     private Label marqueeTarget;
+    /** Normal mode line labels, reused across cards. */
+    private final List<Label> linePool = new ArrayList<>();
+    private final java.util.Set<Label> hoverBound = new java.util.HashSet<>();
 
     ExamplesViewManager(VBox examplesBox, ScrollPane examplesScroll, Label examplesMini) {
         this.examplesBox = examplesBox;
@@ -39,8 +47,18 @@ final class ExamplesViewManager {
 
     /** Set examples list and render first state. */
     void setExamples(List<String> items, StealthStage.UIMode mode) {
+        show(items == null ? Collections.emptyList() : new ArrayList<>(items), null, mode);
+    }
+
+    /** Render the (immutable) examples of a prepared bundle. */
+    void setExamples(CardBundle b, StealthStage.UIMode mode) {
+        show(b.examples, b, mode);
+    }
+
+    private void show(List<String> items, CardBundle b, StealthStage.UIMode mode) {
         stop();
-        current = items == null ? Collections.emptyList() : new ArrayList<>(items);
+        current = items;
+        bundle = b;
         index = 0;
 
         if (current.isEmpty()) {
@@ -81,35 +99,44 @@ final class ExamplesViewManager {
     }
 
     private void startAutoroll() {
-        int interval = com.memorizer.app.Config.getInt("app.ui.examples.roll-interval-ms", 2200);
+        long interval = Math.max(500, com.memorizer.app.Config.getInt("app.ui.examples.roll-interval-ms", 2200));
         stopAutoroll();
-        roller = new Timeline(new KeyFrame(Duration.millis(Math.max(500, interval)), e -> {
-            index = (index + 1) % current.size();
-            renderNormalLines();
-            renderMiniLine();
-        }));
-        roller.setCycleCount(Timeline.INDEFINITE);
-        roller.play();
+        if (roller == null || rollerMs != interval) {
+            roller = new Timeline(new KeyFrame(Duration.millis(interval), e -> {
+                if (current.isEmpty()) return;
+                index = (index + 1) % current.size();
+                renderNormalLines();
+                renderMiniLine();
+            }));
+            roller.setCycleCount(Timeline.INDEFINITE);
+            rollerMs = interval;
+        }
+        roller.playFromStart();
     }
 
-    private void stopAutoroll() { if (roller != null) { roller.stop(); roller = null; } }
+    private void stopAutoroll() { if (roller != null) roller.stop(); }
 
     private void renderNormalLines() {
         if (examplesBox == null) return;
-        examplesBox.getChildren().clear();
-        if (current.isEmpty()) return;
+        if (current.isEmpty()) { examplesBox.getChildren().clear(); return; }
         int max = com.memorizer.app.Config.getInt("app.ui.examples.max-lines", 3);
         int lines = Math.max(1, Math.min(max, current.size()));
-        for (int i = 0; i < lines; i++) {
-            int idx = (index + i) % current.size();
-            String txt = current.get(idx);
-            Label line = new Label(txt);
+        while (linePool.size() < lines) {
+            Label line = new Label();
             line.getStyleClass().add("example-line");
             line.setWrapText(true);
-            Tooltip tp = new Tooltip(txt == null? "" : txt);
-            line.setTooltip(tp);
-            examplesBox.getChildren().add(line);
+            line.setTooltip(new Tooltip());
+            linePool.add(line);
         }
+        for (int i = 0; i < lines; i++) {
+            String txt = current.get((index + i) % current.size());
+            Label line = linePool.get(i);
+            line.setText(txt);
+            line.getTooltip().setText(txt == null ? "" : txt);
+        }
+        // Only touch the scene graph when the number of lines changes
+        javafx.collections.ObservableList<javafx.scene.Node> kids = examplesBox.getChildren();
+        if (kids.size() != lines || (lines > 0 && kids.get(0) != linePool.get(0))) kids.setAll(linePool.subList(0, lines));
     }
 
     private void renderMiniLine() {
@@ -123,7 +150,7 @@ final class ExamplesViewManager {
         startMiniMarqueeOn(examplesMini);
     }
 
-    private void stopMiniMarquee() { if (marquee != null) { marquee.stop(); marquee = null; } if (marqueeTarget != null) { marqueeTarget.setTranslateX(0); } }
+    private void stopMiniMarquee() { if (marquee != null) marquee.stop(); if (marqueeTarget != null) { marqueeTarget.setTranslateX(0); } }
 
     // Expose helpers for StealthStage mini unified content area
     String currentSingleLine() {
@@ -139,18 +166,29 @@ final class ExamplesViewManager {
         marqueeTarget = target;
         String txt = target.getText() == null ? "" : target.getText();
         if (txt.length() < 28) return; // short: no marquee
-        Text meas = new Text(txt);
-        meas.setFont(target.getFont());
-        double w = meas.getLayoutBounds().getWidth();
+        Double measured = bundle == null ? null : bundle.width(CardBundle.singleLine(txt), target.getFont());
+        double w;
+        if (measured != null) {
+            w = measured;
+        } else {
+            Text meas = new Text(txt);
+            meas.setFont(target.getFont());
+            w = meas.getLayoutBounds().getWidth();
+        }
         int msPerPx = com.memorizer.app.Config.getInt("app.ui.examples.marquee-ms-per-px", 100);
-        marquee = new Timeline(
+        if (marquee == null) {
+            marquee = new Timeline();
+            marquee.setCycleCount(Timeline.INDEFINITE);
+        }
+        marquee.getKeyFrames().setAll(
                 new KeyFrame(Duration.ZERO, e -> marqueeTarget.setTranslateX(0)),
                 new KeyFrame(Duration.millis(msPerPx * Math.max(50, w)), e -> marqueeTarget.setTranslateX(-w - 32))
         );
-        marquee.setCycleCount(Timeline.INDEFINITE);
-        marquee.play();
-        target.setOnMouseEntered(e -> { if (marquee != null) marquee.pause(); });
-        target.setOnMouseExited(e -> { if (marquee != null) marquee.play(); });
+        marquee.playFromStart();
+        if (hoverBound.add(target)) {
+            target.setOnMouseEntered(e -> { if (marquee != null && marqueeTarget == target && marquee.getStatus() == Animation.Status.RUNNING) marquee.pause(); });
+            target.setOnMouseExited(e -> { if (marquee != null && marqueeTarget == target && marquee.getStatus() == Animation.Status.PAUSED) marquee.play(); });
+        }
     }
 
     private void hideAll() {
@@ -0,0 +1,55 @@
+package com.memorizer.ui;
+
+import com.memorizer.metrics.Metrics;
+import javafx.application.Platform;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures JavaFX application-thread responsiveness.
+ * A probe is posted with {@link Platform#runLater} every 250 ms; the delay until it runs is
+ * recorded in {@code memorizer_fx_stall_seconds}, and probes waiting longer than 100 ms
+ * also count towards {@code memorizer_fx_stalls_total}.
+ */
+public final class FxStallMonitor {
+    private static final long PERIOD_MS = 250;
+    private static final long STALL_US = 100_000;
+    private static ScheduledExecutorService ses;
+
+    private FxStallMonitor() {}
+
+    public static synchronized void start() {
+        if (ses != null) return;
+        Metrics.describe("memorizer_fx_stall_seconds", "Delay before a runLater probe runs on the JavaFX thread");
+        Metrics.describe("memorizer_fx_stalls_total", "Probes delayed by more than 100 ms");
+        final Metrics.Series lag = Metrics.timer("memorizer_fx_stall_seconds");
+        final Metrics.Counter stalls = Metrics.counter("memorizer_fx_stalls_total");
+        final AtomicBoolean pending = new AtomicBoolean(false);
+        ses = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fx-stall-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        ses.scheduleAtFixedRate(() -> {
+            // One probe in flight at a time, so a long stall is recorded once rather than queued up
+            if (!pending.compareAndSet(false, true)) return;
+            final long posted = System.nanoTime();
+            Platform.runLater(() -> {
+                long us = (System.nanoTime() - posted) / 1000L;
+                lag.record(us);
+                if (us > STALL_US) stalls.inc();
+                pending.set(false);
+            });
+        }, PERIOD_MS, PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stop() {
+        if (ses != null) {
+            ses.shutdownNow();
+            ses = null;
+        }
+    }
+}
@@ -37,6 +37,9 @@ public class MainStage extends Stage {
     private final Label lblScheduler = new Label("-");
     private final Label lblNotice = new Label("");
     private StudyStage studyStage;
+    private TabPane tabs;
+    private boolean dashboardBuilt;
+    private boolean planBuilt;
 
     public MainStage(StudyService studyService, Scheduler scheduler) {
         this.studyService = studyService;
@@ -50,16 +53,7 @@ public class MainStage extends Stage {
         setMinHeight(660);
 
         // 设置窗口图标
-        try {
-            java.net.URL iconUrl = getClass().getResource("/icon.png");
-            if (iconUrl != null) {
-                javafx.scene.image.Image icon = new javafx.scene.image.Image(iconUrl.toString());
-                getIcons().add(icon);
-            }
-        } catch (Exception e) {
-            // 记录日志但不中断
-            System.out.println("Failed to load main stage icon: " + e.getMessage());
-        }
+        AppIcons.apply(this);
 
         BorderPane root = new BorderPane();
         MenuBarBuilder menuBuilder = new MenuBarBuilder(
@@ -95,32 +89,52 @@ public class MainStage extends Stage {
         setScene(scene);
 
         setOnShown(e -> sizeToHalfScreen());
-
-        refreshStats();
+        // Panels are built on first view; the window itself stays hidden until opened from the tray
+        setOnShowing(e -> buildTab(tabsVar.getSelectionModel().getSelectedItem()));
 
         // Update breadcrumbs on tab selection
         tabsVar.getSelectionModel().selectedItemProperty().addListener((o, ov, nv) -> {
+            buildTab(nv);
             String name = (nv == null || nv.getText() == null) ? "Dashboard" : nv.getText();
             crumbLabel.setText("Home / " + name);
         });
     }
 
     private TabPane buildTabs() {
-        TabPane tabs = new TabPane();
+        tabs = new TabPane();
 
-        Tab dashboardTab = new Tab("Dashboard", dashboardPanel.build());
+        Tab dashboardTab = new Tab("Dashboard");
         dashboardTab.setClosable(false);
 
-        Tab planTab = new Tab("Plan", planPanel.build());
+        Tab planTab = new Tab("Plan");
         planTab.setClosable(false);
 
-        Tab examTab = new Tab("Exam", examPanel.build());
+        Tab examTab = new Tab("Exam");
         examTab.setClosable(false);
 
         tabs.getTabs().addAll(dashboardTab, planTab, examTab);
         return tabs;
     }
 
+    /** Build a tab's panel the first time it is shown. */
+    private void buildTab(Tab tab) {
+        if (tab == null || tab.getContent() != null) return;
+        long t0 = System.nanoTime();
+        switch (tab.getText()) {
+            case "Dashboard":
+                tab.setContent(dashboardPanel.build());
+                dashboardBuilt = true;
+                break;
+            case "Plan":
+                tab.setContent(planPanel.build());
+                planBuilt = true;
+                break;
+            default:
+                tab.setContent(examPanel.build());
+        }
+        com.memorizer.metrics.Metrics.timer("memorizer_ui_panel_build_seconds", "panel", tab.getText()).recordSince(t0);
+    }
+
     private HBox buildStatusBar() {
         HBox bar = new HBox(12);
         bar.setPadding(new Insets(8, 12, 8, 12));
@@ -151,12 +165,12 @@ public class MainStage extends Stage {
     }
 
     private void refreshStats() {
-        dashboardPanel.refresh();
+        if (dashboardBuilt) dashboardPanel.refresh();
         lblScheduler.setText(dashboardPanel.getSchedulerStatus());
     }
 
     private void reloadPlan() {
-        planPanel.reload();
+        if (planBuilt) planPanel.reload();
     }
 
     public void showNotice(String message) {
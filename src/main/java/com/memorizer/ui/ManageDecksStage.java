@@ -97,15 +97,13 @@ public class ManageDecksStage extends Stage {
     private void deleteSelected() {
         Deck sel = table.getSelectionModel().getSelectedItem();
         if (sel == null) return;
-        Alert a = new Alert(Alert.AlertType.CONFIRMATION, "Delete deck '" + sel.name + "'? This will remove its cards as per FK rules.", ButtonType.YES, ButtonType.NO);
+        Alert a = new Alert(Alert.AlertType.CONFIRMATION, "Delete deck '" + sel.name + "'? This also deletes all of its notes and cards.", ButtonType.YES, ButtonType.NO);
         a.initOwner(this);
         a.setHeaderText("Confirm Delete");
         a.showAndWait().ifPresent(bt -> {
             if (bt != ButtonType.YES) return;
             try {
-                try (java.sql.PreparedStatement ps = com.memorizer.db.Database.get().prepareStatement("DELETE FROM deck WHERE id=?")) {
-                    ps.setLong(1, sel.id); ps.executeUpdate();
-                }
+                new com.memorizer.db.DeletionRepository().deleteDeck(sel.id);
                 reload();
             } catch (Exception ex) {
                 new Alert(Alert.AlertType.ERROR, "Delete failed: " + ex.getMessage(), ButtonType.OK).showAndWait();
@@ -53,8 +53,11 @@ public class MenuBarBuilder {
     private Menu buildFileMenu() {
         Menu menu = new Menu("File");
 
-        MenuItem miImport = new MenuItem("Import Excel...");
-        miImport.setOnAction(e -> TrayActions.openImportDialog());
+        MenuItem miImport = new MenuItem("Import...");
+        miImport.setOnAction(e -> importFile());
+
+        MenuItem miExport = new MenuItem("Export...");
+        miExport.setOnAction(e -> exportFile());
 
         MenuItem miTemplate = new MenuItem("Save Import Template...");
         miTemplate.setOnAction(e -> TrayActions.saveTemplateDialog());
@@ -62,11 +65,22 @@ public class MenuBarBuilder {
         MenuItem miH2 = new MenuItem("Open H2 Console");
         miH2.setOnAction(e -> TrayActions.openH2Console());
 
+        MenuItem miBackup = new MenuItem("Back Up Now");
+        miBackup.setOnAction(e -> backupNow());
+
+        MenuItem miRestore = new MenuItem("Restore Backup...");
+        miRestore.setOnAction(e -> restoreBackup());
+
+        MenuItem miCompact = new MenuItem("Compact Database Now");
+        miCompact.setOnAction(e -> compactNow());
+
         MenuItem miExit = new MenuItem("Exit");
-        miExit.setOnAction(e -> System.exit(0));
+        miExit.setOnAction(e -> javafx.application.Platform.exit());
 
         menu.getItems().addAll(
-            miImport, miTemplate,
+            miImport, miExport, miTemplate,
+            new SeparatorMenuItem(),
+            miBackup, miRestore, miCompact,
             new SeparatorMenuItem(),
             miH2,
             new SeparatorMenuItem(),
@@ -133,10 +147,13 @@ public class MenuBarBuilder {
         MenuItem miPair = new MenuItem("Pair Mobile");
         miPair.setOnAction(e -> openPairingPage());
 
+        MenuItem miDevices = new MenuItem("Paired Devices...");
+        miDevices.setOnAction(e -> showPairedDevices());
+
         MenuItem miStatus = new MenuItem("Server Status");
         miStatus.setOnAction(e -> showServerStatus());
 
-        menu.getItems().addAll(miEnable, miDisable, miPair, new SeparatorMenuItem(), miStatus);
+        menu.getItems().addAll(miEnable, miDisable, miPair, miDevices, new SeparatorMenuItem(), miStatus);
 
         return menu;
     }
@@ -191,6 +208,43 @@ public class MenuBarBuilder {
         }
     }
 
+    /**
+     * List paired devices with a Revoke action per row.
+     */
+    private void showPairedDevices() {
+        com.memorizer.app.PairingManager pm = com.memorizer.app.PairingManager.get();
+        java.text.SimpleDateFormat fmt = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm");
+        ListView<com.memorizer.model.Device> list = new ListView<>();
+        list.getItems().setAll(pm.listDevices());
+        list.setCellFactory(lv -> new ListCell<com.memorizer.model.Device>() {
+            @Override
+            protected void updateItem(com.memorizer.model.Device d, boolean empty) {
+                super.updateItem(d, empty);
+                if (empty || d == null) { setText(null); setGraphic(null); return; }
+                String seen = d.lastSeenAt == 0 ? "never" : fmt.format(new java.util.Date(d.lastSeenAt));
+                Button revoke = new Button("Revoke");
+                revoke.setOnAction(ev -> {
+                    pm.revoke(d.id);
+                    list.getItems().setAll(pm.listDevices());
+                    showNotice("Revoked " + d.name);
+                });
+                Label text = new Label(d.name + "  (paired " + fmt.format(new java.util.Date(d.createdAt)) + ", last seen " + seen + ")");
+                javafx.scene.layout.Region spacer = new javafx.scene.layout.Region();
+                javafx.scene.layout.HBox.setHgrow(spacer, javafx.scene.layout.Priority.ALWAYS);
+                setText(null);
+                setGraphic(new javafx.scene.layout.HBox(8, text, spacer, revoke));
+            }
+        });
+        list.setPlaceholder(new Label("No paired devices"));
+        list.setPrefSize(560, 260);
+        Dialog<Void> dlg = new Dialog<>();
+        dlg.initOwner(owner);
+        dlg.setTitle("Paired Devices");
+        dlg.getDialogPane().setContent(list);
+        dlg.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        dlg.showAndWait();
+    }
+
     /**
      * Show server status.
      */
@@ -253,13 +307,21 @@ public class MenuBarBuilder {
             } catch (Exception ignored) {}
         });
 
+        // Spread piled-up due cards over the following days
+        MenuItem miBalance = new MenuItem("Balance Due Load...");
+        miBalance.setOnAction(e -> DialogFactory.showBalanceLoadDialog(owner, this::showNotice, () -> {
+            studyService.rebuildTodayPlan();
+            reloadPlanCallback.run();
+            refreshStatsCallback.run();
+        }));
+
         // Scheduler mode submenu
         Menu mSchedMode = buildSchedulerModeMenu();
 
         menu.getItems().addAll(
             miOpenStudy, miShowNow,
             new SeparatorMenuItem(),
-            miRebuildPlan,
+            miRebuildPlan, miBalance,
             new SeparatorMenuItem(),
             mSchedMode,
             new SeparatorMenuItem(),
@@ -390,23 +452,27 @@ public class MenuBarBuilder {
 
         menu.getItems().add(miAll);
 
-        // Add deck-specific filters
-        List<Deck> decks = new DeckRepository().listAll();
-        for (Deck deck : decks) {
-            RadioMenuItem item = new RadioMenuItem(deck.name + " (#" + deck.id + ")");
-            item.setToggleGroup(toggleGroup);
-
-            if (String.valueOf(deck.id).equals(selectedFilter)) {
-                item.setSelected(true);
-            }
+        // Deck-specific filters are listed when the menu opens, so building the window needs no query
+        menu.setOnShowing(e -> {
+            menu.getItems().remove(1, menu.getItems().size());
+            String current = Config.get("app.deck.filter", "all");
+            List<Deck> decks = new DeckRepository().listAll();
+            for (Deck deck : decks) {
+                RadioMenuItem item = new RadioMenuItem(deck.name + " (#" + deck.id + ")");
+                item.setToggleGroup(toggleGroup);
+
+                if (String.valueOf(deck.id).equals(current)) {
+                    item.setSelected(true);
+                }
 
-            item.setOnAction(ev -> {
-                Config.set("app.deck.filter", String.valueOf(deck.id));
-                applyDeckFilter();
-            });
+                item.setOnAction(ev -> {
+                    Config.set("app.deck.filter", String.valueOf(deck.id));
+                    applyDeckFilter();
+                });
 
-            menu.getItems().add(item);
-        }
+                menu.getItems().add(item);
+            }
+        });
 
         return menu;
     }
@@ -420,10 +486,13 @@ public class MenuBarBuilder {
         MenuItem miManual = new MenuItem("User Manual...");
         miManual.setOnAction(e -> DialogFactory.showUserManual(owner));
 
+        MenuItem miDiagnostics = new MenuItem("Diagnostics...");
+        miDiagnostics.setOnAction(e -> new DiagnosticsStage(owner).show());
+
         MenuItem miAbout = new MenuItem("About");
         miAbout.setOnAction(e -> showAboutDialog());
 
-        menu.getItems().addAll(miManual, new SeparatorMenuItem(), miAbout);
+        menu.getItems().addAll(miManual, miDiagnostics, new SeparatorMenuItem(), miAbout);
 
         return menu;
     }
@@ -534,6 +603,186 @@ public class MenuBarBuilder {
         }
     }
 
+    /** Take a snapshot off the FX thread and report where it went. */
+    private void backupNow() {
+        Thread t = new Thread(() -> {
+            String msg;
+            try {
+                com.memorizer.db.BackupService.Snapshot s = com.memorizer.db.BackupService.get().backupNow(true);
+                msg = "Backup saved: " + s.file.getFileName();
+            } catch (Exception ex) {
+                msg = "Backup failed: " + ex.getMessage();
+            }
+            final String m = msg;
+            javafx.application.Platform.runLater(() -> showNotice(m));
+        }, "backup-now");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Run storage maintenance off the FX thread; no defrag here since that briefly closes the database. */
+    private void compactNow() {
+        Thread t = new Thread(() -> {
+            String msg;
+            try {
+                com.memorizer.db.StorageMaintenance.Report r = com.memorizer.db.StorageMaintenance.get().runNow(false);
+                msg = "Database: " + r.before + " -> " + r.after;
+            } catch (Exception ex) {
+                msg = "Maintenance failed: " + ex.getMessage();
+            }
+            final String m = msg;
+            javafx.application.Platform.runLater(() -> showNotice(m));
+        }, "db-compact-now");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Import a spreadsheet, CSV/TSV or Anki package in the background with a progress dialog and Cancel. */
+    private void importFile() {
+        javafx.stage.FileChooser fc = new javafx.stage.FileChooser();
+        fc.setTitle("Import");
+        fc.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter(
+                "Excel, CSV/TSV, Anki packages", com.memorizer.importer.ImportJob.EXTENSIONS));
+        java.io.File f = fc.showOpenDialog(owner);
+        if (f == null) return;
+        com.memorizer.importer.ImportJob job = com.memorizer.importer.ImportJob.start(f);
+
+        ProgressBar bar = new ProgressBar(-1);
+        bar.setPrefWidth(360);
+        Label status = new Label("Importing " + f.getName() + "...");
+        Dialog<Void> dlg = new Dialog<>();
+        dlg.initOwner(owner);
+        dlg.setTitle("Import");
+        dlg.getDialogPane().setContent(new javafx.scene.layout.VBox(8, status, bar));
+        dlg.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
+        dlg.setOnCloseRequest(ev -> {
+            if (!job.result().isDone()) {
+                job.cancel();
+                status.setText("Cancelling...");
+                ev.consume();
+            }
+        });
+        javafx.animation.Timeline poll = new javafx.animation.Timeline(
+                new javafx.animation.KeyFrame(javafx.util.Duration.millis(200), ev -> bar.setProgress(job.progress())));
+        poll.setCycleCount(javafx.animation.Animation.INDEFINITE);
+        poll.play();
+        job.result().thenAccept(rpt -> javafx.application.Platform.runLater(() -> {
+            poll.stop();
+            com.memorizer.service.PlanSummaryCache.get().invalidate();
+            refreshStatsCallback.run();
+            dlg.setOnCloseRequest(null);
+            dlg.close();
+            showNotice("OK".equals(rpt.message) ? rpt.toString() : rpt.message + " (" + rpt + ")");
+        }));
+        dlg.show();
+    }
+
+    /** Export every deck to xlsx, CSV, JSON lines or an Anki package (by the chosen filter) with a progress dialog. */
+    private void exportFile() {
+        javafx.stage.FileChooser fc = new javafx.stage.FileChooser();
+        fc.setTitle("Export");
+        fc.getExtensionFilters().addAll(
+                new javafx.stage.FileChooser.ExtensionFilter("Excel workbook (*.xlsx)", "*.xlsx"),
+                new javafx.stage.FileChooser.ExtensionFilter("CSV (*.csv)", "*.csv"),
+                new javafx.stage.FileChooser.ExtensionFilter("JSON lines, full history (*.jsonl)", "*.jsonl"),
+                new javafx.stage.FileChooser.ExtensionFilter("Anki package (*.apkg)", "*.apkg"));
+        fc.setInitialFileName("memorizer-export.xlsx");
+        java.io.File f = fc.showSaveDialog(owner);
+        if (f == null) return;
+        com.memorizer.exporter.ExportFormat format = com.memorizer.exporter.ExportFormat.forFile(f);
+        if (format == null) {
+            // No recognized extension typed: take it from the selected filter
+            String ext = fc.getSelectedExtensionFilter() == null ? "*.xlsx" : fc.getSelectedExtensionFilter().getExtensions().get(0);
+            f = new java.io.File(f.getParentFile(), f.getName() + ext.substring(1));
+            format = com.memorizer.exporter.ExportFormat.forFile(f);
+        }
+        com.memorizer.exporter.ExportJob job = com.memorizer.exporter.ExportJob.start(f, format, null);
+
+        ProgressBar bar = new ProgressBar(-1);
+        bar.setPrefWidth(360);
+        Label status = new Label("Exporting to " + f.getName() + "...");
+        Dialog<Void> dlg = new Dialog<>();
+        dlg.initOwner(owner);
+        dlg.setTitle("Export");
+        dlg.getDialogPane().setContent(new javafx.scene.layout.VBox(8, status, bar));
+        dlg.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
+        dlg.setOnCloseRequest(ev -> {
+            if (!job.result().isDone()) {
+                job.cancel();
+                status.setText("Cancelling...");
+                ev.consume();
+            }
+        });
+        javafx.animation.Timeline poll = new javafx.animation.Timeline(
+                new javafx.animation.KeyFrame(javafx.util.Duration.millis(200), ev -> bar.setProgress(job.progress())));
+        poll.setCycleCount(javafx.animation.Animation.INDEFINITE);
+        poll.play();
+        job.result().thenAccept(rpt -> javafx.application.Platform.runLater(() -> {
+            poll.stop();
+            dlg.setOnCloseRequest(null);
+            dlg.close();
+            showNotice("OK".equals(rpt.message) ? rpt.toString() : rpt.message + " (" + rpt + ")");
+        }));
+        dlg.show();
+    }
+
+    /** Verify and restore a snapshot chosen by the user in the background, then reload everything that caches DB state. */
+    private void restoreBackup() {
+        javafx.stage.FileChooser fc = new javafx.stage.FileChooser();
+        fc.setTitle("Restore Backup");
+        fc.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter("Memorizer backups", "*.sql.gz", "*.zip"));
+        java.io.File dir = new java.io.File(Config.get("app.backup.dir", "./data/backups"));
+        if (dir.isDirectory()) fc.setInitialDirectory(dir);
+        java.io.File f = fc.showOpenDialog(owner);
+        if (f == null) return;
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                "Replace the current database with " + f.getName() + "?\nThe current data file is kept next to it.",
+                ButtonType.OK, ButtonType.CANCEL);
+        confirm.initOwner(owner);
+        confirm.setHeaderText("Restore Backup");
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        // Verify, pause the services, swap and reopen off the FX thread; the dialog cannot be dismissed meanwhile
+        ProgressBar bar = new ProgressBar(-1);
+        bar.setPrefWidth(360);
+        Dialog<Void> dlg = new Dialog<>();
+        dlg.initOwner(owner);
+        dlg.setTitle("Restore Backup");
+        dlg.getDialogPane().setContent(new javafx.scene.layout.VBox(8,
+                new Label("Restoring " + f.getName() + "..."), bar));
+        dlg.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        dlg.getDialogPane().lookupButton(ButtonType.CLOSE).setDisable(true);
+        dlg.setOnCloseRequest(javafx.event.Event::consume);
+        Thread t = new Thread(() -> {
+            String msg;
+            boolean ok = false;
+            try {
+                com.memorizer.db.BackupService.Verification v = com.memorizer.db.BackupService.get().restore(f.toPath());
+                com.memorizer.service.PlanService.invalidateToday();
+                com.memorizer.service.PlanSummaryCache.get().invalidate();
+                com.memorizer.app.PairingManager.get().reload();
+                msg = "Restored " + f.getName() + ": " + v.decks + " decks, " + v.notes + " notes, " + v.cards + " cards";
+                ok = true;
+            } catch (Exception ex) {
+                msg = "Restore failed: " + ex.getMessage();
+            }
+            final String m = msg;
+            final boolean reload = ok;
+            javafx.application.Platform.runLater(() -> {
+                dlg.setOnCloseRequest(null);
+                dlg.close();
+                if (reload) {
+                    reloadPlanCallback.run();
+                    refreshStatsCallback.run();
+                }
+                showNotice(m);
+            });
+        }, "backup-restore");
+        t.setDaemon(true);
+        t.start();
+        dlg.show();
+    }
+
     /**
      * Show notification message (to be implemented by MainStage).
      */
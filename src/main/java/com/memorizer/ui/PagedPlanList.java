@@ -0,0 +1,78 @@
+package com.memorizer.ui;
+
+import com.memorizer.service.PlanService;
+import javafx.collections.ObservableListBase;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only list over today's plan that fetches rows in windows of {@code window} rows when a cell first asks
+ * for them, keeping the most recently used windows. The size is fixed at creation; a plan rebuild, new sort or
+ * deck filter replaces the list. Single status changes are patched into loaded rows and fired as updates, so
+ * only the affected cell redraws. FX thread only.
+ */
+final class PagedPlanList extends ObservableListBase<PlanService.PlanRow> {
+    private static final int CACHED_WINDOWS = 8;
+
+    private final PlanService plan;
+    private final List<PlanService.Sort> sort;
+    private final int size;
+    private final int window;
+    private final LinkedHashMap<Integer, List<PlanService.PlanRow>> windows =
+            new LinkedHashMap<Integer, List<PlanService.PlanRow>>(16, 0.75f, true) {
+                @Override protected boolean removeEldestEntry(Map.Entry<Integer, List<PlanService.PlanRow>> e) {
+                    return size() > CACHED_WINDOWS;
+                }
+            };
+
+    PagedPlanList(PlanService plan, List<PlanService.Sort> sort, int window) {
+        this.plan = plan;
+        this.sort = sort;
+        this.window = Math.max(1, window);
+        this.size = plan.sizeToday();
+    }
+
+    @Override
+    public PlanService.PlanRow get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        int w = index / window;
+        List<PlanService.PlanRow> rows = windows.get(w);
+        if (rows == null) {
+            rows = plan.pageToday(sort, w * window, window);
+            windows.put(w, rows);
+        }
+        int i = index - w * window;
+        // The plan shrank under us (content deleted); the pending reload replaces this list
+        return i < rows.size() ? rows.get(i) : placeholder();
+    }
+
+    @Override
+    public int size() { return size; }
+
+    /** Apply a status change to a loaded row and redraw its cell; rows not loaded yet will be fetched fresh. */
+    void updateStatus(long cardId, int status) {
+        for (Map.Entry<Integer, List<PlanService.PlanRow>> e : windows.entrySet()) {
+            List<PlanService.PlanRow> rows = e.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i).getCardId() != cardId) continue;
+                rows.get(i).setStatus(status);
+                int index = e.getKey() * window + i;
+                beginChange();
+                nextUpdate(index);
+                endChange();
+                return;
+            }
+        }
+    }
+
+    /** Number of windows currently held (for tests). */
+    int loadedWindows() { return windows.size(); }
+
+    private static PlanService.PlanRow placeholder() {
+        PlanService.PlanRow r = new PlanService.PlanRow();
+        r.setStatus(PlanService.Status.SKIPPED.v);
+        return r;
+    }
+}
@@ -4,9 +4,6 @@ import com.memorizer.app.AppContext;
 import com.memorizer.app.Config;
 import com.memorizer.service.PlanService;
 import com.memorizer.service.StudyService;
-import javafx.beans.binding.Bindings;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -15,20 +12,20 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 
 /**
- * Plan panel displaying today's study plan in a paginated table.
- * Users can view, sort, and interact with planned cards.
+ * Plan panel displaying today's study plan in one virtualized table.
+ * Rows are fetched from the in-memory plan in windows as they scroll into view ({@link PagedPlanList}),
+ * so the node count stays constant however long the plan is. Users can view, sort, and interact with planned cards.
  */
 public class PlanPanel {
     private final StudyService studyService;
+    private final PlanService planService = new PlanService();
     
     // Table and data
     private TableView<PlanService.PlanRow> planTable;
-    private final ObservableList<PlanService.PlanRow> planRows = FXCollections.observableArrayList();
-    private List<PlanService.PlanRow> fullPlan = new ArrayList<>();
+    private PagedPlanList planRows;
     
     // Table columns
     private TableColumn<PlanService.PlanRow, Integer> colOrder;
@@ -37,13 +34,13 @@ public class PlanPanel {
     private TableColumn<PlanService.PlanRow, String> colDeck;
     private TableColumn<PlanService.PlanRow, String> colFront;
     
-    // Pagination
-    private Pagination planPagination;
-    private int planPageSize;
+    // Rows fetched per window
+    private final int planWindowSize;
+    private final Label planCountLabel = new Label();
 
     public PlanPanel(StudyService studyService) {
         this.studyService = studyService;
-        this.planPageSize = Config.getInt("app.ui.plan.page-size", 25);
+        this.planWindowSize = Config.getInt("app.ui.plan.page-size", 100);
     }
 
     /**
@@ -54,7 +51,8 @@ public class PlanPanel {
         BorderPane root = new BorderPane();
         
         // Build table
-        planTable = new TableView<>(planRows);
+        planTable = new TableView<>();
+        planTable.setFixedCellSize(24);
         buildTableColumns();
         setupTableBehavior();
         
@@ -63,28 +61,24 @@ public class PlanPanel {
         btnRefresh.getStyleClass().addAll("btn", "btn-primary");
         btnRefresh.setOnAction(e -> reload());
         
-        Button btnPrev = new Button("Prev");
-        Button btnNext = new Button("Next");
-        btnPrev.getStyleClass().addAll("btn", "btn-default");
-        btnNext.getStyleClass().addAll("btn", "btn-default");
-        btnPrev.setOnAction(e -> changePage(-1));
-        btnNext.setOnAction(e -> changePage(1));
-        
-        // Pagination control
-        planPagination = new Pagination(1, 0);
-        planPagination.currentPageIndexProperty().addListener((obs, ov, nv) -> 
-            applyPage(nv.intValue()));
+        Button btnTop = new Button("Top");
+        btnTop.getStyleClass().addAll("btn", "btn-default");
+        btnTop.setOnAction(e -> planTable.scrollTo(0));
         
         // Layout
-        HBox topBar = new HBox(8, btnRefresh, btnPrev, btnNext);
+        HBox topBar = new HBox(8, btnRefresh, btnTop, planCountLabel);
+        topBar.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
         topBar.setPadding(new Insets(8));
         
         root.setTop(topBar);
         root.setCenter(planTable);
-        root.setBottom(new HBox(8, planPagination));
         
-        // Load initial data
+        // Load initial data, then follow plan events instead of re-querying after each action
         reload();
+        com.memorizer.event.EventBus.subscribe(com.memorizer.event.DomainEvents.PlanChanged.class,
+                e -> javafx.application.Platform.runLater(() -> onPlanChanged(e)));
+        com.memorizer.event.EventBus.subscribe(com.memorizer.event.DomainEvents.DeckFilterChanged.class,
+                e -> javafx.application.Platform.runLater(this::reload));
         
         return root;
     }
@@ -193,9 +187,9 @@ public class PlanPanel {
      * Setup table sorting and row interaction behavior.
      */
     private void setupTableBehavior() {
-        // Custom sort policy to sort full dataset
+        // Sorting happens in the plan service; the table only swaps in a list over the new ordering
         planTable.setSortPolicy(tv -> {
-            applyPage(planPagination == null ? 0 : planPagination.getCurrentPageIndex());
+            reload();
             return true;
         });
 
@@ -269,8 +263,6 @@ public class PlanPanel {
     private void markCardDone(long cardId) {
         try {
             new PlanService().markDone(cardId);
-            reload();
-            updateTrayTooltip();
         } catch (Exception ignored) {
         }
     }
@@ -281,117 +273,47 @@ public class PlanPanel {
     private void markCardSkipped(long cardId) {
         try {
             new PlanService().markSkipped(cardId);
-            reload();
-            updateTrayTooltip();
         } catch (Exception ignored) {
         }
     }
 
     /**
-     * Update system tray tooltip with plan counts.
+     * Apply a plan event: single status transitions are patched in place, anything else reloads
+     * (as does a transition while sorted by status, since the row moves).
      */
-    private void updateTrayTooltip() {
-        try {
-            com.memorizer.app.TrayManager tray = AppContext.getTray();
-            if (tray != null) {
-                tray.updatePlanTooltip();
-            }
-        } catch (Exception ignored) {
+    private void onPlanChanged(com.memorizer.event.DomainEvents.PlanChanged e) {
+        if (e.kind != com.memorizer.event.DomainEvents.PlanChanged.Kind.ITEM || planRows == null
+                || planTable.getSortOrder().contains(colStatus)) {
+            reload();
+            return;
         }
+        planRows.updateStatus(e.cardId, e.toStatus);
     }
 
     /**
-     * Reload plan data from service.
+     * Replace the table's rows with a fresh window list over today's plan in the current sort order.
      */
     public void reload() {
-        fullPlan = studyService.planListToday();
-        int pageCount = Math.max(1, (int) Math.ceil(fullPlan.size() / (double) planPageSize));
-        planPagination.setPageCount(pageCount);
-        applyPage(0);
-    }
-
-    /**
-     * Apply a specific page of data to the table.
-     */
-    private void applyPage(int pageIndex) {
-        if (pageIndex < 0) {
-            pageIndex = 0;
-        }
-        
-        int pageCount = Math.max(1, (int) Math.ceil(fullPlan.size() / (double) planPageSize));
-        if (pageIndex >= pageCount) {
-            pageIndex = pageCount - 1;
-        }
-        
-        if (planPagination != null) {
-            planPagination.setCurrentPageIndex(pageIndex);
-        }
-        
-        // Apply sorting to full plan
-        applySorting();
-        
-        // Extract page data
-        int fromIndex = pageIndex * planPageSize;
-        int toIndex = Math.min(fullPlan.size(), fromIndex + planPageSize);
-        planRows.setAll(fullPlan.subList(fromIndex, toIndex));
+        planRows = new PagedPlanList(planService, currentSort(), planWindowSize);
+        planTable.setItems(planRows);
+        planCountLabel.setText(planRows.size() + " items");
     }
 
     /**
-     * Apply current table sort order to full plan.
+     * Translate the table's sort order into plan service sort keys.
      */
-    private void applySorting() {
-        List<TableColumn<PlanService.PlanRow, ?>> sortOrder = 
-            new ArrayList<>(planTable.getSortOrder());
-        
-        if (sortOrder.isEmpty()) {
-            return;
-        }
-        
-        Comparator<PlanService.PlanRow> comparator = null;
-        
-        for (TableColumn<PlanService.PlanRow, ?> column : sortOrder) {
-            Comparator<PlanService.PlanRow> columnComparator = getColumnComparator(column);
-            
-            if (columnComparator != null) {
-                if (column.getSortType() == TableColumn.SortType.DESCENDING) {
-                    columnComparator = columnComparator.reversed();
-                }
-                comparator = (comparator == null) ? columnComparator : 
-                            comparator.thenComparing(columnComparator);
+    private List<PlanService.Sort> currentSort() {
+        List<PlanService.Sort> out = new ArrayList<>();
+        for (TableColumn<PlanService.PlanRow, ?> column : planTable.getSortOrder()) {
+            PlanService.Order order = column == colOrder ? PlanService.Order.PLAN :
+                                      column == colKind ? PlanService.Order.KIND :
+                                      column == colStatus ? PlanService.Order.STATUS :
+                                      column == colDeck ? PlanService.Order.DECK :
+                                      column == colFront ? PlanService.Order.FRONT : null;
+            if (order != null) {
+                out.add(new PlanService.Sort(order, column.getSortType() == TableColumn.SortType.DESCENDING));
             }
         }
-        
-        if (comparator != null) {
-            fullPlan.sort(comparator);
-        }
-    }
-
-    /**
-     * Get comparator for a specific column.
-     */
-    private Comparator<PlanService.PlanRow> getColumnComparator(
-            TableColumn<PlanService.PlanRow, ?> column) {
-        
-        if (column == colOrder) {
-            return Comparator.comparingInt(PlanService.PlanRow::getOrderNo);
-        } else if (column == colKind) {
-            return Comparator.comparingInt(PlanService.PlanRow::getKind);
-        } else if (column == colStatus) {
-            return Comparator.comparingInt(PlanService.PlanRow::getStatus);
-        } else if (column == colDeck) {
-            return Comparator.comparing(r -> r.getDeckName() == null ? "" : r.getDeckName());
-        } else if (column == colFront) {
-            return Comparator.comparing(r -> r.getFront() == null ? "" : r.getFront());
-        }
-        
-        return null;
-    }
-
-    /**
-     * Change page by delta (e.g., +1 for next, -1 for previous).
-     */
-    private void changePage(int delta) {
-        int newIndex = planPagination.getCurrentPageIndex() + delta;
-        applyPage(newIndex);
+        return out;
     }
 }
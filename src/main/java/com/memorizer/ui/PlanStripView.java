@@ -0,0 +1,159 @@
+package com.memorizer.ui;
+
+import com.memorizer.service.PlanService;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+
+/**
+ * Today's plan as rows of status dots painted on one canvas, with one shared tooltip, so the node count does not
+ * grow with the plan. Plans longer than {@code maxDots} are grouped: each dot then stands for a run of consecutive
+ * items and is orange while any of them is pending, green once all are done.
+ */
+final class PlanStripView extends Region {
+    private static final Color DONE = Color.web("#4CAF50");
+    private static final Color PENDING = Color.web("#FF9800");
+    private static final Color OTHER = Color.web("#BDBDBD");
+    private static final double GAP = 8;
+
+    private final Canvas canvas = new Canvas();
+    private final Tooltip tooltip = new Tooltip();
+    private PlanService.Strip strip = new PlanService.Strip();
+    private int perRow = 20;
+    private double radius = 8;
+    private int maxDots = 400;
+    private int perDot = 1;
+    private int hoverDot = -1;
+
+    /** Text for the item at a plan position (hover); enriched by the caller as it likes. */
+    private IntFunction<String> itemText = i -> "";
+    private LongConsumer onOpen = id -> {};
+    private java.util.function.BiConsumer<Tooltip, Long> onHover = (tp, id) -> {};
+
+    PlanStripView() {
+        getChildren().add(canvas);
+        Tooltip.install(canvas, tooltip);
+        canvas.setOnMouseMoved(this::hover);
+        canvas.setOnMouseExited(e -> hoverDot = -1);
+        canvas.setOnMouseClicked(e -> {
+            int d = dotAt(e.getX(), e.getY());
+            if (d >= 0) onOpen.accept(strip.cardIds[openIndex(d)]);
+        });
+        widthProperty().addListener((o, ov, nv) -> paint());
+    }
+
+    void setItemText(IntFunction<String> f) { this.itemText = f; }
+    void setOnOpen(LongConsumer c) { this.onOpen = c; }
+    void setOnHover(java.util.function.BiConsumer<Tooltip, Long> c) { this.onHover = c; }
+
+    void setStrip(PlanService.Strip s, int perRow, double radius, int maxDots) {
+        this.strip = s;
+        this.perRow = Math.max(1, perRow);
+        this.radius = Math.max(3.0, radius);
+        this.maxDots = Math.max(this.perRow, maxDots);
+        this.perDot = Math.max(1, (s.cardIds.length + this.maxDots - 1) / this.maxDots);
+        requestLayout();
+        paint();
+    }
+
+    /** Repaint the dot of one item after a status change; unknown cards are ignored. */
+    void updateStatus(long cardId, int status) {
+        for (int i = 0; i < strip.cardIds.length; i++) {
+            if (strip.cardIds[i] != cardId) continue;
+            strip.statuses[i] = (byte) status;
+            paintDot(canvas.getGraphicsContext2D(), i / perDot);
+            return;
+        }
+    }
+
+    private int dots() { return (strip.cardIds.length + perDot - 1) / perDot; }
+
+    private double cellHeight() { return radius * 2 + GAP; }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        int rows = (dots() + perRow - 1) / perRow;
+        return rows * cellHeight();
+    }
+
+    @Override
+    protected double computePrefWidth(double height) { return perRow * (radius * 2 + GAP); }
+
+    @Override
+    protected void layoutChildren() {
+        double w = Math.max(0, getWidth());
+        double h = computePrefHeight(w);
+        if (canvas.getWidth() != w || canvas.getHeight() != h) {
+            canvas.setWidth(w);
+            canvas.setHeight(h);
+            paint();
+        }
+    }
+
+    private void paint() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        int n = dots();
+        for (int d = 0; d < n; d++) paintDot(g, d);
+    }
+
+    private void paintDot(GraphicsContext g, int d) {
+        double cw = canvas.getWidth() / perRow;
+        double cx = (d % perRow) * cw + cw / 2;
+        double cy = (d / perRow) * cellHeight() + cellHeight() / 2;
+        g.clearRect(cx - radius - 1, cy - radius - 1, radius * 2 + 2, radius * 2 + 2);
+        g.setFill(color(d));
+        g.fillOval(cx - radius, cy - radius, radius * 2, radius * 2);
+    }
+
+    private Color color(int d) {
+        int from = d * perDot, to = Math.min(strip.statuses.length, from + perDot);
+        boolean allDone = true;
+        for (int i = from; i < to; i++) {
+            int st = strip.statuses[i];
+            if (st == PlanService.Status.PENDING.v) return PENDING;
+            if (st != PlanService.Status.DONE.v) allDone = false;
+        }
+        return allDone ? DONE : OTHER;
+    }
+
+    private int dotAt(double x, double y) {
+        if (canvas.getWidth() <= 0) return -1;
+        int col = (int) (x / (canvas.getWidth() / perRow));
+        int row = (int) (y / cellHeight());
+        int d = row * perRow + Math.min(perRow - 1, col);
+        return d >= 0 && d < dots() ? d : -1;
+    }
+
+    /** Item opened by a click: the first pending one of a group, else its first item. */
+    private int openIndex(int d) {
+        int from = d * perDot, to = Math.min(strip.statuses.length, from + perDot);
+        for (int i = from; i < to; i++) if (strip.statuses[i] == PlanService.Status.PENDING.v) return i;
+        return from;
+    }
+
+    private void hover(MouseEvent e) {
+        int d = dotAt(e.getX(), e.getY());
+        if (d == hoverDot) return;
+        hoverDot = d;
+        if (d < 0) { tooltip.setText(""); return; }
+        if (perDot == 1) {
+            tooltip.setText(itemText.apply(d));
+            onHover.accept(tooltip, strip.cardIds[d]);
+            return;
+        }
+        int from = d * perDot, to = Math.min(strip.statuses.length, from + perDot);
+        int done = 0, pending = 0;
+        for (int i = from; i < to; i++) {
+            if (strip.statuses[i] == PlanService.Status.DONE.v) done++;
+            else if (strip.statuses[i] == PlanService.Status.PENDING.v) pending++;
+        }
+        tooltip.setText("Items " + (from + 1) + "–" + to + ": " + done + " done, " + pending + " pending\n(click to open)");
+    }
+}
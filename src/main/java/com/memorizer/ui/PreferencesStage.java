@@ -44,16 +44,7 @@ public class PreferencesStage extends Stage {
         setResizable(false);
 
         // 设置窗口图标
-        try {
-            java.net.URL iconUrl = getClass().getResource("/icon.png");
-            if (iconUrl != null) {
-                javafx.scene.image.Image icon = new javafx.scene.image.Image(iconUrl.toString());
-                getIcons().add(icon);
-            }
-        } catch (Exception e) {
-            // 记录日志但不中断
-            System.out.println("Failed to load preferences stage icon: " + e.getMessage());
-        }
+        AppIcons.apply(this);
 
         TabPane tabs = new TabPane();
         tabs.getTabs().add(new Tab("General", buildGeneralTab()));
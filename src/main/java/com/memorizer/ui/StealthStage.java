@@ -22,6 +22,9 @@ import javafx.stage.StageStyle;
  * - ExamplesViewManager: examples rendering + autoroll/marquee
  * - StealthWindowPositioner: owner/geometry
  * - TodayProgressView: today progress refresh
+ * - CardBundleCache: display bundles prepared off the FX thread for upcoming cards
+ *
+ * FX-thread time spent showing a card is recorded in {@code memorizer_fx_card_render_seconds}.
  */
 public class StealthStage extends Stage {
     public enum UIMode { NORMAL, MINI }
@@ -53,6 +56,7 @@ public class StealthStage extends Stage {
     private final Label front = new Label();
     private final Label back = new Label();
     private final Label readingPos = new Label();
+    private final javafx.scene.image.ImageView picture = new javafx.scene.image.ImageView();
     private final VBox examplesBox = new VBox(2);
     private final ScrollPane examplesScroll = new ScrollPane();
     private final Label examplesMini = new Label();
@@ -73,6 +77,11 @@ public class StealthStage extends Stage {
     private java.util.List<String> miniSeq = new java.util.ArrayList<>();
     private int miniIdx = 0;
 
+    // Render model of the current card; bundles for upcoming cards are prepared in the background
+    private final CardBundleCache bundles = new CardBundleCache();
+    private CardBundle current;
+    private final com.memorizer.metrics.Metrics.Series renderTimer = com.memorizer.metrics.Metrics.timer("memorizer_fx_card_render_seconds");
+
     // separators for toggling in mini
     private final java.util.List<Separator> separators = new java.util.ArrayList<>();
 
@@ -97,10 +106,15 @@ public class StealthStage extends Stage {
             else if (ev.getCode() == KeyCode.M) setUIMode(mode == UIMode.MINI ? UIMode.NORMAL : UIMode.MINI);
         });
 
+        com.memorizer.metrics.Metrics.describe("memorizer_fx_card_render_seconds", "FX-thread time to show a card in the stealth popup");
+
         // init helpers
         examplesMgr = new ExamplesViewManager(examplesBox, examplesScroll, examplesMini);
         progressView = new TodayProgressView(todayText, todayBar);
         refreshTodayProgress();
+        // Also follows reviews synced from devices and the day rollover, not just cards shown here
+        com.memorizer.event.EventBus.subscribe(com.memorizer.service.PlanSummaryCache.Updated.class,
+                u -> javafx.application.Platform.runLater(this::refreshTodayProgress));
         applyThemeClasses();
         applyModeLayout();
     }
@@ -196,10 +210,16 @@ public class StealthStage extends Stage {
         grid.add(readingPos, col++, 0);
         addSeparator(col++);
 
-        // C3: BACK (wrap up to 2 lines in Normal)
+        // C3: BACK (wrap up to 2 lines in Normal), with the note's first image as a thumbnail
         back.setMaxWidth(Double.MAX_VALUE);
-        GridPane.setHgrow(back, Priority.SOMETIMES);
-        grid.add(back, col++, 0);
+        picture.setFitHeight(40);
+        picture.setPreserveRatio(true);
+        picture.setVisible(false); picture.setManaged(false);
+        HBox backCell = new HBox(8, picture, back);
+        backCell.setAlignment(Pos.CENTER_LEFT);
+        HBox.setHgrow(back, Priority.ALWAYS);
+        GridPane.setHgrow(backCell, Priority.SOMETIMES);
+        grid.add(backCell, col++, 0);
         addSeparator(col++);
 
         // C4: EXAMPLES (Normal: ScrollPane; Mini: single-line label)
@@ -263,9 +283,12 @@ public class StealthStage extends Stage {
                 es.initOwner(this);
                 es.setOnSaved(n -> {
                     if (study != null && currentCardId > 0) {
+                        bundles.invalidate(currentCardId);
                         study.viewCardById(currentCardId).ifPresent(cv -> {
-                            renderForFlipState(cv);
-                            examplesMgr.setExamples(cv.getExamples(), mode);
+                            current = bundles.bundleFor(cv, miniContent.getFont());
+                            miniSeq = current.miniSeq;
+                            renderForFlipState(current);
+                            examplesMgr.setExamples(current, mode);
                             updateExamplesVisibility();
                         });
                     }
@@ -295,25 +318,34 @@ public class StealthStage extends Stage {
     }
     public void showCardView(StudyService.CardView v) {
         if (v == null) return;
+        long t0 = System.nanoTime();
+        current = bundles.bundleFor(v, miniContent.getFont());
         currentCardId = v.getCardId();
         // Reset flip state on each card
         flip.reset();
-        // Prepare mini sequence for per-line flipping
-        buildMiniSequence(v);
+        // Mini sequence for per-line flipping comes prepared with the bundle
+        miniSeq = current.miniSeq;
+        miniIdx = 0;
         if (mode == UIMode.MINI) {
             renderMiniCurrent();
         } else {
-            renderForFlipState(v);
+            renderForFlipState(current);
         }
 
         // Examples
-        examplesMgr.setExamples(v.getExamples(), mode);
+        examplesMgr.setExamples(current, mode);
         updateExamplesVisibility();
 
         // Focus capture to ensure keys go to scene root
         try { if (getScene() != null && getScene().getRoot() != null) getScene().getRoot().requestFocus(); } catch (Exception ignored) {}
         updateBatchInfo();
         refreshTodayProgress();
+        renderTimer.recordSince(t0);
+
+        if (study != null) {
+            final StudyService s = study;
+            bundles.prefetch(() -> s.upcoming(3), miniContent.getFont());
+        }
     }
     public void refreshTodayProgress() { progressView.refresh(); }
     public void setUIMode(UIMode m) { if (m != null && m != mode) { mode = m; Config.set("app.ui.mode", mode==UIMode.MINI?"mini":"normal"); applyModeLayout(); StealthWindowPositioner.applyGeometry(this, mode); updateExamplesVisibility(); } }
@@ -358,25 +390,20 @@ public class StealthStage extends Stage {
             updateExamplesVisibility();
             return;
         }
-        if (study != null && currentCardId > 0) {
-            java.util.Optional<StudyService.CardView> ov = study.viewCardById(currentCardId);
-            if (ov.isPresent()) {
-                StudyService.CardView v = ov.get();
-                if (mode == UIMode.MINI) {
-                    String rp = buildReadingPos(v);
-                    int attempts = 0;
-                    int state = flip.getFlipCount();
-                    String text = miniTextForState(v, state, rp);
-                    while ((text == null || text.trim().isEmpty()) && attempts < 3) {
-                        flip.advance(false);
-                        state = flip.getFlipCount();
-                        text = miniTextForState(v, state, rp);
-                        attempts++;
-                    }
-                    renderMiniState(state, text);
-                } else {
-                    renderForFlipState(v);
+        if (current != null && currentCardId > 0) {
+            if (mode == UIMode.MINI) {
+                int attempts = 0;
+                int state = flip.getFlipCount();
+                String text = miniTextForState(current, state);
+                while ((text == null || text.trim().isEmpty()) && attempts < 3) {
+                    flip.advance(false);
+                    state = flip.getFlipCount();
+                    text = miniTextForState(current, state);
+                    attempts++;
                 }
+                renderMiniState(state, text);
+            } else {
+                renderForFlipState(current);
             }
         }
         updateExamplesVisibility();
@@ -395,78 +422,47 @@ public class StealthStage extends Stage {
         miniContent.setTranslateX(0);
     }
 
-    private void buildMiniSequence(StudyService.CardView v) {
-        java.util.List<String> seq = new java.util.ArrayList<>();
-        for (String s : splitLines(v.getFront())) addIfNotBlank(seq, s);
-        for (String s : splitLines(v.getBack())) addIfNotBlank(seq, s);
-        if (com.memorizer.app.Config.getBool("app.ui.mini.include-reading-pos", true)) {
-            String rp = buildReadingPos(v);
-            for (String s : splitLines(rp)) addIfNotBlank(seq, s);
-        }
-        if (v.getExamples() != null) {
-            for (String ex : v.getExamples()) {
-                for (String s : splitLines(ex)) addIfNotBlank(seq, s);
-            }
-        }
-        this.miniSeq = seq;
-        this.miniIdx = 0;
-    }
-
-    private java.util.List<String> splitLines(String s) {
-        java.util.List<String> out = new java.util.ArrayList<>();
-        if (s == null) return out;
-        String[] parts = s.split("\\r?\\n");
-        for (String p : parts) {
-            if (p == null) continue;
-            String t = p.trim();
-            if (!t.isEmpty()) out.add(t);
-        }
-        return out;
-    }
-
-    private void addIfNotBlank(java.util.List<String> list, String s) {
-        if (s == null) return;
-        String t = s.trim();
-        if (!t.isEmpty()) list.add(t);
-    }
-
-    private void renderForFlipState(StudyService.CardView v) {
+    private void renderForFlipState(CardBundle b) {
         int state = flip.getFlipCount();
         boolean normal = (mode == UIMode.NORMAL);
 
-        String rp = buildReadingPos(v);
-        readingPos.setText(rp);
+        readingPos.setText(b.readingPos);
 
         if (normal) {
             // 0: Front, 1: Back, 2: Both+Details
             boolean showFront = (state == 0) || (state == 2);
             boolean showBack  = (state == 1) || (state == 2);
             boolean showRP    = (state == 2);
-            front.setText(showFront ? safe(v.getFront()) : ""); front.setVisible(showFront); front.setManaged(showFront);
-            back.setText(showBack ? safe(v.getBack()) : "");   back.setVisible(showBack);   back.setManaged(showBack);
+            front.setText(showFront ? b.front : ""); front.setVisible(showFront); front.setManaged(showFront);
+            back.setText(showBack ? b.back : "");   back.setVisible(showBack);   back.setManaged(showBack);
             readingPos.setVisible(showRP); readingPos.setManaged(showRP);
+            showPicture(showBack ? b : null);
         } else {
-            String text = miniTextForState(v, state, rp);
+            showPicture(null);
+            String text = miniTextForState(b, state);
             renderMiniState(state, text);
         }
     }
 
-    private String buildReadingPos(StudyService.CardView v) {
-        String reading = v.getReading();
-        String pos = v.getPos();
-        String rp = (reading == null ? "" : reading);
-        if (pos != null && !pos.trim().isEmpty()) rp = rp.isEmpty()? ("["+pos+"]") : (rp + "  [" + pos + "]");
-        return rp;
+    /** Show the first attached image of {@code b} (loaded in the background from the media store), or hide it. */
+    private void showPicture(CardBundle b) {
+        javafx.scene.image.Image img = null;
+        if (b != null && b.imageUrl != null) {
+            Object cur = picture.getImage() == null ? null : picture.getImage().getUrl();
+            img = b.imageUrl.equals(cur) ? picture.getImage() : new javafx.scene.image.Image(b.imageUrl, 0, 80, true, true, true);
+        }
+        picture.setImage(img);
+        picture.setVisible(img != null);
+        picture.setManaged(img != null);
     }
 
-    private String miniTextForState(StudyService.CardView v, int state, String rp) {
+    private String miniTextForState(CardBundle b, int state) {
         String text;
-        if (state == 0) text = safe(v.getFront());
-        else if (state == 1) text = safe(v.getBack());
-        else if (state == 2) text = rp;
+        if (state == 0) text = b.front;
+        else if (state == 1) text = b.back;
+        else if (state == 2) text = b.readingPos;
         else text = examplesMgr.currentSingleLine();
-        if (text != null) text = text.replace("\n", " ").replace("\r", " ");
-        return text;
+        return CardBundle.singleLine(text);
     }
 
     private void renderMiniState(int state, String text) {
@@ -545,6 +541,7 @@ public class StealthStage extends Stage {
         boolean showNormalCenters = !mini;
         front.setVisible(showNormalCenters); front.setManaged(showNormalCenters);
         back.setVisible(showNormalCenters); back.setManaged(showNormalCenters);
+        if (mini) { picture.setVisible(false); picture.setManaged(false); }
         // readingPos is only shown dynamically in Normal details state
         readingPos.setVisible(false); readingPos.setManaged(false);
         if (examplesScroll != null) { examplesScroll.setVisible(showNormalCenters); examplesScroll.setManaged(showNormalCenters); }
@@ -582,7 +579,6 @@ public class StealthStage extends Stage {
         try { java.net.URL u = StealthStage.class.getResource(sel); if (u != null) getScene().getStylesheets().add(u.toExternalForm()); } catch (Exception ignored) {}
     }
 
-    private static String safe(String s) { return s == null ? "" : s; }
 
     /** Clamp a wrapping label to two lines using a rectangle clip sized from actual font metrics. */
     private void clampTwoLines(Label lbl) {
@@ -32,16 +32,7 @@ import javafx.stage.Stage;
         setMinHeight(320);
 
         // 设置窗口图标
-        try {
-            java.net.URL iconUrl = getClass().getResource("/icon.png");
-            if (iconUrl != null) {
-                javafx.scene.image.Image icon = new javafx.scene.image.Image(iconUrl.toString());
-                getIcons().add(icon);
-            }
-        } catch (Exception e) {
-            // 记录日志但不中断
-            System.out.println("Failed to load study stage icon: " + e.getMessage());
-        }
+        AppIcons.apply(this);
 
         VBox root = new VBox(12);
         root.setAlignment(Pos.TOP_LEFT);
@@ -156,7 +147,7 @@ import javafx.stage.Stage;
             lblFront.setVisible(true);
             lblBack.setVisible(false);
         } else {
-            lblFront.setText("(No cards. Use File → Import Excel...)");
+            lblFront.setText("(No cards. Use File → Import...)");
             lblBack.setText("");
             showingFront = true;
             lblBack.setVisible(false);
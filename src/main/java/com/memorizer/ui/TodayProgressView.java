@@ -1,7 +1,6 @@
 package com.memorizer.ui;
 
 import com.memorizer.app.Config;
-import com.memorizer.db.StatsRepository;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.HBox;
@@ -26,7 +25,7 @@ final class TodayProgressView {
     void refresh() {
         int target = Config.getInt("app.study.daily-target", 50);
         int done = 0;
-        try { done = new StatsRepository().load().todayReviews; } catch (Exception ignored) {}
+        try { done = com.memorizer.service.PlanSummaryCache.get().current().reviewsToday; } catch (Exception ignored) {}
         int shown = (target > 0) ? Math.min(done, target) : done;
         String sfx = (suffix == null || suffix.trim().isEmpty()) ? "" : (" " + suffix.trim());
         todayLabel.setText("Today: " + shown + "/" + target + sfx);
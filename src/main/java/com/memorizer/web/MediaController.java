@@ -0,0 +1,169 @@
+package com.memorizer.web;
+
+import com.memorizer.db.MediaStore;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Media endpoints under {@code /api/media} (token-protected like the rest of the API):
+ * GET/HEAD {@code /api/media/:hash} serves a blob with single-range support and immutable caching (the URL is
+ * the content hash, so it never changes); POST {@code /api/media} stores the request body and optionally attaches
+ * it to a note; POST {@code /api/media/detach} removes an attachment.
+ * <p>
+ * Blobs are served from the API's own origin, so only audio and raster image types are ever sent as such
+ * ({@link MediaStore#safeMime}); everything else goes out as an {@code application/octet-stream} download, and
+ * {@code nosniff} stops browsers from guessing HTML out of it.
+ * <p>
+ * Bodies are not copied through the heap: Jetty is handed a memory-mapped view of the requested range, and any
+ * other container gets {@link FileChannel#transferTo}. Over TLS the bytes are still encrypted in user space, so
+ * true sendfile only applies to the plain HTTP server.
+ */
+public final class MediaController {
+    private static final String CACHE = "public, max-age=31536000, immutable";
+
+    private MediaController() {}
+
+    public static void register(Javalin app) {
+        app.get("/api/media/:hash", ctx -> serve(ctx, true));
+        app.head("/api/media/:hash", ctx -> serve(ctx, false));
+
+        // Body is the file; ?noteId=&role=audio|image attach it; Content-Type or ?name= gives the type
+        app.post("/api/media", ctx -> {
+            String type = ctx.header("Content-Type");
+            String name = ctx.queryParam("name");
+            if (name != null && (type == null || type.startsWith("application/octet-stream"))) type = MediaStore.mimeFor(name);
+            MediaStore.Media m;
+            try (InputStream in = ctx.req.getInputStream()) {
+                m = MediaStore.get().put(in, type);
+            } catch (java.io.IOException e) {
+                ctx.status(413).json(err(e.getMessage()));
+                return;
+            }
+            Long noteId = toLong(ctx.queryParam("noteId"));
+            if (noteId != null) {
+                String role = ctx.queryParam("role");
+                try {
+                    MediaStore.get().attach(noteId, m.hash, role != null ? role : m.mime.startsWith("audio/") ? MediaStore.AUDIO : MediaStore.IMAGE);
+                } catch (IllegalArgumentException e) {
+                    ctx.status(404).json(err("note_not_found"));
+                    return;
+                }
+            }
+            Map<String, Object> out = new HashMap<>();
+            out.put("hash", m.hash);
+            out.put("mime", m.mime);
+            out.put("size", m.size);
+            out.put("url", "/api/media/" + m.hash);
+            ctx.json(out);
+        });
+
+        app.post("/api/media/detach", ctx -> {
+            Map<?, ?> body = ctx.bodyAsClass(Map.class);
+            Long noteId = toLong(body == null ? null : body.get("noteId"));
+            Object hash = body == null ? null : body.get("hash");
+            if (noteId == null || hash == null) { ctx.status(400).json(err("invalid")); return; }
+            try {
+                MediaStore.get().detach(noteId, String.valueOf(hash));
+                ctx.json(java.util.Collections.singletonMap("ok", true));
+            } catch (IllegalArgumentException e) {
+                ctx.status(400).json(err("invalid_hash"));
+            }
+        });
+    }
+
+    private static void serve(Context ctx, boolean body) throws Exception {
+        String hash = ctx.pathParam("hash");
+        MediaStore.Media m = MediaStore.get().find(hash);
+        if (m == null) { ctx.status(404).result("not found"); return; }
+        String etag = "\"" + m.hash + "\"";
+        ctx.header("ETag", etag);
+        ctx.header("Cache-Control", CACHE);
+        ctx.header("Accept-Ranges", "bytes");
+        String mime = MediaStore.safeMime(m.mime);
+        ctx.contentType(mime);
+        ctx.header("X-Content-Type-Options", "nosniff");
+        if (!MediaStore.isInlineMedia(mime)) {
+            ctx.header("Content-Disposition", "attachment; filename=\"" + m.hash + "\"");
+            ctx.header("Content-Security-Policy", "sandbox");
+        }
+        String inm = ctx.header("If-None-Match");
+        if (inm != null && (inm.contains(etag) || inm.trim().equals("*"))) { ctx.status(304); return; }
+
+        long[] r = range(ctx.header("Range"), ctx.header("If-Range"), etag, m.size);
+        if (r == null) r = new long[]{0, m.size - 1};
+        else if (r[0] < 0) {
+            ctx.header("Content-Range", "bytes */" + m.size);
+            ctx.status(416);
+            return;
+        } else {
+            ctx.status(206);
+            ctx.header("Content-Range", "bytes " + r[0] + "-" + r[1] + "/" + m.size);
+        }
+        long len = r[1] - r[0] + 1;
+        ctx.res.setContentLengthLong(Math.max(0, len));
+        if (!body || len <= 0) return;
+        try (FileChannel ch = FileChannel.open(MediaStore.get().path(m.hash), StandardOpenOption.READ)) {
+            OutputStream out = ctx.res.getOutputStream();
+            if (out instanceof org.eclipse.jetty.server.HttpOutput) {
+                // Jetty writes direct buffers to the connector without another copy
+                MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, r[0], len);
+                ((org.eclipse.jetty.server.HttpOutput) out).sendContent(map);
+            } else {
+                WritableByteChannel target = Channels.newChannel(out);
+                long pos = r[0], end = r[0] + len;
+                while (pos < end) pos += ch.transferTo(pos, end - pos, target);
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * The single byte range requested by {@code header} as {start, end} (inclusive), null to send everything
+     * (no/unsupported/multiple ranges, or a stale {@code If-Range}), or {-1, -1} when unsatisfiable.
+     */
+    static long[] range(String header, String ifRange, String etag, long size) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) return null;
+        if (ifRange != null && !ifRange.trim().equals(etag)) return null;
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            long start, end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1).trim());
+                if (suffix <= 0) return new long[]{-1, -1};
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash).trim());
+                String e = spec.substring(dash + 1).trim();
+                end = e.isEmpty() ? size - 1 : Math.min(size - 1, Long.parseLong(e));
+                if (end < start) return e.isEmpty() ? new long[]{-1, -1} : null;
+            }
+            if (start >= size) return new long[]{-1, -1};
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long toLong(Object o) {
+        if (o == null) return null;
+        if (o instanceof Number) return ((Number) o).longValue();
+        try { return Long.parseLong(String.valueOf(o).trim()); } catch (NumberFormatException e) { return null; }
+    }
+
+    private static Map<String, Object> err(String code) {
+        return java.util.Collections.singletonMap("error", code);
+    }
+}
@@ -24,12 +24,12 @@ public final class PairingController {
         });
         app.get("/api/pair/verify", ctx -> {
             String t = ctx.queryParam("token");
-            boolean ok = PairingManager.get().verify(t);
+            boolean ok = PairingManager.get().claim(t, WebServerManager.deviceName(ctx));
             ctx.json(java.util.Collections.singletonMap("ok", ok));
         });
         app.get("/pair/verify", ctx -> {
             String t = ctx.queryParam("token");
-            boolean ok = PairingManager.get().verify(t);
+            boolean ok = PairingManager.get().claim(t, WebServerManager.deviceName(ctx));
             ctx.json(java.util.Collections.singletonMap("ok", ok));
         });
         app.get("/pair", ctx -> {
@@ -17,20 +17,25 @@ public final class TemplateRenderer {
         JavalinRenderer.register(new FileRenderer() {
             @Override
             public String render(String filePath, Map<String, Object> model, io.javalin.http.Context context) {
-                try {
-                    String name = filePath;
-                    if (name.startsWith("/")) name = name.substring(1);
-                    if (!name.endsWith(".html")) name = name + ".html";
-                    String tpl = readClasspath("/web/templates/" + name);
-                    if (tpl == null) return "<pre>Template not found: " + name + "</pre>";
-                    return substitute(tpl, model);
-                } catch (Exception e) {
-                    return "<pre>Template error: " + e.getMessage() + "</pre>";
-                }
+                return TemplateRenderer.render(filePath, model);
             }
         }, ".html");
     }
 
+    /** Render a template under /web/templates with the given model (also used by benchmarks). */
+    public static String render(String filePath, Map<String, Object> model) {
+        try {
+            String name = filePath;
+            if (name.startsWith("/")) name = name.substring(1);
+            if (!name.endsWith(".html")) name = name + ".html";
+            String tpl = readClasspath("/web/templates/" + name);
+            if (tpl == null) return "<pre>Template not found: " + name + "</pre>";
+            return substitute(tpl, model);
+        } catch (Exception e) {
+            return "<pre>Template error: " + e.getMessage() + "</pre>";
+        }
+    }
+
     private static String readClasspath(String path) {
         try (InputStream in = TemplateRenderer.class.getResourceAsStream(path)) {
             if (in == null) return null;
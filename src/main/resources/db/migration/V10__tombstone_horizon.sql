@@ -0,0 +1,6 @@
+-- Oldest instant tombstones are still kept for: purging raises it, and sync clients whose last sync predates it
+-- are told to resync in full instead of getting a delta that silently misses deletions. One row (id = 1).
+CREATE TABLE IF NOT EXISTS tombstone_horizon (
+  id INT PRIMARY KEY,
+  purged_before TIMESTAMP NOT NULL
+);
@@ -0,0 +1,6 @@
+-- New-card picks: "new" is status = 0, an equality on (status, id) walked in id order and stopped at the
+-- LIMIT, instead of the (due_at IS NULL OR status = 0) filter over the primary key. Every insert path
+-- writes status 0 with no due date; older rows that lost their status are folded back in here.
+UPDATE card SET status = 0 WHERE due_at IS NULL AND status NOT IN (0, 3);
+
+CREATE INDEX IF NOT EXISTS ix_card_status ON card(status, id);
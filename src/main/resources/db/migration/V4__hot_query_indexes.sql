@@ -0,0 +1,19 @@
+-- Indexes for the hot card/plan/review_log access paths.
+-- H2 already backs every FOREIGN KEY with a single-column index (card.note_id,
+-- note.deck_id, review_log.card_id), which serves the deck-filtered joins; the
+-- indexes below cover the remaining range/sort paths so the filter columns are
+-- read from the index instead of the row. QueryPlanTest guards these plans.
+
+-- Due lookups: range on due_at, status checked in-index, ordered by due_at
+DROP INDEX IF EXISTS idx_card_due;
+CREATE INDEX IF NOT EXISTS ix_card_due_status ON card(due_at, status);
+
+-- Leech picks: one range per branch of the lapses/ease union
+CREATE INDEX IF NOT EXISTS ix_card_lapses ON card(lapses, status);
+CREATE INDEX IF NOT EXISTS ix_card_ease ON card(ease, status);
+
+-- Per-card history (dashboard detail, sync de-duplication)
+CREATE INDEX IF NOT EXISTS ix_review_log_card_time ON review_log(card_id, reviewed_at, rating);
+
+-- Time-window aggregates (today count, daily chart)
+CREATE INDEX IF NOT EXISTS ix_review_log_time ON review_log(reviewed_at, rating);
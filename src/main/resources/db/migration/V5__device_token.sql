@@ -0,0 +1,11 @@
+-- Paired devices: one long-lived token per device, stored as SHA-256 hex (never the token itself)
+CREATE TABLE IF NOT EXISTS device_token (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name VARCHAR(128),
+  token_hash VARCHAR(64) NOT NULL,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  last_seen_at TIMESTAMP,
+  revoked_at TIMESTAMP
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_device_token_hash ON device_token(token_hash);
@@ -0,0 +1,14 @@
+-- Deleted decks/notes/cards, kept so incremental sync clients learn about deletions.
+-- Purged after app.sync.tombstone-retention-days by storage maintenance.
+CREATE TABLE IF NOT EXISTS tombstone (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  entity VARCHAR(8) NOT NULL,       -- deck | note | card
+  entity_id BIGINT NOT NULL,
+  deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS ix_tombstone_entity_deleted ON tombstone(entity, deleted_at);
+CREATE INDEX IF NOT EXISTS ix_tombstone_deleted ON tombstone(deleted_at);
+
+-- Set-based cascades select cards by note and plan/review rows by card
+CREATE INDEX IF NOT EXISTS ix_study_plan_card ON study_plan(card_id);
@@ -0,0 +1,21 @@
+-- Content-addressed media (audio/images). Files live under the media directory keyed by SHA-256;
+-- ref_count is the number of note_media rows pointing at the blob. Unreferenced blobs are removed
+-- by storage maintenance after a grace period.
+CREATE TABLE IF NOT EXISTS media (
+  hash CHAR(64) PRIMARY KEY,
+  mime VARCHAR(128) NOT NULL,
+  size BIGINT NOT NULL,
+  ref_count INT NOT NULL DEFAULT 0,
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS note_media (
+  note_id BIGINT NOT NULL,
+  hash CHAR(64) NOT NULL,
+  role VARCHAR(16) NOT NULL,         -- audio | image
+  PRIMARY KEY (note_id, hash),
+  FOREIGN KEY(hash) REFERENCES media(hash)
+);
+
+CREATE INDEX IF NOT EXISTS ix_note_media_hash ON note_media(hash);
+CREATE INDEX IF NOT EXISTS ix_media_unreferenced ON media(ref_count, created_at);
@@ -0,0 +1,44 @@
+-- Exam sessions (ExamPanel) and their per-card answers. Exams never reschedule cards themselves;
+-- exam_card_stats (per-card accuracy features) and exam_daily are aggregates maintained by the batched
+-- exam writer on every flush, so the leech detector, the scheduler and the results view read them
+-- instead of scanning exam_answer.
+CREATE TABLE IF NOT EXISTS exam_session (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  finished_at TIMESTAMP,
+  source VARCHAR(16) NOT NULL,       -- Plan | Due | New | Weighted
+  deck_id BIGINT,
+  tags VARCHAR(256),
+  planned INT NOT NULL DEFAULT 0,
+  answered INT NOT NULL DEFAULT 0,
+  correct INT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS exam_answer (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  session_id BIGINT NOT NULL,
+  card_id BIGINT NOT NULL,
+  answered_at TIMESTAMP NOT NULL,
+  correct BOOLEAN NOT NULL,
+  latency_ms INT,
+  FOREIGN KEY(session_id) REFERENCES exam_session(id)
+);
+
+CREATE TABLE IF NOT EXISTS exam_card_stats (
+  card_id BIGINT PRIMARY KEY,
+  attempts INT NOT NULL DEFAULT 0,
+  correct INT NOT NULL DEFAULT 0,
+  wrong_streak INT NOT NULL DEFAULT 0, -- wrong answers since the last correct one
+  last_answered_at TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS exam_daily (
+  day DATE PRIMARY KEY,
+  sessions INT NOT NULL DEFAULT 0,
+  answered INT NOT NULL DEFAULT 0,
+  correct INT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS ix_exam_session_started ON exam_session(started_at);
+CREATE INDEX IF NOT EXISTS ix_exam_answer_card ON exam_answer(card_id, answered_at);
+CREATE INDEX IF NOT EXISTS ix_exam_card_stats_streak ON exam_card_stats(wrong_streak, attempts);
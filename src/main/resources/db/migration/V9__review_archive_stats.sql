@@ -0,0 +1,10 @@
+-- Rating counts of review_log rows moved into the review archive, per card and block, written in the same
+-- transaction that deletes the rows. Charts add them to the live aggregate instead of decoding the archive;
+-- joining card leaves out reviews of deleted cards.
+CREATE TABLE IF NOT EXISTS review_archive_stats (
+  card_id BIGINT NOT NULL,
+  rating INT NOT NULL,
+  cnt BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS ix_review_archive_stats_card ON review_archive_stats(card_id, rating);
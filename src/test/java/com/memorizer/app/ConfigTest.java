@@ -0,0 +1,40 @@
+package com.memorizer.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigTest {
+
+    @Test
+    void shouldPublishNewSnapshotAndNotifyListeners() {
+        String prev = Config.get("app.deck.filter", "all");
+        ConfigSnapshot before = Config.snapshot();
+        List<Set<String>> seen = new ArrayList<Set<String>>();
+        Config.Listener l = (b, a, keys) -> seen.add(keys);
+        Config.addListener(l);
+        try {
+            Config.set("app.deck.filter", "42 # comment");
+            ConfigSnapshot after = Config.snapshot();
+            assertNotSame(before, after);
+            assertEquals(Long.valueOf(42), after.deckFilterId);
+            assertTrue(after.changed(before, "app.deck.filter"));
+            assertFalse(after.changed(before, "app.study.batch-size"));
+            assertEquals(1, seen.size());
+            assertTrue(seen.get(0).contains("app.deck.filter"));
+
+            // setting the same value again is a no-op
+            Config.set("app.deck.filter", "42 # comment");
+            assertSame(after, Config.snapshot());
+            assertEquals(1, seen.size());
+        } finally {
+            Config.removeListener(l);
+            Config.set("app.deck.filter", prev);
+        }
+        assertTrue(Config.snapshot().isDeckFilterAll() == "all".equals(prev));
+    }
+}
@@ -0,0 +1,44 @@
+package com.memorizer.app;
+
+import com.memorizer.db.Database;
+import com.memorizer.model.Device;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PairingManagerTest {
+
+    @Test
+    void shouldEnrollDevicesAndRevokeThem() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-pair-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Database.stop();
+        PairingManager pm = PairingManager.get();
+        pm.reload();
+
+        String phone = pm.getOrCreateToken();
+        assertTrue(pm.claim(phone, "phone"));
+        String tablet = pm.getOrCreateToken();
+        assertNotEquals(phone, tablet, "a claimed code is rotated");
+        assertTrue(pm.claim(tablet, "tablet"));
+
+        assertTrue(pm.verify(phone));
+        assertTrue(pm.verify(tablet));
+        assertFalse(pm.verify(phone + "x"));
+
+        // Persisted hashed and reloaded from the table
+        pm.reload();
+        List<Device> devices = pm.listDevices();
+        assertEquals(2, devices.size());
+        assertNotEquals(phone, devices.get(0).tokenHash);
+        assertTrue(pm.verify(phone));
+
+        assertTrue(pm.revoke(devices.get(0).id));
+        assertFalse(pm.verify(phone));
+        assertTrue(pm.verify(tablet));
+    }
+}
@@ -0,0 +1,103 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+import com.memorizer.model.Note;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveServiceTest {
+
+    @Test
+    void shouldMoveOldRowsAndStreamThemBack() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-archive-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Database.stop();
+
+        long deck = new DeckRepository().getOrCreate("Archive");
+        Note n = new Note();
+        n.deckId = deck; n.front = "f"; n.back = "b";
+        long card = new CardRepository().insertForNote(new NoteRepository().insert(n));
+
+        Timestamp old = Timestamp.valueOf(LocalDateTime.now().minusMonths(18));
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "INSERT INTO review_log(card_id, reviewed_at, rating, prev_interval, latency_ms) VALUES (?,?,?,?,?)")) {
+            for (int i = 0; i < 3; i++) {
+                ps.setLong(1, card);
+                ps.setTimestamp(2, i < 2 ? old : new Timestamp(System.currentTimeMillis()));
+                ps.setInt(3, 3);
+                ps.setDouble(4, 1.5);
+                ps.setInt(5, 800);
+                ps.executeUpdate();
+            }
+        }
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "INSERT INTO study_plan(plan_date, card_id, deck_id, kind, status, order_no) VALUES (?,?,?,0,1,1)")) {
+            ps.setDate(1, java.sql.Date.valueOf(LocalDate.now().minusDays(90)));
+            ps.setLong(2, card);
+            ps.setLong(3, deck);
+            ps.executeUpdate();
+        }
+
+        ArchiveService.Result r = ArchiveService.get().archiveNow();
+        assertEquals(2, r.reviews);
+        assertEquals(1, r.plans);
+        assertEquals(0, ArchiveService.get().archiveNow().reviews, "second run finds nothing new");
+
+        try (PreparedStatement ps = Database.get().prepareStatement("SELECT COUNT(*) FROM review_log");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            assertEquals(1, rs.getInt(1));
+        }
+
+        List<ArchiveService.ReviewRow> archived = new ArrayList<ArchiveService.ReviewRow>();
+        ArchiveService.get().forEachArchivedReview(null, null, archived::add);
+        assertEquals(2, archived.size());
+        assertEquals(card, archived.get(0).cardId);
+        assertEquals(old.getTime(), archived.get(0).reviewedAt);
+        assertEquals(Double.valueOf(1.5), archived.get(0).prevInterval);
+        assertNull(archived.get(0).nextInterval);
+
+        int[] all = {0};
+        ArchiveService.get().forEachReview(null, null, v -> all[0]++);
+        assertEquals(3, all[0]);
+        List<ChartRepository.RatingDistribution> ratings = new ChartRepository().getRatingDistribution();
+        assertEquals(1, ratings.size());
+        assertEquals(3, ratings.get(0).rating);
+        assertEquals(3, ratings.get(0).count, "archived reviews come from the counts kept with the archive");
+
+        // An archived row brought back into the live table (older database snapshot) is counted once
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "INSERT INTO review_log(id, card_id, reviewed_at, rating) VALUES (?,?,?,3)")) {
+            ps.setLong(1, archived.get(0).id);
+            ps.setLong(2, card);
+            ps.setTimestamp(3, old);
+            ps.executeUpdate();
+        }
+        all[0] = 0;
+        ArchiveService.get().forEachReview(null, null, v -> all[0]++);
+        assertEquals(3, all[0]);
+        ArchiveService.get().archiveNow();
+        archived.clear();
+        ArchiveService.get().forEachArchivedReview(null, null, archived::add);
+        assertEquals(2, archived.size(), "rows already archived are not appended again");
+
+        List<ArchiveService.PlanRow> plans = new ArrayList<ArchiveService.PlanRow>();
+        ArchiveService.get().forEachArchivedPlan(LocalDate.now().minusDays(100), null, plans::add);
+        assertEquals(1, plans.size());
+        assertEquals(Long.valueOf(deck), plans.get(0).deckId);
+
+        new DeletionRepository().deleteCard(card);
+        assertTrue(new ChartRepository().getRatingDistribution().isEmpty(), "reviews of deleted cards are left out");
+    }
+}
@@ -0,0 +1,126 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+import com.memorizer.model.Note;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackupServiceTest {
+
+    @Test
+    void shouldSnapshotVerifyAndRestore() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-backup-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Config.set("app.backup.dir", tmp.resolve("backups").toString());
+        Database.stop();
+
+        long deck = new DeckRepository().getOrCreate("Backup");
+        NoteRepository nr = new NoteRepository();
+        Note n = new Note();
+        n.deckId = deck; n.front = "front"; n.back = "back";
+        new CardRepository().insertForNote(nr.insert(n));
+
+        BackupService bs = BackupService.get();
+        BackupService.Snapshot s = bs.backupNow(false);
+        assertNotNull(s);
+        assertNull(bs.backupNow(false), "unchanged data should not produce a new snapshot");
+
+        BackupService.Verification v = bs.verify(s.file);
+        assertEquals(1, v.decks);
+        assertEquals(1, v.cards);
+
+        Note extra = new Note();
+        extra.deckId = deck; extra.front = "later"; extra.back = "x";
+        nr.insert(extra);
+        bs.restore(s.file);
+        try (java.sql.Statement st = Database.get().createStatement();
+             java.sql.ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM note")) {
+            rs.next();
+            assertEquals(1, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void shouldBringBackMediaCollectedAfterTheSnapshot() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-backup-media-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Config.set("app.backup.dir", tmp.resolve("backups").toString());
+        Database.stop();
+
+        Note n = new Note();
+        n.front = "with audio"; n.back = "b";
+        long note = new NoteRepository().insert(n);
+        MediaStore ms = MediaStore.get();
+        byte[] bytes = "RIFF....WAVEfmt backup".getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+        MediaStore.Media m = ms.put(new java.io.ByteArrayInputStream(bytes), "audio/wav");
+        ms.attach(note, m.hash, MediaStore.AUDIO);
+
+        BackupService.Snapshot s = BackupService.get().backupNow(true);
+        ms.detach(note, m.hash);
+        Config.set("app.media.gc-grace-hours", "0");
+        try (java.sql.Statement st = Database.get().createStatement()) {
+            st.execute("UPDATE media SET created_at = DATEADD('SECOND', -5, CURRENT_TIMESTAMP)");
+        }
+        assertEquals(1, ms.collectGarbage());
+        assertFalse(Files.exists(ms.path(m.hash)));
+
+        BackupService.get().restore(s.file);
+        assertNotNull(ms.find(m.hash));
+        assertArrayEquals(bytes, Files.readAllBytes(ms.path(m.hash)));
+        assertEquals(1, ms.forNote(note).size());
+        Config.set("app.media.gc-grace-hours", "24");
+    }
+
+    @Test
+    void shouldRestoreTheArchiveMatchingTheSnapshot() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-backup-archive-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Config.set("app.backup.dir", tmp.resolve("backups").toString());
+        Database.stop();
+
+        Note n = new Note();
+        n.front = "f"; n.back = "b";
+        long card = new CardRepository().insertForNote(new NoteRepository().insert(n));
+        addOldReview(card);
+        addOldReview(card);
+        BackupService bs = BackupService.get();
+        ArchiveService.get().archiveNow();
+        BackupService.Snapshot s = bs.backupNow(true);
+        assertEquals(2, history());
+
+        addOldReview(card);
+        ArchiveService.get().archiveNow();
+        Thread.sleep(1100); // snapshot names have second resolution
+        bs.backupNow(true);
+        assertEquals(3, history());
+
+        bs.restore(s.file);
+        assertEquals(2, history(), "archive rolled back with the database, nothing counted twice");
+        addOldReview(card);
+        ArchiveService.get().archiveNow();
+        Thread.sleep(1100);
+        BackupService.Snapshot after = bs.backupNow(true);
+        assertEquals(3, history());
+        bs.restore(after.file);
+        assertEquals(3, history());
+    }
+
+    private static void addOldReview(long card) throws Exception {
+        try (java.sql.PreparedStatement ps = Database.get().prepareStatement(
+                "INSERT INTO review_log(card_id, reviewed_at, rating) VALUES (?,?,3)")) {
+            ps.setLong(1, card);
+            ps.setTimestamp(2, java.sql.Timestamp.valueOf(java.time.LocalDateTime.now().minusMonths(18)));
+            ps.executeUpdate();
+        }
+    }
+
+    private static int history() {
+        int[] n = {0};
+        ArchiveService.get().forEachReview(null, null, r -> n[0]++);
+        return n[0];
+    }
+}
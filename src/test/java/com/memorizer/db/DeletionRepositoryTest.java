@@ -0,0 +1,84 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+import com.memorizer.model.Note;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeletionRepositoryTest {
+
+    @Test
+    void shouldCascadeDeckDeleteAndLeaveTombstones() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-db-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Database.stop();
+        DeckRepository dr = new DeckRepository();
+        long doomed = dr.getOrCreate("Doomed");
+        long kept = dr.getOrCreate("Kept");
+        NoteRepository nr = new NoteRepository();
+        CardRepository cr = new CardRepository();
+        long keptCard = -1;
+        for (int i = 0; i < 4; i++) {
+            Note n = new Note();
+            n.deckId = i < 3 ? doomed : kept;
+            n.front = "F" + i; n.back = "B" + i;
+            long cid = cr.insertForNote(nr.insert(n));
+            cr.insertReview(cid, 3, 0, 1, 2.5, 1000);
+            if (i == 3) keptCard = cid;
+        }
+        exec("INSERT INTO study_plan(plan_date, card_id, deck_id, kind, status, order_no) SELECT CURRENT_DATE, id, NULL, 0, 0, id FROM card");
+        long before = System.currentTimeMillis() - 1000;
+
+        DeletionRepository del = new DeletionRepository();
+        DeletionRepository.Result r = del.deleteDeck(doomed);
+        assertEquals(1, r.decks);
+        assertEquals(3, r.notes);
+        assertEquals(3, r.cards);
+        assertEquals(3, r.reviews);
+        assertEquals(3, r.planRows);
+
+        assertEquals(1, count("SELECT COUNT(*) FROM card"));
+        assertEquals(1, count("SELECT COUNT(*) FROM review_log"));
+        assertEquals(1, count("SELECT COUNT(*) FROM study_plan"));
+        assertEquals(1, count("SELECT COUNT(*) FROM deck"));
+        assertEquals(3, del.tombstonesSince(DeletionRepository.CARD, before).size());
+        assertEquals(3, del.tombstonesSince(DeletionRepository.NOTE, before).size());
+        assertEquals(doomed, del.tombstonesSince(DeletionRepository.DECK, before).get(0).id);
+        assertTrue(del.tombstonesSince(DeletionRepository.DECK, System.currentTimeMillis() + 60_000).isEmpty());
+
+        assertEquals(1, del.deleteCard(keptCard).cards);
+        assertEquals(0, del.deleteCard(keptCard).cards);
+        assertEquals(1, count("SELECT COUNT(*) FROM note"), "deleting a card keeps its note");
+
+        assertEquals(0, del.purgeHorizon());
+        long cutoff = System.currentTimeMillis() + 1000;
+        assertEquals(8, del.purgeTombstones(Database.get(), cutoff));
+        assertEquals(cutoff, del.purgeHorizon());
+        del.purgeTombstones(Database.get(), cutoff - 60_000);
+        assertEquals(cutoff, del.purgeHorizon(), "the horizon never moves back");
+
+        // A delta from before the horizon would miss the purged deletions: send everything instead
+        java.util.Map<String,Object> stale = com.memorizer.app.WebServerManager.buildSyncResponse(before);
+        assertEquals(Boolean.TRUE, stale.get("fullResync"));
+        java.util.Map<?,?> data = (java.util.Map<?,?>) stale.get("data");
+        assertEquals(1, ((java.util.List<?>) data.get("notes")).size(), "the kept note, no tombstones");
+        assertEquals(Boolean.FALSE, com.memorizer.app.WebServerManager.buildSyncResponse(cutoff).get("fullResync"));
+    }
+
+    private static void exec(String sql) throws Exception {
+        try (Statement st = Database.get().createStatement()) { st.executeUpdate(sql); }
+    }
+
+    private static long count(String sql) throws Exception {
+        try (Statement st = Database.get().createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+import com.memorizer.model.Note;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MediaStoreTest {
+
+    @Test
+    void shouldDeduplicateAndCountReferences() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-media-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Database.stop();
+        MediaStore ms = MediaStore.get();
+        NoteRepository nr = new NoteRepository();
+        long[] notes = new long[2];
+        for (int i = 0; i < notes.length; i++) {
+            Note n = new Note();
+            n.front = "F" + i; n.back = "B" + i;
+            notes[i] = nr.insert(n);
+        }
+        byte[] bytes = "RIFF....WAVEfmt ".getBytes(StandardCharsets.US_ASCII);
+        MediaStore.Media a = ms.put(new ByteArrayInputStream(bytes), "audio/wav");
+        Path wav = tmp.resolve("again.wav");
+        Files.write(wav, bytes);
+        MediaStore.Media b = ms.put(wav);
+        assertEquals(a.hash, b.hash);
+        assertEquals("audio/wav", b.mime);
+        assertEquals(64, a.hash.length());
+        assertArrayEquals(bytes, Files.readAllBytes(ms.path(a.hash)));
+        assertEquals(1, count("SELECT COUNT(*) FROM media"));
+
+        ms.attach(notes[0], a.hash, MediaStore.AUDIO);
+        ms.attach(notes[0], a.hash, MediaStore.AUDIO);
+        ms.attach(notes[1], a.hash, MediaStore.AUDIO);
+        assertEquals(2, count("SELECT ref_count FROM media"));
+        assertEquals(1, ms.forNote(notes[1]).size());
+        assertEquals(2, ms.forNotesChangedSince(0).size());
+        assertThrows(IllegalArgumentException.class, () -> ms.attach(9999, a.hash, MediaStore.AUDIO));
+
+        ms.detach(notes[1], a.hash);
+        new DeletionRepository().deleteNote(notes[0]);
+        assertEquals(0, count("SELECT ref_count FROM media"));
+        assertEquals(0, count("SELECT COUNT(*) FROM note_media"));
+
+        // Unreferenced blobs survive the grace period, then go with their file
+        assertEquals(0, ms.collectGarbage());
+        Config.set("app.media.gc-grace-hours", "0");
+        try {
+            exec("UPDATE media SET created_at = DATEADD('SECOND', -5, CURRENT_TIMESTAMP)");
+            assertEquals(1, ms.collectGarbage());
+        } finally {
+            Config.set("app.media.gc-grace-hours", "24");
+        }
+        assertFalse(Files.exists(ms.path(a.hash)));
+        assertNull(ms.find(a.hash));
+    }
+
+    private static void exec(String sql) throws Exception {
+        try (Statement st = Database.get().createStatement()) { st.executeUpdate(sql); }
+    }
+
+    private static long count(String sql) throws Exception {
+        try (Statement st = Database.get().createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
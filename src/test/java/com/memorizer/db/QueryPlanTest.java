@@ -0,0 +1,128 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the access paths of the hot card/plan/review queries.
+ * Each statement the repositories run is put through {@code EXPLAIN} against a populated database
+ * and must read every joined table through an index condition: a full table scan, or a walk of a whole
+ * index or the primary key filtered row by row, fails. The plan builder's
+ * statements are checked by {@code PlanQueryPlanTest} on the same data.
+ */
+public class QueryPlanTest {
+
+    @BeforeAll
+    public static void populate() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-plan-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Database.stop();
+        Connection c = Database.get();
+        long now = System.currentTimeMillis();
+        try (Statement st = c.createStatement()) {
+            st.executeUpdate("INSERT INTO deck(name) VALUES ('A'),('B'),('C'),('D')");
+        }
+        c.setAutoCommit(false);
+        try (PreparedStatement note = c.prepareStatement("INSERT INTO note(id, deck_id, front, back) VALUES (?,?,?,?)");
+             PreparedStatement card = c.prepareStatement(
+                     "INSERT INTO card(id, note_id, due_at, interval_days, ease, reps, lapses, status) VALUES (?,?,?,?,?,?,?,?)");
+             PreparedStatement log = c.prepareStatement(
+                     "INSERT INTO review_log(card_id, reviewed_at, rating, prev_interval, next_interval, ease, latency_ms) VALUES (?,?,?,?,?,?,?)");
+             PreparedStatement plan = c.prepareStatement(
+                     "INSERT INTO study_plan(plan_date, card_id, kind, status, order_no) VALUES (?,?,?,?,?)")) {
+            java.sql.Date today = java.sql.Date.valueOf(java.time.LocalDate.now());
+            for (int i = 1; i <= 4000; i++) {
+                note.setLong(1, i); note.setLong(2, 1 + i % 4); note.setString(3, "f" + i); note.setString(4, "b" + i);
+                note.addBatch();
+                int status = i % 10 == 0 ? 3 : (i % 3 == 0 ? 0 : 2);
+                card.setLong(1, i); card.setLong(2, i);
+                if (status == 0) card.setNull(3, java.sql.Types.TIMESTAMP); else card.setTimestamp(3, new Timestamp(now + (i % 60 - 10) * 86_400_000L));
+                card.setDouble(4, status == 0 ? 0 : 1 + i % 30); card.setDouble(5, 2.5); card.setInt(6, i % 7);
+                card.setInt(7, i % 11); card.setInt(8, status);
+                card.addBatch();
+                for (int r = 0; r < 3; r++) {
+                    log.setLong(1, i); log.setTimestamp(2, new Timestamp(now - (i % 90 + r) * 86_400_000L));
+                    log.setInt(3, 1 + (i + r) % 4); log.setDouble(4, 1); log.setDouble(5, 2); log.setDouble(6, 2.5); log.setInt(7, 5000);
+                    log.addBatch();
+                }
+                if (i % 20 == 0) {
+                    plan.setDate(1, today); plan.setLong(2, i); plan.setInt(3, 0); plan.setInt(4, i % 40 == 0 ? 1 : 0); plan.setInt(5, i);
+                    plan.addBatch();
+                }
+            }
+            note.executeBatch(); card.executeBatch(); log.executeBatch(); plan.executeBatch();
+            c.commit();
+        } finally {
+            c.setAutoCommit(true);
+        }
+        try (Statement st = c.createStatement()) { st.execute("ANALYZE"); }
+    }
+
+    private static String explain(String sql, Object... params) throws Exception {
+        try (PreparedStatement ps = Database.get().prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                StringBuilder sb = new StringBuilder();
+                while (rs.next()) sb.append(rs.getString(1)).append('\n');
+                return sb.toString();
+            }
+        }
+    }
+
+    // A table access as H2 prints it: "/* PUBLIC.INDEX: COL = ?1 */" when the index is searched, a bare
+    // "/* PUBLIC.INDEX */" (or ".tableScan") when it is walked end to end. Nested plans use /++ ++/.
+    private static final Pattern ACCESS = Pattern.compile("(?:/\\*|/\\+\\+) PUBLIC\\.(\\w+(?:\\.tableScan)?)(:?)");
+
+    /** Every table in the plan of {@code sql} must be read through an index condition (= or range), not a full walk. */
+    public static void assertIndexed(String sql, Object... params) throws Exception {
+        String plan = explain(sql, params);
+        Matcher m = ACCESS.matcher(plan);
+        int accesses = 0;
+        while (m.find()) {
+            accesses++;
+            assertFalse(m.group(2).isEmpty(), "unbounded scan of " + m.group(1) + " in plan:\n" + plan);
+        }
+        assertTrue(accesses > 0, "no table access in plan:\n" + plan);
+    }
+
+    private static Timestamp now() { return new Timestamp(System.currentTimeMillis()); }
+    private static java.sql.Date today() { return java.sql.Date.valueOf(java.time.LocalDate.now()); }
+
+    @Test
+    void cardQueries() throws Exception {
+        assertIndexed(CardRepository.NEXT_DUE_SQL, now());
+        assertIndexed(CardRepository.NEXT_NEW_SQL);
+        assertIndexed(CardRepository.DUE_IDS_SQL, now(), 200);
+        assertIndexed(CardRepository.NEW_IDS_SQL, 20);
+        assertIndexed(CardRepository.EARLIEST_DUE_SQL, new Timestamp(0L));
+        assertIndexed(StatsRepository.DUE_COUNT_SQL, now());
+    }
+
+    @Test
+    void examReadQueries() throws Exception {
+        assertIndexed(ExamRepository.FEATURES_SQL, 1L);
+        assertIndexed(ExamRepository.DAILY_SQL, today());
+        assertIndexed(ExamRepository.RECENT_SESSIONS_SQL, now(), 20);
+    }
+
+    @Test
+    void reviewLogQueries() throws Exception {
+        assertIndexed(CardRepository.RECENT_REVIEWS_SQL, 5L, 10);
+        assertIndexed(StatsRepository.REVIEWS_SINCE_SQL, now());
+        assertIndexed(ChartRepository.DAILY_REVIEWS_SQL, now());
+        assertIndexed(CardRepository.REVIEW_EXISTS_SQL, 5L, now(), 3);
+    }
+}
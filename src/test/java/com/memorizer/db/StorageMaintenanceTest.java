@@ -0,0 +1,35 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageMaintenanceTest {
+
+    @Test
+    void shouldReportAndKeepDataAcrossDefrag() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-maint-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Config.set("app.db.maintenance.defrag-below-fill-rate", "101");
+        Database.stop();
+        long deck = new DeckRepository().getOrCreate("Maint");
+
+        StorageMaintenance.Report r = StorageMaintenance.get().runNow(true);
+        assertTrue(r.before.fileBytes > 0);
+        assertTrue(r.before.fillRate >= 0, "in-process store should expose its fill rate");
+        assertTrue(r.defragmented);
+
+        try (Statement st = Database.get().createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM deck WHERE id=" + deck)) {
+            assertTrue(rs.next());
+            assertEquals("Maint", rs.getString(1));
+        }
+        Config.set("app.db.maintenance.defrag-below-fill-rate", "50");
+    }
+}
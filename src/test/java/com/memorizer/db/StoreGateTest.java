@@ -0,0 +1,48 @@
+package com.memorizer.db;
+
+import com.memorizer.app.Config;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StoreGateTest {
+
+    @Test
+    void exclusiveWorkShouldWaitForSideConnectionsAndPauseParticipants() throws Exception {
+        Config.set("app.db.path", java.nio.file.Files.createTempDirectory("memo-gate-").resolve("memo").toString());
+        Database.stop();
+        List<String> calls = new ArrayList<String>();
+        StoreGate.Participant p = new StoreGate.Participant() {
+            @Override public void pause() { calls.add("pause"); }
+            @Override public void resume() { calls.add("resume"); }
+        };
+        StoreGate.register(p);
+        try {
+            Connection side = Database.openSide();
+            CompletableFuture<String> work = CompletableFuture.supplyAsync(() -> StoreGate.exclusive("test", () -> {
+                calls.add("work");
+                return "done";
+            }));
+            Thread.sleep(200);
+            assertFalse(work.isDone(), "an open side connection holds the gate");
+            side.close();
+            assertEquals("done", work.get(5, TimeUnit.SECONDS));
+            assertEquals(java.util.Arrays.asList("pause", "work", "resume"), calls);
+
+            Config.set("app.db.gate-wait-seconds", "1");
+            try (Connection busy = Database.openSide()) {
+                assertThrows(IllegalStateException.class, () -> StoreGate.exclusive("test", () -> "never"));
+            }
+            assertEquals("again", StoreGate.exclusive("test", () -> "again"), "a failed wait reopens the gate");
+        } finally {
+            StoreGate.unregister(p);
+            Config.set("app.db.gate-wait-seconds", "60");
+        }
+    }
+}
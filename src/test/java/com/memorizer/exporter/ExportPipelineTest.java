@@ -0,0 +1,124 @@
+package com.memorizer.exporter;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.Database;
+import com.memorizer.importer.ExcelImportService;
+import com.memorizer.importer.ImportJob;
+import com.memorizer.importer.ImportReport;
+import com.memorizer.importer.ImportRow;
+import com.memorizer.importer.RowSource;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExportPipelineTest {
+
+    @Test
+    void shouldRoundTripEveryFormat() throws Exception {
+        Path dir = Files.createTempDirectory("memo-export-");
+        Config.set("app.db.path", dir.resolve("source").toString());
+        Database.stop();
+        // 1500 notes over two decks plus three without a deck; one long multi-line note spills onto overflow pages
+        StringBuilder tsv = new StringBuilder("deck\tfront\tback\texamples\ttags\n");
+        for (int i = 0; i < 1500; i++) {
+            tsv.append(i % 3 == 0 ? "Verbs" : "Lang::Nouns").append('\t').append("w").append(i).append('\t')
+                    .append("m \"").append(i).append("\", <b>").append('\t').append(i == 7 ? repeat("long ", 2000) : "ex " + i)
+                    .append('\t').append("t1;t2").append('\n');
+        }
+        Files.write(dir.resolve("seed.tsv"), tsv.toString().getBytes(StandardCharsets.UTF_8));
+        try (RowSource src = ImportJob.open(dir.resolve("seed.tsv"))) {
+            assertEquals("OK", ImportJob.run(src, new ImportReport(), () -> false).message);
+        }
+        try (Statement st = Database.get().createStatement()) {
+            st.executeUpdate("INSERT INTO note(deck_id, front, back) VALUES (NULL, 'x1', 'y1'), (NULL, 'x2', 'y2'), (NULL, 'x3', 'y3')");
+            st.executeUpdate("INSERT INTO card(note_id, status) SELECT id, 0 FROM note WHERE deck_id IS NULL");
+            st.executeUpdate("UPDATE card SET status=2, interval_days=12, ease=2.3, reps=4, due_at=CURRENT_TIMESTAMP + 5, " +
+                    "last_review_at=CURRENT_TIMESTAMP WHERE MOD(id, 2)=0");
+            st.executeUpdate("INSERT INTO review_log(card_id, reviewed_at, rating, prev_interval, next_interval, ease, latency_ms) " +
+                    "SELECT id, CURRENT_TIMESTAMP - 1, 3, 5, 12, 2.3, 4000 FROM card WHERE MOD(id, 2)=0");
+        }
+        int notes = 1503;
+
+        // JSON lines: every deck, note, card and review on its own line
+        ExportReport r = ExportJob.run(dir.resolve("all.jsonl"), ExportFormat.JSONL, null, () -> false);
+        assertEquals("OK", r.message, r.toString());
+        assertEquals(notes, r.notes);
+        assertEquals(notes, r.cards);
+        List<String> lines = Files.readAllLines(dir.resolve("all.jsonl"), StandardCharsets.UTF_8);
+        assertEquals(r.decks + r.notes + r.cards + r.reviews, lines.size());
+        assertEquals(751, r.reviews);
+        assertTrue(lines.get(0).startsWith("{\"type\":\"deck\""));
+
+        // Anki package: read back with the importer's SQLite reader
+        r = ExportJob.run(dir.resolve("all.apkg"), ExportFormat.APKG, null, () -> false);
+        assertEquals("OK", r.message, r.toString());
+        assertEquals(751, r.reviews);
+        try (RowSource src = ImportJob.open(dir.resolve("all.apkg"))) {
+            assertEquals(notes, src.size());
+            ImportRow row = new ImportRow();
+            int n = 0;
+            while (src.next(row)) {
+                if ("w7".equals(row.front)) assertEquals(repeat("long ", 2000).trim(), row.examples.trim());
+                if ("w1".equals(row.front)) {
+                    assertEquals("m \"1\", <b>", row.back);
+                    assertEquals("Lang::Nouns", row.deck);
+                }
+                n++;
+            }
+            assertEquals(notes, n);
+        }
+
+        // One deck only, cancelled export leaves nothing behind
+        long verbs = scalar("SELECT id FROM deck WHERE name='Verbs'");
+        r = ExportJob.run(dir.resolve("verbs.csv"), ExportFormat.CSV, verbs, () -> false);
+        assertEquals(500, r.notes);
+        r = ExportJob.run(dir.resolve("verbs.xlsx"), ExportFormat.XLSX, verbs, () -> false);
+        assertEquals(500, r.notes, "notes without a deck stay out of a one-deck workbook");
+        r = ExportJob.run(dir.resolve("gone.csv"), ExportFormat.CSV, null, () -> true);
+        assertEquals("Cancelled", r.message);
+        assertFalse(Files.exists(dir.resolve("gone.csv")));
+        ExportJob.run(dir.resolve("all.csv"), ExportFormat.CSV, null, () -> false);
+        ExportJob.run(dir.resolve("all.xlsx"), ExportFormat.XLSX, null, () -> false);
+
+        // Re-import into an empty database: same notes, decks from the deck column (xlsx) or CSV column
+        Config.set("app.db.path", dir.resolve("fromxlsx").toString());
+        Database.stop();
+        ExcelImportService.Report x = new ExcelImportService().importFile(dir.resolve("all.xlsx").toFile());
+        assertEquals("OK", x.message);
+        assertEquals(3, x.sheets.size());
+        assertEquals(notes, x.insertedNotes);
+        assertEquals(500, scalar("SELECT COUNT(*) FROM note n JOIN deck d ON d.id=n.deck_id WHERE d.name='Verbs'"));
+        assertEquals(3, scalar("SELECT COUNT(*) FROM note WHERE deck_id IS NULL"), "the no-deck sheet imports without a deck");
+        assertEquals(2, scalar("SELECT COUNT(*) FROM deck"));
+
+        Config.set("app.db.path", dir.resolve("fromcsv").toString());
+        Database.stop();
+        try (RowSource src = ImportJob.open(dir.resolve("all.csv"))) {
+            ImportReport ir = ImportJob.run(src, new ImportReport(), () -> false);
+            assertEquals("OK", ir.message);
+            assertEquals(notes, ir.insertedNotes);
+        }
+        assertEquals(1000, scalar("SELECT COUNT(*) FROM note n JOIN deck d ON d.id=n.deck_id WHERE d.name='Lang::Nouns'"));
+        assertEquals(1, scalar("SELECT COUNT(*) FROM note WHERE back='m \"2\", <b>' AND tags='t1;t2'"));
+    }
+
+    private static String repeat(String s, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) sb.append(s);
+        return sb.toString();
+    }
+
+    private static long scalar(String sql) throws Exception {
+        try (Statement st = Database.get().createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.memorizer.importer;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.Database;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImportPipelineTest {
+
+    @Test
+    void shouldParseQuotedCsvAcrossMappingWindows() throws Exception {
+        Path dir = Files.createTempDirectory("memo-import-");
+        Path csv = dir.resolve("words.csv");
+        String text = "﻿#separator:comma\r\n" +
+                "Front,Back,Examples,Tags\r\n" +
+                "apple,\"a fruit, red\",\"He said \"\"hi\"\"\r\nThen left\",food\r\n" +
+                "\r\n" +
+                "pear,green fruit,,\r\n" +
+                "plum,\"purple\",x,\"a;b\"";
+        Files.write(csv, text.getBytes(StandardCharsets.UTF_8));
+
+        // A tiny window forces remaps in the middle of quoted fields and CRLFs
+        for (int window : new int[]{1 << 20, 64, 97}) {
+            List<String[]> rows = new ArrayList<String[]>();
+            try (DelimitedRowSource src = new DelimitedRowSource(csv, (char) 0, window)) {
+                ImportRow r = new ImportRow();
+                while (src.next(r)) rows.add(new String[]{r.front, r.back, r.examples, r.tags});
+                assertEquals(src.size(), src.position());
+            }
+            assertEquals(3, rows.size(), "window " + window);
+            assertArrayEquals(new String[]{"apple", "a fruit, red", "He said \"hi\"\r\nThen left", "food"}, rows.get(0));
+            assertArrayEquals(new String[]{"pear", "green fruit", null, null}, rows.get(1));
+            assertArrayEquals(new String[]{"plum", "purple", "x", "a;b"}, rows.get(2));
+        }
+    }
+
+    @Test
+    void shouldUpsertTsvAndApkgIntoDatabase() throws Exception {
+        Path dir = Files.createTempDirectory("memo-import-");
+        Config.set("app.db.path", dir.resolve("memo").toString());
+        Config.set("app.import.batch-size", "7");
+        Database.stop();
+        try {
+            // Headerless TSV: front, back, tags; "a b" and "ab" share a dedup key
+            Path tsv = dir.resolve("plain.tsv");
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 20; i++) sb.append("w").append(i).append('\t').append("m").append(i).append('\t').append("t").append('\n');
+            sb.append("a b\tc\tfirst\n").append("ab\tc\tsecond\n").append("\tno front\n");
+            Files.write(tsv, sb.toString().getBytes(StandardCharsets.UTF_8));
+            List<com.memorizer.event.DomainEvents.ContentImported> events = new ArrayList<>();
+            com.memorizer.event.EventBus.Subscription sub = com.memorizer.event.EventBus.subscribe(
+                    com.memorizer.event.DomainEvents.ContentImported.class, events::add);
+            ImportReport r;
+            try {
+                r = importFile(tsv, false);
+            } finally {
+                sub.cancel();
+            }
+            assertEquals(1, events.size(), "one bulk event per import");
+            assertEquals(21, events.get(0).insertedNotes);
+            assertEquals("OK", r.message);
+            assertEquals(23, r.totalRows);
+            assertEquals(21, r.insertedNotes);
+            assertEquals(21, r.insertedCards);
+            assertEquals(1, r.updatedNotes);
+            assertEquals(1, r.skippedRows);
+            assertEquals(1, r.deckCreated);
+            assertEquals("second", string("SELECT tags FROM note WHERE front='a b'"));
+
+            // Re-import only updates
+            r = importFile(tsv, false);
+            assertEquals(0, r.insertedNotes);
+            assertEquals(22, r.updatedNotes);
+            assertEquals(21, count("SELECT COUNT(*) FROM card"));
+
+            // Anki package: 300 notes with two cards each, one note spilling onto overflow pages
+            Path apkg = dir.resolve("sample.apkg");
+            Files.copy(Paths.get(getClass().getResource("/import/sample.apkg").toURI()), apkg);
+            try (RowSource src = ImportJob.open(apkg)) {
+                assertEquals(300, src.size());
+                ImportRow row = new ImportRow();
+                assertTrue(src.next(row));
+                assertEquals("word0", row.front);
+                assertEquals("meaning 0", row.back);
+                assertEquals("Example & sentence 0\nsecond line", row.examples);
+                assertEquals("verb;n5", row.tags);
+                assertEquals("Lang::Words", row.deck);
+            }
+            r = importFile(apkg, false);
+            assertEquals("OK", r.message);
+            assertEquals(300, r.insertedNotes);
+            assertEquals(1, r.deckCreated);
+            assertEquals(300, count("SELECT COUNT(*) FROM note n JOIN deck d ON d.id=n.deck_id WHERE d.name='Lang::Words'"));
+            assertEquals(799, count("SELECT LENGTH(examples) - LENGTH(REPLACE(examples, ' ', '')) FROM note WHERE front='word7'"));
+
+            // Cancelling commits what was staged and stops
+            r = importFile(tsv, true);
+            assertEquals("Cancelled", r.message);
+            assertEquals(1, r.totalRows);
+        } finally {
+            Config.set("app.import.batch-size", "1000");
+        }
+    }
+
+    @Test
+    void shouldRejectAnki21bPackageInsteadOfItsLegacyStub() throws Exception {
+        Path apkg = Files.createTempDirectory("memo-import-").resolve("modern.apkg");
+        try (java.util.zip.ZipOutputStream zip = new java.util.zip.ZipOutputStream(Files.newOutputStream(apkg))) {
+            zip.putNextEntry(new java.util.zip.ZipEntry("collection.anki2"));
+            zip.write(Files.readAllBytes(Paths.get(getClass().getResource("/import/sample.apkg").toURI())));
+            zip.closeEntry();
+            zip.putNextEntry(new java.util.zip.ZipEntry("collection.anki21b"));
+            zip.write(new byte[]{0x28, (byte) 0xb5, 0x2f, (byte) 0xfd});
+            zip.closeEntry();
+        }
+        java.io.IOException e = assertThrows(java.io.IOException.class, () -> ImportJob.open(apkg).close());
+        assertTrue(e.getMessage().contains("anki21b"), e.getMessage());
+    }
+
+    @Test
+    void shouldImportEverySheetWithItsDeck() throws Exception {
+        Path dir = Files.createTempDirectory("memo-import-");
+        Config.set("app.db.path", dir.resolve("memo").toString());
+        Config.set("app.import.batch-size", "5");
+        Database.stop();
+        Path xlsx = dir.resolve("decks.xlsx");
+        try (XSSFWorkbook wb = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(xlsx)) {
+            sheet(wb, "Verbs", new String[]{"front", "back"}, 12, null);
+            sheet(wb, "Nouns", new String[]{"Deck", "Front", "Back", "Tags"}, 8, "Special");
+            sheet(wb, "Notes", new String[]{"comment"}, 3, null);
+            wb.write(out);
+        }
+        try {
+            ExcelImportService.Report r = new ExcelImportService().importFile(xlsx.toFile());
+            assertEquals("OK", r.message);
+            assertEquals(20, r.insertedNotes);
+            assertEquals(3, r.sheets.size());
+            assertEquals("Verbs", r.sheets.get(0).sheet);
+            assertEquals(12, r.sheets.get(0).insertedNotes);
+            assertEquals(8, r.sheets.get(1).insertedNotes);
+            assertEquals(2, r.sheets.get(1).deckCreated);
+            assertEquals("Header must contain 'front' and 'back'", r.sheets.get(2).message);
+            assertEquals(12, count("SELECT COUNT(*) FROM note n JOIN deck d ON d.id=n.deck_id WHERE d.name='Verbs'"));
+            assertEquals(4, count("SELECT COUNT(*) FROM note n JOIN deck d ON d.id=n.deck_id WHERE d.name='Nouns'"));
+            assertEquals(4, count("SELECT COUNT(*) FROM note n JOIN deck d ON d.id=n.deck_id WHERE d.name='Special'"));
+            assertEquals("1", string("SELECT back FROM note WHERE front='Nouns-1'"));
+        } finally {
+            Config.set("app.import.batch-size", "1000");
+        }
+    }
+
+    /** A sheet with {@code rows} rows; when {@code deck} is set, odd rows name it in the first column. */
+    private static void sheet(XSSFWorkbook wb, String name, String[] header, int rows, String deck) {
+        Sheet sh = wb.createSheet(name);
+        Row h = sh.createRow(0);
+        for (int i = 0; i < header.length; i++) h.createCell(i).setCellValue(header[i]);
+        for (int r = 1; r <= rows; r++) {
+            Row row = sh.createRow(r);
+            int c = 0;
+            if (deck != null) row.createCell(c++).setCellValue(r % 2 == 1 ? deck : "");
+            row.createCell(c++).setCellValue(name + "-" + r);
+            row.createCell(c).setCellValue(r);
+        }
+    }
+
+    private static ImportReport importFile(Path file, boolean cancel) throws Exception {
+        try (RowSource src = ImportJob.open(file)) {
+            return ImportJob.run(src, new ImportReport(), () -> cancel);
+        }
+    }
+
+    private static long count(String sql) throws Exception {
+        try (Statement st = Database.get().createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String string(String sql) throws Exception {
+        try (Statement st = Database.get().createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.memorizer.metrics;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.CardRepository;
+import com.memorizer.db.Database;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    @Test
+    void shouldRenderSummariesAndCounters() {
+        Metrics.reset();
+        Metrics.Series s = Metrics.timer("test_latency_seconds", "route", "GET /api/x");
+        for (int i = 1; i <= 100; i++) s.record(i * 1000L); // 1..100 ms
+        Metrics.counter("test_events_total").add(3);
+
+        String text = Metrics.prometheus();
+        assertTrue(text.contains("# TYPE test_latency_seconds summary"));
+        assertTrue(text.contains("test_latency_seconds_count{route=\"GET /api/x\"} 100"));
+        assertTrue(text.contains("test_latency_seconds{route=\"GET /api/x\",quantile=\"0.5\"} 0.05"), text);
+        assertTrue(text.contains("test_events_total 3"));
+    }
+
+    @Test
+    void shouldAttributeStatementsToRepositoryMethod() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-metrics-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Database.stop();
+        Metrics.reset();
+
+        new CardRepository().findEarliestDueAt();
+
+        boolean found = false;
+        for (Metrics.Series s : Metrics.series()) {
+            if (s.name.equals("memorizer_db_statement_seconds")
+                    && s.labels.contains("CardRepository.findEarliestDueAt") && s.count() == 1) found = true;
+        }
+        assertTrue(found, Metrics.prometheus());
+    }
+}
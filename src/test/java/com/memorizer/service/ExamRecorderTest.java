@@ -0,0 +1,100 @@
+package com.memorizer.service;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.CardRepository;
+import com.memorizer.db.Database;
+import com.memorizer.db.DeckRepository;
+import com.memorizer.db.ExamRepository;
+import com.memorizer.db.NoteRepository;
+import com.memorizer.model.Card;
+import com.memorizer.model.Note;
+import com.memorizer.model.Rating;
+import com.memorizer.srs.SrsEngine;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExamRecorderTest {
+
+    @Test
+    void shouldPersistAnswersAndMaintainAggregates() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-examrec-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Config.set("app.exam.write-delay-ms", "60000");
+        Database.stop();
+
+        long deck = new DeckRepository().getOrCreate("Verbs");
+        NoteRepository nr = new NoteRepository();
+        CardRepository cr = new CardRepository();
+        long[] cards = new long[3];
+        for (int i = 0; i < cards.length; i++) {
+            Note n = new Note();
+            n.deckId = deck; n.front = "F" + i; n.back = "B" + i;
+            cards[i] = cr.insertForNote(nr.insert(n));
+        }
+
+        ExamRecorder rec = new ExamRecorder();
+        ExamRepository repo = new ExamRepository();
+        long s1 = rec.start("Weighted", deck, "n5", 3);
+        rec.answer(s1, cards[0], false, 1200);
+        rec.answer(s1, cards[0], false, 900);
+        rec.answer(s1, cards[1], true, 500);
+        assertNull(repo.features(cards[0]), "answers are batched, not written one by one");
+        rec.finish(s1);
+        rec.flush();
+
+        long s2 = rec.start("Plan", null, null, 2);
+        rec.answer(s2, cards[0], false, 800);
+        rec.answer(s2, cards[1], false, 700);
+        rec.answer(s2, cards[1], true, 600);
+        rec.stop();
+
+        ExamRepository.Features f0 = repo.features(cards[0]);
+        assertEquals(3, f0.attempts);
+        assertEquals(0, f0.correct);
+        assertEquals(3, f0.wrongStreak);
+        ExamRepository.Features f1 = repo.features(cards[1]);
+        assertEquals(3, f1.attempts);
+        assertEquals(2, f1.correct);
+        assertEquals(0, f1.wrongStreak, "a correct answer resets the streak");
+        assertNull(repo.features(cards[2]));
+
+        List<ExamRepository.SessionRow> sessions = repo.recentSessions(7, 10);
+        assertEquals(2, sessions.size());
+        ExamRepository.SessionRow first = sessions.get(0).id == s1 ? sessions.get(0) : sessions.get(1);
+        assertEquals("Verbs", first.deck);
+        assertEquals(3, first.answered);
+        assertEquals(1, first.correct);
+        assertTrue(first.finishedAt > 0);
+
+        List<ExamRepository.DayRow> days = repo.daily(7);
+        assertEquals(1, days.size());
+        assertEquals(LocalDate.now(), days.get(0).day);
+        assertEquals(2, days.get(0).sessions);
+        assertEquals(6, days.get(0).answered);
+        assertEquals(2, days.get(0).correct);
+
+        List<ExamRepository.CardRow> weak = repo.weakest(10);
+        assertEquals(1, weak.size());
+        assertEquals(cards[0], weak.get(0).cardId);
+        assertEquals("F0", weak.get(0).front);
+    }
+
+    @Test
+    void failingExamsShouldDampIntervalGrowth() {
+        Card c = new Card();
+        c.intervalDays = 10.0;
+        c.ease = 2.5;
+        c.reps = 3;
+        SrsEngine srs = new SrsEngine();
+        double plain = srs.schedule(c, Rating.GOOD).nextIntervalDays;
+        assertEquals(plain, srs.schedule(c, Rating.GOOD, 2, 0).nextIntervalDays, 1e-9, "too few attempts");
+        assertEquals(plain, srs.schedule(c, Rating.GOOD, 4, 2).nextIntervalDays, 1e-9, "half right is not failing");
+        assertEquals(10.0 + (plain - 10.0) / 2, srs.schedule(c, Rating.GOOD, 4, 1).nextIntervalDays, 1e-9);
+    }
+}
@@ -0,0 +1,139 @@
+package com.memorizer.service;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.CardRepository;
+import com.memorizer.db.Database;
+import com.memorizer.db.DeckRepository;
+import com.memorizer.db.NoteRepository;
+import com.memorizer.model.Note;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExamSamplerTest {
+
+    @Test
+    void shouldDrawDistinctCardsWeightedTowardWeakOnes() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-exam-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Database.stop();
+
+        long verbs = new DeckRepository().getOrCreate("Verbs");
+        long nouns = new DeckRepository().getOrCreate("Nouns");
+        NoteRepository nr = new NoteRepository();
+        CardRepository cr = new CardRepository();
+        long[] cards = new long[200];
+        for (int i = 0; i < cards.length; i++) {
+            Note n = new Note();
+            n.deckId = i < 100 ? verbs : nouns;
+            n.front = "F" + i; n.back = "B" + i;
+            n.tags = i % 10 == 0 ? "N5;Food" : "misc";
+            cards[i] = cr.insertForNote(nr.insert(n));
+        }
+        try (Statement st = Database.get().createStatement()) {
+            // The first ten verbs are weak: minimum ease, many lapses, recent failures
+            st.executeUpdate("UPDATE card SET ease=1.3, lapses=8 WHERE id BETWEEN " + cards[0] + " AND " + cards[9]);
+            for (int i = 0; i < 10; i++) {
+                st.executeUpdate("INSERT INTO review_log(card_id, reviewed_at, rating) VALUES (" + cards[i] + ", CURRENT_TIMESTAMP, 1)");
+            }
+            st.executeUpdate("UPDATE card SET status=3 WHERE id=" + cards[199]);
+        }
+
+        ExamSampler sampler = new ExamSampler();
+        List<Long> all = sampler.sample(500, null, null, new Random(1));
+        assertEquals(199, all.size(), "suspended card is never drawn");
+        assertEquals(199, new HashSet<>(all).size());
+
+        List<Long> nounsOnly = sampler.sample(20, Collections.singletonList(nouns), null, new Random(2));
+        assertEquals(20, nounsOnly.size());
+        for (long id : nounsOnly) assertTrue(id >= cards[100]);
+
+        List<Long> tagged = sampler.sample(50, null, Arrays.asList("food", "unknown"), new Random(3));
+        assertEquals(20, tagged.size());
+        assertTrue(sampler.sample(5, null, Collections.singletonList("unknown"), new Random(3)).isEmpty());
+
+        // Ten weak cards among 100 verbs carry ~11x the weight: about 4 of a 10-card draw, vs 1 when uniform
+        int weak = 0;
+        for (int round = 0; round < 50; round++) {
+            for (long id : sampler.sample(10, Collections.singletonList(verbs), null, new Random(round))) {
+                if (id <= cards[9]) weak++;
+            }
+        }
+        assertTrue(weak > 150, "weak cards drawn " + weak + " of 500");
+
+        // Cards inserted without any event (imports) are picked up by the probe
+        Note extra = new Note();
+        extra.deckId = nouns; extra.front = "X"; extra.back = "Y";
+        cr.insertForNote(nr.insert(extra));
+        assertEquals(200, sampler.sample(500, null, null, new Random(4)).size());
+    }
+
+    @Test
+    void shouldPatchRatedAndEditedCardsInPlace() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-exam-patch-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Database.stop();
+
+        long deck = new DeckRepository().getOrCreate("Verbs");
+        NoteRepository nr = new NoteRepository();
+        CardRepository cr = new CardRepository();
+        long[] notes = new long[3];
+        long[] cards = new long[3];
+        for (int i = 0; i < cards.length; i++) {
+            Note n = new Note();
+            n.deckId = deck; n.front = "F" + i; n.back = "B" + i; n.tags = i == 2 ? "food" : "misc";
+            notes[i] = nr.insert(n);
+            cards[i] = cr.insertForNote(notes[i]);
+        }
+        ExamSampler sampler = new ExamSampler();
+        CardStatsSnapshot s = sampler.snapshot();
+        int i1 = Arrays.binarySearch(s.cardIds, 0, s.size, cards[1]);
+
+        try (Statement st = Database.get().createStatement()) {
+            st.executeUpdate("UPDATE card SET ease=1.3, lapses=4 WHERE id=" + cards[1]);
+            st.executeUpdate("INSERT INTO review_log(card_id, reviewed_at, rating) VALUES (" + cards[1] + ", CURRENT_TIMESTAMP, 1)");
+            st.executeUpdate("INSERT INTO review_log(card_id, reviewed_at, rating) VALUES (" + cards[1] + ", CURRENT_TIMESTAMP, 3)");
+            st.executeUpdate("UPDATE note SET tags='food' WHERE id=" + notes[0]);
+        }
+        sampler.patch(new long[]{cards[1]});
+        sampler.patchNote(notes[0]);
+        sampler.awaitIdle();
+        assertSame(s, sampler.snapshot(), "patched, not rebuilt");
+        assertEquals(1.3f, s.ease[i1], 1e-6);
+        assertEquals(4, s.lapses[i1]);
+        assertEquals(2, s.recentReviews[i1]);
+        assertEquals(1, s.recentFails[i1]);
+        assertEquals(new HashSet<>(Arrays.asList(cards[0], cards[2])),
+                new HashSet<>(sampler.sample(5, null, Collections.singletonList("food"), new Random(1))));
+
+        // A tag the snapshot has never seen does not fit in place
+        try (Statement st = Database.get().createStatement()) {
+            st.executeUpdate("UPDATE note SET tags='n5' WHERE id=" + notes[1]);
+        }
+        sampler.patchNote(notes[1]);
+        sampler.awaitIdle();
+        CardStatsSnapshot rebuilt = sampler.snapshot();
+        assertNotSame(s, rebuilt);
+        assertEquals(Collections.singletonList(cards[1]), sampler.sample(5, null, Collections.singletonList("n5"), new Random(1)));
+    }
+
+    @Test
+    void shouldWeighWeakCardsHigher() {
+        double healthy = ExamSampler.weight(2.5f, 0, 5, 0);
+        assertEquals(1.0, healthy, 1e-9);
+        assertTrue(ExamSampler.weight(1.3f, 0, 0, 0) > healthy);
+        assertTrue(ExamSampler.weight(2.5f, 3, 0, 0) > healthy);
+        assertTrue(ExamSampler.weight(2.5f, 0, 4, 2) > healthy);
+        assertEquals(1.0 + 2.4 + 5.0 + 4.0, ExamSampler.weight(1.3f, 50, 3, 3), 1e-6);
+        assertEquals(Arrays.asList("n5", "food", "a"), CardStatsSnapshot.splitTags("N5;Food  a,n5"));
+    }
+}
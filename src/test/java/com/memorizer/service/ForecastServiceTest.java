@@ -0,0 +1,68 @@
+package com.memorizer.service;
+
+import com.memorizer.srs.SrsEngine;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForecastServiceTest {
+
+    /** Synthetic collection: {@code reviewCards} spread over the next 10 days plus {@code newCards} unseen. */
+    private static ForecastService.Snapshot synthetic(int reviewCards, int newCards) {
+        int n = reviewCards + newCards;
+        double[] due = new double[n], ivl = new double[n], ease = new double[n], since = new double[n];
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            boolean isNew = i >= reviewCards;
+            due[i] = isNew ? Double.NaN : (i % 10);
+            ivl[i] = isNew ? Double.NaN : 1 + (i % 20);
+            ease[i] = 2.5;
+            since[i] = isNew ? Double.NaN : ivl[i] - due[i];
+            rank[i] = isNew ? i - reviewCards : -1;
+        }
+        return new ForecastService.Snapshot(n, due, ivl, ease, since, rank, 0.9, 0.75, new double[]{0.15, 0.7, 0.15}, 6000.0);
+    }
+
+    @Test
+    void shouldIntroduceNewCardsAtConfiguredDailyLimit() {
+        ForecastService svc = new ForecastService(new SrsEngine());
+        ForecastService.Params p = new ForecastService.Params();
+        p.days = 14;
+        p.trials = 4;
+        p.dailyNewLimit = 10;
+        ForecastService.Forecast f = svc.forecast(synthetic(500, 60), p);
+
+        assertEquals(14, f.days.size());
+        // 60 new cards at 10/day -> days 0..5 introduce 10 each, nothing after
+        for (int d = 0; d < 6; d++) assertEquals(10.0, f.days.get(d).newCards, 1e-9);
+        for (int d = 6; d < 14; d++) assertEquals(0.0, f.days.get(d).newCards, 1e-9);
+        assertTrue(f.days.get(0).reviews > 0);
+        assertEquals(f.days.get(0).reviews * 6000.0 / 60000.0, f.days.get(0).minutes, 1e-9);
+        for (ForecastService.DayForecast d : f.days) {
+            if (d.reviews > 0) assertTrue(d.retention > 0 && d.retention <= 1.0);
+        }
+    }
+
+    @Test
+    void shouldBeDeterministicForSeedAndScaleWithNewLimit() {
+        ForecastService svc = new ForecastService(new SrsEngine());
+        ForecastService.Snapshot s = synthetic(100_000, 20_000);
+        ForecastService.Params low = new ForecastService.Params();
+        low.days = 30; low.trials = 4; low.dailyNewLimit = 10;
+        ForecastService.Params high = new ForecastService.Params();
+        high.days = 30; high.trials = 4; high.dailyNewLimit = 100;
+
+        ForecastService.Forecast a = svc.forecast(s, low);
+        ForecastService.Forecast b = svc.forecast(s, low);
+        ForecastService.Forecast c = svc.forecast(s, high);
+
+        double[] ra = a.days.stream().mapToDouble(d -> d.reviews).toArray();
+        double[] rb = b.days.stream().mapToDouble(d -> d.reviews).toArray();
+        assertArrayEquals(ra, rb, 1e-9, "same seed must reproduce");
+        assertTrue(c.totalMinutes > a.totalMinutes, "raising new/day must raise projected load");
+        assertEquals(120_000, a.cards);
+        assertTrue(Arrays.stream(ra).sum() > 0);
+    }
+}
@@ -0,0 +1,102 @@
+package com.memorizer.service;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.CardRepository;
+import com.memorizer.db.Database;
+import com.memorizer.db.DeckRepository;
+import com.memorizer.db.NoteRepository;
+import com.memorizer.model.Note;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadBalanceServiceTest {
+
+    @Test
+    void shouldRespectTheCapAndKeepDueOrder() throws Exception {
+        Config.set("app.db.path", Files.createTempDirectory("memo-balance-").resolve("memo").toString());
+        Database.stop();
+
+        long deck = new DeckRepository().getOrCreate("Verbs");
+        LocalDateTime day5 = LocalDate.now().plusDays(5).atTime(8, 0);
+        long[] crowded = new long[10];
+        for (int i = 0; i < crowded.length; i++) crowded[i] = reviewCard(deck, day5.plusMinutes(i));
+        long lone = reviewCard(deck, LocalDate.now().plusDays(10).atTime(9, 0));
+
+        LoadBalanceService svc = new LoadBalanceService();
+        LoadBalanceService.Params p = new LoadBalanceService.Params();
+        p.maxPerDay = 4;
+        p.horizonDays = 30;
+        p.fuzzPercent = 10; // 20-day interval -> +-2 days
+        p.maxFuzzDays = 7;
+        LoadBalanceService.Preview pv = svc.preview(p);
+
+        assertEquals(10, pv.before[5]);
+        assertEquals(4, pv.peakAfter());
+        assertEquals(0, pv.overflowDays);
+        int total = 0;
+        for (int v : pv.after) total += v;
+        assertEquals(11, total, "balancing moves cards, it never drops them");
+        assertEquals(6, pv.moves.size());
+
+        // A card rated since the preview is left alone
+        long rated = pv.moves.get(0).cardId;
+        Timestamp ratedDue = Timestamp.valueOf(LocalDate.now().plusDays(20).atTime(12, 0));
+        setDue(rated, ratedDue);
+        assertEquals(5, svc.apply(pv));
+        assertEquals(ratedDue, due(rated));
+
+        LocalDateTime prev = null;
+        for (long id : crowded) {
+            if (id == rated) continue;
+            LocalDateTime d = due(id).toLocalDateTime();
+            long day = ChronoUnit.DAYS.between(LocalDate.now(), d.toLocalDate());
+            assertTrue(day >= 3 && day <= 7, "card " + id + " moved to day " + day);
+            assertEquals(day5.toLocalTime().getHour(), d.getHour(), "time of day is kept");
+            if (prev != null) assertFalse(d.isBefore(prev), "cards due earlier stay earlier");
+            prev = d;
+        }
+        assertEquals(Timestamp.valueOf(LocalDate.now().plusDays(10).atTime(9, 0)), due(lone));
+    }
+
+    private static long reviewCard(long deck, LocalDateTime dueAt) {
+        Note n = new Note();
+        n.deckId = deck; n.front = "F" + dueAt; n.back = "B";
+        long id = new CardRepository().insertForNote(new NoteRepository().insert(n));
+        try (PreparedStatement ps = Database.get().prepareStatement(
+                "UPDATE card SET status=2, interval_days=20, ease=2.5, due_at=? WHERE id=?")) {
+            ps.setTimestamp(1, Timestamp.valueOf(dueAt));
+            ps.setLong(2, id);
+            ps.executeUpdate();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return id;
+    }
+
+    private static void setDue(long id, Timestamp due) throws Exception {
+        try (PreparedStatement ps = Database.get().prepareStatement("UPDATE card SET due_at=? WHERE id=?")) {
+            ps.setTimestamp(1, due);
+            ps.setLong(2, id);
+            ps.executeUpdate();
+        }
+    }
+
+    private static Timestamp due(long id) throws Exception {
+        try (PreparedStatement ps = Database.get().prepareStatement("SELECT due_at FROM card WHERE id=?")) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getTimestamp(1);
+            }
+        }
+    }
+}
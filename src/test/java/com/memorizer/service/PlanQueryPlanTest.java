@@ -0,0 +1,38 @@
+package com.memorizer.service;
+
+import com.memorizer.db.QueryPlanTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+
+import static com.memorizer.db.QueryPlanTest.assertIndexed;
+
+/** {@link QueryPlanTest} for the statements {@link PlanService} builds and reloads today's plan with. */
+public class PlanQueryPlanTest {
+
+    @BeforeAll
+    static void setup() throws Exception {
+        QueryPlanTest.populate();
+    }
+
+    private static Timestamp now() { return new Timestamp(System.currentTimeMillis()); }
+    private static java.sql.Date today() { return java.sql.Date.valueOf(java.time.LocalDate.now()); }
+
+    @Test
+    void planBuildQueries() throws Exception {
+        assertIndexed(PlanService.dueCardsSql(null), now(), 200);
+        assertIndexed(PlanService.dueCardsSql(2L), now(), 2L, 200);
+        assertIndexed(PlanService.newCardsSql(null), 20);
+        assertIndexed(PlanService.newCardsSql(2L), 2L, 20);
+        assertIndexed(PlanService.leechCardsSql(2L), 8, 2L, 2L, 3, 2L, 100);
+        assertIndexed(PlanService.leechCardsSql(null), 8, 3, 100);
+    }
+
+    @Test
+    void planReadQueries() throws Exception {
+        // PlanService serves reads from memory; this is the one query that (re)loads today's plan
+        assertIndexed(PlanService.LOAD_PLAN_SQL, today(), 0);
+        assertIndexed(PlanService.MAX_ORDER_SQL, today());
+    }
+}
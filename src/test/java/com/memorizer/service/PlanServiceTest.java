@@ -107,5 +107,76 @@ public class PlanServiceTest {
         int totalA = ps.todayCounts().total;
         assertEquals(3, totalA);
     }
-}
 
+    @Test
+    void shouldWriteThroughStatusChanges() throws Exception {
+        PlanService ps = new PlanService();
+        Config.set("app.deck.filter", "all");
+        ps.buildToday();
+        long first = ps.nextFromPlan().get();
+        ps.markSkipped(first);
+        assertNotEquals(first, ps.nextFromPlan().get().longValue());
+
+        try (java.sql.PreparedStatement q = Database.get().prepareStatement(
+                "SELECT status FROM study_plan WHERE plan_date=? AND card_id=?")) {
+            q.setDate(1, java.sql.Date.valueOf(java.time.LocalDate.now()));
+            q.setLong(2, first);
+            try (java.sql.ResultSet rs = q.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(PlanService.Status.SKIPPED.v, rs.getInt(1));
+            }
+        }
+
+        ps.rollRemainingToday();
+        PlanService.Counts c = ps.todayCounts();
+        assertEquals(0, c.pending);
+        assertEquals(1, c.skipped);
+        assertEquals(c.total - 1, c.rolled);
+        assertFalse(ps.nextFromPlan().isPresent());
+    }
+
+    @Test
+    void shouldPageTodayInAnyOrder() {
+        PlanService ps = new PlanService();
+        Config.set("app.deck.filter", "all");
+        ps.buildToday();
+        java.util.List<PlanService.PlanRow> all = ps.listToday();
+        assertEquals(5, ps.sizeToday());
+
+        // Plan order, in windows of two
+        java.util.List<Long> paged = new java.util.ArrayList<>();
+        for (int from = 0; from < 5; from += 2) {
+            for (PlanService.PlanRow r : ps.pageToday(java.util.Collections.<PlanService.Sort>emptyList(), from, 2)) paged.add(r.getCardId());
+        }
+        java.util.List<Long> expected = new java.util.ArrayList<>();
+        for (PlanService.PlanRow r : all) expected.add(r.getCardId());
+        assertEquals(expected, paged);
+        assertTrue(ps.pageToday(java.util.Collections.<PlanService.Sort>emptyList(), 5, 2).isEmpty());
+
+        // Front descending
+        java.util.List<PlanService.Sort> byFront =
+                java.util.Collections.singletonList(new PlanService.Sort(PlanService.Order.FRONT, true));
+        assertEquals("B1", ps.pageToday(byFront, 0, 1).get(0).getFront());
+        assertEquals("A0", ps.pageToday(byFront, 4, 1).get(0).getFront());
+
+        java.util.List<PlanService.Sort> byStatus =
+                java.util.Collections.singletonList(new PlanService.Sort(PlanService.Order.STATUS, false));
+        assertEquals(all.get(0).getCardId(), ps.pageToday(byStatus, 0, 1).get(0).getCardId());
+
+        // A status change shows in the next page read and in the strip; a status ordering is re-sorted
+        ps.markDone(all.get(0).getCardId());
+        assertEquals(all.get(0).getCardId(), ps.pageToday(byStatus, 4, 1).get(0).getCardId(), "done sorts after pending");
+        assertEquals(all.get(1).getCardId(), ps.pageToday(byStatus, 0, 1).get(0).getCardId());
+        assertEquals(PlanService.Status.DONE.v, ps.pageToday(java.util.Collections.<PlanService.Sort>emptyList(), 0, 1).get(0).getStatus());
+        PlanService.Strip strip = ps.stripToday();
+        assertEquals(5, strip.cardIds.length);
+        assertEquals(all.get(0).getCardId(), strip.cardIds[0]);
+        assertEquals(PlanService.Status.DONE.v, strip.statuses[0]);
+        assertEquals(PlanService.Status.PENDING.v, strip.statuses[1]);
+
+        Config.set("app.deck.filter", String.valueOf(deckB));
+        assertEquals(2, ps.sizeToday());
+        assertEquals(2, ps.pageToday(byFront, 0, 10).size());
+        Config.set("app.deck.filter", "all");
+    }
+}
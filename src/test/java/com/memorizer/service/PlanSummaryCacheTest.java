@@ -0,0 +1,88 @@
+package com.memorizer.service;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.CardRepository;
+import com.memorizer.db.Database;
+import com.memorizer.db.DeckRepository;
+import com.memorizer.db.NoteRepository;
+import com.memorizer.event.DomainEvents;
+import com.memorizer.event.EventBus;
+import com.memorizer.model.Note;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlanSummaryCacheTest {
+
+    @Test
+    void shouldFollowPlanEventsWithoutReloading() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-summary-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Config.set("app.deck.filter", "all");
+        Database.stop();
+
+        long deck = new DeckRepository().getOrCreate("Deck");
+        NoteRepository nr = new NoteRepository();
+        CardRepository cr = new CardRepository();
+        for (int i = 0; i < 3; i++) {
+            Note n = new Note();
+            n.deckId = deck; n.front = "F" + i; n.back = "B" + i;
+            cr.insertForNote(nr.insert(n));
+        }
+
+        PlanService plan = new PlanService();
+        PlanSummaryCache cache = new PlanSummaryCache(plan);
+        List<PlanSummaryCache.Summary> pushed = new ArrayList<>();
+        EventBus.Subscription own = null, sub = null;
+        try {
+            own = EventBus.subscribe(DomainEvents.PlanChanged.class, cache::onPlanChanged);
+            sub = EventBus.subscribe(PlanSummaryCache.Updated.class, u -> pushed.add(u.summary));
+
+            plan.buildToday();
+            cache.awaitPublished();
+            PlanSummaryCache.Summary s = pushed.get(pushed.size() - 1);
+            assertEquals(3, s.pending);
+            assertEquals("Deck • F0", s.next);
+
+            long first = plan.peekNext().get().cardId;
+            // Rows change underneath without an event: neither the cache nor the plan model may notice
+            try (java.sql.Statement st = Database.get().createStatement()) {
+                st.executeUpdate("UPDATE study_plan SET status=2 WHERE card_id <> " + first);
+            }
+            plan.markDone(first);
+            cache.awaitPublished();
+            s = pushed.get(pushed.size() - 1);
+            assertEquals(2, s.pending);
+            assertEquals(1, s.done);
+            assertEquals("Deck • F1", s.next);
+        } finally {
+            if (own != null) own.cancel();
+            if (sub != null) sub.cancel();
+        }
+    }
+
+    @Test
+    void shouldRecountReviewsLoggedByDevices() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-summary-sync-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Database.stop();
+        Note n = new Note();
+        n.front = "F"; n.back = "B";
+        long card = new CardRepository().insertForNote(new NoteRepository().insert(n));
+
+        PlanSummaryCache cache = new PlanSummaryCache(new PlanService());
+        assertEquals(0, cache.current().reviewsToday);
+        try (java.sql.Statement st = Database.get().createStatement()) {
+            st.executeUpdate("INSERT INTO review_log(card_id, reviewed_at, rating) VALUES (" + card + ", CURRENT_TIMESTAMP, 3)");
+            st.executeUpdate("INSERT INTO review_log(card_id, reviewed_at, rating) VALUES (" + card + ", DATEADD('DAY', -3, CURRENT_TIMESTAMP), 3)");
+        }
+        assertEquals(0, cache.current().reviewsToday, "cached until told");
+        cache.onReviewsImported();
+        assertEquals(1, cache.current().reviewsToday);
+    }
+}
@@ -0,0 +1,62 @@
+package com.memorizer.service;
+
+import com.memorizer.app.Config;
+import com.memorizer.db.CardRepository;
+import com.memorizer.db.Database;
+import com.memorizer.db.NoteRepository;
+import com.memorizer.model.Note;
+import com.memorizer.model.Rating;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StudySessionsTest {
+
+    @Test
+    void shouldIsolateConcurrentSessions() throws Exception {
+        Path tmp = Files.createTempDirectory("memo-db-");
+        Config.set("app.db.path", tmp.resolve("memo").toString());
+        Database.stop();
+        NoteRepository nr = new NoteRepository();
+        CardRepository cr = new CardRepository();
+        for (int i = 0; i < 3; i++) {
+            Note n = new Note();
+            n.front = "F" + i; n.back = "B" + i;
+            cr.insertForNote(nr.insert(n));
+        }
+
+        StudyService study = new StudyService();
+        StudySession a = study.sessions().getOrCreate(null);
+        StudySession b = study.sessions().getOrCreate(null);
+        assertNotEquals(a.getId(), b.getId());
+        assertSame(a, study.sessions().getOrCreate(a.getId()));
+
+        long cardA = study.currentOrNextOrFallback(a).get().getCardId();
+        long cardB = study.currentOrNextOrFallback(b).get().getCardId();
+        assertNotEquals(cardA, cardB, "sessions are handed different cards");
+        assertEquals(cardA, study.currentOrNextOrFallback(a).get().getCardId(), "reopen keeps the session's card");
+
+        // A stale form for another card is ignored; the matching one is applied to that session's card only
+        assertFalse(study.rate(a, Rating.GOOD, cardB));
+        assertTrue(study.rate(a, Rating.GOOD, cardA));
+        assertEquals(-1, a.getShowingCardId());
+        assertEquals(cardB, b.getShowingCardId());
+        try (Statement st = Database.get().createStatement();
+             ResultSet rs = st.executeQuery("SELECT card_id FROM review_log")) {
+            assertTrue(rs.next());
+            assertEquals(cardA, rs.getLong(1));
+            assertFalse(rs.next());
+        }
+
+        // Idle sessions are evicted; the desktop session is pinned
+        study.sessions().sweep(System.currentTimeMillis() + 24 * 3_600_000L);
+        assertNull(study.sessions().get(a.getId()));
+        assertNotNull(study.sessions().desktop());
+        assertEquals(1, study.sessions().size());
+    }
+}
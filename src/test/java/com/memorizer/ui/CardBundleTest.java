@@ -0,0 +1,38 @@
+package com.memorizer.ui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CardBundleTest {
+
+    @Test
+    void shouldPrepareMiniSequenceAndFreezeExamples() {
+        List<String> examples = new ArrayList<>(Arrays.asList("I ate an apple\nyesterday", "  "));
+        CardBundle b = CardBundle.of(7, "apple", "a fruit\r\n  red one ", "ˈæpəl", "n", examples, null, true, null);
+
+        assertEquals(7, b.cardId);
+        assertEquals("ˈæpəl  [n]", b.readingPos);
+        assertEquals(Arrays.asList("apple", "a fruit", "red one", "ˈæpəl  [n]", "I ate an apple", "yesterday"), b.miniSeq);
+
+        // The bundle keeps its own copy and cannot be changed by renderers
+        examples.add("later");
+        assertEquals(2, b.examples.size());
+        assertThrows(UnsupportedOperationException.class, () -> b.examples.add("x"));
+        assertThrows(UnsupportedOperationException.class, () -> b.miniSeq.clear());
+
+        // Unmeasured bundles defer width to the renderer
+        assertTrue(b.widths.isEmpty());
+        assertNull(b.width("I ate an apple yesterday", null));
+        assertEquals("a b", CardBundle.singleLine("a\nb"));
+
+        CardBundle bare = CardBundle.of(8, null, null, null, "v", null, null, false, null);
+        assertEquals("[v]", bare.readingPos);
+        assertTrue(bare.miniSeq.isEmpty());
+        assertTrue(bare.examples.isEmpty());
+    }
+}
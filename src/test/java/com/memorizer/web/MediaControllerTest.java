@@ -0,0 +1,38 @@
+package com.memorizer.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MediaControllerTest {
+
+    @Test
+    void shouldParseSingleByteRanges() {
+        String etag = "\"abc\"";
+        assertNull(MediaController.range(null, null, etag, 100));
+        assertArrayEquals(new long[]{0, 99}, MediaController.range("bytes=0-", null, etag, 100));
+        assertArrayEquals(new long[]{10, 19}, MediaController.range("bytes=10-19", null, etag, 100));
+        assertArrayEquals(new long[]{90, 99}, MediaController.range("bytes=90-500", null, etag, 100));
+        assertArrayEquals(new long[]{80, 99}, MediaController.range("bytes=-20", null, etag, 100));
+        assertArrayEquals(new long[]{0, 99}, MediaController.range("bytes=-500", null, etag, 100));
+        assertArrayEquals(new long[]{-1, -1}, MediaController.range("bytes=100-", null, etag, 100));
+        assertArrayEquals(new long[]{-1, -1}, MediaController.range("bytes=-0", null, etag, 100));
+        // Multiple ranges, malformed specs and stale If-Range fall back to the whole body
+        assertNull(MediaController.range("bytes=0-1,5-6", null, etag, 100));
+        assertNull(MediaController.range("bytes=x-1", null, etag, 100));
+        assertNull(MediaController.range("bytes=5-3", null, etag, 100));
+        assertNull(MediaController.range("bytes=0-1", "\"other\"", etag, 100));
+        assertArrayEquals(new long[]{0, 1}, MediaController.range("bytes=0-1", etag, etag, 100));
+    }
+
+    @Test
+    void shouldOnlyPassAudioAndRasterImageTypes() {
+        assertEquals("audio/mpeg", com.memorizer.db.MediaStore.safeMime("Audio/MPEG; codecs=mp3"));
+        assertEquals("image/png", com.memorizer.db.MediaStore.safeMime("image/png"));
+        for (String bad : new String[]{"text/html", "image/svg+xml", "application/xhtml+xml", "text/xml",
+                "audio/x<script>", "", null}) {
+            assertEquals("application/octet-stream", com.memorizer.db.MediaStore.safeMime(bad), String.valueOf(bad));
+        }
+        assertEquals("application/octet-stream", com.memorizer.db.MediaStore.mimeFor("x.svg"));
+    }
+}